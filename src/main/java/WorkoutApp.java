@@ -1,32 +1,78 @@
+import admission.AdmissionController;
+import attendance.AttendanceService;
+import attendance.CheckIn;
+import batch.BatchCommandRunner;
+import dashboard.MemberDashboard;
+import dashboard.MemberDashboardService;
+import database.ChangeListener;
+import database.Deadline;
+import database.PartitionMaintainer;
+import database.SqlSupplier;
+import export.ExportFormat;
+import export.ExportResult;
+import export.TableExporter;
+import outbox.FileOutboxSink;
+import outbox.OutboxRelay;
 import user.User;
+import user.UserBatchLoader;
 import user.UserService;
+import membership.MembershipExpirySweeper;
 import membership.MembershipService;
 import workout.WorkoutClassService;
 import membership.Membership;
+import workout.ClassScheduleGenerator;
+import workout.ClassTemplate;
+import workout.ClassTemplateService;
 import workout.WorkoutClass;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Main application class for the Gym Management System.
  * Handles user interaction, authentication, and menu navigation for different user roles (Admin, Trainer, Member).
  */
 public class WorkoutApp {
+    private static final String SCHEDULE_PATTERN = "yyyy-MM-dd HH:mm";
+    private static final int SEARCH_PAGE_SIZE = 10;
+    private static final int USER_SEARCH_LIMIT = 20;
+    private static final long ACTION_TIMEOUT_MILLIS = Long.getLong("gym.menu.timeoutMillis", 10_000);
     private static final Scanner scanner = new Scanner(System.in);
     private static UserService userService;
     private static MembershipService membershipService;
     private static WorkoutClassService workoutClassService;
+    private static ClassTemplateService classTemplateService;
+    private static MemberDashboardService dashboardService;
+    private static AttendanceService attendanceService;
     private static User currentUser;
 
     /**
      * Entry point for the Gym Management System application.
-     * Initializes services and launches the main menu.
+     * Initializes services and launches the main menu, or with {@code --batch [file|-] [parallelism]}
+     * runs the commands in the file (or standard input) without the menus; see {@link BatchCommandRunner}.
      *
-     * @param args Command-line arguments (not used)
+     * @param args Command-line arguments; empty for the interactive menus
      */
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args));
+        }
         try {
             initializeServices();
             showMainMenu();
@@ -38,14 +84,83 @@ public class WorkoutApp {
     }
 
     /**
-     * Initializes the core service objects for user, membership, and workout class management.
+     * Runs batch commands on one set of services and prints one machine-readable line per command.
+     * Missing partitions are created first, but the background jobs started for the interactive app are not started.
+     *
+     * @param args {@code --batch}, then optionally the command file ({@code -} for standard input) and the parallelism
+     * @return the process exit code: 0 if every command succeeded, 1 if any failed, 2 for bad usage or input
+     */
+    private static int runBatch(String[] args) {
+        String source = args.length > 1 ? args[1] : "-";
+        int parallelism;
+        try {
+            parallelism = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+        } catch (NumberFormatException e) {
+            parallelism = 0;
+        }
+        if (parallelism < 1) {
+            System.err.println("Usage: WorkoutApp --batch [file|-] [parallelism]");
+            return 2;
+        }
+
+        PrintWriter out = new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        try (BufferedReader in = source.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Paths.get(source), StandardCharsets.UTF_8)) {
+            // Enrollments can only be stored once their month's partition exists
+            new PartitionMaintainer().createRetainedPartitions(LocalDate.now());
+            // Workers share one schedule index, so double bookings are caught across them
+            WorkoutClassService classes = new WorkoutClassService();
+            BatchCommandRunner runner = new BatchCommandRunner(UserService::new, MembershipService::new,
+                    classes::withOwnConnections);
+            return runner.run(in, out, parallelism) == 0 ? 0 : 1;
+        } catch (SQLException e) {
+            System.err.println("Error connecting to database: " + e.getMessage());
+            return 2;
+        } catch (IOException e) {
+            System.err.println("Could not read commands: " + e.getMessage());
+            return 2;
+        } finally {
+            out.flush();
+        }
+    }
+
+    /**
+     * Initializes the core service objects for user, membership, and workout class management,
+     * starts listening for changes made by other application instances, creates any missing
+     * partitions, schedules the nightly membership expiry sweep, recurring class expansion and
+     * partition maintenance, and starts relaying
+     * membership outbox events to the file named by {@code gym.outbox.file}, if set.
      *
      * @throws SQLException if a database connection error occurs
      */
     private static void initializeServices() throws SQLException {
+        // Enrollments and check-ins can only be stored once their month's partition exists. Retiring
+        // old partitions needs exclusive locks, so it is left to the nightly run rather than startup
+        PartitionMaintainer partitionMaintainer = new PartitionMaintainer();
+        partitionMaintainer.createRetainedPartitions(LocalDate.now());
         userService = new UserService();
         membershipService = new MembershipService();
         workoutClassService = new WorkoutClassService();
+        classTemplateService = new ClassTemplateService(workoutClassService);
+        dashboardService = new MemberDashboardService(userService, membershipService, workoutClassService);
+        attendanceService = new AttendanceService();
+        if (Boolean.getBoolean("gym.users.typeAhead")) {
+            userService.enableTypeAhead();
+        }
+        ChangeListener.getInstance().start();
+        new MembershipExpirySweeper().start(LocalTime.parse(System.getProperty("gym.sweeper.time", "02:00")));
+        classTemplateService.startDailyExpansion(LocalTime.parse(System.getProperty("gym.templates.time", "03:00")));
+        partitionMaintainer.start(LocalTime.parse(System.getProperty("gym.partitions.time", "04:00")));
+
+        String outboxFile = System.getProperty("gym.outbox.file");
+        if (outboxFile != null) {
+            try {
+                new OutboxRelay(new FileOutboxSink(Paths.get(outboxFile)), 100).start(1);
+            } catch (IOException e) {
+                System.out.println("Could not open outbox file: " + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -92,7 +207,7 @@ public class WorkoutApp {
         String password = scanner.nextLine();
 
         try {
-            currentUser = userService.login(username, password);
+            currentUser = timed("menu.login", () -> userService.login(username, password));
             System.out.println("Welcome, " + currentUser.getUserName() + "!");
             showRoleSpecificMenu();
         } catch (SQLException | IllegalArgumentException e) {
@@ -125,7 +240,7 @@ public class WorkoutApp {
         String role = roleChoice == 1 ? "MEMBER" : "TRAINER";
 
         try {
-            userService.registerUser(username, password, email, phoneNumber, address, role);
+            timed("menu.register", () -> userService.registerUser(username, password, email, phoneNumber, address, role));
             System.out.println("Registration successful! Please login.");
         } catch (SQLException | IllegalArgumentException e) {
             System.out.println("Registration failed: " + e.getMessage());
@@ -155,13 +270,15 @@ public class WorkoutApp {
     }
 
     /**
-     * Displays and handles the Admin menu options: view users, delete user, view revenue, logout.
+     * Displays and handles the Admin menu options: view/search users, delete user, view revenue, export data, logout.
      */
     private static void showAdminMenu() {
         System.out.println("1. View all users");
-        System.out.println("2. Delete user");
-        System.out.println("3. View total revenue");
-        System.out.println("4. Logout");
+        System.out.println("2. Search users");
+        System.out.println("3. Delete user");
+        System.out.println("4. View total revenue");
+        System.out.println("5. Export data");
+        System.out.println("6. Logout");
         System.out.print("Choose an option: ");
 
         int choice = scanner.nextInt();
@@ -170,41 +287,75 @@ public class WorkoutApp {
         try {
             switch (choice) {
                 case 1:
-                    List<User> users = userService.getAllUsers();
+                    List<User> users = timed("admin.viewUsers", userService::getAllUsers);
                     users.forEach(System.out::println);
                     break;
                 case 2:
+                    System.out.print("Search by name, email or phone: ");
+                    String text = scanner.nextLine();
+                    List<User> matches = timed("admin.searchUsers", () -> userService.searchUsers(text, USER_SEARCH_LIMIT));
+                    if (matches.isEmpty()) {
+                        System.out.println("No users found.");
+                    }
+                    matches.forEach(System.out::println);
+                    break;
+                case 3:
                     System.out.print("Enter user ID to delete: ");
                     int userId = scanner.nextInt();
-                    if (userService.deleteUser(userId)) {
+                    if (timed("admin.deleteUser", () -> userService.deleteUser(userId))) {
                         System.out.println("User deleted successfully.");
                     }
                     break;
-                case 3:
-                    double revenue = membershipService.calculateTotalRevenue();
+                case 4:
+                    double revenue = timed("admin.revenue", membershipService::calculateTotalRevenue);
                     System.out.printf("Total Revenue: $%.2f%n", revenue);
                     break;
-                case 4:
+                case 5:
+                    exportData();
+                    break;
+                case 6:
                     currentUser = null;
                     return;
                 default:
                     System.out.println("Invalid option.");
             }
-        } catch (SQLException e) {
+        } catch (SQLException | IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
         }
     }
 
     /**
-     * Displays and handles the Trainer menu options: create/view/update/delete workout classes, purchase membership, logout.
+     * Prompts the Admin for a directory and format and exports users, memberships and
+     * workout classes there as gzip-compressed files.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    private static void exportData() throws SQLException {
+        System.out.print("Export directory: ");
+        String directory = scanner.nextLine().trim();
+        System.out.print("Format 1. CSV or 2. JSON: ");
+        ExportFormat format = scanner.nextLine().trim().equals("2") ? ExportFormat.JSON : ExportFormat.CSV;
+
+        try {
+            List<ExportResult> results = new TableExporter().exportAll(Paths.get(directory), format);
+            results.forEach(System.out::println);
+        } catch (IOException e) {
+            System.out.println("Could not write export: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Displays and handles the Trainer menu options: create/view/update/delete workout classes, manage recurring classes, purchase membership, logout.
      */
     private static void showTrainerMenu() {
         System.out.println("1. Create workout class");
         System.out.println("2. View my classes");
         System.out.println("3. Update class");
         System.out.println("4. Delete class");
-        System.out.println("5. Purchase membership");
-        System.out.println("6. Logout");
+        System.out.println("5. Create recurring class");
+        System.out.println("6. Skip a recurring class date");
+        System.out.println("7. Purchase membership");
+        System.out.println("8. Logout");
         System.out.print("Choose an option: ");
 
         int choice = scanner.nextInt();
@@ -216,7 +367,8 @@ public class WorkoutApp {
                     createWorkoutClass();
                     break;
                 case 2:
-                    List<WorkoutClass> classes = workoutClassService.getWorkoutClassesByTrainerId(currentUser.getUserId());
+                    int trainerId = currentUser.getUserId();
+                    List<WorkoutClass> classes = timed("trainer.viewClasses", () -> workoutClassService.getWorkoutClassesByTrainerId(trainerId));
                     classes.forEach(System.out::println);
                     break;
                 case 3:
@@ -226,27 +378,37 @@ public class WorkoutApp {
                     deleteWorkoutClass();
                     break;
                 case 5:
-                    purchaseMembership();
+                    createRecurringClass();
                     break;
                 case 6:
+                    skipRecurringClassDate();
+                    break;
+                case 7:
+                    purchaseMembership();
+                    break;
+                case 8:
                     currentUser = null;
                     return;
                 default:
                     System.out.println("Invalid option.");
             }
-        } catch (SQLException e) {
+        } catch (SQLException | IllegalArgumentException e) {
             System.out.println("Error: " + e.getMessage());
         }
     }
 
     /**
-     * Displays and handles the Member menu options: view classes, purchase membership, view memberships, logout.
+     * Displays and handles the Member menu options: view/search classes, purchase membership, view memberships,
+     * view dashboard, view recent visits, logout.
      */
     private static void showMemberMenu() {
         System.out.println("1. View available classes");
-        System.out.println("2. Purchase membership");
-        System.out.println("3. View my memberships");
-        System.out.println("4. Logout");
+        System.out.println("2. Search classes");
+        System.out.println("3. Purchase membership");
+        System.out.println("4. View my memberships");
+        System.out.println("5. View my dashboard");
+        System.out.println("6. View my visits (last 30 days)");
+        System.out.println("7. Logout");
         System.out.print("Choose an option: ");
 
         int choice = scanner.nextInt();
@@ -255,17 +417,32 @@ public class WorkoutApp {
         try {
             switch (choice) {
                 case 1:
-                    List<WorkoutClass> classes = workoutClassService.getAllWorkoutClasses();
-                    classes.forEach(System.out::println);
+                    List<WorkoutClass> classes = timed("member.viewClasses", workoutClassService::getAllWorkoutClasses);
+                    printWithTrainers("member.viewClasses", classes);
                     break;
                 case 2:
-                    purchaseMembership();
+                    searchWorkoutClasses();
                     break;
                 case 3:
-                    List<Membership> memberships = membershipService.getMembershipsByUserId(currentUser.getUserId());
-                    memberships.forEach(System.out::println);
+                    purchaseMembership();
                     break;
                 case 4:
+                    int userId = currentUser.getUserId();
+                    List<Membership> memberships = timed("member.viewMemberships", () -> membershipService.getMembershipsByUserId(userId));
+                    memberships.forEach(System.out::println);
+                    break;
+                case 5:
+                    showDashboard();
+                    break;
+                case 6:
+                    int memberId = currentUser.getUserId();
+                    List<CheckIn> visits = timed("member.viewVisits", () -> attendanceService.getRecentCheckIns(memberId, 30));
+                    if (visits.isEmpty()) {
+                        System.out.println("No visits in the last 30 days.");
+                    }
+                    visits.forEach(System.out::println);
+                    break;
+                case 7:
                     currentUser = null;
                     return;
                 default:
@@ -276,6 +453,75 @@ public class WorkoutApp {
         }
     }
 
+    /**
+     * Shows the current member's profile, memberships and upcoming classes, fetched in parallel.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    private static void showDashboard() throws SQLException {
+        int memberId = currentUser.getUserId();
+        MemberDashboard dashboard = timed("member.dashboard", () -> dashboardService.getDashboard(memberId));
+        System.out.println(dashboard.getProfile());
+        System.out.println("Memberships:");
+        dashboard.getMemberships().forEach(System.out::println);
+        System.out.println("Upcoming classes:");
+        if (dashboard.getUpcomingClasses().isEmpty()) {
+            System.out.println("None booked.");
+        }
+        printWithTrainers("member.dashboard", dashboard.getUpcomingClasses());
+    }
+
+    /**
+     * Prints classes with their trainers' names, looking up every trainer in one query.
+     * @param operation The action's name, under which a timeout of the lookup is counted
+     * @param classes   The classes to print
+     * @throws SQLException if a database error occurs
+     */
+    private static void printWithTrainers(String operation, List<WorkoutClass> classes) throws SQLException {
+        UserBatchLoader trainers = userService.newBatchLoader();
+        List<CompletableFuture<User>> classTrainers = new ArrayList<>();
+        for (WorkoutClass workoutClass : classes) {
+            classTrainers.add(trainers.load(workoutClass.getTrainerId()));
+        }
+        timed(operation, () -> {
+            trainers.dispatch();
+            return null;
+        });
+        for (int i = 0; i < classes.size(); i++) {
+            CompletableFuture<User> trainer = classTrainers.get(i);
+            System.out.println(classes.get(i));
+            System.out.println("  Trainer: " + (trainer.isCompletedExceptionally() ? "unknown" : trainer.join().getUserName()));
+        }
+    }
+
+    /**
+     * Prompts for search words and shows matching classes a page at a time.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    private static void searchWorkoutClasses() throws SQLException {
+        System.out.print("Search for: ");
+        String text = scanner.nextLine();
+        int page = 0;
+        while (true) {
+            int current = page;
+            List<WorkoutClass> classes = timed("classes.search", () -> workoutClassService.searchWorkoutClasses(text, current, SEARCH_PAGE_SIZE));
+            if (classes.isEmpty()) {
+                System.out.println(page == 0 ? "No classes found." : "No more classes.");
+                return;
+            }
+            printWithTrainers("classes.search", classes);
+            if (classes.size() < SEARCH_PAGE_SIZE) {
+                return;
+            }
+            System.out.print("Show more? (y/n): ");
+            if (!scanner.nextLine().trim().equalsIgnoreCase("y")) {
+                return;
+            }
+            page++;
+        }
+    }
+
     /**
      * Prompts the Trainer to create a new workout class.
      *
@@ -286,11 +532,104 @@ public class WorkoutApp {
         String type = scanner.nextLine();
         System.out.print("Enter class description: ");
         String description = scanner.nextLine();
+        LocalDateTime scheduleTime = readScheduleTime("Enter start time (" + SCHEDULE_PATTERN + "): ");
+        if (scheduleTime == null) {
+            return;
+        }
+        System.out.print("Enter duration in minutes: ");
+        int duration = scanner.nextInt();
+        scanner.nextLine(); // Consume newline
 
-        WorkoutClass workoutClass = workoutClassService.createWorkoutClass(type, description, currentUser.getUserId());
+        int trainerId = currentUser.getUserId();
+        WorkoutClass workoutClass = timed("trainer.createClass", () -> workoutClassService.createWorkoutClass(type, description,
+                trainerId, scheduleTime, duration));
         System.out.println("Workout class created: " + workoutClass);
     }
 
+    /**
+     * Prompts the Trainer to create a recurring class template, such as every Tuesday at 18:00,
+     * and generates its upcoming classes.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    private static void createRecurringClass() throws SQLException {
+        ClassTemplate template = new ClassTemplate();
+        template.setTrainerId(currentUser.getUserId());
+        System.out.print("Enter class type: ");
+        template.setWorkoutClassType(scanner.nextLine());
+        System.out.print("Enter class description: ");
+        template.setWorkoutClassDescription(scanner.nextLine());
+        try {
+            System.out.print("Enter first date (yyyy-MM-dd): ");
+            template.setFirstDate(LocalDate.parse(scanner.nextLine().trim()));
+            System.out.print("Enter start time (HH:mm): ");
+            template.setStartTime(LocalTime.parse(scanner.nextLine().trim()));
+            System.out.print("Enter end date (yyyy-MM-dd), or leave blank to repeat indefinitely: ");
+            String untilDate = scanner.nextLine().trim();
+            template.setUntilDate(untilDate.isEmpty() ? null : LocalDate.parse(untilDate));
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date or time.");
+            return;
+        }
+        System.out.print("Enter duration in minutes: ");
+        template.setDurationMinutes(scanner.nextInt());
+        scanner.nextLine(); // Consume newline
+        System.out.print("Repeat 1. Daily or 2. Weekly: ");
+        template.setFrequency(scanner.nextLine().trim().equals("1") ? "DAILY" : "WEEKLY");
+        System.out.print("Repeat every how many " + (template.getFrequency().equals("DAILY") ? "days" : "weeks") + "? ");
+        template.setRepeatInterval(scanner.nextInt());
+        scanner.nextLine(); // Consume newline
+        if (template.getFrequency().equals("WEEKLY")) {
+            System.out.print("Enter weekdays (e.g. TU,TH), or leave blank for the first date's weekday: ");
+            template.setByDaysCode(scanner.nextLine());
+        }
+
+        ClassScheduleGenerator.Result result = timed("trainer.createRecurringClass", () -> classTemplateService.createTemplate(template));
+        System.out.println("Recurring class #" + template.getTemplateId() + " created: " + result);
+    }
+
+    /**
+     * Prompts the Trainer to skip one date of a recurring class, e.g. for a holiday.
+     *
+     * @throws SQLException if a database error occurs
+     */
+    private static void skipRecurringClassDate() throws SQLException {
+        int trainerId = currentUser.getUserId();
+        List<ClassTemplate> templates = timed("trainer.viewRecurringClasses", () -> classTemplateService.getTemplatesByTrainerId(trainerId));
+        templates.forEach(System.out::println);
+        System.out.print("Enter recurring class ID: ");
+        int templateId = scanner.nextInt();
+        scanner.nextLine(); // Consume newline
+        System.out.print("Enter date to skip (yyyy-MM-dd): ");
+        LocalDate date;
+        try {
+            date = LocalDate.parse(scanner.nextLine().trim());
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date.");
+            return;
+        }
+
+        ClassScheduleGenerator.Result result = timed("trainer.skipRecurringDate", () -> classTemplateService.addException(templateId, trainerId, date));
+        System.out.println("Date skipped: " + result);
+    }
+
+    /**
+     * Prompts for a class start time.
+     *
+     * @param prompt The prompt to show
+     * @return the entered date and time, or null if it could not be parsed
+     */
+    private static LocalDateTime readScheduleTime(String prompt) {
+        System.out.print(prompt);
+        String input = scanner.nextLine().trim();
+        try {
+            return LocalDateTime.parse(input, DateTimeFormatter.ofPattern(SCHEDULE_PATTERN));
+        } catch (DateTimeParseException e) {
+            System.out.println("Invalid date and time. Please use the format " + SCHEDULE_PATTERN + ".");
+            return null;
+        }
+    }
+
     /**
      * Prompts the Trainer to update an existing workout class.
      * Only allows updating classes owned by the current Trainer.
@@ -302,7 +641,7 @@ public class WorkoutApp {
         int classId = scanner.nextInt();
         scanner.nextLine(); // Consume newline
 
-        WorkoutClass workoutClass = workoutClassService.getWorkoutClassById(classId);
+        WorkoutClass workoutClass = timed("trainer.viewClass", () -> workoutClassService.getWorkoutClassById(classId));
         if (workoutClass.getTrainerId() != currentUser.getUserId()) {
             System.out.println("You can only update your own classes.");
             return;
@@ -312,8 +651,19 @@ public class WorkoutApp {
         workoutClass.setWorkoutClassType(scanner.nextLine());
         System.out.print("Enter new class description: ");
         workoutClass.setWorkoutClassDescription(scanner.nextLine());
+        System.out.print("Reschedule the class? (y/n): ");
+        if (scanner.nextLine().trim().equalsIgnoreCase("y")) {
+            LocalDateTime scheduleTime = readScheduleTime("Enter new start time (" + SCHEDULE_PATTERN + "): ");
+            if (scheduleTime == null) {
+                return;
+            }
+            System.out.print("Enter new duration in minutes: ");
+            workoutClass.setScheduleTime(scheduleTime);
+            workoutClass.setDurationMinutes(scanner.nextInt());
+            scanner.nextLine(); // Consume newline
+        }
 
-        if (workoutClassService.updateWorkoutClass(workoutClass)) {
+        if (timed("trainer.updateClass", () -> workoutClassService.updateWorkoutClass(workoutClass))) {
             System.out.println("Workout class updated successfully.");
         }
     }
@@ -327,7 +677,8 @@ public class WorkoutApp {
         System.out.print("Enter class ID to delete: ");
         int classId = scanner.nextInt();
         
-        if (workoutClassService.deleteWorkoutClass(classId, currentUser.getUserId())) {
+        int trainerId = currentUser.getUserId();
+        if (timed("trainer.deleteClass", () -> workoutClassService.deleteWorkoutClass(classId, trainerId))) {
             System.out.println("Workout class deleted successfully.");
         }
     }
@@ -350,7 +701,25 @@ public class WorkoutApp {
         String description = choice == 1 ? "30-day membership" : "365-day membership";
         double cost = choice == 1 ? 50.0 : 500.0;
 
-        Membership membership = membershipService.createMembership(type, description, cost, currentUser.getUserId());
+        int userId = currentUser.getUserId();
+        Membership membership = timed("membership.purchase", () -> membershipService.createMembership(type, description, cost, userId));
         System.out.println("Membership purchased successfully: " + membership);
     }
+
+    /**
+     * Runs the database work of one menu action under a deadline of {@code gym.menu.timeoutMillis}
+     * (default 10000 ms), so a slow query is cancelled instead of hanging the console.
+     * Only the database work is timed, not the prompts around it. The work is admitted as the
+     * logged-in user, or as {@code console} before login; see {@link AdmissionController}.
+     *
+     * @param operation The action's name, under which its timeouts are counted
+     * @param call      The service calls
+     * @param <T>       The calls' result type
+     * @return the calls' result
+     * @throws SQLException if a database error occurs, the action runs out of time or is turned away
+     */
+    private static <T> T timed(String operation, SqlSupplier<T> call) throws SQLException {
+        String client = currentUser != null ? currentUser.getUserName() : "console";
+        return AdmissionController.asClient(client, () -> Deadline.within(operation, ACTION_TIMEOUT_MILLIS, call));
+    }
 }
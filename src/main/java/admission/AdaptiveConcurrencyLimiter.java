@@ -0,0 +1,88 @@
+package admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps how many calls run at once, adapting the cap to observed latency with additive increase,
+ * multiplicative decrease (AIMD). Each call that finishes within the target latency raises the
+ * limit by about one per limit's worth of calls; a slower call, or one that timed out, cuts it by
+ * a tenth. Under overload the limit therefore settles where the database still answers quickly,
+ * and calls beyond it are turned away instead of queueing.
+ */
+public class AdaptiveConcurrencyLimiter {
+    private static final double DECREASE_FACTOR = 0.9;
+
+    private final long targetLatencyNanos;
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // Written under the lock, read without it
+    private volatile double limit;
+
+    /**
+     * Constructs an AdaptiveConcurrencyLimiter.
+     * @param initialLimit        The starting limit
+     * @param minLimit            The limit never drops below this
+     * @param maxLimit            The limit never rises above this
+     * @param targetLatencyMillis Calls slower than this lower the limit
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long targetLatencyMillis) {
+        if (minLimit < 1 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Limits must satisfy 1 <= min <= initial <= max");
+        }
+        this.limit = initialLimit;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.targetLatencyNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMillis);
+    }
+
+    /**
+     * Starts a call if the limit allows. Every started call must be followed by {@link #release}.
+     * @return true if the call may run
+     */
+    public boolean tryAcquire() {
+        int cap = getLimit();
+        while (true) {
+            int current = inFlight.get();
+            if (current >= cap) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Ends a call and adjusts the limit from its outcome.
+     * @param latencyNanos How long the call took
+     * @param overloaded   Whether the call failed in a way that signals overload, such as a timeout
+     */
+    public void release(long latencyNanos, boolean overloaded) {
+        inFlight.decrementAndGet();
+        synchronized (this) {
+            if (overloaded || latencyNanos > targetLatencyNanos) {
+                limit = Math.max(minLimit, limit * DECREASE_FACTOR);
+            } else {
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+        }
+    }
+
+    /**
+     * Gets the current limit.
+     * @return the most calls allowed at once
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of calls running.
+     * @return the calls started and not yet released
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+}
@@ -0,0 +1,214 @@
+package admission;
+
+import database.SqlSupplier;
+
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether an expensive service call may run, before it costs a BCrypt hash or a database
+ * round trip. A call must pass three checks, cheapest first:
+ * <ol>
+ *   <li>the calling client's token bucket for the operation, so one kiosk or script cannot crowd out the rest</li>
+ *   <li>the operation's shared token bucket, which bounds everyone together</li>
+ *   <li>an {@link AdaptiveConcurrencyLimiter} shared by all operations, which sheds load once the
+ *       database slows down</li>
+ * </ol>
+ * A call that fails any check gets an {@link AdmissionRejectedException} at once.
+ *
+ * <p>The client is whoever the entry point declared with {@link #asClient}, such as the logged-in
+ * user at the console. Rates are set per operation with {@code gym.admission.<operation>.clientRate},
+ * {@code .clientBurst}, {@code .rate} and {@code .burst}; the concurrency limit adapts between 4 and
+ * {@code gym.admission.maxConcurrency} (default 64) around {@code gym.admission.targetLatencyMillis}
+ * (default 250). {@code -Dgym.admission.enabled=false} turns admission control off.</p>
+ */
+public final class AdmissionController {
+    /** The kinds of call that are admission-controlled, with their default rates per second. */
+    public enum Operation {
+        /** Logging in, which runs a deliberately slow BCrypt check; limited per user name. */
+        LOGIN(0.5, 5, 50, 100),
+        /** Listing every user, membership or class. */
+        LISTING(2, 5, 20, 40),
+        /** Searching users or classes. */
+        SEARCH(10, 20, 200, 400);
+
+        private final double clientRate;
+        private final int clientBurst;
+        private final double rate;
+        private final int burst;
+
+        Operation(double clientRate, int clientBurst, double rate, int burst) {
+            String prefix = "gym.admission." + name().toLowerCase() + ".";
+            this.clientRate = doubleProperty(prefix + "clientRate", clientRate);
+            this.clientBurst = Integer.getInteger(prefix + "clientBurst", clientBurst);
+            this.rate = doubleProperty(prefix + "rate", rate);
+            this.burst = Integer.getInteger(prefix + "burst", burst);
+        }
+
+        /**
+         * Reads a decimal system property. Kept in the enum so reading rates does not initialize the controller.
+         * @param name         The property name
+         * @param defaultValue The value if the property is unset
+         * @return the value
+         */
+        private static double doubleProperty(String name, double defaultValue) {
+            String value = System.getProperty(name);
+            return value == null ? defaultValue : Double.parseDouble(value);
+        }
+    }
+
+    private static final String ANONYMOUS = "anonymous";
+    private static final int MAX_TRACKED_CLIENTS = 65_536;
+
+    private static final AdmissionController INSTANCE = new AdmissionController();
+    private static final ThreadLocal<String> client = new ThreadLocal<>();
+
+    private final boolean enabled = !"false".equals(System.getProperty("gym.admission.enabled"));
+    private final Map<Operation, StripedRateLimiter> clientLimits = new EnumMap<>(Operation.class);
+    private final Map<Operation, TokenBucket> operationLimits = new EnumMap<>(Operation.class);
+    private final AdaptiveConcurrencyLimiter concurrency;
+    private final LongAdder admitted = new LongAdder();
+    private final Map<AdmissionRejectedException.Reason, LongAdder> rejected =
+            new EnumMap<>(AdmissionRejectedException.Reason.class);
+
+    /**
+     * Constructs the AdmissionController from system properties.
+     */
+    private AdmissionController() {
+        for (Operation operation : Operation.values()) {
+            clientLimits.put(operation, new StripedRateLimiter(operation.clientRate, operation.clientBurst, MAX_TRACKED_CLIENTS));
+            operationLimits.put(operation, new TokenBucket(operation.rate, operation.burst));
+        }
+        int maxConcurrency = Integer.getInteger("gym.admission.maxConcurrency", 64);
+        concurrency = new AdaptiveConcurrencyLimiter(Math.min(16, maxConcurrency), Math.min(4, maxConcurrency),
+                maxConcurrency, Long.getLong("gym.admission.targetLatencyMillis", 250));
+        for (AdmissionRejectedException.Reason reason : AdmissionRejectedException.Reason.values()) {
+            rejected.put(reason, new LongAdder());
+        }
+    }
+
+    /**
+     * Gets the process-wide AdmissionController.
+     * @return the shared instance
+     */
+    public static AdmissionController getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Runs work on behalf of a client, whose calls are then limited by that client's buckets.
+     * @param clientId The client, such as a user name, kiosk id or {@code "batch"}
+     * @param work     The work
+     * @param <T>      The work's result type
+     * @return the work's result
+     * @throws SQLException if the work fails or is turned away
+     */
+    public static <T> T asClient(String clientId, SqlSupplier<T> work) throws SQLException {
+        String previous = client.get();
+        client.set(clientId);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                client.remove();
+            } else {
+                client.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Runs a call for the current client if admission control lets it through.
+     * @param operation The kind of call
+     * @param call      The call
+     * @param <T>       The call's result type
+     * @return the call's result
+     * @throws AdmissionRejectedException if the call was turned away; nothing was run
+     * @throws SQLException if the call fails
+     */
+    public <T> T admit(Operation operation, SqlSupplier<T> call) throws SQLException {
+        String clientId = client.get();
+        if (clientId == null) {
+            client.remove();
+            clientId = ANONYMOUS;
+        }
+        return admit(operation, clientId, call);
+    }
+
+    /**
+     * Runs a call limited by the given key's bucket instead of the current client's, such as the
+     * user name being logged in to.
+     * @param operation The kind of call
+     * @param key       The key whose bucket limits the call
+     * @param call      The call
+     * @param <T>       The call's result type
+     * @return the call's result
+     * @throws AdmissionRejectedException if the call was turned away; nothing was run
+     * @throws SQLException if the call fails
+     */
+    public <T> T admit(Operation operation, String key, SqlSupplier<T> call) throws SQLException {
+        if (!enabled) {
+            return call.get();
+        }
+        long wait = clientLimits.get(operation).tryAcquire(key);
+        if (wait > 0) {
+            throw reject(operation, AdmissionRejectedException.Reason.CLIENT_RATE, wait);
+        }
+        wait = operationLimits.get(operation).tryAcquire();
+        if (wait > 0) {
+            throw reject(operation, AdmissionRejectedException.Reason.OPERATION_RATE, wait);
+        }
+        if (!concurrency.tryAcquire()) {
+            throw reject(operation, AdmissionRejectedException.Reason.CONCURRENCY, 0);
+        }
+        admitted.increment();
+        long started = System.nanoTime();
+        boolean overloaded = false;
+        try {
+            return call.get();
+        } catch (SQLException e) {
+            overloaded = isOverload(e);
+            throw e;
+        } finally {
+            concurrency.release(System.nanoTime() - started, overloaded);
+        }
+    }
+
+    /**
+     * Returns how many calls were admitted and rejected, and the current concurrency limit.
+     * @return a summary of admission decisions
+     */
+    public String getStats() {
+        StringBuilder stats = new StringBuilder("admitted=").append(admitted.sum());
+        rejected.forEach((reason, count) -> stats.append(", rejected.").append(reason.name().toLowerCase())
+                .append('=').append(count.sum()));
+        return stats.append(", limit=").append(concurrency.getLimit())
+                .append(", inFlight=").append(concurrency.getInFlight()).toString();
+    }
+
+    /**
+     * Counts a rejection and builds its exception.
+     * @param operation The operation turned away
+     * @param reason    Which limit turned it away
+     * @param waitNanos How long until the limit would allow it
+     * @return the exception to throw
+     */
+    private AdmissionRejectedException reject(Operation operation, AdmissionRejectedException.Reason reason, long waitNanos) {
+        rejected.get(reason).increment();
+        return new AdmissionRejectedException(operation, reason, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+    }
+
+    /**
+     * Decides whether a failure means the database is overloaded: a cancelled query (timeout)
+     * or too many connections.
+     * @param e The failure
+     * @return true if the concurrency limit should drop
+     */
+    private static boolean isOverload(SQLException e) {
+        String state = e.getSQLState();
+        return "57014".equals(state) || "53300".equals(state);
+    }
+}
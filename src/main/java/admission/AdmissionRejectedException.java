@@ -0,0 +1,66 @@
+package admission;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown instead of running a call that admission control turned away. Nothing reached the
+ * database; the caller may try again after {@link #getRetryAfterMillis()}. Uses SQLState
+ * {@value #SQLSTATE} (too many connections) so callers handling database errors treat it as overload.
+ */
+public class AdmissionRejectedException extends SQLException {
+    /** The SQLState reported by this exception. */
+    public static final String SQLSTATE = "53300";
+    private static final long serialVersionUID = 1L;
+
+    /** Which limit turned the call away. */
+    public enum Reason {
+        /** The caller exceeded their own rate for the operation. */
+        CLIENT_RATE,
+        /** Everyone together exceeded the operation's rate. */
+        OPERATION_RATE,
+        /** Too many calls were already running. */
+        CONCURRENCY
+    }
+
+    private final AdmissionController.Operation operation;
+    private final Reason reason;
+    private final long retryAfterMillis;
+
+    /**
+     * Constructs an AdmissionRejectedException.
+     * @param operation        The operation that was turned away
+     * @param reason           Which limit turned it away
+     * @param retryAfterMillis How long to wait before trying again
+     */
+    public AdmissionRejectedException(AdmissionController.Operation operation, Reason reason, long retryAfterMillis) {
+        super("Too many requests for " + operation.name().toLowerCase() + "; try again in "
+                + Math.max(1, retryAfterMillis) + " ms", SQLSTATE);
+        this.operation = operation;
+        this.reason = reason;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    /**
+     * Gets the operation that was turned away.
+     * @return the operation
+     */
+    public AdmissionController.Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets which limit turned the call away.
+     * @return the reason
+     */
+    public Reason getReason() {
+        return reason;
+    }
+
+    /**
+     * Gets how long to wait before trying again.
+     * @return the suggested wait in milliseconds
+     */
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+}
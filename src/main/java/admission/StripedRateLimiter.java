@@ -0,0 +1,81 @@
+package admission;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Rate-limits many keys, such as user names, with one {@link TokenBucket} per key. Keys are spread
+ * over independently locked stripes, so threads working for different users rarely contend, and
+ * the stripe lock is held only to find the bucket, never while taking a token.
+ *
+ * <p>Buckets that have refilled completely carry no state and are dropped when a stripe grows past
+ * its share of {@code maxKeys}, which keeps memory bounded however many distinct keys are seen.</p>
+ */
+public class StripedRateLimiter {
+    private static final int STRIPES = 64;
+
+    private final double ratePerSecond;
+    private final int burst;
+    private final int maxKeysPerStripe;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    /**
+     * Constructs a StripedRateLimiter.
+     * @param ratePerSecond Tokens added per second to each key's bucket
+     * @param burst         The most tokens each key's bucket holds
+     * @param maxKeys       Roughly how many keys to track before dropping idle buckets
+     */
+    public StripedRateLimiter(double ratePerSecond, int burst, int maxKeys) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.burst = burst;
+        this.maxKeysPerStripe = Math.max(1, maxKeys / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /**
+     * Takes one token from a key's bucket if one is available.
+     * @param key The key, such as a user name
+     * @return 0 if a token was taken, otherwise the nanoseconds until the key's next token
+     */
+    public long tryAcquire(String key) {
+        int hash = key.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+        TokenBucket bucket;
+        synchronized (stripe) {
+            bucket = stripe.buckets.get(key);
+            if (bucket == null) {
+                if (stripe.buckets.size() >= maxKeysPerStripe) {
+                    stripe.dropFullBuckets();
+                }
+                bucket = new TokenBucket(ratePerSecond, burst);
+                stripe.buckets.put(key, bucket);
+            }
+        }
+        return bucket.tryAcquire();
+    }
+
+    /**
+     * One independently locked share of the keys.
+     */
+    private static final class Stripe {
+        private final Map<String, TokenBucket> buckets = new HashMap<>();
+
+        /**
+         * Removes buckets that have refilled, since a new bucket for the same key would be identical.
+         */
+        void dropFullBuckets() {
+            Iterator<TokenBucket> it = buckets.values().iterator();
+            while (it.hasNext()) {
+                if (it.next().isFull()) {
+                    it.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package admission;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket. Instead of a token count it stores the time at which the bucket will
+ * next be full (the generic cell rate algorithm), so taking a token is a single compare-and-set
+ * and no background refill is needed.
+ */
+public class TokenBucket {
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    // When the bucket will hold its full burst again, in System.nanoTime() terms
+    private final AtomicLong fullAtNanos;
+
+    /**
+     * Constructs a full TokenBucket.
+     * @param ratePerSecond Tokens added per second; must be positive
+     * @param burst         The most tokens the bucket holds, at least 1
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        if (ratePerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate must be positive and burst at least 1");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / ratePerSecond));
+        this.toleranceNanos = intervalNanos * (burst - 1);
+        this.fullAtNanos = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Takes one token if one is available.
+     * @return 0 if a token was taken, otherwise the nanoseconds until the next token is added
+     */
+    public long tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long fullAt = fullAtNanos.get();
+            long from = fullAt - now < 0 ? now : fullAt;
+            long wait = from - toleranceNanos - now;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAtNanos.compareAndSet(fullAt, from + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Reports whether the bucket has refilled completely, so it can be dropped without losing state.
+     * @return true if the bucket holds its full burst
+     */
+    public boolean isFull() {
+        return fullAtNanos.get() - System.nanoTime() <= 0;
+    }
+}
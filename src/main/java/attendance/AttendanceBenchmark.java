@@ -0,0 +1,113 @@
+package attendance;
+
+import database.DatabaseConnection;
+import database.PartitionMaintainer;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures how many check-ins per second the {@link AttendanceRecorder} makes durable, with
+ * several door threads recording as fast as they can, and compares it with one INSERT per check-in.
+ * A check-in counts once its COPY has committed; the row count in the Attendance table is checked
+ * afterwards. The benchmark rows are left in the table.
+ * Usage: {@code AttendanceBenchmark [events] [doors] [insertEvents]}.
+ */
+public class AttendanceBenchmark {
+    /**
+     * Runs both modes and prints their throughput.
+     * @param args Optional number of events to record (default 1000000), door threads recording them
+     *             (default 8) and events written with single-row INSERTs (default 5000)
+     * @throws Exception if the benchmark cannot connect or is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int events = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int doors = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int insertEvents = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        new PartitionMaintainer().createRetainedPartitions(LocalDate.now());
+        long rowsBefore = countRows();
+        AttendanceRecorder recorder = new AttendanceRecorder(1 << 20,
+                Integer.getInteger("gym.attendance.batchSize", 5_000), Long.getLong("gym.attendance.flushMillis", 200));
+        recorder.start();
+        AtomicLong recordNanos = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(doors);
+        long started = System.nanoTime();
+        for (int door = 0; door < doors; door++) {
+            int doorId = door + 1;
+            int share = events / doors + (door < events % doors ? 1 : 0);
+            Thread thread = new Thread(() -> {
+                long nanos = 0;
+                for (int i = 0; i < share; i++) {
+                    long before = System.nanoTime();
+                    // Wait for room rather than drop, so every event reaches the table
+                    while (!recorder.record(i % 50_000 + 1, doorId, (i & 7) != 0)) {
+                        Thread.onSpinWait();
+                    }
+                    nanos += System.nanoTime() - before;
+                }
+                recordNanos.addAndGet(nanos);
+                done.countDown();
+            }, "door-" + doorId);
+            thread.start();
+        }
+        done.await();
+        long recordedNanos = System.nanoTime() - started;
+        recorder.close();
+        long durableNanos = System.nanoTime() - started;
+        long rowsWritten = countRows() - rowsBefore;
+
+        long insertNanos = runInserts(insertEvents);
+
+        System.out.println("mode\tevents\tseconds\teventsPerSecond\tnsPerRecord");
+        System.out.printf("copy (buffered)\t%d\t%.3f\t%.0f\t%.1f%n", events, recordedNanos / 1e9,
+                events / (recordedNanos / 1e9), (double) recordNanos.get() / events);
+        System.out.printf("copy (durable)\t%d\t%.3f\t%.0f\t-%n", events, durableNanos / 1e9, events / (durableNanos / 1e9));
+        System.out.printf("insert (durable)\t%d\t%.3f\t%.0f\t-%n", insertEvents, insertNanos / 1e9,
+                insertEvents / (insertNanos / 1e9));
+        System.out.println("rowsWritten\t" + rowsWritten + "\tdropped\t" + recorder.getDroppedCount());
+    }
+
+    /**
+     * Writes events one INSERT at a time, each committed on its own, as a DAO would.
+     * @param events The number of events
+     * @return the elapsed nanoseconds
+     * @throws SQLException if a database access error occurs
+     */
+    private static long runInserts(int events) throws SQLException {
+        String sql = "INSERT INTO Attendance (userId, doorId, checkedInAt, admitted) VALUES (?, ?, ?, ?)";
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(sql)) {
+            long started = System.nanoTime();
+            for (int i = 0; i < events; i++) {
+                stmt.setInt(1, i % 50_000 + 1);
+                stmt.setInt(2, 1);
+                stmt.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+                stmt.setBoolean(4, (i & 7) != 0);
+                stmt.executeUpdate();
+            }
+            return System.nanoTime() - started;
+        }
+    }
+
+    /**
+     * Counts the rows in the Attendance table.
+     * @return the row count
+     * @throws SQLException if a database access error occurs
+     */
+    private static long countRows() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM Attendance")) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package attendance;
+
+import database.ConnectionRouter;
+import database.Deadline;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object (DAO) for reading attendance. Rows are written in batches by the
+ * {@link AttendanceRecorder}. Every query is bounded by time, so PostgreSQL only scans the monthly
+ * partitions that can hold matching rows.
+ */
+public class AttendanceDAO {
+    private final ConnectionRouter router;
+
+    /**
+     * Constructs an AttendanceDAO and connects to the primary database and any configured read replicas.
+     * @throws SQLException if a database access error occurs
+     */
+    public AttendanceDAO() throws SQLException {
+        this.router = new ConnectionRouter();
+    }
+
+    /**
+     * Retrieves a user's check-ins since the given time, most recent first.
+     * @param userId The user's unique identifier
+     * @param since  The earliest check-in time to include
+     * @return A list of the user's CheckIn objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<CheckIn> getCheckInsByUserIdSince(int userId, LocalDateTime since) throws SQLException {
+        Connection connection = router.forRead();
+        List<CheckIn> checkIns = new ArrayList<>();
+        String sql = "SELECT * FROM Attendance WHERE userId = ? AND checkedInAt >= ? ORDER BY checkedInAt DESC";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, userId);
+            stmt.setObject(2, since);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                checkIns.add(new CheckIn(rs.getInt("userId"), rs.getInt("doorId"),
+                        rs.getObject("checkedInAt", LocalDateTime.class), rs.getBoolean("admitted")));
+            }
+        }
+        return checkIns;
+    }
+}
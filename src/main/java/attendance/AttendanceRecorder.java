@@ -0,0 +1,285 @@
+package attendance;
+
+import database.DatabaseConnection;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records door check-ins in the Attendance table without a database round trip per entry.
+ * {@link #record} stores the event in an in-memory ring buffer of primitive arrays, which takes
+ * well under a microsecond and allocates nothing; a background thread writes the buffered events
+ * with {@code COPY ... FROM STDIN}, one batch per statement, whenever {@code batchSize} events are
+ * waiting or {@code flushMillis} has passed.
+ *
+ * <p>An event is durable once its batch's COPY has committed, which normally happens within
+ * {@code flushMillis} of recording it; events still in the buffer are lost if the process dies.
+ * While the database is unreachable events stay buffered and are retried; once the buffer is full,
+ * new events are dropped and counted rather than holding up the door. {@link #flush} and
+ * {@link #close} write everything recorded so far.</p>
+ *
+ * <p>The shared recorder buffers {@code gym.attendance.bufferSize} events (default 1048576),
+ * writes batches of up to {@code gym.attendance.batchSize} (default 5000) and flushes at least every
+ * {@code gym.attendance.flushMillis} (default 200).</p>
+ */
+public class AttendanceRecorder implements AutoCloseable {
+    private static final AttendanceRecorder SHARED = new AttendanceRecorder(
+            Integer.getInteger("gym.attendance.bufferSize", 1 << 20),
+            Integer.getInteger("gym.attendance.batchSize", 5_000),
+            Long.getLong("gym.attendance.flushMillis", 200));
+
+    private static final String COPY_SQL = "COPY Attendance (userId, doorId, checkedInAt, admitted) FROM STDIN";
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss.SSS");
+    private static final long RETRY_MILLIS = 2_000;
+
+    private final int capacity;
+    private final int batchSize;
+    private final long flushMillis;
+    private final int[] userIds;
+    private final int[] doorIds;
+    private final long[] recordedAtMillis;
+    private final boolean[] admitted;
+    // Sequence numbers of the next event to write and the next free slot; guarded by this
+    private long head;
+    private long tail;
+
+    private final Object flushLock = new Object();
+    private final StringBuilder batch = new StringBuilder();
+    private Connection connection;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private Thread flusher;
+    private volatile boolean running;
+
+    /**
+     * Constructs an AttendanceRecorder. Call {@link #start} to write events in the background.
+     * @param capacity    The most events buffered at once; rounded up to a power of two
+     * @param batchSize   The most events written per COPY, and the backlog that triggers an early flush
+     * @param flushMillis The longest an event waits in the buffer while the database is reachable
+     */
+    public AttendanceRecorder(int capacity, int batchSize, long flushMillis) {
+        if (capacity < 1 || batchSize < 1 || flushMillis < 1) {
+            throw new IllegalArgumentException("Capacity, batch size and flush interval must be positive");
+        }
+        int rounded = Integer.highestOneBit(capacity);
+        // A power of two lets a sequence number be mapped to its slot with a mask
+        this.capacity = rounded < capacity ? rounded << 1 : rounded;
+        this.batchSize = Math.min(batchSize, this.capacity);
+        this.flushMillis = flushMillis;
+        this.userIds = new int[this.capacity];
+        this.doorIds = new int[this.capacity];
+        this.recordedAtMillis = new long[this.capacity];
+        this.admitted = new boolean[this.capacity];
+    }
+
+    /**
+     * Gets the recorder shared by the check-in service.
+     * @return the shared AttendanceRecorder
+     */
+    public static AttendanceRecorder getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Starts the background flush thread if it is not already running.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::run, "attendance-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Buffers one check-in for writing, stamped with the current time.
+     * @param userId     The user who presented their card
+     * @param doorId     The door they presented it at
+     * @param wasAdmitted Whether the gate let them in
+     * @return true if the event was buffered, false if the buffer was full and it was dropped
+     */
+    public boolean record(int userId, int doorId, boolean wasAdmitted) {
+        long now = System.currentTimeMillis();
+        long backlog;
+        synchronized (this) {
+            backlog = tail - head;
+            if (backlog == capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            int slot = (int) tail & (capacity - 1);
+            userIds[slot] = userId;
+            doorIds[slot] = doorId;
+            recordedAtMillis[slot] = now;
+            admitted[slot] = wasAdmitted;
+            tail++;
+        }
+        Thread thread = flusher;
+        if (backlog + 1 == batchSize && thread != null) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Writes every event recorded before this call.
+     * @throws SQLException if a batch cannot be written; unwritten events stay buffered
+     */
+    public void flush() throws SQLException {
+        long until;
+        synchronized (this) {
+            until = tail;
+        }
+        synchronized (flushLock) {
+            while (true) {
+                long from;
+                long to;
+                synchronized (this) {
+                    from = head;
+                    to = Math.min(until, head + batchSize);
+                }
+                if (from >= to) {
+                    return;
+                }
+                write(from, to);
+                synchronized (this) {
+                    head = to;
+                }
+                written.addAndGet(to - from);
+            }
+        }
+    }
+
+    /**
+     * Stops the flush thread, writes everything still buffered and closes the connection.
+     * @throws SQLException if the remaining events cannot be written
+     */
+    @Override
+    public void close() throws SQLException {
+        Thread thread;
+        synchronized (this) {
+            running = false;
+            thread = flusher;
+            flusher = null;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush();
+        } finally {
+            synchronized (flushLock) {
+                closeConnection();
+            }
+        }
+    }
+
+    /**
+     * Gets the number of events written to the database.
+     * @return the written count
+     */
+    public long getWrittenCount() {
+        return written.get();
+    }
+
+    /**
+     * Gets the number of events dropped because the buffer was full.
+     * @return the dropped count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the number of events waiting to be written.
+     * @return the buffered count
+     */
+    public synchronized long getPendingCount() {
+        return tail - head;
+    }
+
+    /**
+     * Flush loop: wait for a full batch or the flush interval, then write what is buffered.
+     */
+    private void run() {
+        while (running) {
+            if (getPendingCount() < batchSize) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(flushMillis));
+            }
+            try {
+                flush();
+            } catch (SQLException e) {
+                System.err.println("Attendance flush failed: " + e.getMessage());
+                synchronized (flushLock) {
+                    closeConnection();
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(RETRY_MILLIS));
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered events with the given sequence numbers in one COPY.
+     * The caller holds the flush lock; producers never overwrite these slots until head moves past them.
+     * @param from The first event's sequence number
+     * @param to   One past the last event's sequence number
+     * @throws SQLException if a database access error occurs; the COPY is then rolled back
+     */
+    private void write(long from, long to) throws SQLException {
+        ZoneId zone = ZoneId.systemDefault();
+        batch.setLength(0);
+        for (long sequence = from; sequence < to; sequence++) {
+            int slot = (int) sequence & (capacity - 1);
+            batch.append(userIds[slot]).append('\t').append(doorIds[slot]).append('\t');
+            TIMESTAMP.formatTo(LocalDateTime.ofInstant(Instant.ofEpochMilli(recordedAtMillis[slot]), zone), batch);
+            batch.append('\t').append(admitted[slot] ? 't' : 'f').append('\n');
+        }
+        byte[] data = batch.toString().getBytes(StandardCharsets.UTF_8);
+
+        if (connection == null) {
+            connection = DatabaseConnection.getConnection();
+        }
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        CopyIn copy = copyManager.copyIn(COPY_SQL);
+        try {
+            copy.writeToCopy(data, 0, data.length);
+            copy.endCopy();
+        } finally {
+            if (copy.isActive()) {
+                copy.cancelCopy();
+            }
+        }
+    }
+
+    /**
+     * Closes the flush connection so the next write reconnects. The caller holds the flush lock.
+     */
+    private void closeConnection() {
+        if (connection != null) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                // The connection is being discarded anyway
+            }
+            connection = null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package attendance;
+
+import database.TransientRetry;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Service class for reading members' attendance history in the Gym Management System.
+ */
+public class AttendanceService {
+    /** The longest history a member can ask for, which keeps lookups to a few monthly partitions. */
+    public static final int MAX_HISTORY_DAYS = 90;
+
+    private final AttendanceDAO attendanceDAO;
+
+    /**
+     * Constructs an AttendanceService and initializes the AttendanceDAO.
+     * @throws SQLException if a database access error occurs
+     */
+    public AttendanceService() throws SQLException {
+        this.attendanceDAO = new AttendanceDAO();
+    }
+
+    /**
+     * Retrieves a user's recent check-ins, most recent first.
+     * @param userId The user's unique identifier
+     * @param days   How many days back to look, at most {@value #MAX_HISTORY_DAYS}
+     * @return A list of the user's CheckIn objects
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the number of days is out of range
+     */
+    public List<CheckIn> getRecentCheckIns(int userId, int days) throws SQLException {
+        if (days < 1 || days > MAX_HISTORY_DAYS) {
+            throw new IllegalArgumentException("History must cover 1 to " + MAX_HISTORY_DAYS + " days");
+        }
+        LocalDateTime since = LocalDateTime.now().minusDays(days);
+        return TransientRetry.read(() -> attendanceDAO.getCheckInsByUserIdSince(userId, since));
+    }
+}
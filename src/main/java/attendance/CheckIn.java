@@ -0,0 +1,71 @@
+package attendance;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Represents one card presented at a door: who, where, when, and whether the gate let them in.
+ */
+public class CheckIn {
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final int userId;
+    private final int doorId;
+    private final LocalDateTime checkedInAt;
+    private final boolean admitted;
+
+    /**
+     * Constructs a CheckIn.
+     * @param userId      The user who presented their card
+     * @param doorId      The door they presented it at
+     * @param checkedInAt When they presented it
+     * @param admitted    Whether the gate let them in
+     */
+    public CheckIn(int userId, int doorId, LocalDateTime checkedInAt, boolean admitted) {
+        this.userId = userId;
+        this.doorId = doorId;
+        this.checkedInAt = checkedInAt;
+        this.admitted = admitted;
+    }
+
+    /**
+     * Gets the user who presented their card.
+     * @return the userId
+     */
+    public int getUserId() {
+        return userId;
+    }
+
+    /**
+     * Gets the door the card was presented at.
+     * @return the doorId
+     */
+    public int getDoorId() {
+        return doorId;
+    }
+
+    /**
+     * Gets when the card was presented.
+     * @return the check-in time
+     */
+    public LocalDateTime getCheckedInAt() {
+        return checkedInAt;
+    }
+
+    /**
+     * Checks whether the gate let the user in.
+     * @return true if the user was admitted
+     */
+    public boolean isAdmitted() {
+        return admitted;
+    }
+
+    /**
+     * Returns a string representation of the check-in.
+     * @return String describing the check-in
+     */
+    @Override
+    public String toString() {
+        return checkedInAt.format(DISPLAY_FORMAT) + " door " + doorId + (admitted ? " admitted" : " denied");
+    }
+}
@@ -0,0 +1,307 @@
+package batch;
+
+import database.Deadline;
+import database.PerThread;
+import database.SqlSupplier;
+import membership.Membership;
+import membership.MembershipService;
+import user.User;
+import user.UserService;
+import workout.WorkoutClass;
+import workout.WorkoutClassService;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs gym administration commands without the interactive menus, for ops scripts and nightly jobs.
+ * Commands are read one per line; arguments are separated by spaces and may be double-quoted.
+ * Blank lines and lines starting with {@code #} are ignored.
+ * <pre>
+ *   register &lt;username&gt; &lt;password&gt; &lt;email&gt; &lt;phone&gt; &lt;address&gt; &lt;MEMBER|TRAINER|ADMIN&gt;
+ *   purchase &lt;userId&gt; &lt;Monthly|Annual&gt; [autoRenew]
+ *   create-class &lt;trainerId&gt; &lt;type&gt; &lt;description&gt; &lt;yyyy-MM-ddTHH:mm&gt; &lt;durationMinutes&gt;
+ *   revenue
+ *   delete-user &lt;userId&gt;
+ * </pre>
+ *
+ * <p>Each command produces one tab-separated output line: {@code ok}, the input line number, the
+ * command and its result, or {@code error}, the line number, the command and the reason. A final
+ * {@code summary} line gives the number of successful and failed commands and the elapsed
+ * milliseconds.</p>
+ *
+ * <p>Each command must finish within {@code gym.batch.commandTimeoutMillis} (default 30000); a
+ * command that runs out of time is cancelled in the database and reported as an error, and the
+ * batch moves on. Timeouts are counted under {@code batch.<command>}; see {@link Deadline}.</p>
+ *
+ * <p>Each worker thread gets its own services from the given factories, and with them its own
+ * connections, so commands running at once do not queue on one connection or touch each other's
+ * transactions. With a parallelism above 1, commands run concurrently and in no particular order,
+ * so a batch that registers a user and then buys them a membership must be run with parallelism 1
+ * or split into two batches.</p>
+ */
+public class BatchCommandRunner {
+    private static final long COMMAND_TIMEOUT_MILLIS = Long.getLong("gym.batch.commandTimeoutMillis", 30_000);
+
+    private final PerThread<UserService> userServices;
+    private final PerThread<MembershipService> membershipServices;
+    private final PerThread<WorkoutClassService> workoutClassServices;
+
+    /**
+     * Constructs a BatchCommandRunner that creates each worker's services on first use.
+     * @param userServices         Creates the service used for register and delete-user
+     * @param membershipServices   Creates the service used for purchase and revenue
+     * @param workoutClassServices Creates the service used for create-class
+     */
+    public BatchCommandRunner(SqlSupplier<UserService> userServices, SqlSupplier<MembershipService> membershipServices,
+                              SqlSupplier<WorkoutClassService> workoutClassServices) {
+        this.userServices = new PerThread<>(userServices);
+        this.membershipServices = new PerThread<>(membershipServices);
+        this.workoutClassServices = new PerThread<>(workoutClassServices);
+    }
+
+    /**
+     * Runs every command read from the input and writes one result line per command.
+     * @param in          The commands, one per line
+     * @param out         Where result lines are written
+     * @param parallelism The number of commands run at once; 1 runs them in order
+     * @return the number of commands that failed
+     * @throws IOException if the input cannot be read
+     */
+    public int run(BufferedReader in, PrintWriter out, int parallelism) throws IOException {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1");
+        }
+        long started = System.nanoTime();
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService executor = parallelism == 1 ? null : Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "batch-command");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Bounds the commands read ahead of the workers, so a huge input file is not held in memory
+        Semaphore inFlight = new Semaphore(parallelism * 4);
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                int number = lineNumber;
+                if (executor == null) {
+                    runOne(number, trimmed, out, succeeded, failed);
+                    continue;
+                }
+                inFlight.acquireUninterruptibly();
+                executor.execute(() -> {
+                    try {
+                        runOne(number, trimmed, out, succeeded, failed);
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                awaitTermination(executor);
+            }
+        }
+
+        synchronized (out) {
+            out.println("summary\t" + succeeded.get() + "\t" + failed.get() + "\t"
+                    + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            out.flush();
+        }
+        return failed.get();
+    }
+
+    /**
+     * Runs one command and writes its result line.
+     * @param lineNumber The command's line number in the input
+     * @param line       The command line
+     * @param out        Where the result line is written
+     * @param succeeded  Counts successful commands
+     * @param failed     Counts failed commands
+     */
+    private void runOne(int lineNumber, String line, PrintWriter out, AtomicInteger succeeded, AtomicInteger failed) {
+        List<String> args = tokenize(line);
+        String command = args.get(0).toLowerCase();
+        String result;
+        boolean ok;
+        try {
+            result = Deadline.within("batch." + command, COMMAND_TIMEOUT_MILLIS,
+                    () -> execute(command, args.subList(1, args.size())));
+            ok = true;
+        } catch (SQLException | RuntimeException e) {
+            result = e.getMessage() != null ? e.getMessage() : e.toString();
+            ok = false;
+        }
+        (ok ? succeeded : failed).incrementAndGet();
+        synchronized (out) {
+            out.println((ok ? "ok" : "error") + "\t" + lineNumber + "\t" + command + "\t" + clean(result));
+        }
+    }
+
+    /**
+     * Executes one parsed command.
+     * @param command The lower-cased command name
+     * @param args    The command's arguments
+     * @return a short description of the result
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the command or its arguments are invalid
+     */
+    private String execute(String command, List<String> args) throws SQLException {
+        switch (command) {
+            case "register": {
+                requireArgs(command, args, 6, 6);
+                User user = userServices.get().registerUser(args.get(0), args.get(1), args.get(2), args.get(3), args.get(4), args.get(5));
+                return "userId=" + user.getUserId();
+            }
+            case "purchase": {
+                requireArgs(command, args, 2, 3);
+                int userId = parseId(args.get(0));
+                boolean autoRenew = args.size() > 2 && args.get(2).equalsIgnoreCase("autoRenew");
+                String type = args.get(1).toLowerCase();
+                if (!type.equals("monthly") && !type.equals("annual")) {
+                    throw new IllegalArgumentException("Invalid membership type: " + args.get(1));
+                }
+                Membership membership = type.equals("monthly")
+                        ? membershipServices.get().createMembership("Monthly", "30-day membership", 50.0, userId, autoRenew)
+                        : membershipServices.get().createMembership("Annual", "365-day membership", 500.0, userId, autoRenew);
+                return "membershipId=" + membership.getMembershipId();
+            }
+            case "create-class": {
+                requireArgs(command, args, 5, 5);
+                WorkoutClass workoutClass = workoutClassServices.get().createWorkoutClass(args.get(1), args.get(2),
+                        parseId(args.get(0)), LocalDateTime.parse(args.get(3)), parseId(args.get(4)));
+                return "workoutClassId=" + workoutClass.getWorkoutClassId();
+            }
+            case "revenue": {
+                requireArgs(command, args, 0, 0);
+                return String.format("revenue=%.2f", membershipServices.get().calculateTotalRevenue());
+            }
+            case "delete-user": {
+                requireArgs(command, args, 1, 1);
+                int userId = parseId(args.get(0));
+                userServices.get().deleteUser(userId);
+                return "userId=" + userId;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    /**
+     * Checks a command's argument count.
+     * @param command The command name
+     * @param args    The command's arguments
+     * @param min     The fewest arguments allowed
+     * @param max     The most arguments allowed
+     * @throws IllegalArgumentException if the count is out of range
+     */
+    private static void requireArgs(String command, List<String> args, int min, int max) {
+        if (args.size() < min || args.size() > max) {
+            throw new IllegalArgumentException(command + " expects " + (min == max ? min : min + "-" + max)
+                    + " arguments but got " + args.size());
+        }
+    }
+
+    /**
+     * Parses a positive whole number argument.
+     * @param value The argument
+     * @return the number
+     * @throws IllegalArgumentException if the argument is not a positive whole number
+     */
+    private static int parseId(String value) {
+        try {
+            int id = Integer.parseInt(value);
+            if (id > 0) {
+                return id;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        throw new IllegalArgumentException("Not a positive number: " + value);
+    }
+
+    /**
+     * Splits a command line on spaces, keeping double-quoted arguments together.
+     * Inside quotes, {@code \"} stands for a quote and {@code \\} for a backslash.
+     * @param line The non-blank command line
+     * @return the command name followed by its arguments
+     */
+    static List<String> tokenize(String line) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        boolean inToken = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '\\' && i + 1 < line.length() && (line.charAt(i + 1) == '"' || line.charAt(i + 1) == '\\')) {
+                    token.append(line.charAt(++i));
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    token.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+                inToken = true;
+            } else if (Character.isWhitespace(c)) {
+                if (inToken) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                    inToken = false;
+                }
+            } else {
+                token.append(c);
+                inToken = true;
+            }
+        }
+        if (inToken) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Keeps a result on one output field by replacing tabs and line breaks.
+     * @param text The result or error message
+     * @return the cleaned text
+     */
+    private static String clean(String text) {
+        return text == null ? "" : text.replaceAll("[\\t\\r\\n]+", " ");
+    }
+
+    /**
+     * Waits for the workers to finish every queued command.
+     * @param executor The shut-down executor
+     */
+    private static void awaitTermination(ExecutorService executor) {
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                // Keep waiting; a long batch is expected to take minutes
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package dashboard;
+
+import database.SqlSupplier;
+import membership.MembershipService;
+import user.User;
+import user.UserService;
+import workout.WorkoutClassService;
+
+import java.sql.SQLException;
+
+/**
+ * Measures how close the parallel dashboard gets to its slowest single read. Each iteration times
+ * the three reads on their own, then the dashboard fetched serially and in parallel.
+ * Usage: {@code DashboardBenchmark [iterations] [memberId]}; without a member id the first member is used.
+ */
+public class DashboardBenchmark {
+    /**
+     * Runs the benchmark and prints the average latencies.
+     * @param args Optional number of iterations (default 200) and member id
+     * @throws SQLException if the benchmark cannot connect or a read fails
+     */
+    public static void main(String[] args) throws SQLException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        UserService userService = new UserService();
+        MembershipService membershipService = new MembershipService();
+        WorkoutClassService workoutClassService = new WorkoutClassService();
+        int memberId = args.length > 1 ? Integer.parseInt(args[1]) : findMember(userService);
+        if (memberId == 0) {
+            System.err.println("No member found; register one or pass a member id.");
+            return;
+        }
+        MemberDashboardService dashboards = new MemberDashboardService(userService, membershipService, workoutClassService);
+
+        long sumNanos = 0;
+        long slowestNanos = 0;
+        long serialNanos = 0;
+        long parallelNanos = 0;
+        for (int i = -Math.min(iterations, 20); i < iterations; i++) { // Negative iterations warm up
+            long profile = time(() -> userService.getUserById(memberId));
+            long memberships = time(() -> membershipService.getMembershipsByUserId(memberId));
+            long classes = time(() -> workoutClassService.getUpcomingWorkoutClassesByMemberId(memberId));
+            long serial = time(() -> dashboards.getDashboardSerially(memberId));
+            long parallel = time(() -> dashboards.getDashboard(memberId));
+            if (i >= 0) {
+                sumNanos += profile + memberships + classes;
+                slowestNanos += Math.max(profile, Math.max(memberships, classes));
+                serialNanos += serial;
+                parallelNanos += parallel;
+            }
+        }
+
+        System.out.println("measure\taverageMs");
+        print("sum of reads", sumNanos, iterations);
+        print("slowest read", slowestNanos, iterations);
+        print("serial dashboard", serialNanos, iterations);
+        print("parallel dashboard", parallelNanos, iterations);
+    }
+
+    /**
+     * Times one call.
+     * @param call The call
+     * @return the elapsed nanoseconds
+     * @throws SQLException if the call fails
+     */
+    private static long time(SqlSupplier<?> call) throws SQLException {
+        long started = System.nanoTime();
+        call.get();
+        return System.nanoTime() - started;
+    }
+
+    /**
+     * Finds a member to build dashboards for.
+     * @param userService The user service
+     * @return the first member's id, or 0 if there is none
+     * @throws SQLException if a database access error occurs
+     */
+    private static int findMember(UserService userService) throws SQLException {
+        for (User user : userService.getAllUsers()) {
+            if ("MEMBER".equals(user.getUserRole())) {
+                return user.getUserId();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Prints one result line.
+     * @param measure    The measure's name
+     * @param totalNanos The total over all iterations
+     * @param iterations The number of iterations
+     */
+    private static void print(String measure, long totalNanos, int iterations) {
+        System.out.printf("%s\t%.3f%n", measure, totalNanos / 1_000_000.0 / iterations);
+    }
+}
@@ -0,0 +1,66 @@
+package dashboard;
+
+import membership.Membership;
+import user.User;
+import workout.WorkoutClass;
+
+import java.util.List;
+
+/**
+ * Represents what a member sees on their home screen: their profile, their memberships
+ * and the classes they are enrolled in that have not finished yet.
+ */
+public class MemberDashboard {
+    private final User profile;
+    private final List<Membership> memberships;
+    private final List<WorkoutClass> upcomingClasses;
+
+    /**
+     * Constructs a MemberDashboard.
+     * @param profile         The member's user record
+     * @param memberships     The member's memberships
+     * @param upcomingClasses The member's upcoming classes, earliest first
+     */
+    public MemberDashboard(User profile, List<Membership> memberships, List<WorkoutClass> upcomingClasses) {
+        this.profile = profile;
+        this.memberships = memberships;
+        this.upcomingClasses = upcomingClasses;
+    }
+
+    /**
+     * Gets the member's user record.
+     * @return the profile
+     */
+    public User getProfile() {
+        return profile;
+    }
+
+    /**
+     * Gets the member's memberships.
+     * @return the memberships
+     */
+    public List<Membership> getMemberships() {
+        return memberships;
+    }
+
+    /**
+     * Gets the member's upcoming classes.
+     * @return the classes, earliest first
+     */
+    public List<WorkoutClass> getUpcomingClasses() {
+        return upcomingClasses;
+    }
+
+    /**
+     * Returns a string representation of the dashboard.
+     * @return String describing the dashboard
+     */
+    @Override
+    public String toString() {
+        return "MemberDashboard{" +
+                "profile=" + profile +
+                ", memberships=" + memberships +
+                ", upcomingClasses=" + upcomingClasses +
+                '}';
+    }
+}
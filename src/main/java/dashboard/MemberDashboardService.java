@@ -0,0 +1,69 @@
+package dashboard;
+
+import database.TaskScope;
+import membership.Membership;
+import membership.MembershipService;
+import user.User;
+import user.UserService;
+import workout.WorkoutClass;
+import workout.WorkoutClassService;
+
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Service class that assembles a member's dashboard. The profile, memberships and upcoming classes
+ * come from three services, and so over three connections; they are fetched at the same time in a
+ * {@link TaskScope}, so the dashboard takes about as long as the slowest of the three reads rather
+ * than their sum. If any read fails the others are cancelled and the dashboard fails as a whole.
+ */
+public class MemberDashboardService {
+    private final UserService userService;
+    private final MembershipService membershipService;
+    private final WorkoutClassService workoutClassService;
+
+    /**
+     * Constructs a MemberDashboardService over the given services.
+     * @param userService         The service that reads the profile
+     * @param membershipService   The service that reads memberships
+     * @param workoutClassService The service that reads upcoming classes
+     */
+    public MemberDashboardService(UserService userService, MembershipService membershipService,
+                                  WorkoutClassService workoutClassService) {
+        this.userService = userService;
+        this.membershipService = membershipService;
+        this.workoutClassService = workoutClassService;
+    }
+
+    /**
+     * Fetches a member's dashboard, running its reads in parallel.
+     * @param memberId The member's unique identifier
+     * @return the MemberDashboard
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the member is not found
+     */
+    public MemberDashboard getDashboard(int memberId) throws SQLException {
+        try (TaskScope scope = new TaskScope("dashboard")) {
+            TaskScope.Subtask<User> profile = scope.fork("profile", () -> userService.getUserById(memberId));
+            TaskScope.Subtask<List<Membership>> memberships = scope.fork("memberships",
+                    () -> membershipService.getMembershipsByUserId(memberId));
+            TaskScope.Subtask<List<WorkoutClass>> upcomingClasses = scope.fork("upcomingClasses",
+                    () -> workoutClassService.getUpcomingWorkoutClassesByMemberId(memberId));
+            scope.join();
+            return new MemberDashboard(profile.get(), memberships.get(), upcomingClasses.get());
+        }
+    }
+
+    /**
+     * Fetches a member's dashboard one read after another, for comparison with {@link #getDashboard}.
+     * @param memberId The member's unique identifier
+     * @return the MemberDashboard
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the member is not found
+     */
+    public MemberDashboard getDashboardSerially(int memberId) throws SQLException {
+        return new MemberDashboard(userService.getUserById(memberId),
+                membershipService.getMembershipsByUserId(memberId),
+                workoutClassService.getUpcomingWorkoutClassesByMemberId(memberId));
+    }
+}
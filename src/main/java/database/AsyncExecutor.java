@@ -0,0 +1,105 @@
+package database;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs blocking JDBC calls on a small, fixed set of I/O threads and hands back
+ * {@link CompletableFuture}s, so callers can keep thousands of requests in flight and compose them
+ * without a thread per request. Only the I/O threads block; how many requests can be in flight is
+ * bounded by the queue, not by the number of threads.
+ *
+ * <p>Each call runs under the caller's {@link Deadline}, so a request that spent its budget waiting
+ * in the queue fails without touching the database. It also carries the caller's read-your-writes
+ * pin to the primary (see {@link ConnectionRouter}), but a write made by the call does not pin the
+ * caller. Calls do not join a {@link TransactionManager} transaction active on the caller's
+ * thread. A call that finds the queue full fails with SQLState
+ * 53300 (too many connections) instead of blocking the caller.</p>
+ *
+ * <p>The shared executor has {@code gym.async.ioThreads} threads (default 16) and queues up to
+ * {@code gym.async.maxQueued} calls (default 10000).</p>
+ */
+public class AsyncExecutor {
+    private static final AsyncExecutor SHARED = new AsyncExecutor("db-io",
+            Integer.getInteger("gym.async.ioThreads", 16), Integer.getInteger("gym.async.maxQueued", 10_000));
+
+    private final ThreadPoolExecutor executor;
+    private final int threads;
+
+    /**
+     * Constructs an AsyncExecutor with its own daemon I/O threads.
+     * @param name      The prefix of the threads' names
+     * @param threads   The number of I/O threads, and so of calls running at once
+     * @param maxQueued The most calls waiting for a thread
+     */
+    public AsyncExecutor(String name, int threads, int maxQueued) {
+        AtomicInteger count = new AtomicInteger();
+        this.threads = threads;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(maxQueued), runnable -> {
+                    Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Gets the executor shared by the async services.
+     * @return the shared AsyncExecutor
+     */
+    public static AsyncExecutor getShared() {
+        return SHARED;
+    }
+
+    /**
+     * Runs a call on an I/O thread.
+     * @param call The blocking call
+     * @param <T>  The call's result type
+     * @return a future completed with the call's result, or exceptionally with the exception it threw
+     */
+    public <T> CompletableFuture<T> submit(SqlSupplier<T> call) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        Deadline deadline = Deadline.current();
+        Long pin = ConnectionRouter.currentPin();
+        try {
+            executor.execute(() -> {
+                if (future.isDone()) {
+                    return; // Cancelled while queued
+                }
+                try {
+                    future.complete(ConnectionRouter.runWithPin(pin, () -> Deadline.runWith(deadline, call)));
+                } catch (SQLException | RuntimeException | Error e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(new SQLTransientException(
+                    "Too many database calls queued; try again later", "53300", e));
+        }
+        return future;
+    }
+
+    /**
+     * Gets the number of I/O threads.
+     * @return the thread count
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Returns the number of calls running and waiting.
+     * @return a summary of the executor's load
+     */
+    @Override
+    public String toString() {
+        return "active=" + executor.getActiveCount() + ", queued=" + executor.getQueue().size()
+                + ", completed=" + executor.getCompletedTaskCount();
+    }
+}
@@ -0,0 +1,27 @@
+package database;
+
+/**
+ * Callback for an in-process cache that must drop entries when the underlying rows change,
+ * whether the change was made by this node or by another node sharing the database.
+ * Implementations are called from the change listener thread and must be thread-safe.
+ */
+public interface CacheInvalidator {
+    /**
+     * Drops any cached data derived from a single entity.
+     * @param type The kind of entity that changed
+     * @param id   The entity's unique identifier
+     */
+    void invalidate(EntityType type, int id);
+
+    /**
+     * Drops any cached data derived from entities of one type, after a bulk change to that type.
+     * Caches that hold nothing derived from the type should do nothing.
+     * @param type The kind of entity that changed
+     */
+    void invalidateAll(EntityType type);
+
+    /**
+     * Drops all cached data, used when individual change events may have been missed.
+     */
+    void invalidateAll();
+}
@@ -0,0 +1,200 @@
+package database;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Listens for entity change notifications from every node and invalidates local caches.
+ * A single daemon thread holds a dedicated connection that runs {@code LISTEN} on the
+ * {@link ChangeNotifier#CHANNEL} channel and dispatches each event to the registered
+ * {@link CacheInvalidator}s, typically within milliseconds of the mutation committing.
+ *
+ * <p>If the listener connection drops, notifications sent in the meantime are lost. While it
+ * is down the listener falls back to polling: every poll interval it invalidates all caches
+ * and tries to reconnect, and it invalidates everything once more after it is listening again.
+ * Waiting for notifications never writes to the socket, so a connection whose peer vanished
+ * without a reset would look healthy forever; the listener therefore runs {@code SELECT 1} every
+ * {@value #PROBE_INTERVAL_MILLIS} ms with a {@value #PROBE_TIMEOUT_MILLIS} ms network timeout, and a
+ * probe that fails or times out counts as a dropped connection.</p>
+ */
+public class ChangeListener {
+    private static final ChangeListener INSTANCE = new ChangeListener();
+
+    private static final int WAIT_MILLIS = 500;
+    private static final long POLL_INTERVAL_MILLIS = 5_000;
+    private static final long PROBE_INTERVAL_MILLIS = 10_000;
+    private static final int PROBE_TIMEOUT_MILLIS = 5_000;
+
+    private final List<CacheInvalidator> invalidators = new CopyOnWriteArrayList<>();
+    private Thread thread;
+    private volatile boolean running;
+    private volatile boolean listening;
+
+    /**
+     * Gets the listener shared by all services in this process.
+     * @return the shared ChangeListener
+     */
+    public static ChangeListener getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers a cache to be invalidated when entities change.
+     * @param invalidator The cache's invalidation callback
+     */
+    public void register(CacheInvalidator invalidator) {
+        invalidators.add(invalidator);
+    }
+
+    /**
+     * Removes a previously registered cache.
+     * @param invalidator The cache's invalidation callback
+     */
+    public void unregister(CacheInvalidator invalidator) {
+        invalidators.remove(invalidator);
+    }
+
+    /**
+     * Starts the listener thread if it is not already running.
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "change-listener");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops the listener thread and closes its connection.
+     */
+    public synchronized void stop() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+
+    /**
+     * Reports whether the listener currently holds a live LISTEN connection.
+     * @return true if notifications are being received, false while in polling fallback
+     */
+    public boolean isListening() {
+        return listening;
+    }
+
+    /**
+     * Main loop: listen while the connection is healthy, poll while it is not.
+     */
+    private void run() {
+        while (running) {
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("LISTEN " + ChangeNotifier.CHANNEL);
+                }
+                listening = true;
+                // Anything sent before LISTEN took effect was missed
+                invalidateAll();
+                receive(connection);
+            } catch (SQLException e) {
+                System.err.println("Change listener disconnected: " + e.getMessage());
+            } finally {
+                listening = false;
+            }
+
+            if (running) {
+                invalidateAll();
+                sleepQuietly(POLL_INTERVAL_MILLIS);
+            }
+        }
+    }
+
+    /**
+     * Receives notifications until the listener is stopped or the connection fails, probing the
+     * connection periodically so a silently dead one is noticed.
+     * @param connection The listening connection
+     * @throws SQLException if the connection fails or a probe times out
+     */
+    private void receive(Connection connection) throws SQLException {
+        PGConnection pgConnection = connection.unwrap(PGConnection.class);
+        // The driver ignores the executor; the timeout becomes the socket's read timeout
+        connection.setNetworkTimeout(Runnable::run, PROBE_TIMEOUT_MILLIS);
+        long probeAt = System.currentTimeMillis() + PROBE_INTERVAL_MILLIS;
+        try (Statement probe = connection.createStatement()) {
+            while (running) {
+                PGNotification[] notifications = pgConnection.getNotifications(WAIT_MILLIS);
+                if (notifications != null) {
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getParameter());
+                    }
+                }
+                if (System.currentTimeMillis() >= probeAt) {
+                    // Notifications that arrive with the probe's reply are kept for the next wait
+                    probe.execute("SELECT 1");
+                    probeAt = System.currentTimeMillis() + PROBE_INTERVAL_MILLIS;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parses a {@code ENTITY_TYPE:id} payload and invalidates the matching cache entries; an
+     * {@code ENTITY_TYPE:*} payload invalidates only what each cache derived from that type.
+     * Malformed payloads are treated as a change to everything so caches never keep stale data.
+     * @param payload The notification payload
+     */
+    private void dispatch(String payload) {
+        int separator = payload.indexOf(':');
+        if (separator < 0) {
+            invalidateAll();
+            return;
+        }
+        String id = payload.substring(separator + 1);
+        try {
+            EntityType type = EntityType.valueOf(payload.substring(0, separator));
+            if (ChangeNotifier.ALL_IDS.equals(id)) {
+                for (CacheInvalidator invalidator : invalidators) {
+                    invalidator.invalidateAll(type);
+                }
+                return;
+            }
+            int entityId = Integer.parseInt(id);
+            for (CacheInvalidator invalidator : invalidators) {
+                invalidator.invalidate(type, entityId);
+            }
+        } catch (IllegalArgumentException e) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Invalidates every registered cache, e.g. after a rolled-back transaction whose changes
+     * services had already applied to their caches.
+     */
+    public void invalidateAll() {
+        for (CacheInvalidator invalidator : invalidators) {
+            invalidator.invalidateAll();
+        }
+    }
+
+    /**
+     * Sleeps without propagating interruption, which is used only to stop the thread.
+     * @param millis How long to sleep
+     */
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
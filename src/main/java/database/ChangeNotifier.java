@@ -0,0 +1,55 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Utility class that announces entity changes to every node sharing the database.
+ * Changes are sent with PostgreSQL {@code NOTIFY} on the {@value #CHANNEL} channel as
+ * {@code ENTITY_TYPE:id} payloads (or {@code ENTITY_TYPE:*} for bulk changes) and are
+ * picked up by each node's {@link ChangeListener}.
+ *
+ * <p>Single-row changes are announced by the {@code notify_change} row trigger in
+ * {@code setup.sql}, so the notification is part of the writing statement: it adds no round
+ * trip and is only delivered if the write commits. Bulk jobs call
+ * {@link #suppressRowNotifications} in their transaction and announce the whole entity type with
+ * {@link #publishAll} before committing instead of sending one notification per row.</p>
+ */
+public class ChangeNotifier {
+    /** The notification channel all nodes listen on. */
+    public static final String CHANNEL = "gym_changes";
+
+    /** Payload id used when a change affects many rows of one entity type. */
+    static final String ALL_IDS = "*";
+
+    private ChangeNotifier() {}
+
+    /**
+     * Turns off the per-row change notifications for the rest of the connection's current
+     * transaction, so a bulk job can announce its changes once with {@link #publishAll}.
+     * @param connection A connection with auto-commit off
+     * @throws SQLException if a database access error occurs
+     */
+    public static void suppressRowNotifications(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET LOCAL gym.bulk_change = 'on'");
+        }
+    }
+
+    /**
+     * Announces that many entities of one type changed at once. Inside a transaction the
+     * notification is only delivered if the transaction commits.
+     * @param connection The connection that performed the mutation
+     * @param type       The kind of entity that changed
+     * @throws SQLException if a database access error occurs
+     */
+    public static void publishAll(Connection connection, EntityType type) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT pg_notify(?, ?)")) {
+            stmt.setString(1, CHANNEL);
+            stmt.setString(2, type.name() + ":" + ALL_IDS);
+            stmt.execute();
+        }
+    }
+}
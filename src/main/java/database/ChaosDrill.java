@@ -0,0 +1,129 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Checks that the application survives a database outage without a restart. Several threads read
+ * through their own {@link ConnectionRouter} and {@link TransientRetry}, as the DAOs do, while the
+ * drill terminates every other backend of the database part-way through the run. Each thread
+ * records how long it went from its first failure to its next success; the longest of these is the
+ * recovery time. Instead of letting the drill kill the connections, pass a negative kill time and
+ * restart PostgreSQL by hand during the run.
+ * Usage: {@code ChaosDrill [threads] [seconds] [killAfterSeconds]}.
+ */
+public class ChaosDrill {
+    private static final String READ_SQL = "SELECT COUNT(*) FROM Users";
+    private static final String KILL_SQL =
+            "SELECT COUNT(pg_terminate_backend(pid)) FROM pg_stat_activity " +
+            "WHERE datname = current_database() AND pid <> pg_backend_pid()";
+
+    private static final LongAdder reads = new LongAdder();
+    private static final LongAdder failures = new LongAdder();
+    private static final AtomicLong longestOutageNanos = new AtomicLong();
+
+    /**
+     * Runs the read load, kills the connections and prints the results.
+     * @param args Optional thread count (default 8), run length in seconds (default 20) and seconds
+     *             before the kill (default 5; negative to skip it)
+     * @throws Exception if the drill cannot start or is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        int killAfter = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            ConnectionRouter router = new ConnectionRouter();
+            Thread worker = new Thread(() -> {
+                try {
+                    load(router, deadline);
+                } finally {
+                    done.countDown();
+                }
+            }, "chaos-" + i);
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        if (killAfter >= 0 && killAfter < seconds) {
+            TimeUnit.SECONDS.sleep(killAfter);
+            try (Connection admin = DatabaseConnection.getConnection();
+                 Statement stmt = admin.createStatement();
+                 ResultSet rs = stmt.executeQuery(KILL_SQL)) {
+                rs.next();
+                System.out.println("Terminated " + rs.getLong(1) + " connections after " + killAfter + "s");
+            }
+        }
+        done.await();
+
+        System.out.println("reads\tfailures\tlongestOutageMs\tbreaker");
+        System.out.printf("%d\t%d\t%d\t%s%n", reads.sum(), failures.sum(),
+                TimeUnit.NANOSECONDS.toMillis(longestOutageNanos.get()), CircuitBreaker.getPrimary());
+    }
+
+    /**
+     * Reads until the deadline, timing each stretch between a failure and the next success.
+     * @param router   The thread's router
+     * @param deadline When to stop, in {@link System#nanoTime} terms
+     */
+    private static void load(ConnectionRouter router, long deadline) {
+        long failingSince = 0;
+        while (System.nanoTime() < deadline) {
+            try {
+                TransientRetry.read(() -> count(router));
+                reads.increment();
+                if (failingSince != 0) {
+                    long outage = System.nanoTime() - failingSince;
+                    longestOutageNanos.accumulateAndGet(outage, Math::max);
+                    failingSince = 0;
+                }
+            } catch (SQLException e) {
+                failures.increment();
+                if (failingSince == 0) {
+                    failingSince = System.nanoTime();
+                }
+                pause();
+            }
+        }
+        if (failingSince != 0) {
+            // Never recovered; count the outage up to the end of the run
+            longestOutageNanos.accumulateAndGet(System.nanoTime() - failingSince, Math::max);
+        }
+    }
+
+    /**
+     * Runs the drill's read query.
+     * @param router The thread's router
+     * @return the number of users
+     * @throws SQLException if a database access error occurs
+     */
+    private static long count(ConnectionRouter router) throws SQLException {
+        Connection connection = router.forRead();
+        try (PreparedStatement stmt = connection.prepareStatement(READ_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    /**
+     * Waits briefly after a failed read so a fast-failing breaker does not spin the thread.
+     */
+    private static void pause() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package database;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling the database for a while once it is clearly unreachable, so callers fail fast
+ * instead of piling up threads that each wait for a connection timeout.
+ *
+ * <p>After {@code gym.db.breakerThreshold} (default 5) consecutive connection failures the breaker
+ * opens and rejects calls for {@code gym.db.breakerOpenMillis} (default 5000 ms). It then lets a
+ * single trial call through: if that succeeds the breaker closes, otherwise it opens again.
+ * Errors other than connection failures show that the database is reachable and count as successes.
+ * An {@link OpenException} raised inside a permitted call, because the breaker opened while the call
+ * was reconnecting, says nothing about the database and counts as neither.</p>
+ */
+public class CircuitBreaker {
+    private static final CircuitBreaker PRIMARY = new CircuitBreaker(
+            Integer.getInteger("gym.db.breakerThreshold", 5),
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("gym.db.breakerOpenMillis", 5_000)));
+
+    /** The breaker's position. */
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private Thread trialThread;
+    private long timesOpened;
+    private long rejected;
+
+    /**
+     * Constructs a closed CircuitBreaker.
+     * @param failureThreshold The consecutive connection failures that open the breaker
+     * @param openNanos        How long the breaker rejects calls before allowing a trial call
+     */
+    public CircuitBreaker(int failureThreshold, long openNanos) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openNanos;
+    }
+
+    /**
+     * Gets the breaker guarding the primary database, shared by all routers in the process.
+     * @return the shared CircuitBreaker
+     */
+    public static CircuitBreaker getPrimary() {
+        return PRIMARY;
+    }
+
+    /**
+     * Asks to make a call. Every permitted call must be followed by {@link #onSuccess} or {@link #onFailure}.
+     * The thread making the trial call may acquire again, so a retried read can reconnect inside its trial.
+     * @throws OpenException if the breaker is open, or half-open with another thread's trial call still running
+     */
+    public synchronized void acquire() throws OpenException {
+        if (state == State.OPEN && System.nanoTime() - openedAtNanos >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        Thread current = Thread.currentThread();
+        if (state == State.OPEN || (state == State.HALF_OPEN && trialThread != null && trialThread != current)) {
+            rejected++;
+            throw new OpenException();
+        }
+        if (state == State.HALF_OPEN) {
+            trialThread = current;
+        }
+    }
+
+    /**
+     * Records a call that reached the database, closing the breaker.
+     */
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        trialThread = null;
+        state = State.CLOSED;
+    }
+
+    /**
+     * Records a call that could not reach the database, opening the breaker once the threshold is reached
+     * or when a trial call fails.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            if (state != State.OPEN) {
+                timesOpened++;
+            }
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+        trialThread = null;
+    }
+
+    /**
+     * Records the outcome of a permitted call from the error it raised.
+     * @param e The error, or null if the call succeeded
+     */
+    public void record(SQLException e) {
+        if (e instanceof OpenException) {
+            // The call never reached the database; closing the breaker here would undo the outage
+            abandon();
+        } else if (e != null && TransientRetry.isConnectionFailure(e)) {
+            onFailure();
+        } else {
+            onSuccess();
+        }
+    }
+
+    /**
+     * Ends a permitted call without an outcome, giving up the trial if the calling thread held it.
+     */
+    private synchronized void abandon() {
+        if (trialThread == Thread.currentThread()) {
+            trialThread = null;
+        }
+    }
+
+    /**
+     * Gets the breaker's position.
+     * @return the state
+     */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns the breaker's state and how often it opened and rejected calls.
+     * @return a summary of breaker activity
+     */
+    @Override
+    public synchronized String toString() {
+        return "state=" + state + ", timesOpened=" + timesOpened + ", rejected=" + rejected;
+    }
+
+    /**
+     * Thrown instead of calling the database while the breaker is open.
+     */
+    public static class OpenException extends SQLTransientConnectionException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Constructs an OpenException.
+         */
+        public OpenException() {
+            super("Database unavailable; not retrying until the circuit breaker's cool-down ends", "08001");
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Routes DAO statements between the primary database and its read replicas.
+ * Writes always go to the primary. Reads are spread round-robin over the replicas whose
+ * replication lag is within {@code gym.db.maxReplicaLagMillis} (default 1000 ms), and fall back
+ * to the primary when no replica is configured or all of them are lagging.
+ *
+ * <p>To give read-your-writes behaviour, a session that has just written is pinned to the primary
+ * for {@code gym.db.pinMillis} (default 5000 ms), so a member sees the membership they just bought.
+ * The session is the calling thread, which matches one console session or one request worker.
+ * The pin is shared by all routers in the process, so a write through one DAO also pins reads
+ * made through the others. Work handed to a {@link TaskScope} subtask or an {@link AsyncExecutor}
+ * carries the caller's pin with it, but a write made on one of those threads pins only that
+ * subtask or call, not the thread that started it.</p>
+ *
+ * <p>In-memory caches load and refresh their rows inside {@link #readFromPrimary}. They refresh
+ * as soon as a change notification arrives, which can be before a replica has replayed the change,
+ * and a row read from a lagging replica would then stay cached until the row changes again.</p>
+ *
+ * <p>A connection that was dropped, for example because PostgreSQL restarted, is replaced the next
+ * time it is handed out. Reconnecting to the primary goes through the shared {@link CircuitBreaker},
+ * so while the database is down callers fail fast instead of each waiting for a connect timeout.</p>
+ */
+public class ConnectionRouter {
+    private static final long PIN_NANOS = TimeUnit.MILLISECONDS.toNanos(Long.getLong("gym.db.pinMillis", 5_000));
+    private static final long MAX_LAG_MILLIS = Long.getLong("gym.db.maxReplicaLagMillis", 1_000);
+    private static final long LAG_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private static final String LAG_SQL =
+            "SELECT COALESCE(CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000 END, 0) AS lag_millis";
+
+    private static final ThreadLocal<Long> lastWriteNanos = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> primaryReads = new ThreadLocal<>();
+
+    private final CircuitBreaker breaker = CircuitBreaker.getPrimary();
+    private volatile Connection primary;
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger nextReplica = new AtomicInteger();
+
+    /**
+     * Constructs a ConnectionRouter and connects to the primary and every configured replica.
+     * @throws SQLException if a database access error occurs
+     */
+    public ConnectionRouter() throws SQLException {
+        this.primary = DatabaseConnection.getConnection();
+        for (String url : DatabaseConnection.getReplicaUrls()) {
+            replicas.add(new Replica(url, DatabaseConnection.getConnection(url)));
+        }
+    }
+
+    /**
+     * Returns the connection to use for a write and pins the current session to the primary.
+     * @return the active transaction's connection if the session is in a {@link TransactionManager}
+     *         transaction, otherwise the primary connection
+     * @throws SQLException if the primary connection was lost and cannot be re-established
+     */
+    public Connection forWrite() throws SQLException {
+        lastWriteNanos.set(System.nanoTime());
+        Connection transaction = TransactionManager.currentConnection();
+        return transaction != null ? transaction : primary();
+    }
+
+    /**
+     * Returns the connection to use for a read: a sufficiently fresh replica if one is available,
+     * the current session has not written recently and it is not inside {@link #readFromPrimary},
+     * otherwise the primary. Inside a
+     * {@link TransactionManager} transaction, reads use the transaction's connection so they see its writes.
+     * @return a replica, primary or transaction connection
+     * @throws SQLException if the primary is needed and its connection cannot be re-established
+     */
+    public Connection forRead() throws SQLException {
+        Connection transaction = TransactionManager.currentConnection();
+        if (transaction != null) {
+            return transaction;
+        }
+        if (replicas.isEmpty() || primaryReads.get() != null || isPinnedToPrimary()) {
+            return primary();
+        }
+        int start = Math.floorMod(nextReplica.getAndIncrement(), replicas.size());
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get((start + i) % replicas.size());
+            if (replica.lagMillis() <= MAX_LAG_MILLIS) {
+                return replica.connection;
+            }
+        }
+        return primary();
+    }
+
+    /**
+     * Gets the primary connection, reconnecting first if it was closed or dropped.
+     * Checking is cheap: the driver marks a connection closed as soon as its socket fails.
+     * @return an open primary connection
+     * @throws SQLException if reconnecting fails or the circuit breaker is open
+     */
+    private Connection primary() throws SQLException {
+        Connection connection = primary;
+        if (!connection.isClosed()) {
+            return connection;
+        }
+        synchronized (this) {
+            if (primary.isClosed()) {
+                breaker.acquire();
+                try {
+                    primary = DatabaseConnection.getConnection();
+                    breaker.onSuccess();
+                } catch (SQLException e) {
+                    breaker.record(e);
+                    throw e;
+                }
+            }
+            return primary;
+        }
+    }
+
+    /**
+     * Reports whether the current session wrote within the pin window.
+     * @return true if reads must go to the primary
+     */
+    public static boolean isPinnedToPrimary() {
+        Long lastWrite = lastWriteNanos.get();
+        if (lastWrite == null) {
+            return false;
+        }
+        if (System.nanoTime() - lastWrite < PIN_NANOS) {
+            return true;
+        }
+        lastWriteNanos.remove();
+        return false;
+    }
+
+    /**
+     * Runs reads that must see every committed change, such as a cache refresh triggered by a
+     * change notification, against the primary.
+     * @param reads The reads
+     * @param <T>   The reads' result type
+     * @return the reads' result
+     * @throws SQLException if a database access error occurs
+     */
+    public static <T> T readFromPrimary(SqlSupplier<T> reads) throws SQLException {
+        if (primaryReads.get() != null) {
+            return reads.get();
+        }
+        primaryReads.set(Boolean.TRUE);
+        try {
+            return reads.get();
+        } finally {
+            primaryReads.remove();
+        }
+    }
+
+    /**
+     * Captures the current session's pin so work handed to another thread can carry it.
+     * @return the time of the session's last write within the pin window, or null if it is not pinned
+     */
+    static Long currentPin() {
+        return isPinnedToPrimary() ? lastWriteNanos.get() : null;
+    }
+
+    /**
+     * Runs work under a pin captured on another thread. Writes the work makes pin it only until it returns.
+     * @param pin  The pin from {@link #currentPin()}, or null to run unpinned
+     * @param work The work
+     * @param <T>  The work's result type
+     * @return the work's result
+     * @throws SQLException if the work fails
+     */
+    static <T> T runWithPin(Long pin, SqlSupplier<T> work) throws SQLException {
+        Long previous = lastWriteNanos.get();
+        setPin(pin);
+        try {
+            return work.get();
+        } finally {
+            setPin(previous);
+        }
+    }
+
+    /**
+     * Sets or clears the current thread's pin.
+     * @param pin The time of the last write, or null for none
+     */
+    private static void setPin(Long pin) {
+        if (pin == null) {
+            lastWriteNanos.remove();
+        } else {
+            lastWriteNanos.set(pin);
+        }
+    }
+
+    /**
+     * A read replica connection with its most recently measured replication lag.
+     */
+    private static class Replica {
+        private final String url;
+        private volatile Connection connection;
+        private volatile long lagMillis;
+        private volatile long checkedAtNanos;
+        private volatile boolean checked;
+
+        Replica(String url, Connection connection) {
+            this.url = url;
+            this.connection = connection;
+        }
+
+        /**
+         * Gets the replica's lag, re-measuring it at most once per check interval.
+         * A replica whose lag cannot be measured is treated as unusable until the next check,
+         * and a dropped replica connection is re-established at the next check.
+         * @return the lag in milliseconds
+         */
+        long lagMillis() {
+            long now = System.nanoTime();
+            if (checked && now - checkedAtNanos < LAG_CHECK_INTERVAL_NANOS) {
+                return lagMillis;
+            }
+            synchronized (this) {
+                if (!checked || now - checkedAtNanos >= LAG_CHECK_INTERVAL_NANOS) {
+                    lagMillis = measureLag();
+                    checkedAtNanos = now;
+                    checked = true;
+                }
+                return lagMillis;
+            }
+        }
+
+        private long measureLag() {
+            try {
+                if (connection.isClosed()) {
+                    connection = DatabaseConnection.getConnection(url);
+                }
+            } catch (SQLException e) {
+                return Long.MAX_VALUE;
+            }
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(LAG_SQL)) {
+                return rs.next() ? rs.getLong("lag_millis") : Long.MAX_VALUE;
+            } catch (SQLException e) {
+                return Long.MAX_VALUE;
+            }
+        }
+    }
+}
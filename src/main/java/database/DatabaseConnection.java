@@ -3,23 +3,55 @@ package database;
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Utility class for managing the database connection to the Gym Management System's PostgreSQL database.
- * Provides a method to obtain a JDBC connection using preset credentials.
+ * Provides methods to obtain JDBC connections to the primary database and to any configured read replicas.
+ * Connection details default to the local development database and can be overridden with the
+ * {@code gym.db.url}, {@code gym.db.user}, {@code gym.db.password} and {@code gym.db.replicas}
+ * system properties; {@code gym.db.replicas} is a comma-separated list of replica JDBC URLs.
  */
 public class DatabaseConnection {
-    private static final String URL = "jdbc:postgresql://localhost:5432/gym_management";
-    private static final String USER = "postgres";
-    private static final String PASSWORD = "jordan1234";
+    private static final String URL = System.getProperty("gym.db.url", "jdbc:postgresql://localhost:5432/gym_management");
+    private static final String USER = System.getProperty("gym.db.user", "postgres");
+    private static final String PASSWORD = System.getProperty("gym.db.password", "jordan1234");
+    private static final String REPLICA_URLS = System.getProperty("gym.db.replicas", "");
 
     /**
-     * Establishes and returns a connection to the PostgreSQL database.
+     * Establishes and returns a connection to the primary PostgreSQL database.
      *
      * @return a Connection object to the gym_management database
      * @throws SQLException if a database access error occurs
      */
     public static Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return getConnection(URL);
     }
-}
\ No newline at end of file
+
+    /**
+     * Establishes and returns a connection to the given database URL using the configured credentials.
+     *
+     * @param url the JDBC URL of the primary database or one of its replicas
+     * @return a Connection object to the requested database
+     * @throws SQLException if a database access error occurs
+     */
+    public static Connection getConnection(String url) throws SQLException {
+        return DriverManager.getConnection(url, USER, PASSWORD);
+    }
+
+    /**
+     * Gets the JDBC URLs of the configured read replicas.
+     *
+     * @return the replica URLs, or an empty list if reads should go to the primary
+     */
+    public static List<String> getReplicaUrls() {
+        List<String> urls = new ArrayList<>();
+        for (String url : REPLICA_URLS.split(",")) {
+            if (!url.isBlank()) {
+                urls.add(url.trim());
+            }
+        }
+        return urls;
+    }
+}
@@ -0,0 +1,255 @@
+package database;
+
+import org.postgresql.jdbc.PgStatement;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A point in time by which an operation must finish, carried on the calling thread from the caller
+ * (a menu action or batch command) through the services into every JDBC statement. DAOs pass each
+ * statement through {@link #apply}, which sets the time remaining as the statement's query timeout;
+ * the driver cancels the query on the server when it expires. Nested deadlines can only shorten
+ * the one already in force, so a service cannot extend its caller's budget.
+ *
+ * <p>Statements run outside any deadline get {@code gym.db.statementTimeoutMillis} (default 30000;
+ * 0 disables it), so no call can hold a connection indefinitely. Timeouts are counted per operation
+ * and reported by {@link #getTimeoutCounts}.</p>
+ *
+ * <p>A {@link TaskScope} gives each of its subtasks a cancellable deadline. Cancelling it cancels
+ * the statements the subtask has running and fails any it starts afterwards.</p>
+ */
+public final class Deadline {
+    private static final long DEFAULT_STATEMENT_TIMEOUT_MILLIS = Long.getLong("gym.db.statementTimeoutMillis", 30_000);
+    private static final String QUERY_CANCELED = "57014";
+    // Roughly a century: far enough away to never expire, close enough that nanoTime arithmetic cannot overflow
+    private static final long UNBOUNDED_NANOS = TimeUnit.DAYS.toNanos(36_500);
+
+    private static final ThreadLocal<Deadline> current = new ThreadLocal<>();
+    private static final Map<String, LongAdder> timeouts = new ConcurrentHashMap<>();
+
+    private final String operation;
+    private final long expiresAtNanos;
+    private final boolean bounded;
+    // The statements run under a cancellable deadline; null if it cannot be cancelled
+    private final Set<Statement> statements;
+    private volatile boolean cancelled;
+
+    /**
+     * Constructs a Deadline.
+     * @param operation      The operation the deadline bounds, used to count its timeouts
+     * @param expiresAtNanos When it expires, in {@link System#nanoTime} terms
+     * @param bounded        False if the deadline never expires and only the default statement timeout applies
+     * @param cancellable    Whether {@link #cancel} may be called
+     */
+    private Deadline(String operation, long expiresAtNanos, boolean bounded, boolean cancellable) {
+        this.operation = operation;
+        this.expiresAtNanos = expiresAtNanos;
+        this.bounded = bounded;
+        this.statements = cancellable ? ConcurrentHashMap.newKeySet() : null;
+    }
+
+    /**
+     * Runs work that must finish within a time limit, or by the deadline already in force if that is sooner.
+     * @param operation     The operation's name, such as {@code "admin.viewUsers"}
+     * @param timeoutMillis The time limit in milliseconds
+     * @param work          The work, typically one or more service calls
+     * @param <T>           The work's result type
+     * @return the work's result
+     * @throws DeadlineExceededException if the deadline passes before the work finishes
+     * @throws SQLException if the work fails otherwise
+     */
+    public static <T> T within(String operation, long timeoutMillis, SqlSupplier<T> work) throws SQLException {
+        long expiresAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        Deadline outer = current.get();
+        if (outer != null && outer.expiresAtNanos - expiresAt < 0) {
+            expiresAt = outer.expiresAtNanos;
+        }
+        return runWith(new Deadline(operation, expiresAt, true, false), work);
+    }
+
+    /**
+     * Runs work under a deadline captured on another thread, so work handed to an executor keeps its caller's budget.
+     * @param deadline The deadline from {@link #current()}, or null to run without one
+     * @param work     The work
+     * @param <T>      The work's result type
+     * @return the work's result
+     * @throws DeadlineExceededException if the deadline passes before the work finishes
+     * @throws SQLException if the work fails otherwise
+     */
+    public static <T> T runWith(Deadline deadline, SqlSupplier<T> work) throws SQLException {
+        Deadline previous = current.get();
+        current.set(deadline);
+        try {
+            return work.get();
+        } catch (SQLException e) {
+            throw deadline == null ? e : deadline.translate(e);
+        } finally {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        }
+    }
+
+    /**
+     * Gets the deadline in force on the calling thread.
+     * @return the deadline, or null if none is set
+     */
+    public static Deadline current() {
+        Deadline deadline = current.get();
+        if (deadline == null) {
+            current.remove();
+        }
+        return deadline;
+    }
+
+    /**
+     * Sets a statement's query timeout to the time left before the calling thread's deadline, or to the
+     * default statement timeout if no deadline is set. Meant to wrap {@code prepareStatement} and
+     * {@code createStatement} calls in a try-with-resources header.
+     * @param stmt The new statement
+     * @param <S>  The statement's type
+     * @return the statement
+     * @throws DeadlineExceededException if the deadline has already passed; the statement is closed
+     * @throws SQLException if the timeout cannot be set, or the calling subtask was cancelled
+     */
+    public static <S extends Statement> S apply(S stmt) throws SQLException {
+        Deadline deadline = current.get();
+        if (deadline == null) {
+            current.remove();
+            if (DEFAULT_STATEMENT_TIMEOUT_MILLIS > 0) {
+                setTimeout(stmt, DEFAULT_STATEMENT_TIMEOUT_MILLIS);
+            }
+            return stmt;
+        }
+        if (deadline.cancelled) {
+            stmt.close();
+            throw new SQLException(deadline.operation + " was cancelled", QUERY_CANCELED);
+        }
+        long millis = deadline.bounded ? deadline.remainingMillis() : DEFAULT_STATEMENT_TIMEOUT_MILLIS;
+        if (deadline.bounded && millis <= 0) {
+            stmt.close();
+            throw new DeadlineExceededException(deadline.operation, null);
+        }
+        if (millis > 0) {
+            setTimeout(stmt, millis);
+        }
+        if (deadline.statements != null) {
+            deadline.statements.add(stmt);
+            if (deadline.cancelled) {
+                stmt.cancel(); // Cancelled while the statement was being registered
+            }
+        }
+        return stmt;
+    }
+
+    /**
+     * Creates a cancellable deadline for a subtask of the calling thread's work. It expires with the
+     * deadline in force, or never if there is none.
+     * @param operation The subtask's name
+     * @return the new deadline, to be installed on the subtask's thread with {@link #runWith}
+     */
+    static Deadline forSubtask(String operation) {
+        Deadline outer = current();
+        if (outer == null) {
+            return new Deadline(operation, System.nanoTime() + UNBOUNDED_NANOS, false, true);
+        }
+        return new Deadline(operation, outer.expiresAtNanos, outer.bounded, true);
+    }
+
+    /**
+     * Cancels a subtask's deadline: statements it has running are cancelled on the server and any
+     * it starts later fail at once.
+     */
+    void cancel() {
+        cancelled = true;
+        for (Statement stmt : statements) {
+            try {
+                stmt.cancel();
+            } catch (SQLException e) {
+                // Already closed or finished
+            }
+        }
+        statements.clear();
+    }
+
+    /**
+     * Gets how many operations ran out of time in this process, by operation name.
+     * @return the timeout counts, sorted by operation
+     */
+    public static Map<String, Long> getTimeoutCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        timeouts.forEach((operation, count) -> counts.put(operation, count.sum()));
+        return counts;
+    }
+
+    /**
+     * Gets the name of the operation this deadline bounds.
+     * @return the operation
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the time left before this deadline.
+     * @return the remaining milliseconds; zero or negative once it has passed
+     */
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime());
+    }
+
+    /**
+     * Turns a failure caused by this deadline into a counted {@link DeadlineExceededException}.
+     * A query cancelled by the driver's timeout reports SQLState 57014 like any other cancellation,
+     * so it is attributed to the deadline only once the deadline has passed.
+     * @param e The failure
+     * @return the exception to throw
+     */
+    private SQLException translate(SQLException e) {
+        if (e instanceof DeadlineExceededException) {
+            DeadlineExceededException exceeded = (DeadlineExceededException) e;
+            if (exceeded.markCounted()) {
+                count(exceeded.getOperation());
+            }
+            return exceeded;
+        }
+        if (QUERY_CANCELED.equals(e.getSQLState()) && !cancelled && bounded && remainingMillis() <= 0) {
+            DeadlineExceededException exceeded = new DeadlineExceededException(operation, e);
+            exceeded.markCounted();
+            count(operation);
+            return exceeded;
+        }
+        return e;
+    }
+
+    /**
+     * Adds one to an operation's timeout count.
+     * @param operation The operation that ran out of time
+     */
+    private static void count(String operation) {
+        timeouts.computeIfAbsent(operation, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * Sets a statement's query timeout, to the millisecond where the driver supports it.
+     * @param stmt   The statement
+     * @param millis The timeout, greater than zero
+     * @throws SQLException if the timeout cannot be set
+     */
+    private static void setTimeout(Statement stmt, long millis) throws SQLException {
+        if (stmt.isWrapperFor(PgStatement.class)) {
+            stmt.unwrap(PgStatement.class).setQueryTimeoutMs(millis);
+        } else {
+            stmt.setQueryTimeout((int) Math.min(Integer.MAX_VALUE, (millis + 999) / 1000));
+        }
+    }
+}
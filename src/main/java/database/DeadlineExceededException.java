@@ -0,0 +1,47 @@
+package database;
+
+import java.sql.SQLTimeoutException;
+
+/**
+ * Thrown when an operation's {@link Deadline} passes, either before a statement was sent or while
+ * the database was still running it. A running query has been cancelled on the server, and in a
+ * transaction the whole unit of work is rolled back. Uses SQLState {@value #SQLSTATE} (query canceled).
+ */
+public class DeadlineExceededException extends SQLTimeoutException {
+    /** The SQLState reported by this exception. */
+    public static final String SQLSTATE = "57014";
+    private static final long serialVersionUID = 1L;
+
+    private final String operation;
+    private boolean counted;
+
+    /**
+     * Constructs a DeadlineExceededException.
+     * @param operation The operation that ran out of time
+     * @param cause     The driver's cancellation error, or null if no statement was sent
+     */
+    public DeadlineExceededException(String operation, Throwable cause) {
+        super(operation + " did not finish before its deadline", SQLSTATE, cause);
+        this.operation = operation;
+    }
+
+    /**
+     * Gets the operation that ran out of time.
+     * @return the operation's name
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * Marks the timeout as counted, so nested deadlines count it only once.
+     * @return true if it had not been counted yet
+     */
+    boolean markCounted() {
+        if (counted) {
+            return false;
+        }
+        counted = true;
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package database;
+
+/**
+ * The kinds of domain entity whose changes are announced to other parts of the system.
+ */
+public enum EntityType {
+    USER,
+    MEMBERSHIP,
+    WORKOUT_CLASS,
+    CLASS_TEMPLATE
+}
@@ -0,0 +1,16 @@
+package database;
+
+/**
+ * The result of an update or delete whose ownership or role check is part of the statement itself,
+ * so the check and the change happen in one round trip with no window in between.
+ */
+public enum MutationOutcome {
+    /** The row was changed. */
+    APPLIED,
+    /** No such row exists, or it was deleted concurrently. */
+    NOT_FOUND,
+    /** The row exists but the caller may not change it. */
+    UNAUTHORIZED,
+    /** The caller may change the row, but another condition of the statement did not hold. */
+    REJECTED
+}
@@ -0,0 +1,58 @@
+package database;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs a read-modify-write step again when its version-checked update loses to a concurrent edit.
+ * Each attempt must re-read the row, so the change is applied to the latest version. No lock is
+ * held between attempts; a short random pause spreads out editors that keep colliding.
+ */
+public final class OptimisticRetry {
+    /** The number of attempts services make before reporting the conflict. */
+    public static final int DEFAULT_ATTEMPTS = 3;
+
+    private static final long MAX_PAUSE_MILLIS = 20;
+
+    private OptimisticRetry() {}
+
+    /**
+     * Runs the step until it completes without a {@link StaleRowException} or the attempts run out.
+     * @param attempts The maximum number of attempts, at least 1
+     * @param step     The read-modify-write step
+     * @param <T>      The step's result type
+     * @return the step's result
+     * @throws StaleRowException if every attempt lost to a concurrent edit
+     * @throws SQLException if a database access error occurs
+     */
+    public static <T> T run(int attempts, SqlSupplier<T> step) throws SQLException {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("Attempts must be at least 1");
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return step.get();
+            } catch (StaleRowException e) {
+                if (attempt >= attempts) {
+                    throw e;
+                }
+                pause(attempt);
+            }
+        }
+    }
+
+    /**
+     * Sleeps for a random time that grows with the attempt number.
+     * @param attempt The attempt that just failed
+     * @throws SQLException if the thread is interrupted
+     */
+    private static void pause(int attempt) throws SQLException {
+        try {
+            TimeUnit.MILLISECONDS.sleep(ThreadLocalRandom.current().nextLong(MAX_PAUSE_MILLIS * attempt + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while retrying a conflicting update", e);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled job that keeps the monthly partitions of the time-partitioned tables in shape.
+ * ClassEnrollments and Attendance are range-partitioned by month, so inserts only touch the
+ * current month's small table and its indexes, and queries bounded by time only scan the months
+ * they cover. Each run creates the partitions for the current month and the next
+ * {@code gym.partitions.monthsAhead} months (default 3), named {@code <table>_pYYYY_MM}, and retires
+ * partitions older than the table's retention.
+ *
+ * <p>A retired partition is detached and, by default, moved to the {@value #ARCHIVE_SCHEMA}
+ * schema, where it can still be queried or dumped; with {@code gym.partitions.retiredAction=drop}
+ * it is dropped instead. Retention is set per table in months, including the current one, with
+ * {@code gym.partitions.classEnrollments.retentionMonths} (default 24) and
+ * {@code gym.partitions.attendance.retentionMonths} (default 13). DDL waits at most
+ * {@value #LOCK_TIMEOUT_MILLIS} ms for locks, so a busy table is retried on the next run instead
+ * of stalling inserts behind the maintainer.</p>
+ */
+public class PartitionMaintainer {
+    /** Schema that retired partitions are moved to. */
+    public static final String ARCHIVE_SCHEMA = "archive";
+
+    private static final long LOCK_TIMEOUT_MILLIS = 5_000;
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("'_p'yyyy_MM");
+    private static final String KIND_SQL = "SELECT relkind FROM pg_class WHERE oid = to_regclass(?)";
+    private static final String PARTITIONS_SQL =
+            "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = to_regclass(?)";
+
+    /**
+     * The tables partitioned by month.
+     */
+    public enum PartitionedTable {
+        CLASS_ENROLLMENTS("ClassEnrollments", "classEnrollments", 24),
+        ATTENDANCE("Attendance", "attendance", 13);
+
+        private final String tableName;
+        private final int retentionMonths;
+
+        PartitionedTable(String tableName, String propertyKey, int defaultRetentionMonths) {
+            this.tableName = tableName;
+            this.retentionMonths = Integer.getInteger("gym.partitions." + propertyKey + ".retentionMonths",
+                    defaultRetentionMonths);
+        }
+
+        /**
+         * Gets the partitioned table's name in the database.
+         * @return the table name
+         */
+        public String getTableName() {
+            return tableName;
+        }
+
+        /**
+         * Gets the number of months of data kept attached, including the current month.
+         * @return the retention in months
+         */
+        public int getRetentionMonths() {
+            return retentionMonths;
+        }
+
+        /**
+         * Gets the name of the partition holding the given month.
+         * @param month The month
+         * @return the partition's table name, in lower case as PostgreSQL stores it
+         */
+        String partitionName(YearMonth month) {
+            return tableName.toLowerCase() + SUFFIX.format(month);
+        }
+    }
+
+    private final int monthsAhead;
+    private final boolean dropRetired;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a PartitionMaintainer configured from system properties.
+     */
+    public PartitionMaintainer() {
+        this(Integer.getInteger("gym.partitions.monthsAhead", 3),
+                "drop".equalsIgnoreCase(System.getProperty("gym.partitions.retiredAction", "archive")));
+    }
+
+    /**
+     * Constructs a PartitionMaintainer.
+     * @param monthsAhead The number of months after the current one to create partitions for
+     * @param dropRetired Whether retired partitions are dropped rather than archived
+     */
+    public PartitionMaintainer(int monthsAhead, boolean dropRetired) {
+        if (monthsAhead < 1) {
+            throw new IllegalArgumentException("Partitions must be created at least one month ahead");
+        }
+        this.monthsAhead = monthsAhead;
+        this.dropRetired = dropRetired;
+    }
+
+    /**
+     * Runs the maintenance once a day at the given local time.
+     * @param runAt The time of day to run
+     */
+    public synchronized void start(LocalTime runAt) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "partition-maintainer");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstRun = now.toLocalDate().atTime(runAt);
+        if (!firstRun.isAfter(now)) {
+            firstRun = firstRun.plusDays(1);
+        }
+        long initialDelay = Duration.between(now, firstRun).toMillis();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                maintain(LocalDate.now());
+            } catch (SQLException e) {
+                System.err.println("Partition maintenance failed: " + e.getMessage());
+            }
+        }, initialDelay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the daily schedule; a run that is already in progress finishes.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Creates the partitions needed from the given day's month onwards and retires expired ones,
+     * for every partitioned table. Tables created before partitioning was introduced are skipped.
+     * @param today The day to maintain partitions for
+     * @return the number of partitions created and retired
+     * @throws SQLException if a database access error occurs, such as a lock timeout; changes
+     *                      already made stay made and the rest is done on the next run
+     */
+    public Result maintain(LocalDate today) throws SQLException {
+        Result result = new Result();
+        YearMonth current = YearMonth.from(today);
+        try (Connection connection = connect()) {
+            for (PartitionedTable table : PartitionedTable.values()) {
+                if (!isPartitioned(connection, table)) {
+                    System.err.println(table.getTableName() + " is not partitioned; recreate it from setup.sql to enable partitioning");
+                    continue;
+                }
+                List<String> existing = getPartitions(connection, table);
+                result.created += createMissing(connection, table, existing, current, current.plusMonths(monthsAhead));
+                YearMonth oldestKept = current.minusMonths(table.getRetentionMonths() - 1);
+                for (String partition : existing) {
+                    YearMonth month = parseMonth(table, partition);
+                    if (month != null && month.isBefore(oldestKept)) {
+                        retirePartition(connection, table, partition);
+                        result.retired++;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Creates a partition for every month each table retains as of the given day, not only the
+     * months ahead, so a snapshot of data that was still retained can be restored.
+     * @param today The day to create partitions for
+     * @return the number of partitions created
+     * @throws SQLException if a database access error occurs
+     */
+    public int createRetainedPartitions(LocalDate today) throws SQLException {
+        int created = 0;
+        YearMonth current = YearMonth.from(today);
+        try (Connection connection = connect()) {
+            for (PartitionedTable table : PartitionedTable.values()) {
+                if (isPartitioned(connection, table)) {
+                    created += createMissing(connection, table, getPartitions(connection, table),
+                            current.minusMonths(table.getRetentionMonths() - 1), current.plusMonths(monthsAhead));
+                }
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Opens a connection whose DDL gives up rather than queue behind long-running statements.
+     * @return the connection
+     * @throws SQLException if a database access error occurs
+     */
+    private static Connection connect() throws SQLException {
+        Connection connection = DatabaseConnection.getConnection();
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("SET lock_timeout = " + LOCK_TIMEOUT_MILLIS);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        return connection;
+    }
+
+    /**
+     * Creates the partitions a table is missing for a range of months.
+     * @param connection The maintainer's connection
+     * @param table      The table
+     * @param existing   The table's attached partitions
+     * @param first      The first month
+     * @param last       The last month, inclusive
+     * @return the number of partitions created
+     * @throws SQLException if a database access error occurs
+     */
+    private static int createMissing(Connection connection, PartitionedTable table, List<String> existing,
+                                     YearMonth first, YearMonth last) throws SQLException {
+        int created = 0;
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            if (!existing.contains(table.partitionName(month))) {
+                createPartition(connection, table, month);
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * Checks whether a table is partitioned rather than an ordinary table from an older schema.
+     * @param connection The maintainer's connection
+     * @param table      The table
+     * @return true if the table exists and is partitioned
+     * @throws SQLException if a database access error occurs
+     */
+    private static boolean isPartitioned(Connection connection, PartitionedTable table) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(KIND_SQL)) {
+            stmt.setString(1, table.getTableName());
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() && "p".equals(rs.getString("relkind"));
+        }
+    }
+
+    /**
+     * Lists a table's attached partitions.
+     * @param connection The maintainer's connection
+     * @param table      The table
+     * @return the partitions' table names
+     * @throws SQLException if a database access error occurs
+     */
+    private static List<String> getPartitions(Connection connection, PartitionedTable table) throws SQLException {
+        List<String> partitions = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(PARTITIONS_SQL)) {
+            stmt.setString(1, table.getTableName());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                partitions.add(rs.getString("relname"));
+            }
+        }
+        return partitions;
+    }
+
+    /**
+     * Creates the partition holding one month of a table's rows. Indexes and foreign keys
+     * declared on the table are created on the partition automatically.
+     * @param connection The maintainer's connection
+     * @param table      The table
+     * @param month      The month
+     * @throws SQLException if a database access error occurs
+     */
+    private static void createPartition(Connection connection, PartitionedTable table, YearMonth month) throws SQLException {
+        String sql = "CREATE TABLE IF NOT EXISTS " + table.partitionName(month) + " PARTITION OF " + table.getTableName() +
+                " FOR VALUES FROM ('" + month.atDay(1) + "') TO ('" + month.plusMonths(1).atDay(1) + "')";
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+
+    /**
+     * Detaches a partition and archives or drops it, in one transaction.
+     * @param connection The maintainer's connection
+     * @param table      The table
+     * @param partition  The partition's table name
+     * @throws SQLException if a database access error occurs; the partition then stays attached
+     */
+    private void retirePartition(Connection connection, PartitionedTable table, String partition) throws SQLException {
+        connection.setAutoCommit(false);
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + table.getTableName() + " DETACH PARTITION " + partition);
+            if (dropRetired) {
+                stmt.execute("DROP TABLE " + partition);
+            } else {
+                stmt.execute("CREATE SCHEMA IF NOT EXISTS " + ARCHIVE_SCHEMA);
+                String archived = archiveName(connection, partition);
+                if (!archived.equals(partition)) {
+                    stmt.execute("ALTER TABLE " + partition + " RENAME TO " + archived);
+                }
+                stmt.execute("ALTER TABLE " + archived + " SET SCHEMA " + ARCHIVE_SCHEMA);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Finds a name the partition can take in the archive schema. A table of the same name is
+     * already there if the month was retired before, restored from a snapshot and retired again;
+     * the partition then gets the first free numbered suffix instead.
+     * @param connection The maintainer's connection
+     * @param partition  The partition's table name
+     * @return the partition's name, or the name with a suffix such as {@code _2}
+     * @throws SQLException if a database access error occurs
+     */
+    private static String archiveName(Connection connection, String partition) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement("SELECT to_regclass(?) IS NOT NULL AS taken")) {
+            String candidate = partition;
+            for (int suffix = 2; ; suffix++) {
+                stmt.setString(1, ARCHIVE_SCHEMA + "." + candidate);
+                ResultSet rs = stmt.executeQuery();
+                rs.next();
+                if (!rs.getBoolean("taken")) {
+                    return candidate;
+                }
+                candidate = partition + "_" + suffix;
+            }
+        }
+    }
+
+    /**
+     * Reads the month from a partition name created by this class.
+     * @param table     The table
+     * @param partition The partition's table name
+     * @return the month, or null for a partition this class did not create
+     */
+    private static YearMonth parseMonth(PartitionedTable table, String partition) {
+        String prefix = table.getTableName().toLowerCase();
+        if (!partition.startsWith(prefix)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(partition.substring(prefix.length()), SUFFIX);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * The outcome of a maintenance run.
+     */
+    public static final class Result {
+        private int created;
+        private int retired;
+
+        /**
+         * Gets the number of partitions created.
+         * @return the created count
+         */
+        public int getCreated() {
+            return created;
+        }
+
+        /**
+         * Gets the number of partitions detached and archived or dropped.
+         * @return the retired count
+         */
+        public int getRetired() {
+            return retired;
+        }
+
+        /**
+         * Returns a string representation of the result.
+         * @return String describing the result
+         */
+        @Override
+        public String toString() {
+            return "created=" + created + ", retired=" + retired;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package database;
+
+import java.sql.SQLException;
+
+/**
+ * Gives each thread its own instance of a service, created on first use. Services hold one
+ * connection per DAO, and JDBC connections run one statement at a time, so sharing one service
+ * between I/O threads would serialize them on its connections.
+ *
+ * @param <S> the type of service
+ */
+public class PerThread<S> {
+    private final SqlSupplier<S> factory;
+    private final ThreadLocal<S> instances = new ThreadLocal<>();
+
+    /**
+     * Constructs a PerThread holder.
+     * @param factory Creates a thread's instance, typically a service constructor
+     */
+    public PerThread(SqlSupplier<S> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Gets the calling thread's instance, creating it if needed.
+     * @return the instance
+     * @throws SQLException if the instance cannot be created
+     */
+    public S get() throws SQLException {
+        S instance = instances.get();
+        if (instance == null) {
+            instance = factory.get();
+            instances.set(instance);
+        }
+        return instance;
+    }
+}
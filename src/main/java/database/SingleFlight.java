@@ -0,0 +1,149 @@
+package database;
+
+import java.sql.SQLException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collapses identical in-flight reads into a single database call.
+ * The first caller for a key runs the query; every caller that arrives with the same key while
+ * that query is still running waits for it and receives the same result (or the same error).
+ * Nothing is cached once the query finishes, so callers never see data older than the query
+ * that was already running when they arrived. Reads made inside a {@link TransactionManager}
+ * transaction, or by a session that {@link ConnectionRouter} has pinned to the primary after a
+ * write, are never collapsed: a query that started before the write could return the old row.
+ *
+ * <p>A caller waiting for another's query waits no longer than its own {@link Deadline} allows.
+ * If the running query fails because the caller that started it ran out of time, waiting callers
+ * with time left start or join a fresh query instead of failing with someone else's timeout.</p>
+ *
+ * @param <K> the type of key identifying a read
+ * @param <V> the type of value returned by the read
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder executions = new LongAdder();
+
+    /**
+     * Runs the loader for the given key, or joins a call for the same key that is already running.
+     * The returned value is shared between all collapsed callers and must not be modified.
+     * @param key    Identifies the read; equal keys are collapsed
+     * @param loader The database call to run if no call for the key is in flight
+     * @return The value produced by the loader
+     * @throws DeadlineExceededException if the caller's own deadline passes while it waits
+     * @throws SQLException if the shared database call fails
+     */
+    public V execute(K key, SqlSupplier<V> loader) throws SQLException {
+        requests.increment();
+        if (TransactionManager.isActive() || ConnectionRouter.isPinnedToPrimary()) {
+            // A transaction's reads may see its own uncommitted writes, and a session that just wrote
+            // must not join a query that started before its write, so neither is shared
+            executions.increment();
+            return loader.get();
+        }
+        CompletableFuture<V> call = new CompletableFuture<>();
+        CompletableFuture<V> existing;
+        while ((existing = inFlight.putIfAbsent(key, call)) != null) {
+            if (await(existing)) {
+                return existing.join();
+            }
+            // The leader ran out of its own time; try again under this caller's deadline
+        }
+
+        executions.increment();
+        try {
+            V value = loader.get();
+            call.complete(value);
+            return value;
+        } catch (SQLException | RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Gets the number of reads requested through this instance.
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    /**
+     * Gets the number of reads that actually reached the database.
+     * @return the execution count
+     */
+    public long getExecutionCount() {
+        return executions.sum();
+    }
+
+    /**
+     * Gets the share of requests that were served by another caller's query,
+     * from 0.0 (no collapsing) towards 1.0 (almost every request collapsed).
+     * @return the collapse ratio
+     */
+    public double getCollapseRatio() {
+        long total = requests.sum();
+        if (total == 0) {
+            return 0.0;
+        }
+        return (double) (total - executions.sum()) / total;
+    }
+
+    /**
+     * Waits, for no longer than the calling thread's deadline, for a call started by another
+     * thread, and rethrows its failure unchanged unless the failure was the other caller's deadline.
+     * @param call The in-flight call
+     * @return true if the call produced a value, false if it failed because its caller ran out of time
+     * @throws DeadlineExceededException if the calling thread's deadline passes first
+     * @throws SQLException if the call failed or the wait was interrupted
+     */
+    private boolean await(CompletableFuture<V> call) throws SQLException {
+        Deadline deadline = Deadline.current();
+        try {
+            if (deadline == null) {
+                call.get();
+            } else {
+                call.get(Math.max(0, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+            }
+            return true;
+        } catch (TimeoutException e) {
+            throw new DeadlineExceededException(deadline.getOperation(), null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a shared query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof DeadlineExceededException) {
+                if (deadline != null && deadline.remainingMillis() <= 0) {
+                    throw new DeadlineExceededException(deadline.getOperation(), null);
+                }
+                return false;
+            }
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        }
+    }
+
+    /**
+     * Returns a summary of the collapse metrics.
+     * @return a string with request, execution and collapse counts
+     */
+    @Override
+    public String toString() {
+        return String.format("SingleFlight{requests=%d, executions=%d, collapseRatio=%.3f}",
+                getRequestCount(), getExecutionCount(), getCollapseRatio());
+    }
+}
@@ -0,0 +1,21 @@
+package database;
+
+import java.sql.SQLException;
+
+/**
+ * A function that may fail with a database error.
+ * Used to run a call against a service instance chosen by the helper that runs it.
+ *
+ * @param <S> the type of the argument, typically a service
+ * @param <T> the type of the result
+ */
+@FunctionalInterface
+public interface SqlFunction<S, T> {
+    /**
+     * Applies the function.
+     * @param argument The argument
+     * @return the result
+     * @throws SQLException if a database access error occurs
+     */
+    T apply(S argument) throws SQLException;
+}
@@ -0,0 +1,19 @@
+package database;
+
+import java.sql.SQLException;
+
+/**
+ * A supplier of a value that may fail with a database error.
+ * Used to pass DAO calls into helpers that decide how and when they run.
+ *
+ * @param <T> the type of value supplied
+ */
+@FunctionalInterface
+public interface SqlSupplier<T> {
+    /**
+     * Produces the value, typically by running one or more DAO calls.
+     * @return the value
+     * @throws SQLException if a database access error occurs
+     */
+    T get() throws SQLException;
+}
@@ -0,0 +1,68 @@
+package database;
+
+import java.sql.SQLException;
+
+/**
+ * Thrown when a version-checked update finds that someone else changed the row after it was read.
+ * Nothing was written; the caller should re-read the row, reapply its change and try again, or
+ * let the person making the edit decide. Uses SQLState {@value #SQLSTATE} (serialization failure)
+ * so generic retry logic recognizes it.
+ */
+public class StaleRowException extends SQLException {
+    /** The SQLState reported by this exception. */
+    public static final String SQLSTATE = "40001";
+    private static final long serialVersionUID = 1L;
+
+    private final EntityType entityType;
+    private final int id;
+    private final int expectedVersion;
+    private final int currentVersion;
+
+    /**
+     * Constructs a StaleRowException.
+     * @param entityType      The kind of row that was updated
+     * @param id              The row's unique identifier
+     * @param expectedVersion The version the caller read
+     * @param currentVersion  The version stored when the update ran; it may equal the expected
+     *                        version if the concurrent edit committed while the update was running
+     */
+    public StaleRowException(EntityType entityType, int id, int expectedVersion, int currentVersion) {
+        super(entityType + " #" + id + " was changed by someone else since it was read; reload it and try again", SQLSTATE);
+        this.entityType = entityType;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+        this.currentVersion = currentVersion;
+    }
+
+    /**
+     * Gets the kind of row that was updated.
+     * @return the entity type
+     */
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Gets the row's unique identifier.
+     * @return the id
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Gets the version the caller read.
+     * @return the expected version
+     */
+    public int getExpectedVersion() {
+        return expectedVersion;
+    }
+
+    /**
+     * Gets the version stored when the update ran.
+     * @return the current version
+     */
+    public int getCurrentVersion() {
+        return currentVersion;
+    }
+}
@@ -0,0 +1,191 @@
+package database;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a request's independent reads at the same time, each on its own thread, and treats them as
+ * one unit: {@link #join} returns once all of them have finished, and the first failure cancels the
+ * rest, including statements they already have running on the server. Closing the scope cancels
+ * anything still running, so no subtask outlives the block that forked it.
+ * <pre>
+ *   try (TaskScope scope = new TaskScope("dashboard")) {
+ *       TaskScope.Subtask&lt;User&gt; user = scope.fork("profile", () -&gt; userService.getUserById(id));
+ *       TaskScope.Subtask&lt;List&lt;Membership&gt;&gt; memberships = scope.fork("memberships", ...);
+ *       scope.join();
+ *       return new Dashboard(user.get(), memberships.get());
+ *   }
+ * </pre>
+ *
+ * <p>This follows the shape of the JDK's structured concurrency API, which is still a preview
+ * feature, so it can be swapped for it once that is final. Subtasks run on virtual threads, so a
+ * fork costs little more than the task itself and a blocked read does not hold a platform thread.
+ * Each subtask inherits the caller's {@link Deadline} and read-your-writes pin, but not a
+ * {@link TransactionManager} transaction. Subtasks must use different connections, typically by
+ * calling different services, to actually run in parallel.</p>
+ */
+public final class TaskScope implements AutoCloseable {
+    private static final ThreadFactory THREADS = Thread.ofVirtual().name("task-", 0).factory();
+
+    private final String name;
+    private final List<Subtask<?>> subtasks = new CopyOnWriteArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private boolean joined;
+
+    /**
+     * Constructs a TaskScope.
+     * @param name The scope's name, which prefixes its subtasks' operation names
+     */
+    public TaskScope(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Starts a subtask on its own thread.
+     * @param operation The subtask's name, used for timeout counts
+     * @param task      The work, typically one service call
+     * @param <T>       The work's result type
+     * @return a handle to the subtask's result, available after {@link #join}
+     * @throws IllegalStateException if the scope has already been joined
+     */
+    public <T> Subtask<T> fork(String operation, SqlSupplier<T> task) {
+        if (joined) {
+            throw new IllegalStateException("Cannot fork after join");
+        }
+        Subtask<T> subtask = new Subtask<>(Deadline.forSubtask(name + "." + operation), ConnectionRouter.currentPin());
+        subtasks.add(subtask);
+        subtask.thread = THREADS.newThread(() -> subtask.run(task));
+        subtask.thread.start();
+        if (failure.get() != null) {
+            subtask.cancel();
+        }
+        return subtask;
+    }
+
+    /**
+     * Waits for every subtask to finish.
+     * @throws SQLException if a subtask failed with one; the other subtasks were cancelled
+     * @throws RuntimeException if a subtask failed with one, such as an IllegalArgumentException for
+     *                          a missing row; the other subtasks were cancelled
+     */
+    public void join() throws SQLException {
+        joined = true;
+        try {
+            for (Subtask<?> subtask : subtasks) {
+                subtask.thread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new SQLException(name + " was interrupted", "57014", e));
+            awaitAll();
+        }
+        Throwable first = failure.get();
+        if (first instanceof SQLException) {
+            throw (SQLException) first;
+        }
+        if (first instanceof RuntimeException) {
+            throw (RuntimeException) first;
+        }
+        if (first instanceof Error) {
+            throw (Error) first;
+        }
+    }
+
+    /**
+     * Cancels any subtask still running and waits for all of them to end.
+     */
+    @Override
+    public void close() {
+        for (Subtask<?> subtask : subtasks) {
+            subtask.cancel();
+        }
+        awaitAll();
+    }
+
+    /**
+     * Records a subtask's failure; the first one cancels every other subtask.
+     * @param e The failure
+     */
+    private void fail(Throwable e) {
+        if (failure.compareAndSet(null, e)) {
+            for (Subtask<?> subtask : subtasks) {
+                subtask.cancel();
+            }
+        }
+    }
+
+    /**
+     * Waits for every subtask's thread to end, even if interrupted, so none outlives the scope.
+     */
+    private void awaitAll() {
+        boolean interrupted = false;
+        for (Subtask<?> subtask : subtasks) {
+            while (true) {
+                try {
+                    subtask.thread.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A forked subtask and, once the scope is joined, its result.
+     * @param <T> the type of the subtask's result
+     */
+    public final class Subtask<T> {
+        private final Deadline deadline;
+        private final Long pin;
+        private Thread thread;
+        private volatile T result;
+        private volatile boolean succeeded;
+
+        private Subtask(Deadline deadline, Long pin) {
+            this.deadline = deadline;
+            this.pin = pin;
+        }
+
+        /**
+         * Gets the subtask's result.
+         * @return the result
+         * @throws IllegalStateException if the scope has not been joined or the subtask did not succeed
+         */
+        public T get() {
+            if (!joined || !succeeded) {
+                throw new IllegalStateException("Subtask " + deadline.getOperation() + " has no result");
+            }
+            return result;
+        }
+
+        /**
+         * Runs the work on the subtask's thread.
+         * @param task The work
+         */
+        private void run(SqlSupplier<T> task) {
+            try {
+                result = ConnectionRouter.runWithPin(pin, () -> Deadline.runWith(deadline, task));
+                succeeded = true;
+            } catch (SQLException | RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+
+        /**
+         * Cancels the subtask's running statements and interrupts its thread.
+         */
+        private void cancel() {
+            deadline.cancel();
+            if (thread != null) {
+                thread.interrupt();
+            }
+        }
+    }
+}
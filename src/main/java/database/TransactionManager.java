@@ -0,0 +1,287 @@
+package database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Runs a unit of work spanning several services on one connection with a single commit.
+ * While a transaction is active on the calling thread, every DAO's {@link ConnectionRouter} hands
+ * out the transaction's connection for reads and writes, so a flow such as "purchase membership,
+ * then enroll in class" costs one commit instead of one per statement.
+ *
+ * <p>Transactions follow the usual propagation rules:</p>
+ * <ul>
+ *   <li>{@link Propagation#REQUIRED} joins the active transaction, or starts one</li>
+ *   <li>{@link Propagation#REQUIRES_NEW} suspends the active transaction and runs in a new one on
+ *       another connection, which commits or rolls back on its own</li>
+ *   <li>{@link Propagation#NESTED} runs inside the active transaction under a savepoint, so a
+ *       failure undoes only the nested work; without an active transaction it starts one</li>
+ * </ul>
+ *
+ * <p>Work that must only happen once the data is durable, such as journaling and updating the
+ * services' local caches, is deferred with {@link #afterCommit} and dropped on rollback, so other
+ * threads never see uncommitted state and a rollback leaves the caches as they were. Transaction
+ * connections come from a small pool of idle connections that is shared by all threads. A pooled
+ * connection is only checked with a round trip before reuse if it has been idle for
+ * {@code gym.tx.validateAfterIdleMillis} (default 30000); one whose transaction failed with a
+ * connection error is discarded instead of pooled.</p>
+ */
+public final class TransactionManager {
+    /** How a unit of work relates to a transaction that is already active on the thread. */
+    public enum Propagation {
+        REQUIRED,
+        REQUIRES_NEW,
+        NESTED
+    }
+
+    private static final int MAX_IDLE_CONNECTIONS = Integer.getInteger("gym.tx.maxIdleConnections", 8);
+    private static final long VALIDATE_AFTER_IDLE_NANOS =
+            TimeUnit.MILLISECONDS.toNanos(Long.getLong("gym.tx.validateAfterIdleMillis", 30_000));
+    private static final String CONNECTION_ERROR_CLASS = "08";
+
+    private static final ThreadLocal<Deque<Transaction>> transactions = ThreadLocal.withInitial(ArrayDeque::new);
+    private static final ConcurrentLinkedDeque<IdleConnection> idle = new ConcurrentLinkedDeque<>();
+    private static final AtomicInteger idleCount = new AtomicInteger();
+    private static final LongAdder commits = new LongAdder();
+    private static final LongAdder rollbacks = new LongAdder();
+
+    private TransactionManager() {}
+
+    /**
+     * Runs work in a transaction, joining the active one if there is one.
+     * @param work The unit of work, typically several service calls
+     * @param <T>  The work's result type
+     * @return the work's result
+     * @throws SQLException if the work or the commit fails; the transaction is rolled back
+     */
+    public static <T> T inTransaction(SqlSupplier<T> work) throws SQLException {
+        return inTransaction(Propagation.REQUIRED, work);
+    }
+
+    /**
+     * Runs work in a transaction with the given propagation.
+     * @param propagation How the work relates to an active transaction
+     * @param work        The unit of work
+     * @param <T>         The work's result type
+     * @return the work's result
+     * @throws SQLException if the work or the commit fails; the affected transaction or savepoint is rolled back
+     */
+    public static <T> T inTransaction(Propagation propagation, SqlSupplier<T> work) throws SQLException {
+        Deque<Transaction> stack = transactions.get();
+        Transaction current = stack.peek();
+        if (current != null && propagation == Propagation.REQUIRED) {
+            return work.get();
+        }
+        if (current != null && propagation == Propagation.NESTED) {
+            return runNested(current, work);
+        }
+
+        Transaction transaction = new Transaction(borrow());
+        stack.push(transaction);
+        boolean committed = false;
+        try {
+            T result = work.get();
+            transaction.connection.commit();
+            committed = true;
+            commits.increment();
+            return result;
+        } catch (SQLException | RuntimeException | Error e) {
+            rollback(transaction, e);
+            throw e;
+        } finally {
+            stack.pop();
+            if (stack.isEmpty()) {
+                transactions.remove();
+            }
+            if (transaction.broken) {
+                closeQuietly(transaction.connection);
+            } else {
+                release(transaction.connection);
+            }
+            if (committed) {
+                transaction.runAfterCommit();
+            }
+        }
+    }
+
+    /**
+     * Reports whether a transaction is active on the calling thread.
+     * @return true if DAO calls on this thread run in a transaction
+     */
+    public static boolean isActive() {
+        Deque<Transaction> stack = transactions.get();
+        if (stack.isEmpty()) {
+            transactions.remove();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the active transaction's connection.
+     * @return the connection, or null if no transaction is active on the calling thread
+     */
+    static Connection currentConnection() {
+        Transaction transaction = isActive() ? transactions.get().peek() : null;
+        return transaction == null ? null : transaction.connection;
+    }
+
+    /**
+     * Runs an action once the active transaction commits, or immediately if none is active.
+     * Actions registered inside a nested unit that rolls back to its savepoint are dropped.
+     * @param action The action, which must not throw
+     */
+    public static void afterCommit(Runnable action) {
+        Transaction transaction = isActive() ? transactions.get().peek() : null;
+        if (transaction == null) {
+            action.run();
+        } else {
+            transaction.afterCommit.add(action);
+        }
+    }
+
+    /**
+     * Returns the number of transactions committed and rolled back in this process.
+     * @return a summary of transaction outcomes
+     */
+    public static String getStats() {
+        return "commits=" + commits.sum() + ", rollbacks=" + rollbacks.sum() + ", idleConnections=" + idleCount.get();
+    }
+
+    /**
+     * Runs work under a savepoint of the active transaction.
+     * @param transaction The active transaction
+     * @param work        The nested unit of work
+     * @param <T>         The work's result type
+     * @return the work's result
+     * @throws SQLException if the work fails; its changes are rolled back to the savepoint
+     */
+    private static <T> T runNested(Transaction transaction, SqlSupplier<T> work) throws SQLException {
+        Savepoint savepoint = transaction.connection.setSavepoint();
+        int pendingActions = transaction.afterCommit.size();
+        try {
+            T result = work.get();
+            transaction.connection.releaseSavepoint(savepoint);
+            return result;
+        } catch (SQLException | RuntimeException | Error e) {
+            try {
+                transaction.connection.rollback(savepoint);
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            transaction.afterCommit.subList(pendingActions, transaction.afterCommit.size()).clear();
+            throw e;
+        }
+    }
+
+    /**
+     * Rolls a transaction back; a connection that failed with a connection error or cannot be
+     * rolled back is marked broken, so it is closed rather than pooled.
+     * @param transaction The failed transaction
+     * @param cause       The failure, to which a rollback failure is attached
+     */
+    private static void rollback(Transaction transaction, Throwable cause) {
+        if (cause instanceof SQLException) {
+            String sqlState = ((SQLException) cause).getSQLState();
+            if (sqlState != null && sqlState.startsWith(CONNECTION_ERROR_CLASS)) {
+                transaction.broken = true;
+            }
+        }
+        try {
+            transaction.connection.rollback();
+        } catch (SQLException e) {
+            cause.addSuppressed(e);
+            transaction.broken = true;
+        }
+        rollbacks.increment();
+    }
+
+    /**
+     * Takes an idle connection from the pool, or opens a new one. Only connections that have been
+     * idle long enough for the server or a firewall to have dropped them are checked first.
+     * @return a connection with auto-commit disabled
+     * @throws SQLException if a database access error occurs
+     */
+    private static Connection borrow() throws SQLException {
+        IdleConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            idleCount.decrementAndGet();
+            if (System.nanoTime() - pooled.idleSinceNanos < VALIDATE_AFTER_IDLE_NANOS || pooled.connection.isValid(1)) {
+                return pooled.connection;
+            }
+            closeQuietly(pooled.connection);
+        }
+        Connection connection = DatabaseConnection.getConnection();
+        connection.setAutoCommit(false);
+        return connection;
+    }
+
+    /**
+     * Returns a connection to the pool, or closes it if the pool is full.
+     * @param connection A connection with no open transaction
+     */
+    private static void release(Connection connection) {
+        if (idleCount.incrementAndGet() <= MAX_IDLE_CONNECTIONS) {
+            idle.offerFirst(new IdleConnection(connection, System.nanoTime()));
+        } else {
+            idleCount.decrementAndGet();
+            closeQuietly(connection);
+        }
+    }
+
+    /**
+     * Closes a connection, ignoring failures.
+     * @param connection The connection
+     */
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            // Already unusable
+        }
+    }
+
+    /**
+     * A pooled connection and when it was returned to the pool.
+     */
+    private static final class IdleConnection {
+        private final Connection connection;
+        private final long idleSinceNanos;
+
+        IdleConnection(Connection connection, long idleSinceNanos) {
+            this.connection = connection;
+            this.idleSinceNanos = idleSinceNanos;
+        }
+    }
+
+    /**
+     * One transaction on its own connection, with the actions waiting for it to commit.
+     */
+    private static final class Transaction {
+        private final Connection connection;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private boolean broken;
+
+        Transaction(Connection connection) {
+            this.connection = connection;
+        }
+
+        /**
+         * Runs the deferred actions in the order they were registered.
+         */
+        void runAfterCommit() {
+            for (Runnable action : afterCommit) {
+                action.run();
+            }
+        }
+    }
+}
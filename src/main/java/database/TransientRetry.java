@@ -0,0 +1,139 @@
+package database;
+
+import java.sql.SQLException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retries database calls that failed for reasons that go away on their own: a lost connection
+ * (the router reconnects on the next call), a serialization failure or a deadlock. Attempts are
+ * spaced by exponential backoff with full jitter, so clients recovering from the same outage do
+ * not retry in lockstep, and every attempt goes through the primary {@link CircuitBreaker}.
+ *
+ * <p>Only reads are retried after a lost connection: a write whose connection broke may or may not
+ * have committed. Writes are retried only after serialization failures and deadlocks, where
+ * PostgreSQL guarantees the statement was rolled back. Nothing is retried inside a
+ * {@link TransactionManager} transaction, since the failure aborted the whole transaction; the
+ * caller must retry the unit of work. {@link StaleRowException}s are never retried here because
+ * repeating the same stale update cannot succeed; see {@link OptimisticRetry}.</p>
+ *
+ * <p>The attempt count is set with {@code gym.db.retryAttempts} (default 3).</p>
+ */
+public final class TransientRetry {
+    private static final int ATTEMPTS = Integer.getInteger("gym.db.retryAttempts", 3);
+    private static final long BASE_BACKOFF_MILLIS = 50;
+    private static final long MAX_BACKOFF_MILLIS = 2_000;
+
+    private static final String SERIALIZATION_FAILURE = "40001";
+    private static final String DEADLOCK_DETECTED = "40P01";
+
+    private TransientRetry() {}
+
+    /**
+     * Runs an idempotent call, retrying lost connections, serialization failures and deadlocks.
+     * @param call The read
+     * @param <T>  The call's result type
+     * @return the call's result
+     * @throws SQLException if the call still fails after the last attempt, fails permanently,
+     *                      or the circuit breaker is open
+     */
+    public static <T> T read(SqlSupplier<T> call) throws SQLException {
+        return run(call, true);
+    }
+
+    /**
+     * Runs a single-statement write, retrying serialization failures and deadlocks only.
+     * @param call The write
+     * @param <T>  The call's result type
+     * @return the call's result
+     * @throws SQLException if the call still fails after the last attempt, fails permanently,
+     *                      or the circuit breaker is open
+     */
+    public static <T> T write(SqlSupplier<T> call) throws SQLException {
+        return run(call, false);
+    }
+
+    /**
+     * Reports whether an error means the database could not be reached or dropped the connection.
+     * @param e The error
+     * @return true for connection exceptions (SQLState class 08) and server shutdowns
+     */
+    public static boolean isConnectionFailure(SQLException e) {
+        if (e instanceof CircuitBreaker.OpenException) {
+            return false;
+        }
+        String state = e.getSQLState();
+        return state != null && (state.startsWith("08") || state.equals("57P01")
+                || state.equals("57P02") || state.equals("57P03"));
+    }
+
+    /**
+     * Runs a call with retries.
+     * @param call       The call
+     * @param idempotent Whether the call may be repeated after a lost connection
+     * @param <T>        The call's result type
+     * @return the call's result
+     * @throws SQLException if the call still fails after the last attempt or fails permanently
+     */
+    private static <T> T run(SqlSupplier<T> call, boolean idempotent) throws SQLException {
+        CircuitBreaker breaker = CircuitBreaker.getPrimary();
+        boolean retryable = !TransactionManager.isActive();
+        for (int attempt = 1; ; attempt++) {
+            breaker.acquire();
+            try {
+                T result = call.get();
+                breaker.onSuccess();
+                return result;
+            } catch (SQLException e) {
+                // Neither a success nor a failure if the breaker opened while the call was reconnecting
+                breaker.record(e);
+                if (!retryable || attempt >= ATTEMPTS || !isTransient(e, idempotent)) {
+                    throw e;
+                }
+                backOff(attempt, e);
+            } catch (RuntimeException | Error e) {
+                breaker.onSuccess();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Decides whether a failure is worth another attempt.
+     * @param e          The failure
+     * @param idempotent Whether the call may be repeated after a lost connection
+     * @return true if the call should be retried
+     */
+    private static boolean isTransient(SQLException e, boolean idempotent) {
+        if (e instanceof StaleRowException) {
+            return false;
+        }
+        String state = e.getSQLState();
+        if (SERIALIZATION_FAILURE.equals(state) || DEADLOCK_DETECTED.equals(state)) {
+            return true;
+        }
+        return idempotent && isConnectionFailure(e);
+    }
+
+    /**
+     * Sleeps for a random time up to an exponentially growing cap.
+     * @param attempt The attempt that just failed
+     * @param cause   The failure, rethrown if the thread is interrupted or the caller's
+     *                {@link Deadline} would pass before the next attempt starts
+     * @throws SQLException if the thread is interrupted or there is no time left to retry
+     */
+    private static void backOff(int attempt, SQLException cause) throws SQLException {
+        long cap = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(attempt - 1, 16));
+        long sleep = ThreadLocalRandom.current().nextLong(cap + 1);
+        Deadline deadline = Deadline.current();
+        if (deadline != null && deadline.remainingMillis() <= sleep) {
+            throw cause;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw cause;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package export;
+
+/**
+ * Encodes rows as RFC 4180 CSV. Values containing a comma, quote or line break are quoted,
+ * with quotes doubled; SQL NULL is written as an empty field.
+ */
+class CsvRowEncoder implements RowEncoder {
+
+    @Override
+    public void writeHeader(String[] columns, StringBuilder out) {
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendField(columns[i], out);
+        }
+        out.append('\n');
+    }
+
+    @Override
+    public void writeRow(String[] columns, ColumnKind[] kinds, String[] values, StringBuilder out) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            if (values[i] != null) {
+                appendField(values[i], out);
+            }
+        }
+        out.append('\n');
+    }
+
+    /**
+     * Appends one field, quoting it only if needed.
+     * @param value The field value
+     * @param out   The buffer to append to
+     */
+    private static void appendField(String value, StringBuilder out) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
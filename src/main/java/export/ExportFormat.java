@@ -0,0 +1,33 @@
+package export;
+
+/**
+ * File formats the exporter can write. Both are gzip-compressed and written one row per line.
+ */
+public enum ExportFormat {
+    /** RFC 4180 CSV with a header row. */
+    CSV(".csv.gz"),
+    /** One JSON object per line (JSON Lines), with numbers and booleans unquoted. */
+    JSON(".jsonl.gz");
+
+    private final String extension;
+
+    ExportFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Gets the file name extension for this format.
+     * @return the extension, including the leading dot
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Creates an encoder for this format. Encoders are not thread-safe; use one per export.
+     * @return a new encoder
+     */
+    RowEncoder newEncoder() {
+        return this == CSV ? new CsvRowEncoder() : new JsonRowEncoder();
+    }
+}
@@ -0,0 +1,80 @@
+package export;
+
+import java.nio.file.Path;
+
+/**
+ * What one table export wrote and how fast it ran.
+ */
+public class ExportResult {
+    private final ExportTable table;
+    private final Path file;
+    private final long rows;
+    private final long bytes;
+    private final long elapsedNanos;
+
+    /**
+     * Constructs an ExportResult.
+     * @param table        The exported table
+     * @param file         The file written
+     * @param rows         The number of rows written
+     * @param bytes        The compressed size of the file
+     * @param elapsedNanos How long the export took
+     */
+    public ExportResult(ExportTable table, Path file, long rows, long bytes, long elapsedNanos) {
+        this.table = table;
+        this.file = file;
+        this.rows = rows;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Gets the exported table.
+     * @return the table
+     */
+    public ExportTable getTable() {
+        return table;
+    }
+
+    /**
+     * Gets the file written.
+     * @return the file path
+     */
+    public Path getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the number of rows written.
+     * @return the row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Gets the compressed size of the file.
+     * @return the size in bytes
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Gets the export throughput.
+     * @return rows written per second
+     */
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rows * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * Returns a one-line summary of the export.
+     * @return the table, row count, size and throughput
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d rows, %d bytes in %.1f ms (%.0f rows/s) -> %s",
+                table.getFileName(), rows, bytes, elapsedNanos / 1_000_000.0, getRowsPerSecond(), file);
+    }
+}
@@ -0,0 +1,41 @@
+package export;
+
+/**
+ * The tables that can be exported, with the columns each export contains.
+ * Rows are read in primary key order so repeated exports are easy to diff.
+ */
+public enum ExportTable {
+    /** Users without their password hashes. */
+    USERS("users",
+            "SELECT userId, userName, userEmail, userPhoneNumber, userAddress, userRole FROM Users ORDER BY userId"),
+    MEMBERSHIPS("memberships",
+            "SELECT membershipId, membershipType, membershipDescription, membershipCost, userId, startDate, endDate, " +
+            "membershipStatus, autoRenew FROM Memberships ORDER BY membershipId"),
+    WORKOUT_CLASSES("workout_classes",
+            "SELECT workoutClassId, workoutClassType, workoutClassDescription, trainerId, capacity, scheduleTime, " +
+            "duration, templateId, occurrenceDate FROM WorkoutClasses ORDER BY workoutClassId");
+
+    private final String fileName;
+    private final String query;
+
+    ExportTable(String fileName, String query) {
+        this.fileName = fileName;
+        this.query = query;
+    }
+
+    /**
+     * Gets the base name of the export file, without extension.
+     * @return the file name
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Gets the query that selects the exported rows.
+     * @return the SQL query
+     */
+    String getQuery() {
+        return query;
+    }
+}
@@ -0,0 +1,69 @@
+package export;
+
+/**
+ * Encodes rows as JSON Lines: one object per row keyed by column name. Numbers and booleans are
+ * written bare, SQL NULL as {@code null}, and everything else as an escaped string.
+ */
+class JsonRowEncoder implements RowEncoder {
+
+    @Override
+    public void writeHeader(String[] columns, StringBuilder out) {
+        // JSON Lines has no header; each row carries its column names
+    }
+
+    @Override
+    public void writeRow(String[] columns, ColumnKind[] kinds, String[] values, StringBuilder out) {
+        out.append('{');
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            appendString(columns[i], out);
+            out.append(':');
+            if (values[i] == null) {
+                out.append("null");
+            } else if (kinds[i] == ColumnKind.TEXT) {
+                appendString(values[i], out);
+            } else {
+                out.append(values[i]);
+            }
+        }
+        out.append("}\n");
+    }
+
+    /**
+     * Appends a quoted and escaped JSON string.
+     * @param value The string value
+     * @param out   The buffer to append to
+     */
+    private static void appendString(String value, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,33 @@
+package export;
+
+/**
+ * Appends exported rows to a reusable character buffer in one output format.
+ * Values are passed as text with a {@link ColumnKind} per column so the encoder decides quoting;
+ * no objects are allocated per row beyond the values themselves.
+ */
+interface RowEncoder {
+    /**
+     * Appends whatever precedes the first row, such as a header line.
+     * @param columns The column names
+     * @param out     The buffer to append to
+     */
+    void writeHeader(String[] columns, StringBuilder out);
+
+    /**
+     * Appends one row, terminated by a newline.
+     * @param columns The column names
+     * @param kinds   How each column's values are represented
+     * @param values  The row's values as text; null for SQL NULL
+     * @param out     The buffer to append to
+     */
+    void writeRow(String[] columns, ColumnKind[] kinds, String[] values, StringBuilder out);
+
+    /**
+     * How a column's values are written.
+     */
+    enum ColumnKind {
+        TEXT,
+        NUMBER,
+        BOOLEAN
+    }
+}
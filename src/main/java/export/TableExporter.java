@@ -0,0 +1,263 @@
+package export;
+
+import database.DatabaseConnection;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams whole tables to gzip-compressed CSV or JSON Lines files in constant memory.
+ * Rows are fetched from a server-side cursor {@value #FETCH_SIZE} at a time, appended to one
+ * reusable character buffer, encoded to UTF-8 through one reusable byte buffer and compressed
+ * straight into a {@link FileChannel}, so heap use does not grow with the table. Each file is
+ * written under a temporary name and moved into place when complete, so readers never see a
+ * partial export.
+ */
+public class TableExporter {
+    private static final int FETCH_SIZE = 1_000;
+    private static final int FLUSH_CHARS = 32 * 1024;
+    private static final int GZIP_BUFFER_BYTES = 64 * 1024;
+
+    /**
+     * Exports one table.
+     * @param table  The table to export
+     * @param format The file format
+     * @param file   The file to write; replaced if it exists
+     * @return What was written and how fast
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be written
+     */
+    public ExportResult export(ExportTable table, ExportFormat format, Path file) throws SQLException, IOException {
+        try (Connection connection = openSnapshot()) {
+            try {
+                return export(connection, table, format, file);
+            } finally {
+                connection.rollback();
+            }
+        }
+    }
+
+    /**
+     * Exports every table into a directory, all from the same database snapshot so the files are
+     * consistent with each other.
+     * @param directory The directory to write to; created if needed
+     * @param format    The file format
+     * @return One result per table
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if a file cannot be written
+     */
+    public List<ExportResult> exportAll(Path directory, ExportFormat format) throws SQLException, IOException {
+        Files.createDirectories(directory);
+        List<ExportResult> results = new ArrayList<>();
+        try (Connection connection = openSnapshot()) {
+            try {
+                for (ExportTable table : ExportTable.values()) {
+                    Path file = directory.resolve(table.getFileName() + format.getExtension());
+                    results.add(export(connection, table, format, file));
+                }
+            } finally {
+                connection.rollback();
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Opens a read-only repeatable-read transaction; pgjdbc only uses a server-side cursor
+     * (honouring the fetch size) when auto-commit is off.
+     * @return the connection
+     * @throws SQLException if a database access error occurs
+     */
+    private static Connection openSnapshot() throws SQLException {
+        Connection connection = DatabaseConnection.getConnection();
+        try {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            return connection;
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Streams one table through the encoder into a gzip file.
+     * @param connection A connection with auto-commit disabled
+     * @param table      The table to export
+     * @param format     The file format
+     * @param file       The file to write
+     * @return What was written and how fast
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be written
+     */
+    private static ExportResult export(Connection connection, ExportTable table, ExportFormat format, Path file)
+            throws SQLException, IOException {
+        long started = System.nanoTime();
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        RowEncoder encoder = format.newEncoder();
+        long rows = 0;
+
+        try (PreparedStatement stmt = connection.prepareStatement(table.getQuery(),
+                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+             FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Utf8Writer writer = new Utf8Writer(new GZIPOutputStream(Channels.newOutputStream(channel), GZIP_BUFFER_BYTES))) {
+            stmt.setFetchSize(FETCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                ResultSetMetaData metaData = rs.getMetaData();
+                String[] columns = new String[metaData.getColumnCount()];
+                RowEncoder.ColumnKind[] kinds = new RowEncoder.ColumnKind[columns.length];
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = metaData.getColumnLabel(i + 1);
+                    kinds[i] = kindOf(metaData.getColumnType(i + 1));
+                }
+                String[] values = new String[columns.length];
+                StringBuilder buffer = writer.buffer();
+                encoder.writeHeader(columns, buffer);
+
+                while (rs.next()) {
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = readValue(rs, i + 1, kinds[i]);
+                    }
+                    encoder.writeRow(columns, kinds, values, buffer);
+                    rows++;
+                    if (buffer.length() >= FLUSH_CHARS) {
+                        writer.flush();
+                    }
+                }
+            }
+            writer.finish();
+            channel.force(true);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new ExportResult(table, file, rows, Files.size(file), System.nanoTime() - started);
+    }
+
+    /**
+     * Reads one value as text, normalizing booleans to {@code true}/{@code false}.
+     * @param rs     The result set positioned at a row
+     * @param column The 1-based column index
+     * @param kind   How the column is represented
+     * @return the value, or null for SQL NULL
+     * @throws SQLException if a database access error occurs
+     */
+    private static String readValue(ResultSet rs, int column, RowEncoder.ColumnKind kind) throws SQLException {
+        if (kind == RowEncoder.ColumnKind.BOOLEAN) {
+            boolean value = rs.getBoolean(column);
+            return rs.wasNull() ? null : (value ? "true" : "false");
+        }
+        return rs.getString(column);
+    }
+
+    /**
+     * Maps a JDBC column type to how its values are written.
+     * @param sqlType The {@link Types} constant
+     * @return the column kind
+     */
+    private static RowEncoder.ColumnKind kindOf(int sqlType) {
+        switch (sqlType) {
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.REAL:
+            case Types.DOUBLE:
+                return RowEncoder.ColumnKind.NUMBER;
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return RowEncoder.ColumnKind.BOOLEAN;
+            default:
+                return RowEncoder.ColumnKind.TEXT;
+        }
+    }
+
+    /**
+     * Encodes a reusable character buffer to UTF-8 through a reusable byte buffer.
+     */
+    private static final class Utf8Writer implements Closeable {
+        private final GZIPOutputStream out;
+        private final StringBuilder chars = new StringBuilder(FLUSH_CHARS * 2);
+        private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        private final ByteBuffer bytes = ByteBuffer.allocate(FLUSH_CHARS * 4);
+
+        Utf8Writer(GZIPOutputStream out) {
+            this.out = out;
+        }
+
+        StringBuilder buffer() {
+            return chars;
+        }
+
+        /**
+         * Encodes and writes everything in the character buffer, then empties it.
+         * @throws IOException if the output cannot be written
+         */
+        void flush() throws IOException {
+            CharBuffer input = CharBuffer.wrap(chars);
+            encoder.reset();
+            CoderResult result;
+            do {
+                result = encoder.encode(input, bytes, true);
+                drain();
+            } while (result.isOverflow());
+            if (result.isError()) {
+                result.throwException();
+            }
+            do {
+                result = encoder.flush(bytes);
+                drain();
+            } while (result.isOverflow());
+            chars.setLength(0);
+        }
+
+        /**
+         * Writes the rest of the buffer and the gzip trailer, leaving the file open so it can be forced to disk.
+         * @throws IOException if the output cannot be written
+         */
+        void finish() throws IOException {
+            flush();
+            out.finish();
+            out.flush();
+        }
+
+        /**
+         * Releases the compressor and closes the underlying file.
+         * @throws IOException if the file cannot be closed
+         */
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+
+        private void drain() throws IOException {
+            out.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package journal;
+
+import database.EntityType;
+import database.TransactionManager;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only, memory-mapped journal of every user, membership and workout class mutation.
+ * DAOs hand events to {@link #record} after a successful mutation, which assigns each one the
+ * next sequence number; a single writer thread appends them to fixed-size, CRC-checked segment
+ * files, rolling over to a new segment when the current one is full. Writing happens off the
+ * request path: callers only enqueue and never wait. If the writer falls more than a queue's worth
+ * behind, further events are dropped and counted (see {@link #getDroppedCount}) rather than holding
+ * up the request that made the change. A dropped event keeps its sequence number, so consumers
+ * see the loss as a gap in the sequence.
+ * Analytics jobs and other consumers replay the journal with a {@link JournalReader}
+ * instead of querying the OLTP tables.
+ *
+ * <p>The journal lives in the directory named by the {@code gym.journal.dir} system property
+ * (default {@code journal}) with segments of {@code gym.journal.segmentBytes} bytes (default 64 MiB).</p>
+ */
+public class EventJournal implements AutoCloseable {
+    private static final int DEFAULT_SEGMENT_BYTES = 64 * 1024 * 1024;
+    private static final int QUEUE_CAPACITY = 16_384;
+    private static final long FLUSH_INTERVAL_MILLIS = 50;
+    private static final JournalEvent CLOSE = new JournalEvent(0, 0, EntityType.USER, JournalEvent.Operation.CREATE, 0, "");
+
+    private static EventJournal instance;
+    private static boolean unavailable;
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final BlockingQueue<JournalEvent> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread writer;
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+    // The next sequence number to assign; guarded by queue so events are queued in sequence order
+    private long assignedSequence;
+
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long nextSequence;
+    private boolean dirty;
+
+    /**
+     * Opens (or creates) a journal in the given directory and starts its writer thread.
+     * @param directory    The journal directory
+     * @param segmentBytes The size of each segment file in bytes
+     * @throws IOException if the journal cannot be opened
+     */
+    public EventJournal(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        recover();
+        this.assignedSequence = nextSequence;
+
+        this.writer = new Thread(this::run, "event-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Gets the process-wide journal, opening it on first use.
+     * @return the shared journal, or null if it could not be opened
+     */
+    public static synchronized EventJournal getInstance() {
+        if (instance == null && !unavailable) {
+            Path directory = Paths.get(System.getProperty("gym.journal.dir", "journal"));
+            int segmentBytes = Integer.getInteger("gym.journal.segmentBytes", DEFAULT_SEGMENT_BYTES);
+            try {
+                instance = new EventJournal(directory, segmentBytes);
+                Runtime.getRuntime().addShutdownHook(new Thread(instance::close, "event-journal-shutdown"));
+            } catch (IOException e) {
+                unavailable = true;
+                System.err.println("Event journal disabled: " + e.getMessage());
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Records a mutation in the shared journal. Does nothing if the journal is unavailable,
+     * so journaling problems never fail the mutation that has already been committed. Inside a
+     * {@link TransactionManager} transaction the event is recorded only once the transaction commits.
+     * @param entityType The kind of entity that changed
+     * @param operation  The kind of mutation
+     * @param entityId   The entity's unique identifier
+     * @param payload    A JSON description of the new state, or an empty string for deletes
+     */
+    public static void record(EntityType entityType, JournalEvent.Operation operation, int entityId, String payload) {
+        TransactionManager.afterCommit(() -> {
+            EventJournal journal = getInstance();
+            if (journal != null) {
+                journal.append(entityType, operation, entityId, payload);
+            }
+        });
+    }
+
+    /**
+     * Assigns an event the next sequence number and queues it for writing without waiting.
+     * @param entityType The kind of entity that changed
+     * @param operation  The kind of mutation
+     * @param entityId   The entity's unique identifier
+     * @param payload    A JSON description of the new state
+     * @return true if the event was queued, false if the journal is closed or the queue was full and it was dropped
+     */
+    public boolean append(EntityType entityType, JournalEvent.Operation operation, int entityId, String payload) {
+        if (closed) {
+            return false;
+        }
+        synchronized (queue) {
+            JournalEvent event = new JournalEvent(assignedSequence++, System.currentTimeMillis(),
+                    entityType, operation, entityId, payload);
+            if (!queue.offer(event)) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of events dropped because the writer had fallen a full queue behind.
+     * @return the dropped count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Gets the directory this journal writes to, for opening a {@link JournalReader}.
+     * @return the journal directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Writes all queued events, flushes them to disk and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            queue.put(CLOSE);
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer loop: appends queued events and flushes once the queue goes quiet.
+     */
+    private void run() {
+        try {
+            while (true) {
+                JournalEvent event = queue.poll(FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (event == null) {
+                    flush();
+                } else if (event == CLOSE) {
+                    break;
+                } else {
+                    write(event);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            System.err.println("Event journal writer stopped: " + e.getMessage());
+            closed = true;
+        } finally {
+            flush();
+            closeSegment();
+        }
+    }
+
+    /**
+     * Appends the event, rolling over if needed.
+     * @param event The queued event with its sequence number
+     * @throws IOException if a new segment cannot be created
+     */
+    private void write(JournalEvent event) throws IOException {
+        byte[] payload = event.getPayload().getBytes(StandardCharsets.UTF_8);
+        int size = JournalSegment.recordSize(payload);
+        if (size > segmentBytes - JournalSegment.HEADER_BYTES) {
+            System.err.println("Event journal skipped oversized " + event.getEntityType() + " event #" + event.getSequence());
+            return;
+        }
+        if (segment.remaining() < size) {
+            openSegment(event.getSequence());
+        }
+        JournalSegment.write(segment, event, payload);
+        nextSequence = event.getSequence() + 1;
+        dirty = true;
+    }
+
+    /**
+     * Forces written records to disk.
+     */
+    private void flush() {
+        if (dirty && segment != null) {
+            segment.force();
+            dirty = false;
+        }
+    }
+
+    /**
+     * Finds the end of the newest segment so appends continue where the last run stopped.
+     * If that segment ends in a torn or corrupt record, writing resumes in a fresh segment.
+     * @throws IOException if the journal directory cannot be read
+     */
+    private void recover() throws IOException {
+        List<Path> segments = JournalSegment.list(directory);
+        if (segments.isEmpty()) {
+            openSegment(1);
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        channel = FileChannel.open(last, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+        nextSequence = JournalSegment.firstSequenceOf(last);
+        if (!JournalSegment.hasValidHeader(segment)) {
+            openSegment(nextSequence);
+            return;
+        }
+
+        segment.position(JournalSegment.HEADER_BYTES);
+        JournalEvent event;
+        while ((event = JournalSegment.read(segment)) != null) {
+            nextSequence = event.getSequence() + 1;
+        }
+        if (segment.remaining() >= 4 && segment.getInt(segment.position()) != 0) {
+            openSegment(nextSequence);
+        }
+    }
+
+    /**
+     * Closes the current segment and maps a new one starting at the given sequence number.
+     * @param firstSequence The sequence number of the new segment's first event
+     * @throws IOException if the segment cannot be created
+     */
+    private void openSegment(long firstSequence) throws IOException {
+        flush();
+        closeSegment();
+        Path path = JournalSegment.pathFor(directory, firstSequence);
+        // Only a segment holding no valid events can already exist under this name, so it is safe to reset
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        JournalSegment.writeHeader(segment);
+        segment.position(JournalSegment.HEADER_BYTES);
+        nextSequence = firstSequence;
+    }
+
+    /**
+     * Closes the current segment's file channel.
+     */
+    private void closeSegment() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                System.err.println("Error closing journal segment: " + e.getMessage());
+            }
+            channel = null;
+        }
+    }
+}
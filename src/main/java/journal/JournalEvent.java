@@ -0,0 +1,171 @@
+package journal;
+
+import database.EntityType;
+
+/**
+ * Represents one domain mutation recorded in the event journal.
+ * Stores what changed (entity type and id), how it changed, when, and a JSON payload
+ * describing the entity's new state (empty for deletes).
+ */
+public class JournalEvent {
+    /**
+     * The kind of mutation an event records.
+     */
+    public enum Operation {
+        CREATE,
+        UPDATE,
+        DELETE
+    }
+
+    private final long sequence;
+    private final long timestamp;
+    private final EntityType entityType;
+    private final Operation operation;
+    private final int entityId;
+    private final String payload;
+
+    /**
+     * Constructs a JournalEvent with all fields specified.
+     *
+     * @param sequence   The event's position in the journal, starting at 1
+     * @param timestamp  The time of the mutation in epoch milliseconds
+     * @param entityType The kind of entity that changed
+     * @param operation  The kind of mutation
+     * @param entityId   The entity's unique identifier
+     * @param payload    A JSON description of the entity's new state
+     */
+    public JournalEvent(long sequence, long timestamp, EntityType entityType, Operation operation, int entityId, String payload) {
+        this.sequence = sequence;
+        this.timestamp = timestamp;
+        this.entityType = entityType;
+        this.operation = operation;
+        this.entityId = entityId;
+        this.payload = payload;
+    }
+
+    /**
+     * Gets the event's position in the journal.
+     * @return the sequence number
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Gets the time of the mutation.
+     * @return the timestamp in epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Gets the kind of entity that changed.
+     * @return the entityType
+     */
+    public EntityType getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Gets the kind of mutation.
+     * @return the operation
+     */
+    public Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * Gets the unique identifier of the entity that changed.
+     * @return the entityId
+     */
+    public int getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Gets the JSON description of the entity's new state.
+     * @return the payload
+     */
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * Builds a flat JSON object from alternating field names and values.
+     * Numbers and booleans are written as JSON literals; everything else as strings.
+     * @param namesAndValues Field names and values, e.g. {@code "userName", "sam", "userId", 4}
+     * @return the JSON object text
+     */
+    public static String payloadOf(Object... namesAndValues) {
+        StringBuilder json = new StringBuilder("{");
+        for (int i = 0; i + 1 < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendString(json, String.valueOf(namesAndValues[i]));
+            json.append(':');
+            Object value = namesAndValues[i + 1];
+            if (value == null) {
+                json.append("null");
+            } else if (value instanceof Number || value instanceof Boolean) {
+                json.append(value);
+            } else {
+                appendString(json, value.toString());
+            }
+        }
+        return json.append('}').toString();
+    }
+
+    /**
+     * Appends a quoted and escaped JSON string.
+     * @param json  The builder to append to
+     * @param value The string value
+     */
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    json.append("\\\"");
+                    break;
+                case '\\':
+                    json.append("\\\\");
+                    break;
+                case '\n':
+                    json.append("\\n");
+                    break;
+                case '\r':
+                    json.append("\\r");
+                    break;
+                case '\t':
+                    json.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * Returns a string representation of the JournalEvent object.
+     * @return a string with event details
+     */
+    @Override
+    public String toString() {
+        return "JournalEvent{" +
+                "sequence=" + sequence +
+                ", timestamp=" + timestamp +
+                ", entityType=" + entityType +
+                ", operation=" + operation +
+                ", entityId=" + entityId +
+                ", payload='" + payload + '\'' +
+                '}';
+    }
+}
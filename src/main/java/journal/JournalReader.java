@@ -0,0 +1,167 @@
+package journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tailing reader over an event journal directory.
+ * Replays events in sequence order from a chosen starting point and then keeps following the
+ * journal as new events are appended, moving on to the next segment when the writer rolls over.
+ * Readers only map the segment files read-only, so any number of them (in this process or in
+ * separate analytics processes) can follow the journal without touching PostgreSQL.
+ * Sequence numbers are consecutive except where the writer dropped events it could not keep up
+ * with, so a consumer that sees a gap knows events were lost.
+ */
+public class JournalReader implements AutoCloseable {
+    private static final long IDLE_SLEEP_MILLIS = 10;
+
+    private final Path directory;
+    private final long fromSequence;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence = -1;
+
+    /**
+     * Constructs a JournalReader that replays the journal from the beginning.
+     * @param directory The journal directory
+     */
+    public JournalReader(Path directory) {
+        this(directory, 1);
+    }
+
+    /**
+     * Constructs a JournalReader that replays events with a sequence number of at least fromSequence.
+     * Consumers that store the last sequence they processed can resume with {@code lastSequence + 1}.
+     * @param directory    The journal directory
+     * @param fromSequence The first sequence number to return
+     */
+    public JournalReader(Path directory, long fromSequence) {
+        this.directory = directory;
+        this.fromSequence = fromSequence;
+    }
+
+    /**
+     * Returns the next event without waiting.
+     * @return the next event, or null if the reader has caught up with the writer
+     * @throws IOException if a segment cannot be read
+     */
+    public JournalEvent poll() throws IOException {
+        while (true) {
+            if (segment == null && !openSegment(findNextSegment())) {
+                return null;
+            }
+            JournalEvent event = JournalSegment.read(segment);
+            if (event == null) {
+                // Nothing readable here: either the writer has not got this far yet,
+                // or it has moved on to a newer segment and this one is finished
+                Path next = findNextSegment();
+                if (next == null) {
+                    return null;
+                }
+                // The writer creates a newer segment only after its last write to this one, so
+                // read again: records written since the read above would otherwise be skipped
+                event = JournalSegment.read(segment);
+                if (event == null) {
+                    if (!openSegment(next)) {
+                        return null;
+                    }
+                    continue;
+                }
+            }
+            if (event.getSequence() >= fromSequence) {
+                return event;
+            }
+        }
+    }
+
+    /**
+     * Returns the next event, waiting up to the given time for one to be appended.
+     * @param timeout How long to wait
+     * @param unit    The unit of the timeout
+     * @return the next event, or null if none arrived in time
+     * @throws IOException if a segment cannot be read
+     * @throws InterruptedException if the thread is interrupted while waiting
+     */
+    public JournalEvent poll(long timeout, TimeUnit unit) throws IOException, InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            JournalEvent event = poll();
+            if (event != null || System.nanoTime() >= deadline) {
+                return event;
+            }
+            Thread.sleep(IDLE_SLEEP_MILLIS);
+        }
+    }
+
+    /**
+     * Closes the current segment.
+     * @throws IOException if the segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+            segment = null;
+        }
+    }
+
+    /**
+     * Finds the segment after the current one, or the segment containing fromSequence if no
+     * segment is open yet.
+     * @return the segment's path, or null if there is none yet
+     * @throws IOException if the journal directory cannot be read
+     */
+    private Path findNextSegment() throws IOException {
+        List<Path> segments = JournalSegment.list(directory);
+        Path next = null;
+        for (Path candidate : segments) {
+            long first = JournalSegment.firstSequenceOf(candidate);
+            if (segmentFirstSequence < 0) {
+                // Start from the last segment that begins at or before fromSequence
+                if (first <= fromSequence || next == null) {
+                    next = candidate;
+                }
+                if (first > fromSequence) {
+                    break;
+                }
+            } else if (first > segmentFirstSequence) {
+                next = candidate;
+                break;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Moves to the given segment.
+     * @param next The segment's path, or null if there is none yet
+     * @return true if the segment was opened, false if there is none or it is not initialised yet
+     * @throws IOException if the segment cannot be opened
+     */
+    private boolean openSegment(Path next) throws IOException {
+        if (next == null) {
+            return false;
+        }
+
+        FileChannel opened = FileChannel.open(next, StandardOpenOption.READ);
+        MappedByteBuffer mapped = opened.map(FileChannel.MapMode.READ_ONLY, 0, opened.size());
+        if (!JournalSegment.hasValidHeader(mapped)) {
+            // The writer has created the file but not initialised it yet; try again later
+            opened.close();
+            return false;
+        }
+
+        close();
+        channel = opened;
+        segment = mapped;
+        segment.position(JournalSegment.HEADER_BYTES);
+        segmentFirstSequence = JournalSegment.firstSequenceOf(next);
+        return true;
+    }
+}
@@ -0,0 +1,263 @@
+package journal;
+
+import database.EntityType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk format shared by the journal writer and readers.
+ *
+ * <p>A journal directory holds fixed-size segment files named after the sequence number of their
+ * first event. Each segment starts with a magic number and format version, followed by records:</p>
+ * <pre>
+ * int  bodyLength    (0 means no record has been written here yet)
+ * int  crc32(body)
+ * body:
+ *   long sequence
+ *   long timestamp
+ *   byte entityType    (stable code, see {@link #codeOf(EntityType)})
+ *   byte operation     (stable code, see {@link #codeOf(JournalEvent.Operation)})
+ *   int  entityId
+ *   int  payloadLength
+ *   byte[] payload   (UTF-8 JSON)
+ * </pre>
+ * The writer fills in the body and checksum before the length, so a reader never accepts a
+ * half-written record: it either sees length 0 or a checksum mismatch and waits.
+ */
+final class JournalSegment {
+    static final int MAGIC = 0x474A524E; // "GJRN"
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 8;
+    static final int BODY_FIXED_BYTES = 8 + 8 + 1 + 1 + 4 + 4;
+
+    private static final String PREFIX = "segment-";
+    private static final String SUFFIX = ".journal";
+
+    private JournalSegment() {}
+
+    /**
+     * Gets the path of the segment whose first event has the given sequence number.
+     * @param directory     The journal directory
+     * @param firstSequence The sequence number of the segment's first event
+     * @return the segment path
+     */
+    static Path pathFor(Path directory, long firstSequence) {
+        return directory.resolve(String.format("%s%020d%s", PREFIX, firstSequence, SUFFIX));
+    }
+
+    /**
+     * Gets the sequence number a segment file starts at.
+     * @param segment The segment path
+     * @return the first sequence number
+     */
+    static long firstSequenceOf(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Lists the segments in a journal directory, oldest first.
+     * @param directory The journal directory
+     * @return the segment paths in sequence order
+     * @throws IOException if the directory cannot be read
+     */
+    static List<Path> list(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+            }).sorted().forEach(segments::add);
+        }
+        return segments;
+    }
+
+    /**
+     * Writes the segment header at the start of a new segment.
+     * @param buffer The mapped segment
+     */
+    static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+    }
+
+    /**
+     * Checks that a mapped segment starts with a header this code understands.
+     * @param buffer The mapped segment
+     * @return true if the header is valid
+     */
+    static boolean hasValidHeader(ByteBuffer buffer) {
+        return buffer.limit() >= HEADER_BYTES && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION;
+    }
+
+    /**
+     * Gets the number of bytes a record with the given payload occupies.
+     * @param payload The encoded payload
+     * @return the record size including its header
+     */
+    static int recordSize(byte[] payload) {
+        return RECORD_HEADER_BYTES + BODY_FIXED_BYTES + payload.length;
+    }
+
+    /**
+     * Writes a record at the buffer's position and advances past it.
+     * @param buffer  The mapped segment, with room for the record
+     * @param event   The event to write
+     * @param payload The event's encoded payload
+     */
+    static void write(ByteBuffer buffer, JournalEvent event, byte[] payload) {
+        int start = buffer.position();
+        int bodyLength = BODY_FIXED_BYTES + payload.length;
+
+        buffer.position(start + RECORD_HEADER_BYTES);
+        buffer.putLong(event.getSequence());
+        buffer.putLong(event.getTimestamp());
+        buffer.put(codeOf(event.getEntityType()));
+        buffer.put(codeOf(event.getOperation()));
+        buffer.putInt(event.getEntityId());
+        buffer.putInt(payload.length);
+        buffer.put(payload);
+        int end = buffer.position();
+
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.position(start + RECORD_HEADER_BYTES).limit(end);
+        crc.update(body);
+
+        buffer.putInt(start + 4, (int) crc.getValue());
+        // Publish the record last so readers never see a length without a complete body
+        buffer.putInt(start, bodyLength);
+        buffer.position(end);
+    }
+
+    /**
+     * Reads the record at the buffer's position.
+     * On success the position is advanced past the record; otherwise it is left unchanged.
+     * @param buffer The mapped segment
+     * @return the event, or null if there is no complete, checksum-valid record at the position
+     */
+    static JournalEvent read(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.limit() - start < RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int bodyLength = buffer.getInt(start);
+        if (bodyLength < BODY_FIXED_BYTES || bodyLength > buffer.limit() - start - RECORD_HEADER_BYTES) {
+            return null;
+        }
+        int expectedCrc = buffer.getInt(start + 4);
+
+        ByteBuffer body = buffer.duplicate();
+        body.position(start + RECORD_HEADER_BYTES).limit(start + RECORD_HEADER_BYTES + bodyLength);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+
+        long sequence = body.getLong();
+        long timestamp = body.getLong();
+        EntityType entityType = entityTypeOf(body.get());
+        JournalEvent.Operation operation = operationOf(body.get());
+        int entityId = body.getInt();
+        int payloadLength = body.getInt();
+        if (payloadLength != bodyLength - BODY_FIXED_BYTES || entityType == null || operation == null) {
+            return null;
+        }
+        byte[] payload = new byte[payloadLength];
+        body.get(payload);
+
+        buffer.position(start + RECORD_HEADER_BYTES + bodyLength);
+        return new JournalEvent(sequence, timestamp, entityType, operation, entityId,
+                new String(payload, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Gets the on-disk code of an entity type. Codes never change, so reordering or adding
+     * constants to {@link EntityType} keeps old segments readable.
+     * @param type The entity type
+     * @return the code
+     */
+    static byte codeOf(EntityType type) {
+        switch (type) {
+            case USER:
+                return 0;
+            case MEMBERSHIP:
+                return 1;
+            case WORKOUT_CLASS:
+                return 2;
+            case CLASS_TEMPLATE:
+                return 3;
+            default:
+                throw new IllegalArgumentException("No journal code for " + type);
+        }
+    }
+
+    /**
+     * Gets the entity type stored under an on-disk code.
+     * @param code The code
+     * @return the entity type, or null if the code is unknown
+     */
+    static EntityType entityTypeOf(byte code) {
+        switch (code) {
+            case 0:
+                return EntityType.USER;
+            case 1:
+                return EntityType.MEMBERSHIP;
+            case 2:
+                return EntityType.WORKOUT_CLASS;
+            case 3:
+                return EntityType.CLASS_TEMPLATE;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Gets the on-disk code of an operation.
+     * @param operation The operation
+     * @return the code
+     */
+    static byte codeOf(JournalEvent.Operation operation) {
+        switch (operation) {
+            case CREATE:
+                return 0;
+            case UPDATE:
+                return 1;
+            case DELETE:
+                return 2;
+            default:
+                throw new IllegalArgumentException("No journal code for " + operation);
+        }
+    }
+
+    /**
+     * Gets the operation stored under an on-disk code.
+     * @param code The code
+     * @return the operation, or null if the code is unknown
+     */
+    static JournalEvent.Operation operationOf(byte code) {
+        switch (code) {
+            case 0:
+                return JournalEvent.Operation.CREATE;
+            case 1:
+                return JournalEvent.Operation.UPDATE;
+            case 2:
+                return JournalEvent.Operation.DELETE;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package membership;
+
+import database.CacheInvalidator;
+import database.ConnectionRouter;
+import database.EntityType;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory bitmap of the users who hold a membership covering today, one bit per userId, so a
+ * check-in at the door is a single array read: no query, no lock and no allocation. A million
+ * user ids fit in 125 KB.
+ *
+ * <p>The bitmap is built from the Memberships table and kept current one user at a time by the
+ * membership service on this node and by change notifications from other nodes, including the
+ * expiry sweeper's. Because memberships start and end on day boundaries, the whole bitmap is also
+ * rebuilt at the database's midnight, by the database's clock, on a background thread; check-ins
+ * keep reading the previous day's bitmap until the new one is ready, so no door waits for the
+ * rebuild. The Memberships table remains the source of truth.</p>
+ */
+public class ActiveMemberIndex implements CacheInvalidator {
+    private static final long ROLLOVER_RETRY_MILLIS = 5_000;
+    private static final ScheduledExecutorService ROLLOVER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "active-member-rollover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final MembershipDAO membershipDAO;
+    // Owners of the memberships counted as active, so a deleted membership's user can be refreshed
+    private final Map<Integer, Integer> activeOwners = new ConcurrentHashMap<>();
+    private volatile AtomicLongArray words = new AtomicLongArray(0);
+    private volatile long rolloverAtMillis;
+    private final AtomicBoolean rolloverQueued = new AtomicBoolean();
+    // The pending rebuild for the next midnight; guarded by this
+    private ScheduledFuture<?> rolloverTimer;
+
+    /**
+     * Constructs an empty ActiveMemberIndex that loads memberships through the given DAO.
+     * @param membershipDAO The DAO used to load and refresh memberships
+     */
+    public ActiveMemberIndex(MembershipDAO membershipDAO) {
+        this.membershipDAO = membershipDAO;
+    }
+
+    /**
+     * Replaces the index contents with every membership that covers today, and schedules the next
+     * rebuild for the database's next midnight.
+     * @throws SQLException if a database access error occurs
+     */
+    public synchronized void reload() throws SQLException {
+        // Measured before loading: if the day changes during the load, the rebuild is simply due at once
+        long untilTomorrow = ConnectionRouter.readFromPrimary(membershipDAO::getMillisUntilTomorrow);
+        long rolloverAt = System.currentTimeMillis() + untilTomorrow;
+        List<Membership> active = ConnectionRouter.readFromPrimary(membershipDAO::getActiveMemberships);
+        int maxUserId = 0;
+        for (Membership membership : active) {
+            maxUserId = Math.max(maxUserId, membership.getUserId());
+        }
+        AtomicLongArray loaded = new AtomicLongArray(wordCount(maxUserId));
+        activeOwners.clear();
+        for (Membership membership : active) {
+            set(loaded, membership.getUserId(), true);
+            activeOwners.put(membership.getMembershipId(), membership.getUserId());
+        }
+        words = loaded;
+        rolloverAtMillis = rolloverAt;
+        if (rolloverTimer != null) {
+            rolloverTimer.cancel(false);
+        }
+        rolloverTimer = ROLLOVER.schedule(this::rollOver, Math.max(0, rolloverAt - System.currentTimeMillis()),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks whether a user holds a membership that covers today. Runs in constant time without
+     * allocating or waiting; until a due rebuild finishes, the previous day's bitmap is used.
+     * @param userId The user's unique identifier
+     * @return true if the user has at least one active membership
+     */
+    public boolean isActive(int userId) {
+        if (System.currentTimeMillis() >= rolloverAtMillis && rolloverQueued.compareAndSet(false, true)) {
+            // The timer should already have done this; this covers a clock change or a failed rebuild
+            ROLLOVER.execute(this::rollOver);
+        }
+        AtomicLongArray current = words;
+        int word = userId >>> 6;
+        return userId >= 0 && word < current.length() && (current.get(word) & (1L << userId)) != 0;
+    }
+
+    /**
+     * Counts the users currently marked active.
+     * @return the number of active members
+     */
+    public int countActive() {
+        AtomicLongArray current = words;
+        int count = 0;
+        for (int i = 0; i < current.length(); i++) {
+            count += Long.bitCount(current.get(i));
+        }
+        return count;
+    }
+
+    /**
+     * Re-reads one user's memberships and sets or clears their bit.
+     * @param userId The user's unique identifier
+     * @throws SQLException if a database access error occurs
+     */
+    public synchronized void refresh(int userId) throws SQLException {
+        List<Membership> active = ConnectionRouter.readFromPrimary(() -> membershipDAO.getActiveMembershipsByUserId(userId));
+        activeOwners.values().removeIf(owner -> owner == userId);
+        for (Membership membership : active) {
+            activeOwners.put(membership.getMembershipId(), userId);
+        }
+        AtomicLongArray current = words;
+        if (!active.isEmpty() && (userId >>> 6) >= current.length()) {
+            // Grow with headroom so a run of new members does not copy the bitmap every time
+            AtomicLongArray grown = new AtomicLongArray(Math.max(wordCount(userId), current.length() * 2));
+            for (int i = 0; i < current.length(); i++) {
+                grown.set(i, current.get(i));
+            }
+            words = grown;
+            current = grown;
+        }
+        if ((userId >>> 6) < current.length()) {
+            set(current, userId, !active.isEmpty());
+        }
+    }
+
+    /**
+     * Refreshes the owner of a membership after it was changed on this or another node.
+     * @param type The kind of entity that changed
+     * @param id   The entity's unique identifier
+     */
+    @Override
+    public void invalidate(EntityType type, int id) {
+        try {
+            if (type == EntityType.USER) {
+                // Deleting a user cascades to their memberships
+                refresh(id);
+            } else if (type == EntityType.MEMBERSHIP) {
+                Membership membership = ConnectionRouter.readFromPrimary(() -> membershipDAO.getMembershipById(id));
+                Integer owner = membership != null ? Integer.valueOf(membership.getUserId()) : activeOwners.get(id);
+                if (owner != null) {
+                    refresh(owner);
+                }
+            }
+        } catch (SQLException e) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Rebuilds the whole index after change notifications may have been missed.
+     */
+    @Override
+    public void invalidateAll() {
+        try {
+            reload();
+        } catch (SQLException e) {
+            System.err.println("Could not reload active members: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the index after a bulk change to memberships or users, such as an expiry sweep chunk.
+     * @param type The kind of entity that changed
+     */
+    @Override
+    public void invalidateAll(EntityType type) {
+        if (type == EntityType.MEMBERSHIP || type == EntityType.USER) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Rebuilds the index for a new day on the rollover thread, if it is due. A failed rebuild is
+     * retried after a short pause while check-ins carry on with the current bitmap.
+     */
+    private void rollOver() {
+        try {
+            if (System.currentTimeMillis() >= rolloverAtMillis) {
+                reload();
+            }
+        } catch (SQLException e) {
+            System.err.println("Could not rebuild active members for a new day: " + e.getMessage());
+            rolloverAtMillis = System.currentTimeMillis() + ROLLOVER_RETRY_MILLIS;
+            ROLLOVER.schedule(this::rollOver, ROLLOVER_RETRY_MILLIS, TimeUnit.MILLISECONDS);
+        } finally {
+            rolloverQueued.set(false);
+        }
+    }
+
+    /**
+     * Sets or clears one user's bit. Callers hold the index lock, so writes do not race.
+     * @param bitmap The bitmap to change
+     * @param userId The user's unique identifier
+     * @param active Whether the user is active
+     */
+    private static void set(AtomicLongArray bitmap, int userId, boolean active) {
+        int word = userId >>> 6;
+        long bit = 1L << userId;
+        bitmap.set(word, active ? bitmap.get(word) | bit : bitmap.get(word) & ~bit);
+    }
+
+    /**
+     * Gets the number of 64-bit words needed to hold the given user id.
+     * @param maxUserId The largest user id
+     * @return the word count
+     */
+    private static int wordCount(int maxUserId) {
+        return (maxUserId >>> 6) + 1;
+    }
+}
@@ -0,0 +1,168 @@
+package membership;
+
+import database.AsyncExecutor;
+import database.PerThread;
+import database.SqlFunction;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking variant of {@link MembershipService}. Every method returns at once with a
+ * {@link CompletableFuture}; the work runs on an {@link AsyncExecutor}'s I/O threads, each with its
+ * own MembershipService and therefore its own connection. Futures complete exceptionally with the
+ * exception the blocking method would have thrown.
+ */
+public class AsyncMembershipService {
+    private final AsyncExecutor executor;
+    private final PerThread<MembershipService> services = new PerThread<>(MembershipService::new);
+
+    /**
+     * Constructs an AsyncMembershipService on the shared executor.
+     */
+    public AsyncMembershipService() {
+        this(AsyncExecutor.getShared());
+    }
+
+    /**
+     * Constructs an AsyncMembershipService on the given executor.
+     * @param executor The executor whose threads run the calls
+     */
+    public AsyncMembershipService(AsyncExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Creates a membership starting today; see {@link MembershipService#createMembership(String, String, double, int)}.
+     * @param type        The type of membership (e.g., Monthly, Annual)
+     * @param description The description of the membership
+     * @param cost        The cost of the membership
+     * @param userId      The userId of the member who owns this membership
+     * @return a future of the created Membership object
+     */
+    public CompletableFuture<Membership> createMembership(String type, String description, double cost, int userId) {
+        return call(service -> service.createMembership(type, description, cost, userId));
+    }
+
+    /**
+     * Creates a membership starting today; see {@link MembershipService#createMembership(String, String, double, int, boolean)}.
+     * @param type        The type of membership (e.g., Monthly, Annual)
+     * @param description The description of the membership
+     * @param cost        The cost of the membership
+     * @param userId      The userId of the member who owns this membership
+     * @param autoRenew   Whether the membership renews automatically when it expires
+     * @return a future of the created Membership object
+     */
+    public CompletableFuture<Membership> createMembership(String type, String description, double cost, int userId,
+                                                          boolean autoRenew) {
+        return call(service -> service.createMembership(type, description, cost, userId, autoRenew));
+    }
+
+    /**
+     * Retrieves a membership by id; see {@link MembershipService#getMembershipById}.
+     * @param membershipId The unique identifier for the membership
+     * @return a future of the Membership object
+     */
+    public CompletableFuture<Membership> getMembershipById(int membershipId) {
+        return call(service -> service.getMembershipById(membershipId));
+    }
+
+    /**
+     * Retrieves a user's memberships; see {@link MembershipService#getMembershipsByUserId}.
+     * @param userId The user's unique identifier
+     * @return a future of the user's Membership objects
+     */
+    public CompletableFuture<List<Membership>> getMembershipsByUserId(int userId) {
+        return call(service -> service.getMembershipsByUserId(userId));
+    }
+
+    /**
+     * Retrieves a user's memberships that cover today; see {@link MembershipService#getActiveMembershipsByUserId}.
+     * @param userId The user's unique identifier
+     * @return a future of the user's active Membership objects
+     */
+    public CompletableFuture<List<Membership>> getActiveMembershipsByUserId(int userId) {
+        return call(service -> service.getActiveMembershipsByUserId(userId));
+    }
+
+    /**
+     * Checks whether a user holds a membership that covers today; see {@link MembershipService#hasActiveMembership}.
+     * @param userId The user's unique identifier
+     * @return a future of whether the user has at least one active membership
+     */
+    public CompletableFuture<Boolean> hasActiveMembership(int userId) {
+        return call(service -> service.hasActiveMembership(userId));
+    }
+
+    /**
+     * Retrieves every membership that covers today; see {@link MembershipService#getActiveMemberships}.
+     * @return a future of the active Membership objects
+     */
+    public CompletableFuture<List<Membership>> getActiveMemberships() {
+        return call(MembershipService::getActiveMemberships);
+    }
+
+    /**
+     * Retrieves every expired membership; see {@link MembershipService#getExpiredMemberships}.
+     * @return a future of the expired Membership objects
+     */
+    public CompletableFuture<List<Membership>> getExpiredMemberships() {
+        return call(MembershipService::getExpiredMemberships);
+    }
+
+    /**
+     * Retrieves all memberships; see {@link MembershipService#getAllMemberships}.
+     * @return a future of all Membership objects
+     */
+    public CompletableFuture<List<Membership>> getAllMemberships() {
+        return call(MembershipService::getAllMemberships);
+    }
+
+    /**
+     * Updates a membership's details; see {@link MembershipService#updateMembership(Membership)}.
+     * @param membership The Membership object with updated details and the rowVersion it was read at
+     * @return a future of whether the update was successful
+     */
+    public CompletableFuture<Boolean> updateMembership(Membership membership) {
+        return call(service -> service.updateMembership(membership));
+    }
+
+    /**
+     * Reads, edits and saves a membership with retries on conflicts;
+     * see {@link MembershipService#updateMembership(int, Consumer)}.
+     * @param membershipId The membership's unique identifier
+     * @param edit         The change to make; it may run more than once, on an I/O thread
+     * @return a future of the updated Membership object
+     */
+    public CompletableFuture<Membership> updateMembership(int membershipId, Consumer<Membership> edit) {
+        return call(service -> service.updateMembership(membershipId, edit));
+    }
+
+    /**
+     * Deletes a membership; see {@link MembershipService#deleteMembership}.
+     * @param membershipId The unique identifier for the membership
+     * @return a future of whether the membership was deleted
+     */
+    public CompletableFuture<Boolean> deleteMembership(int membershipId) {
+        return call(service -> service.deleteMembership(membershipId));
+    }
+
+    /**
+     * Calculates the total revenue from all memberships; see {@link MembershipService#calculateTotalRevenue}.
+     * @return a future of the total revenue
+     */
+    public CompletableFuture<Double> calculateTotalRevenue() {
+        return call(MembershipService::calculateTotalRevenue);
+    }
+
+    /**
+     * Runs a call on an I/O thread against that thread's MembershipService.
+     * @param call The blocking call
+     * @param <T>  The call's result type
+     * @return a future of the call's result
+     */
+    private <T> CompletableFuture<T> call(SqlFunction<MembershipService, T> call) {
+        return executor.submit(() -> call.apply(services.get()));
+    }
+}
@@ -0,0 +1,187 @@
+package membership;
+
+import database.AsyncExecutor;
+import user.User;
+import user.UserService;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the blocking and the CompletableFuture service APIs with the same number of requests
+ * in flight and the same number of database connections. The blocking run needs a platform thread
+ * for every request in flight; the async run keeps the same requests in flight on a handful of
+ * I/O threads. Each request reads one member's memberships, cycling through all users.
+ * Usage: {@code AsyncServiceBenchmark [requests] [inFlight] [ioThreads]}.
+ */
+public class AsyncServiceBenchmark {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    /**
+     * Runs both modes and prints their throughput, latency and peak thread count.
+     * @param args Optional number of requests per mode (default 20000), requests in flight
+     *             (default 1000) and I/O threads, which is also the number of connections (default 16)
+     * @throws Exception if the benchmark cannot connect or is interrupted
+     */
+    public static void main(String[] args) throws Exception {
+        int requests = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int inFlight = args.length > 1 ? Integer.parseInt(args[1]) : 1_000;
+        int ioThreads = args.length > 2 ? Integer.parseInt(args[2]) : 16;
+
+        int[] userIds = new UserService().getAllUsers().stream().mapToInt(User::getUserId).toArray();
+        if (userIds.length == 0) {
+            System.err.println("No users found; register some first.");
+            return;
+        }
+
+        List<MembershipService> services = new ArrayList<>();
+        for (int i = 0; i < ioThreads; i++) {
+            services.add(new MembershipService());
+        }
+        AsyncMembershipService async = new AsyncMembershipService(new AsyncExecutor("bench-io", ioThreads, requests));
+        // Warm up connections, prepared statement caches and the JIT before measuring
+        runBlocking(services, userIds, Math.min(requests, 2_000), Math.min(inFlight, 64));
+        runAsync(async, userIds, Math.min(requests, 2_000), inFlight);
+
+        System.out.println("mode\trequests\tinFlight\tpeakThreads\tseconds\trequestsPerSecond\tp50Ms\tp99Ms\terrors");
+        print("blocking", runBlocking(services, userIds, requests, inFlight), inFlight);
+        print("async", runAsync(async, userIds, requests, inFlight), inFlight);
+    }
+
+    /**
+     * Runs the requests on a platform thread each, sharing the given services round-robin.
+     * @param services The blocking services, one connection each
+     * @param userIds  The users whose memberships are read
+     * @param requests The number of requests
+     * @param inFlight The most requests running at once, and so the number of threads
+     * @return the run's measurements
+     * @throws InterruptedException if interrupted while waiting for the requests
+     */
+    private static Run runBlocking(List<MembershipService> services, int[] userIds, int requests, int inFlight)
+            throws InterruptedException {
+        Run run = new Run(requests);
+        ExecutorService pool = Executors.newFixedThreadPool(inFlight);
+        Semaphore window = new Semaphore(inFlight);
+        for (int i = 0; i < requests; i++) {
+            int request = i;
+            window.acquire();
+            long submitted = System.nanoTime();
+            pool.execute(() -> {
+                try {
+                    services.get(request % services.size()).getMembershipsByUserId(userIds[request % userIds.length]);
+                } catch (SQLException | RuntimeException e) {
+                    run.errors.incrementAndGet();
+                } finally {
+                    run.finish(request, submitted);
+                    window.release();
+                }
+            });
+        }
+        run.done.await();
+        pool.shutdown();
+        return run.end();
+    }
+
+    /**
+     * Runs the requests through the async service without a thread per request.
+     * @param service  The async service
+     * @param userIds  The users whose memberships are read
+     * @param requests The number of requests
+     * @param inFlight The most requests in flight at once
+     * @return the run's measurements
+     * @throws InterruptedException if interrupted while waiting for the requests
+     */
+    private static Run runAsync(AsyncMembershipService service, int[] userIds, int requests, int inFlight)
+            throws InterruptedException {
+        Run run = new Run(requests);
+        Semaphore window = new Semaphore(inFlight);
+        for (int i = 0; i < requests; i++) {
+            int request = i;
+            window.acquire();
+            long submitted = System.nanoTime();
+            service.getMembershipsByUserId(userIds[request % userIds.length]).whenComplete((memberships, error) -> {
+                if (error != null) {
+                    run.errors.incrementAndGet();
+                }
+                run.finish(request, submitted);
+                window.release();
+            });
+        }
+        run.done.await();
+        return run.end();
+    }
+
+    /**
+     * Prints one result line.
+     * @param mode     The mode's name
+     * @param run      The run's measurements
+     * @param inFlight The most requests in flight at once
+     */
+    private static void print(String mode, Run run, int inFlight) {
+        long[] sorted = run.latencyNanos.clone();
+        Arrays.sort(sorted);
+        double seconds = run.elapsedNanos / 1_000_000_000.0;
+        System.out.printf("%s\t%d\t%d\t%d\t%.2f\t%.0f\t%.2f\t%.2f\t%d%n", mode, sorted.length, inFlight,
+                run.peakThreads, seconds, sorted.length / seconds, percentileMillis(sorted, 0.50),
+                percentileMillis(sorted, 0.99), run.errors.get());
+    }
+
+    /**
+     * Reads a percentile from sorted latencies.
+     * @param sorted     The latencies in nanoseconds, ascending
+     * @param percentile The percentile, between 0 and 1
+     * @return the latency in milliseconds
+     */
+    private static double percentileMillis(long[] sorted, double percentile) {
+        int index = Math.min(sorted.length - 1, (int) Math.ceil(percentile * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1_000_000.0;
+    }
+
+    /**
+     * The measurements of one run.
+     */
+    private static final class Run {
+        private final long[] latencyNanos;
+        private final CountDownLatch done;
+        private final AtomicInteger errors = new AtomicInteger();
+        private final long started = System.nanoTime();
+        private long elapsedNanos;
+        private int peakThreads;
+
+        Run(int requests) {
+            latencyNanos = new long[requests];
+            done = new CountDownLatch(requests);
+            THREADS.resetPeakThreadCount();
+        }
+
+        /**
+         * Records a finished request.
+         * @param request   The request's index
+         * @param submitted When it was submitted
+         */
+        void finish(int request, long submitted) {
+            latencyNanos[request] = System.nanoTime() - submitted;
+            done.countDown();
+        }
+
+        /**
+         * Ends the run once every request has finished.
+         * @return this run
+         */
+        Run end() {
+            elapsedNanos = System.nanoTime() - started;
+            peakThreads = THREADS.getPeakThreadCount();
+            return this;
+        }
+    }
+}
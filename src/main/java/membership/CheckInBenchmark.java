@@ -0,0 +1,97 @@
+package membership;
+
+import com.sun.management.ThreadMXBean;
+import user.User;
+import user.UserService;
+
+import java.lang.management.ManagementFactory;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Compares checking members in from the in-memory {@link ActiveMemberIndex} with asking the
+ * database for each member's active memberships. Check-ins pick random user ids, so both active
+ * and inactive members are checked. The index run also reports the bytes allocated per check-in,
+ * which should be zero.
+ * Usage: {@code CheckInBenchmark [checkIns] [databaseCheckIns]}.
+ */
+public class CheckInBenchmark {
+    /**
+     * Runs both modes and prints their latency.
+     * @param args Optional number of check-ins against the index (default 10000000) and against
+     *             the database (default 2000)
+     * @throws SQLException if the benchmark cannot connect or a read fails
+     */
+    public static void main(String[] args) throws SQLException {
+        int checkIns = args.length > 0 ? Integer.parseInt(args[0]) : 10_000_000;
+        int databaseCheckIns = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+
+        List<User> users = new UserService().getAllUsers();
+        if (users.isEmpty()) {
+            System.err.println("No users found; register some first.");
+            return;
+        }
+        int[] userIds = new int[4096];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = users.get(ThreadLocalRandom.current().nextInt(users.size())).getUserId();
+        }
+
+        long loadStarted = System.nanoTime();
+        CheckInService gate = new CheckInService();
+        long loadNanos = System.nanoTime() - loadStarted;
+        MembershipService membershipService = new MembershipService();
+
+        runIndex(gate, userIds, Math.min(checkIns, 1_000_000)); // Warm up the JIT
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+        long[] index = runIndex(gate, userIds, checkIns);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        runDatabase(membershipService, userIds, Math.min(databaseCheckIns, 200));
+        long[] database = runDatabase(membershipService, userIds, databaseCheckIns);
+
+        System.out.printf("activeMembers\t%d\tloadMs\t%.1f%n", gate.countActiveMembers(), loadNanos / 1e6);
+        System.out.println("mode\tcheckIns\tadmitted\tnsPerCheckIn\tbytesPerCheckIn");
+        System.out.printf("index\t%d\t%d\t%.1f\t%.3f%n", checkIns, index[1], (double) index[0] / checkIns,
+                (double) allocated / checkIns);
+        System.out.printf("database\t%d\t%d\t%.1f\t-%n", databaseCheckIns, database[1],
+                (double) database[0] / databaseCheckIns);
+    }
+
+    /**
+     * Checks members in against the index.
+     * @param service  The check-in service
+     * @param userIds  The user ids to cycle through
+     * @param checkIns The number of check-ins
+     * @return the elapsed nanoseconds and the number admitted
+     */
+    private static long[] runIndex(CheckInService service, int[] userIds, int checkIns) {
+        long admitted = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < checkIns; i++) {
+            if (service.checkIn(userIds[i & (userIds.length - 1)])) {
+                admitted++;
+            }
+        }
+        return new long[] {System.nanoTime() - started, admitted};
+    }
+
+    /**
+     * Checks members in by querying their active memberships.
+     * @param service  The membership service
+     * @param userIds  The user ids to cycle through
+     * @param checkIns The number of check-ins
+     * @return the elapsed nanoseconds and the number admitted
+     * @throws SQLException if a read fails
+     */
+    private static long[] runDatabase(MembershipService service, int[] userIds, int checkIns) throws SQLException {
+        long admitted = 0;
+        long started = System.nanoTime();
+        for (int i = 0; i < checkIns; i++) {
+            if (service.hasActiveMembership(userIds[i & (userIds.length - 1)])) {
+                admitted++;
+            }
+        }
+        return new long[] {System.nanoTime() - started, admitted};
+    }
+}
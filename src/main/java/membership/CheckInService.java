@@ -0,0 +1,80 @@
+package membership;
+
+import attendance.AttendanceRecorder;
+import database.ChangeListener;
+
+import java.sql.SQLException;
+
+/**
+ * Service class behind the door turnstiles. A check-in only asks whether the member holds a
+ * membership that covers today, and is answered from an {@link ActiveMemberIndex} in memory in
+ * well under a microsecond, so a morning rush never reaches the database. Purchases, edits,
+ * deletions and expiries on any node reach the index through change notifications. Every decision
+ * made at a door is recorded in the Attendance table through an {@link AttendanceRecorder}.
+ */
+public class CheckInService {
+    private final ActiveMemberIndex activeMembers;
+    private final AttendanceRecorder attendance;
+
+    /**
+     * Constructs a CheckInService that records attendance through the shared recorder and loads
+     * every member whose membership covers today.
+     * @throws SQLException if a database access error occurs
+     */
+    public CheckInService() throws SQLException {
+        this(AttendanceRecorder.getShared());
+    }
+
+    /**
+     * Constructs a CheckInService that records attendance through the given recorder and loads
+     * every member whose membership covers today.
+     * @param attendance The recorder for door check-ins; started if it is not already running
+     * @throws SQLException if a database access error occurs
+     */
+    public CheckInService(AttendanceRecorder attendance) throws SQLException {
+        this.activeMembers = new ActiveMemberIndex(new MembershipDAO());
+        this.attendance = attendance;
+        activeMembers.reload();
+        ChangeListener.getInstance().register(activeMembers);
+        attendance.start();
+    }
+
+    /**
+     * Checks a member in at a door and records the decision. Neither step waits for the database.
+     * @param userId The member's unique identifier, as read from their card
+     * @param doorId The door the card was presented at
+     * @return true if the member holds an active membership and may enter
+     */
+    public boolean checkIn(int userId, int doorId) {
+        boolean admitted = activeMembers.isActive(userId);
+        attendance.record(userId, doorId, admitted);
+        return admitted;
+    }
+
+    /**
+     * Checks whether a member may enter, without recording a check-in.
+     * @param userId The member's unique identifier, as read from their card
+     * @return true if the member holds an active membership and may enter
+     */
+    public boolean checkIn(int userId) {
+        return activeMembers.isActive(userId);
+    }
+
+    /**
+     * Re-reads one member's memberships, for a front desk that has just sold them one and does not
+     * want to wait for the change notification.
+     * @param userId The member's unique identifier
+     * @throws SQLException if a database access error occurs
+     */
+    public void refresh(int userId) throws SQLException {
+        activeMembers.refresh(userId);
+    }
+
+    /**
+     * Counts the members who may currently check in.
+     * @return the number of members with an active membership
+     */
+    public int countActiveMembers() {
+        return activeMembers.countActive();
+    }
+}
@@ -1,8 +1,11 @@
 package membership;
 
+import java.time.LocalDate;
+
 /**
  * Represents a membership in the Gym Management System.
- * Stores membership details such as type, description, cost, and associated user.
+ * Stores membership details such as type, description, cost, associated user,
+ * the period the membership covers, and its lifecycle status.
  */
 public class Membership {
     private int membershipId;
@@ -10,6 +13,12 @@ public class Membership {
     private String membershipDescription;
     private double membershipCost;
     private int userId;
+    private LocalDate startDate;
+    private LocalDate endDate;
+    private LocalDate anchorDate;
+    private String membershipStatus = "ACTIVE";
+    private boolean autoRenew;
+    private int rowVersion;
 
     /**
      * Default constructor for Membership.
@@ -115,6 +124,114 @@ public class Membership {
         this.userId = userId;
     }
 
+    /**
+     * Gets the first day the membership is valid.
+     * @return the startDate
+     */
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    /**
+     * Sets the first day the membership is valid.
+     * @param startDate the startDate to set
+     */
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    /**
+     * Gets the day the membership was first bought. Renewals keep its day of the month, so a
+     * membership bought on the 31st keeps renewing on the 31st wherever the month allows.
+     * @return the anchorDate, or the startDate if none was recorded
+     */
+    public LocalDate getAnchorDate() {
+        return anchorDate != null ? anchorDate : startDate;
+    }
+
+    /**
+     * Sets the day the membership was first bought.
+     * @param anchorDate the anchorDate to set
+     */
+    public void setAnchorDate(LocalDate anchorDate) {
+        this.anchorDate = anchorDate;
+    }
+
+    /**
+     * Gets the last day the membership is valid.
+     * @return the endDate, or null if the membership does not expire
+     */
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    /**
+     * Sets the last day the membership is valid.
+     * @param endDate the endDate to set, or null if the membership does not expire
+     */
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    /**
+     * Gets the lifecycle status of the membership (ACTIVE or EXPIRED).
+     * @return the membershipStatus
+     */
+    public String getMembershipStatus() {
+        return membershipStatus;
+    }
+
+    /**
+     * Sets the lifecycle status of the membership (ACTIVE or EXPIRED).
+     * @param membershipStatus the membershipStatus to set
+     */
+    public void setMembershipStatus(String membershipStatus) {
+        this.membershipStatus = membershipStatus;
+    }
+
+    /**
+     * Checks whether the membership renews automatically when it expires.
+     * @return true if the membership auto-renews
+     */
+    public boolean isAutoRenew() {
+        return autoRenew;
+    }
+
+    /**
+     * Sets whether the membership renews automatically when it expires.
+     * @param autoRenew true if the membership should auto-renew
+     */
+    public void setAutoRenew(boolean autoRenew) {
+        this.autoRenew = autoRenew;
+    }
+
+    /**
+     * Gets the version of the membership row this object was read at, used to detect concurrent edits.
+     * @return the rowVersion
+     */
+    public int getRowVersion() {
+        return rowVersion;
+    }
+
+    /**
+     * Sets the version of the membership row this object was read at.
+     * @param rowVersion the rowVersion to set
+     */
+    public void setRowVersion(int rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
+    /**
+     * Checks whether the membership covers the given day.
+     * @param date The day to check
+     * @return true if the membership is ACTIVE and the day falls within its start and end dates
+     */
+    public boolean isActiveOn(LocalDate date) {
+        return "ACTIVE".equals(membershipStatus)
+                && (startDate == null || !date.isBefore(startDate))
+                && (endDate == null || !date.isAfter(endDate));
+    }
+
     /**
      * Returns a string representation of the Membership object.
      * @return a string with membership details
@@ -127,6 +244,10 @@ public class Membership {
                 ", membershipDescription='" + membershipDescription + '\'' +
                 ", membershipCost=" + membershipCost +
                 ", userId=" + userId +
+                ", startDate=" + startDate +
+                ", endDate=" + endDate +
+                ", membershipStatus='" + membershipStatus + '\'' +
+                ", autoRenew=" + autoRenew +
                 '}';
     }
 }
@@ -1,7 +1,14 @@
 package membership;
 
-import database.DatabaseConnection;
+import database.ConnectionRouter;
+import database.Deadline;
+import database.EntityType;
+import database.StaleRowException;
+import database.TransactionManager;
+import journal.EventJournal;
+import journal.JournalEvent;
 import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,39 +17,81 @@ import java.util.List;
  * Handles CRUD operations and revenue calculations for memberships in the Gym Management System.
  */
 public class MembershipDAO {
-    private final Connection connection;
+    /** Matches memberships that cover today; served by the partial index on active end dates. */
+    private static final String ACTIVE_TODAY =
+            "membershipStatus = 'ACTIVE' AND startDate <= CURRENT_DATE AND (endDate IS NULL OR endDate >= CURRENT_DATE)";
+
+    private final ConnectionRouter router;
 
     /**
-     * Constructs a MembershipDAO and establishes a database connection.
+     * Constructs a MembershipDAO and connects to the primary database and any configured read replicas.
      * @throws SQLException if a database access error occurs
      */
     public MembershipDAO() throws SQLException {
-        this.connection = DatabaseConnection.getConnection();
+        this.router = new ConnectionRouter();
     }
 
     /**
      * Inserts a new membership into the database.
+     * A MembershipPurchased event is written to the MembershipOutbox table in the same transaction,
+     * so integrations see the purchase if and only if the membership was committed.
      * @param membership The Membership object to insert
      * @return The created Membership object with membershipId set, or null if creation failed
      * @throws SQLException if a database access error occurs
      */
     public Membership createMembership(Membership membership) throws SQLException {
-        String sql = "INSERT INTO Memberships (membershipType, membershipDescription, membershipCost, userId, startDate) " +
-                    "VALUES (?, ?, ?, ?, CURRENT_DATE) RETURNING membershipId";
+        String sql = "INSERT INTO Memberships (membershipType, membershipDescription, membershipCost, userId, startDate, endDate, autoRenew, anchorDate) " +
+                    "VALUES (?, ?, ?, ?, COALESCE(?, CURRENT_DATE), ?, ?, COALESCE(?, ?, CURRENT_DATE)) RETURNING membershipId, startDate, anchorDate, rowVersion";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, membership.getMembershipType());
-            stmt.setString(2, membership.getMembershipDescription());
-            stmt.setDouble(3, membership.getMembershipCost());
-            stmt.setInt(4, membership.getUserId());
+        // Joins the caller's transaction if there is one, so the purchase commits with the rest of its flow
+        return TransactionManager.inTransaction(() -> {
+            Connection connection = router.forWrite();
+            try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+                stmt.setString(1, membership.getMembershipType());
+                stmt.setString(2, membership.getMembershipDescription());
+                stmt.setDouble(3, membership.getMembershipCost());
+                stmt.setInt(4, membership.getUserId());
+                stmt.setObject(5, membership.getStartDate(), Types.DATE);
+                stmt.setObject(6, membership.getEndDate(), Types.DATE);
+                stmt.setBoolean(7, membership.isAutoRenew());
+                stmt.setObject(8, membership.getAnchorDate(), Types.DATE);
+                stmt.setObject(9, membership.getStartDate(), Types.DATE);
 
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
+                ResultSet rs = stmt.executeQuery();
+                if (!rs.next()) {
+                    return null;
+                }
                 membership.setMembershipId(rs.getInt("membershipId"));
+                membership.setStartDate(rs.getObject("startDate", LocalDate.class));
+                membership.setAnchorDate(rs.getObject("anchorDate", LocalDate.class));
+                membership.setRowVersion(rs.getInt("rowVersion"));
+                String payload = toPayload(membership);
+                insertOutboxEvent(connection, membership.getMembershipId(), "MembershipPurchased", payload);
+                // Deferred by the journal until the transaction commits
+                EventJournal.record(EntityType.MEMBERSHIP, JournalEvent.Operation.CREATE, membership.getMembershipId(), payload);
                 return membership;
             }
+        });
+    }
+
+    /**
+     * Writes an event to the MembershipOutbox table for delivery by the outbox relay.
+     * Must be called inside the transaction that made the change the event describes.
+     * @param connection   The connection running the transaction
+     * @param membershipId The membership the event is about
+     * @param eventType    The kind of event
+     * @param payload      A JSON description of the event
+     * @throws SQLException if a database access error occurs
+     */
+    private void insertOutboxEvent(Connection connection, int membershipId, String eventType, String payload) throws SQLException {
+        String sql = "INSERT INTO MembershipOutbox (membershipId, eventType, payload) VALUES (?, ?, ?)";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, membershipId);
+            stmt.setString(2, eventType);
+            stmt.setString(3, payload);
+            stmt.executeUpdate();
         }
-        return null;
     }
 
     /**
@@ -52,9 +101,10 @@ public class MembershipDAO {
      * @throws SQLException if a database access error occurs
      */
     public Membership getMembershipById(int membershipId) throws SQLException {
+        Connection connection = router.forRead();
         String sql = "SELECT * FROM Memberships WHERE membershipId = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, membershipId);
             ResultSet rs = stmt.executeQuery();
 
@@ -72,10 +122,33 @@ public class MembershipDAO {
      * @throws SQLException if a database access error occurs
      */
     public List<Membership> getMembershipsByUserId(int userId) throws SQLException {
+        Connection connection = router.forRead();
         List<Membership> memberships = new ArrayList<>();
         String sql = "SELECT * FROM Memberships WHERE userId = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, userId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                memberships.add(createMembershipFromResultSet(rs));
+            }
+        }
+        return memberships;
+    }
+
+    /**
+     * Retrieves the memberships of a specific user that cover today.
+     * @param userId The user's unique identifier
+     * @return A list of the user's active Membership objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Membership> getActiveMembershipsByUserId(int userId) throws SQLException {
+        Connection connection = router.forRead();
+        List<Membership> memberships = new ArrayList<>();
+        String sql = "SELECT * FROM Memberships WHERE userId = ? AND " + ACTIVE_TODAY;
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
 
@@ -86,16 +159,73 @@ public class MembershipDAO {
         return memberships;
     }
 
+    /**
+     * Retrieves all memberships that cover today.
+     * @return A list of active Membership objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Membership> getActiveMemberships() throws SQLException {
+        return getMembershipsWhere(ACTIVE_TODAY);
+    }
+
+    /**
+     * Gets how long until the database's CURRENT_DATE changes, which is when memberships start and
+     * end. Measured by the database's clock and time zone, which may differ from this machine's.
+     * @return the milliseconds until the database's next midnight
+     * @throws SQLException if a database access error occurs
+     */
+    public long getMillisUntilTomorrow() throws SQLException {
+        Connection connection = router.forRead();
+        String sql = "SELECT CEIL(EXTRACT(EPOCH FROM (CURRENT_DATE + 1)::TIMESTAMPTZ - now()) * 1000)::BIGINT AS millis";
+
+        try (Statement stmt = Deadline.apply(connection.createStatement());
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong("millis");
+        }
+    }
+
+    /**
+     * Retrieves all memberships that have expired, whether or not the sweeper has processed them yet.
+     * @return A list of expired Membership objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Membership> getExpiredMemberships() throws SQLException {
+        return getMembershipsWhere("(membershipStatus = 'EXPIRED' OR endDate < CURRENT_DATE)");
+    }
+
     /**
      * Retrieves all memberships from the database.
      * @return A list of all Membership objects
      * @throws SQLException if a database access error occurs
      */
     public List<Membership> getAllMemberships() throws SQLException {
+        Connection connection = router.forRead();
         List<Membership> memberships = new ArrayList<>();
         String sql = "SELECT * FROM Memberships";
 
-        try (Statement stmt = connection.createStatement();
+        try (Statement stmt = Deadline.apply(connection.createStatement());
+             ResultSet rs = stmt.executeQuery(sql)) {
+
+            while (rs.next()) {
+                memberships.add(createMembershipFromResultSet(rs));
+            }
+        }
+        return memberships;
+    }
+
+    /**
+     * Retrieves all memberships matching a fixed SQL condition.
+     * @param condition The WHERE condition; must not contain user input
+     * @return A list of matching Membership objects
+     * @throws SQLException if a database access error occurs
+     */
+    private List<Membership> getMembershipsWhere(String condition) throws SQLException {
+        Connection connection = router.forRead();
+        List<Membership> memberships = new ArrayList<>();
+        String sql = "SELECT * FROM Memberships WHERE " + condition;
+
+        try (Statement stmt = Deadline.apply(connection.createStatement());
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -106,22 +236,43 @@ public class MembershipDAO {
     }
 
     /**
-     * Updates an existing membership's details in the database.
-     * @param membership The Membership object with updated details
-     * @return true if the update was successful, false otherwise
+     * Updates an existing membership's details in the database, provided the stored row is still
+     * at the version the membership was read at. On success the membership's version is advanced.
+     * @param membership The Membership object with updated details and the rowVersion it was read at
+     * @return true if the update was successful, false if the membership does not exist
+     * @throws StaleRowException if someone else changed the membership since it was read
      * @throws SQLException if a database access error occurs
      */
     public boolean updateMembership(Membership membership) throws SQLException {
-        String sql = "UPDATE Memberships SET membershipType = ?, membershipDescription = ?, " +
-                    "membershipCost = ? WHERE membershipId = ?";
+        Connection connection = router.forWrite();
+        String sql = "WITH target AS (SELECT rowVersion FROM Memberships WHERE membershipId = ?), " +
+                    "changed AS (UPDATE Memberships SET membershipType = ?, membershipDescription = ?, " +
+                    "membershipCost = ?, endDate = ?, autoRenew = ?, rowVersion = rowVersion + 1 " +
+                    "WHERE membershipId = ? AND rowVersion = ? RETURNING rowVersion) " +
+                    "SELECT (SELECT rowVersion FROM target) AS currentVersion, (SELECT rowVersion FROM changed) AS newVersion";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, membership.getMembershipType());
-            stmt.setString(2, membership.getMembershipDescription());
-            stmt.setDouble(3, membership.getMembershipCost());
-            stmt.setInt(4, membership.getMembershipId());
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, membership.getMembershipId());
+            stmt.setString(2, membership.getMembershipType());
+            stmt.setString(3, membership.getMembershipDescription());
+            stmt.setDouble(4, membership.getMembershipCost());
+            stmt.setObject(5, membership.getEndDate(), Types.DATE);
+            stmt.setBoolean(6, membership.isAutoRenew());
+            stmt.setInt(7, membership.getMembershipId());
+            stmt.setInt(8, membership.getRowVersion());
 
-            return stmt.executeUpdate() > 0;
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            int newVersion = rs.getInt("newVersion");
+            if (!rs.wasNull()) {
+                membership.setRowVersion(newVersion);
+                return recordChange(1, JournalEvent.Operation.UPDATE, membership.getMembershipId(), toPayload(membership));
+            }
+            int currentVersion = rs.getInt("currentVersion");
+            if (rs.wasNull()) {
+                return false;
+            }
+            throw new StaleRowException(EntityType.MEMBERSHIP, membership.getMembershipId(), membership.getRowVersion(), currentVersion);
         }
     }
 
@@ -132,11 +283,12 @@ public class MembershipDAO {
      * @throws SQLException if a database access error occurs
      */
     public boolean deleteMembership(int membershipId) throws SQLException {
+        Connection connection = router.forWrite();
         String sql = "DELETE FROM Memberships WHERE membershipId = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, membershipId);
-            return stmt.executeUpdate() > 0;
+            return recordChange(stmt.executeUpdate(), JournalEvent.Operation.DELETE, membershipId, "");
         }
     }
 
@@ -146,9 +298,10 @@ public class MembershipDAO {
      * @throws SQLException if a database access error occurs
      */
     public double getTotalRevenue() throws SQLException {
+        Connection connection = router.forRead();
         String sql = "SELECT SUM(membershipCost) as total_revenue FROM Memberships";
 
-        try (Statement stmt = connection.createStatement();
+        try (Statement stmt = Deadline.apply(connection.createStatement());
              ResultSet rs = stmt.executeQuery(sql)) {
 
             if (rs.next()) {
@@ -158,6 +311,41 @@ public class MembershipDAO {
         return 0.0;
     }
 
+    /**
+     * Records a membership change in the event journal if any row was affected. Other nodes are told
+     * about the change by the table's notify_change trigger, as part of the mutation itself.
+     * @param rowsAffected The update count of the mutation
+     * @param operation    The kind of mutation
+     * @param membershipId The unique identifier for the membership
+     * @param payload      A JSON description of the membership's new state
+     * @return true if any row was affected
+     */
+    private boolean recordChange(int rowsAffected, JournalEvent.Operation operation, int membershipId, String payload) {
+        if (rowsAffected > 0) {
+            EventJournal.record(EntityType.MEMBERSHIP, operation, membershipId, payload);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Describes a membership for the event journal.
+     * @param membership The membership
+     * @return the JSON payload
+     */
+    static String toPayload(Membership membership) {
+        return JournalEvent.payloadOf(
+                "membershipId", membership.getMembershipId(),
+                "membershipType", membership.getMembershipType(),
+                "membershipDescription", membership.getMembershipDescription(),
+                "membershipCost", membership.getMembershipCost(),
+                "userId", membership.getUserId(),
+                "startDate", membership.getStartDate(),
+                "endDate", membership.getEndDate(),
+                "membershipStatus", membership.getMembershipStatus(),
+                "autoRenew", membership.isAutoRenew());
+    }
+
     /**
      * Creates a Membership object from a ResultSet row.
      * @param rs The ResultSet positioned at the membership row
@@ -171,6 +359,12 @@ public class MembershipDAO {
         membership.setMembershipDescription(rs.getString("membershipDescription"));
         membership.setMembershipCost(rs.getDouble("membershipCost"));
         membership.setUserId(rs.getInt("userId"));
+        membership.setStartDate(rs.getObject("startDate", LocalDate.class));
+        membership.setEndDate(rs.getObject("endDate", LocalDate.class));
+        membership.setAnchorDate(rs.getObject("anchorDate", LocalDate.class));
+        membership.setMembershipStatus(rs.getString("membershipStatus"));
+        membership.setAutoRenew(rs.getBoolean("autoRenew"));
+        membership.setRowVersion(rs.getInt("rowVersion"));
         return membership;
     }
 }
@@ -0,0 +1,256 @@
+package membership;
+
+import database.ChangeNotifier;
+import database.DatabaseConnection;
+import database.EntityType;
+import journal.EventJournal;
+import journal.JournalEvent;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scheduled job that expires memberships past their end date and renews the auto-renewing ones.
+ * Work is done in bounded chunks, each in its own short transaction: a chunk claims the oldest due
+ * rows with {@code FOR UPDATE SKIP LOCKED} (served by the partial index on active end dates), marks
+ * them EXPIRED, inserts renewals and writes MembershipRenewed outbox events for billing. Only the
+ * rows in the current chunk are ever locked, purchases and reads carry on during a sweep, and
+ * several nodes can sweep at once without processing the same row twice.
+ */
+public class MembershipExpirySweeper {
+    private static final int DEFAULT_CHUNK_SIZE = 5_000;
+
+    private static final String EXPIRE_SQL =
+            "WITH due AS (SELECT membershipId FROM Memberships " +
+            "WHERE membershipStatus = 'ACTIVE' AND endDate < ? ORDER BY endDate LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "UPDATE Memberships m SET membershipStatus = 'EXPIRED', rowVersion = m.rowVersion + 1 FROM due WHERE m.membershipId = due.membershipId " +
+            "RETURNING m.membershipId, m.membershipType, m.membershipDescription, m.membershipCost, m.userId, " +
+            "m.startDate, m.endDate, m.anchorDate, m.autoRenew";
+    private static final String RENEW_SQL =
+            "INSERT INTO Memberships (membershipType, membershipDescription, membershipCost, userId, startDate, endDate, anchorDate, autoRenew) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, TRUE)";
+    private static final String OUTBOX_SQL =
+            "INSERT INTO MembershipOutbox (membershipId, eventType, payload) VALUES (?, ?, ?)";
+
+    private final int chunkSize;
+    private ScheduledExecutorService scheduler;
+    private volatile int lastRenewedCount;
+
+    /**
+     * Constructs a MembershipExpirySweeper that processes the default number of rows per chunk.
+     */
+    public MembershipExpirySweeper() {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Constructs a MembershipExpirySweeper with a custom chunk size.
+     * @param chunkSize The maximum number of memberships expired per transaction
+     */
+    public MembershipExpirySweeper(int chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Runs the sweep once a day at the given local time.
+     * @param runAt The time of day to sweep
+     */
+    public synchronized void start(LocalTime runAt) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "membership-expiry-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstRun = now.toLocalDate().atTime(runAt);
+        if (!firstRun.isAfter(now)) {
+            firstRun = firstRun.plusDays(1);
+        }
+        long initialDelay = Duration.between(now, firstRun).toMillis();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                sweep(LocalDate.now());
+            } catch (SQLException e) {
+                System.err.println("Membership expiry sweep failed: " + e.getMessage());
+            }
+        }, initialDelay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the daily schedule; a sweep that is already running finishes its current chunk.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Expires every active membership that ended before the given day, one chunk at a time,
+     * until a chunk finds nothing due. A renewal that also ended before the day is expired and
+     * renewed again by a later chunk of the same sweep.
+     * @param today The first day memberships must still cover to stay active
+     * @return The number of memberships expired
+     * @throws SQLException if a database access error occurs; chunks already committed stay committed
+     */
+    public int sweep(LocalDate today) throws SQLException {
+        int expired = 0;
+        int renewed = 0;
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            while (true) {
+                // Each chunk is announced once below rather than once per membership
+                ChangeNotifier.suppressRowNotifications(connection);
+                List<Membership> chunk = expireChunk(connection, today);
+                if (chunk.isEmpty()) {
+                    connection.commit();
+                    break;
+                }
+                List<Membership> renewals = renew(connection, chunk);
+                ChangeNotifier.publishAll(connection, EntityType.MEMBERSHIP);
+                connection.commit();
+
+                journal(chunk, renewals);
+                expired += chunk.size();
+                renewed += renewals.size();
+            }
+        }
+        lastRenewedCount = renewed;
+        return expired;
+    }
+
+    /**
+     * Gets the number of memberships renewed by the most recent sweep.
+     * @return the renewal count
+     */
+    public int getLastRenewedCount() {
+        return lastRenewedCount;
+    }
+
+    /**
+     * Claims and expires one chunk of due memberships.
+     * @param connection The sweeper's transaction connection
+     * @param today      The first day memberships must still cover to stay active
+     * @return The memberships that were expired, as they were before expiry
+     * @throws SQLException if a database access error occurs
+     */
+    private List<Membership> expireChunk(Connection connection, LocalDate today) throws SQLException {
+        List<Membership> expired = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(EXPIRE_SQL)) {
+            stmt.setObject(1, today);
+            stmt.setInt(2, chunkSize);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                Membership membership = new Membership();
+                membership.setMembershipId(rs.getInt("membershipId"));
+                membership.setMembershipType(rs.getString("membershipType"));
+                membership.setMembershipDescription(rs.getString("membershipDescription"));
+                membership.setMembershipCost(rs.getDouble("membershipCost"));
+                membership.setUserId(rs.getInt("userId"));
+                membership.setStartDate(rs.getObject("startDate", LocalDate.class));
+                membership.setEndDate(rs.getObject("endDate", LocalDate.class));
+                membership.setAnchorDate(rs.getObject("anchorDate", LocalDate.class));
+                membership.setAutoRenew(rs.getBoolean("autoRenew"));
+                membership.setMembershipStatus("EXPIRED");
+                expired.add(membership);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Inserts a follow-on membership, starting the day after the old one ended, for every
+     * auto-renewing membership in the chunk, along with a MembershipRenewed outbox event.
+     * Renewals keep the original purchase as their anchor, so their terms stay on its day of the month.
+     * @param connection The sweeper's transaction connection
+     * @param expired    The memberships expired in this chunk
+     * @return The renewal memberships that were created
+     * @throws SQLException if a database access error occurs
+     */
+    private List<Membership> renew(Connection connection, List<Membership> expired) throws SQLException {
+        List<Membership> renewals = new ArrayList<>();
+        for (Membership membership : expired) {
+            LocalDate startDate = membership.getEndDate().plusDays(1);
+            LocalDate endDate = MembershipService.calculateEndDate(membership.getMembershipType(),
+                    membership.getAnchorDate(), startDate);
+            if (membership.isAutoRenew() && endDate != null) {
+                Membership renewal = new Membership();
+                renewal.setMembershipType(membership.getMembershipType());
+                renewal.setMembershipDescription(membership.getMembershipDescription());
+                renewal.setMembershipCost(membership.getMembershipCost());
+                renewal.setUserId(membership.getUserId());
+                renewal.setStartDate(startDate);
+                renewal.setEndDate(endDate);
+                renewal.setAnchorDate(membership.getAnchorDate());
+                renewal.setAutoRenew(true);
+                renewals.add(renewal);
+            }
+        }
+        if (renewals.isEmpty()) {
+            return renewals;
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(RENEW_SQL, new String[] {"membershipid"})) {
+            for (Membership renewal : renewals) {
+                stmt.setString(1, renewal.getMembershipType());
+                stmt.setString(2, renewal.getMembershipDescription());
+                stmt.setDouble(3, renewal.getMembershipCost());
+                stmt.setInt(4, renewal.getUserId());
+                stmt.setObject(5, renewal.getStartDate());
+                stmt.setObject(6, renewal.getEndDate());
+                stmt.setObject(7, renewal.getAnchorDate());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            ResultSet keys = stmt.getGeneratedKeys();
+            for (Membership renewal : renewals) {
+                if (keys.next()) {
+                    renewal.setMembershipId(keys.getInt(1));
+                }
+            }
+        }
+
+        try (PreparedStatement stmt = connection.prepareStatement(OUTBOX_SQL)) {
+            for (Membership renewal : renewals) {
+                stmt.setInt(1, renewal.getMembershipId());
+                stmt.setString(2, "MembershipRenewed");
+                stmt.setString(3, MembershipDAO.toPayload(renewal));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        }
+        return renewals;
+    }
+
+    /**
+     * Records a committed chunk's expirations and renewals in the event journal.
+     * @param expired  The memberships expired
+     * @param renewals The renewals created
+     */
+    private void journal(List<Membership> expired, List<Membership> renewals) {
+        for (Membership membership : expired) {
+            EventJournal.record(EntityType.MEMBERSHIP, JournalEvent.Operation.UPDATE,
+                    membership.getMembershipId(), MembershipDAO.toPayload(membership));
+        }
+        for (Membership renewal : renewals) {
+            EventJournal.record(EntityType.MEMBERSHIP, JournalEvent.Operation.CREATE,
+                    renewal.getMembershipId(), MembershipDAO.toPayload(renewal));
+        }
+    }
+}
@@ -1,7 +1,16 @@
 package membership;
 
+import admission.AdmissionController;
+import database.OptimisticRetry;
+import database.StaleRowException;
+import database.TransientRetry;
+
 import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service class for business logic related to memberships in the Gym Management System.
@@ -19,7 +28,7 @@ public class MembershipService {
     }
 
     /**
-     * Creates a new membership with the specified details.
+     * Creates a new membership with the specified details, starting today.
      * @param type        The type of membership (e.g., Monthly, Annual)
      * @param description The description of the membership
      * @param cost        The cost of the membership
@@ -28,15 +37,94 @@ public class MembershipService {
      * @throws SQLException if a database access error occurs
      */
     public Membership createMembership(String type, String description, double cost, int userId) throws SQLException {
+        return createMembership(type, description, cost, userId, false);
+    }
+
+    /**
+     * Creates a new membership with the specified details, starting today.
+     * The end date follows from the type: Monthly memberships last one month and Annual ones one year.
+     * @param type        The type of membership (e.g., Monthly, Annual)
+     * @param description The description of the membership
+     * @param cost        The cost of the membership
+     * @param userId      The userId of the member who owns this membership
+     * @param autoRenew   Whether the membership renews automatically when it expires
+     * @return The created Membership object
+     * @throws SQLException if a database access error occurs
+     */
+    public Membership createMembership(String type, String description, double cost, int userId, boolean autoRenew) throws SQLException {
+        LocalDate startDate = LocalDate.now();
         Membership membership = new Membership();
         membership.setMembershipType(type);
         membership.setMembershipDescription(description);
         membership.setMembershipCost(cost); 
         membership.setUserId(userId);
+        membership.setStartDate(startDate);
+        membership.setEndDate(calculateEndDate(type, startDate));
+        membership.setAnchorDate(startDate);
+        membership.setAutoRenew(autoRenew);
 
         return membershipDAO.createMembership(membership);
     }
 
+    /**
+     * Calculates the last day covered by a new membership of the given type.
+     * @param type      The type of membership (e.g., Monthly, Annual)
+     * @param startDate The first day the membership is valid
+     * @return The last valid day, or null for types that do not expire
+     */
+    public static LocalDate calculateEndDate(String type, LocalDate startDate) {
+        return calculateEndDate(type, startDate, startDate);
+    }
+
+    /**
+     * Calculates the last day covered by a membership term, keeping the day of the month it was
+     * first bought on. A term ends the day before the next anniversary of the anchor date. If the
+     * anchor's day does not exist in that month, the anniversary is the first of the next month,
+     * so a membership bought on January 31 runs to the end of February and renews on March 1,
+     * then on March 31.
+     * @param type       The type of membership (e.g., Monthly, Annual)
+     * @param anchorDate The day the membership was first bought, or null to anchor on the start date
+     * @param startDate  The first day of this term
+     * @return The last valid day, or null for types that do not expire
+     */
+    public static LocalDate calculateEndDate(String type, LocalDate anchorDate, LocalDate startDate) {
+        if (anchorDate == null) {
+            anchorDate = startDate;
+        }
+        int termMonths;
+        switch (type.toUpperCase()) {
+            case "MONTHLY":
+                termMonths = 1;
+                break;
+            case "ANNUAL":
+                termMonths = 12;
+                break;
+            default:
+                return null;
+        }
+        int elapsed = (int) ChronoUnit.MONTHS.between(YearMonth.from(anchorDate), YearMonth.from(startDate));
+        int months = Math.max(termMonths, elapsed - elapsed % termMonths);
+        while (!anniversary(anchorDate, months).isAfter(startDate)) {
+            months += termMonths;
+        }
+        return anniversary(anchorDate, months).minusDays(1);
+    }
+
+    /**
+     * Finds the day a given number of months after the anchor date, moving to the first of the
+     * following month when the anchor's day does not exist in the target month.
+     * @param anchorDate The day the membership was first bought
+     * @param months     The number of months after the anchor
+     * @return The anniversary
+     */
+    private static LocalDate anniversary(LocalDate anchorDate, int months) {
+        YearMonth month = YearMonth.from(anchorDate).plusMonths(months);
+        if (anchorDate.getDayOfMonth() > month.lengthOfMonth()) {
+            return month.plusMonths(1).atDay(1);
+        }
+        return month.atDay(anchorDate.getDayOfMonth());
+    }
+
     /**
      * Retrieves a membership by its unique membershipId.
      * @param membershipId The unique identifier for the membership
@@ -45,7 +133,7 @@ public class MembershipService {
      * @throws IllegalArgumentException if the membership is not found
      */
     public Membership getMembershipById(int membershipId) throws SQLException {
-        Membership membership = membershipDAO.getMembershipById(membershipId);
+        Membership membership = TransientRetry.read(() -> membershipDAO.getMembershipById(membershipId));
         if (membership == null) {
             throw new IllegalArgumentException("Membership not found");
         }
@@ -59,7 +147,45 @@ public class MembershipService {
      * @throws SQLException if a database access error occurs
      */
     public List<Membership> getMembershipsByUserId(int userId) throws SQLException {
-        return membershipDAO.getMembershipsByUserId(userId);
+        return TransientRetry.read(() -> membershipDAO.getMembershipsByUserId(userId));
+    }
+
+    /**
+     * Retrieves the memberships of a specific user that cover today.
+     * @param userId The user's unique identifier
+     * @return A list of the user's active Membership objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Membership> getActiveMembershipsByUserId(int userId) throws SQLException {
+        return TransientRetry.read(() -> membershipDAO.getActiveMembershipsByUserId(userId));
+    }
+
+    /**
+     * Checks whether a user holds a membership that covers today.
+     * @param userId The user's unique identifier
+     * @return true if the user has at least one active membership
+     * @throws SQLException if a database access error occurs
+     */
+    public boolean hasActiveMembership(int userId) throws SQLException {
+        return !getActiveMembershipsByUserId(userId).isEmpty();
+    }
+
+    /**
+     * Retrieves all memberships that cover today.
+     * @return A list of active Membership objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Membership> getActiveMemberships() throws SQLException {
+        return TransientRetry.read(membershipDAO::getActiveMemberships);
+    }
+
+    /**
+     * Retrieves all memberships that have expired.
+     * @return A list of expired Membership objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<Membership> getExpiredMemberships() throws SQLException {
+        return TransientRetry.read(membershipDAO::getExpiredMemberships);
     }
 
     /**
@@ -68,17 +194,39 @@ public class MembershipService {
      * @throws SQLException if a database access error occurs
      */
     public List<Membership> getAllMemberships() throws SQLException {
-        return membershipDAO.getAllMemberships();
+        return AdmissionController.getInstance().admit(AdmissionController.Operation.LISTING, () -> TransientRetry.read(membershipDAO::getAllMemberships));
     }
 
     /**
-     * Updates an existing membership's details.
-     * @param membership The Membership object with updated details
+     * Updates an existing membership's details, if nobody changed it since it was read.
+     * @param membership The Membership object with updated details and the rowVersion it was read at
      * @return true if the update was successful, false otherwise
+     * @throws StaleRowException if someone else changed the membership since it was read
      * @throws SQLException if a database access error occurs
      */
     public boolean updateMembership(Membership membership) throws SQLException {
-        return membershipDAO.updateMembership(membership);
+        return TransientRetry.write(() -> membershipDAO.updateMembership(membership));
+    }
+
+    /**
+     * Reads a membership, applies an edit and saves it, re-reading and re-applying the edit if
+     * someone else changed the membership in between. No lock is held while the edit is applied.
+     * @param membershipId The unique identifier for the membership
+     * @param edit         The change to make; it may run more than once
+     * @return the updated Membership object
+     * @throws StaleRowException if the membership kept changing for {@value OptimisticRetry#DEFAULT_ATTEMPTS} attempts
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the membership is not found
+     */
+    public Membership updateMembership(int membershipId, Consumer<Membership> edit) throws SQLException {
+        return OptimisticRetry.run(OptimisticRetry.DEFAULT_ATTEMPTS, () -> {
+            Membership membership = getMembershipById(membershipId);
+            edit.accept(membership);
+            if (!updateMembership(membership)) {
+                throw new IllegalArgumentException("Membership not found");
+            }
+            return membership;
+        });
     }
 
     /**
@@ -88,7 +236,7 @@ public class MembershipService {
      * @throws SQLException if a database access error occurs
      */
     public boolean deleteMembership(int membershipId) throws SQLException {
-        return membershipDAO.deleteMembership(membershipId);
+        return TransientRetry.write(() -> membershipDAO.deleteMembership(membershipId));
     }
 
     /**
@@ -97,6 +245,6 @@ public class MembershipService {
      * @throws SQLException if a database access error occurs
      */
     public double calculateTotalRevenue() throws SQLException {
-        return membershipDAO.getTotalRevenue();
+        return TransientRetry.read(membershipDAO::getTotalRevenue);
     }
 }
@@ -0,0 +1,54 @@
+package outbox;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Outbox sink that appends each event as a JSON line to a local file.
+ * Each batch is forced to disk before it is acknowledged, so a delivered event is never lost.
+ * Useful as a stand-in for a real integration in development and tests.
+ */
+public class FileOutboxSink implements OutboxSink {
+    private final FileChannel channel;
+
+    /**
+     * Constructs a FileOutboxSink that appends to the given file, creating it if needed.
+     * @param file The file to append to
+     * @throws IOException if the file cannot be opened
+     */
+    public FileOutboxSink(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Appends the batch and forces it to disk.
+     * @param events The events to deliver
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public synchronized void deliver(List<OutboxEvent> events) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        for (OutboxEvent event : events) {
+            lines.append(event.toJsonLine()).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Closes the file.
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
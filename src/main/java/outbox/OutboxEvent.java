@@ -0,0 +1,100 @@
+package outbox;
+
+import java.sql.Timestamp;
+
+/**
+ * Represents an event waiting in the MembershipOutbox table for delivery to an integration.
+ * The outboxId is unique, so sinks can use it to deduplicate events. Ids are assigned before
+ * commit, so events are not guaranteed to arrive in outboxId order.
+ */
+public class OutboxEvent {
+    private final long outboxId;
+    private final int membershipId;
+    private final String eventType;
+    private final String payload;
+    private final Timestamp createdAt;
+
+    /**
+     * Constructs an OutboxEvent with all fields specified.
+     *
+     * @param outboxId     The unique identifier of the outbox row
+     * @param membershipId The membership the event is about
+     * @param eventType    The kind of event (e.g., MembershipPurchased)
+     * @param payload      A JSON description of the event
+     * @param createdAt    When the event was written
+     */
+    public OutboxEvent(long outboxId, int membershipId, String eventType, String payload, Timestamp createdAt) {
+        this.outboxId = outboxId;
+        this.membershipId = membershipId;
+        this.eventType = eventType;
+        this.payload = payload;
+        this.createdAt = createdAt;
+    }
+
+    /**
+     * Gets the unique identifier of the outbox row.
+     * @return the outboxId
+     */
+    public long getOutboxId() {
+        return outboxId;
+    }
+
+    /**
+     * Gets the membership the event is about.
+     * @return the membershipId
+     */
+    public int getMembershipId() {
+        return membershipId;
+    }
+
+    /**
+     * Gets the kind of event.
+     * @return the eventType
+     */
+    public String getEventType() {
+        return eventType;
+    }
+
+    /**
+     * Gets the JSON description of the event.
+     * @return the payload
+     */
+    public String getPayload() {
+        return payload;
+    }
+
+    /**
+     * Gets when the event was written.
+     * @return the createdAt timestamp
+     */
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * Formats the event as a single JSON line for line-oriented sinks.
+     * @return the event as one line of JSON
+     */
+    public String toJsonLine() {
+        return "{\"outboxId\":" + outboxId +
+                ",\"membershipId\":" + membershipId +
+                ",\"eventType\":\"" + eventType + "\"" +
+                ",\"createdAt\":\"" + createdAt + "\"" +
+                ",\"payload\":" + payload + "}";
+    }
+
+    /**
+     * Returns a string representation of the OutboxEvent object.
+     * @return a string with event details
+     */
+    @Override
+    public String toString() {
+        return "OutboxEvent{" +
+                "outboxId=" + outboxId +
+                ", membershipId=" + membershipId +
+                ", eventType='" + eventType + '\'' +
+                ", payload='" + payload + '\'' +
+                ", createdAt=" + createdAt +
+                '}';
+    }
+}
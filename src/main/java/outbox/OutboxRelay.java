@@ -0,0 +1,161 @@
+package outbox;
+
+import database.DatabaseConnection;
+
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drains the MembershipOutbox table into an {@link OutboxSink} in batches.
+ * Each worker claims the oldest undelivered rows with {@code FOR UPDATE SKIP LOCKED}, delivers
+ * them in outboxId order and deletes them in the same transaction, so several workers (in one
+ * process or across nodes) can share the table without blocking each other or delivering the
+ * same row concurrently. If delivery fails the transaction rolls back and the rows are retried,
+ * which makes delivery at-least-once. There is no ordering guarantee, even with a single worker:
+ * outboxIds are drawn from a sequence before their transaction commits, so a row with a higher id
+ * can become visible, and be delivered, before a row with a lower id that commits later. Each
+ * batch is sorted by outboxId, but sinks must not treat a delivered id as a high-water mark.
+ */
+public class OutboxRelay {
+    private static final String CLAIM_SQL =
+            "SELECT outboxId, membershipId, eventType, payload, createdAt FROM MembershipOutbox " +
+            "ORDER BY outboxId LIMIT ? FOR UPDATE SKIP LOCKED";
+    private static final String DELETE_SQL = "DELETE FROM MembershipOutbox WHERE outboxId = ANY(?)";
+    private static final long IDLE_MILLIS = 200;
+    private static final long RETRY_MILLIS = 2_000;
+
+    private final OutboxSink sink;
+    private final int batchSize;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    /**
+     * Constructs an OutboxRelay that delivers to the given sink.
+     * @param sink      The destination for outbox events
+     * @param batchSize The maximum number of events claimed and delivered per transaction
+     */
+    public OutboxRelay(OutboxSink sink, int batchSize) {
+        this.sink = sink;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Starts the given number of worker threads, each with its own database connection.
+     * @param workerCount The number of workers
+     */
+    public synchronized void start(int workerCount) {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = new Thread(this::run, "outbox-relay-" + i);
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    /**
+     * Stops the workers after their current batch and closes the sink.
+     */
+    public synchronized void stop() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+            try {
+                worker.join(RETRY_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        workers.clear();
+        try {
+            sink.close();
+        } catch (IOException e) {
+            System.err.println("Error closing outbox sink: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Claims, delivers and deletes one batch of events.
+     * @param connection A connection with auto-commit disabled
+     * @return the number of events delivered
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the sink fails; the batch is rolled back for a retry
+     */
+    public int drainBatch(Connection connection) throws SQLException, IOException {
+        try {
+            List<OutboxEvent> events = new ArrayList<>();
+            try (PreparedStatement stmt = connection.prepareStatement(CLAIM_SQL)) {
+                stmt.setInt(1, batchSize);
+                ResultSet rs = stmt.executeQuery();
+                while (rs.next()) {
+                    events.add(new OutboxEvent(
+                            rs.getLong("outboxId"),
+                            rs.getInt("membershipId"),
+                            rs.getString("eventType"),
+                            rs.getString("payload"),
+                            rs.getTimestamp("createdAt")));
+                }
+            }
+
+            if (!events.isEmpty()) {
+                sink.deliver(events);
+                Long[] ids = new Long[events.size()];
+                for (int i = 0; i < ids.length; i++) {
+                    ids[i] = events.get(i).getOutboxId();
+                }
+                try (PreparedStatement stmt = connection.prepareStatement(DELETE_SQL)) {
+                    Array idArray = connection.createArrayOf("bigint", ids);
+                    stmt.setArray(1, idArray);
+                    stmt.executeUpdate();
+                    idArray.free();
+                }
+            }
+            connection.commit();
+            return events.size();
+        } catch (SQLException | IOException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException rollbackFailure) {
+                e.addSuppressed(rollbackFailure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Worker loop: drain batches back to back, idle briefly when the outbox is empty,
+     * and back off after failures.
+     */
+    private void run() {
+        while (running) {
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                connection.setAutoCommit(false);
+                while (running) {
+                    if (drainBatch(connection) == 0) {
+                        Thread.sleep(IDLE_MILLIS);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException | IOException e) {
+                System.err.println("Outbox relay error, retrying: " + e.getMessage());
+                try {
+                    Thread.sleep(RETRY_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package outbox;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Destination for outbox events, such as a billing or CRM integration.
+ * The relay only deletes events after {@link #deliver} returns normally, so delivery is
+ * at-least-once: a sink may see the same event again after a failure and should
+ * deduplicate on {@link OutboxEvent#getOutboxId()}.
+ */
+public interface OutboxSink extends AutoCloseable {
+    /**
+     * Delivers a batch of events, sorted by outboxId within the batch. A later batch may still
+     * contain lower ids than an earlier one.
+     * @param events The events to deliver
+     * @throws IOException if the batch could not be delivered; it will be retried
+     */
+    void deliver(List<OutboxEvent> events) throws IOException;
+
+    /**
+     * Releases any resources held by the sink.
+     * @throws IOException if the sink cannot be closed cleanly
+     */
+    @Override
+    void close() throws IOException;
+}
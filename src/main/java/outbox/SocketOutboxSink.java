@@ -0,0 +1,94 @@
+package outbox;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Outbox sink that streams events as JSON lines over a TCP socket.
+ * After each batch the sink waits for the peer to reply with a line containing the last
+ * outboxId it received, which acknowledges the whole batch. The connection is re-established
+ * on the next delivery after any failure. Intended as a stand-in for a network integration.
+ */
+public class SocketOutboxSink implements OutboxSink {
+    private static final int TIMEOUT_MILLIS = 10_000;
+
+    private final String host;
+    private final int port;
+    private Socket socket;
+    private BufferedReader acknowledgements;
+
+    /**
+     * Constructs a SocketOutboxSink for the given peer; the connection is opened lazily.
+     * @param host The peer's host name
+     * @param port The peer's port
+     */
+    public SocketOutboxSink(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sends the batch and waits for the peer's acknowledgement.
+     * @param events The events to deliver
+     * @throws IOException if the batch could not be sent or was not acknowledged
+     */
+    @Override
+    public synchronized void deliver(List<OutboxEvent> events) throws IOException {
+        if (events.isEmpty()) {
+            return;
+        }
+        try {
+            connectIfNeeded();
+            StringBuilder lines = new StringBuilder();
+            for (OutboxEvent event : events) {
+                lines.append(event.toJsonLine()).append('\n');
+            }
+            OutputStream out = socket.getOutputStream();
+            out.write(lines.toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+
+            String expected = String.valueOf(events.get(events.size() - 1).getOutboxId());
+            String ack = acknowledgements.readLine();
+            if (!expected.equals(ack == null ? null : ack.trim())) {
+                throw new IOException("Unexpected acknowledgement from outbox peer: " + ack);
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the connection to the peer, if open.
+     * @throws IOException if the socket cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (socket != null) {
+            Socket closing = socket;
+            socket = null;
+            acknowledgements = null;
+            closing.close();
+        }
+    }
+
+    /**
+     * Opens the connection to the peer if it is not already open.
+     * @throws IOException if the peer cannot be reached
+     */
+    private void connectIfNeeded() throws IOException {
+        if (socket == null) {
+            Socket opened = new Socket();
+            opened.connect(new InetSocketAddress(host, port), TIMEOUT_MILLIS);
+            opened.setSoTimeout(TIMEOUT_MILLIS);
+            socket = opened;
+            acknowledgements = new BufferedReader(new InputStreamReader(opened.getInputStream(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,680 @@
+package snapshot;
+
+import database.ChangeNotifier;
+import database.DatabaseConnection;
+import database.PartitionMaintainer;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Saves the whole gym database to a compact binary snapshot file and restores it again.
+ *
+ * <p>Each table is dumped with {@code COPY (SELECT ...) TO STDOUT (FORMAT binary)} inside one
+ * repeatable-read transaction and gzip-compressed into its own section of the file. For a
+ * partitioned table this covers every attached partition but not archived ones. A directory at the
+ * end of the file lists every section's offset, columns, row count and the CRC-32 of its
+ * uncompressed data; the directory has its own CRC and the file ends with its position and a
+ * magic number. Layout (format version {@value #FORMAT_VERSION}):</p>
+ * <pre>
+ *   "GYMSNAP1" | int version | long createdAtMillis
+ *   section* (gzip of COPY binary data, one per table)
+ *   directory: short tableCount, entry*
+ *   long directoryOffset | int directoryLength | long directoryCrc | "GYMSNAPE"
+ * </pre>
+ *
+ * <p>Restore replaces all data. Every section is decompressed and checked against its directory
+ * CRC before anything is deleted, so a corrupt or truncated file leaves the database untouched.
+ * Tables are then loaded through parallel COPY streams, one connection per table, with
+ * {@code session_replication_role = replica} so foreign keys are not checked between concurrently
+ * loading tables; each connection deletes its table's rows and loads the new ones in one
+ * transaction, and every table is committed only once all have loaded. Those commits are separate,
+ * so if one of them fails the restore is reported as partial, naming the tables that were
+ * replaced. If the database user may not set the replication role, the tables are loaded one after
+ * another in foreign key order in a single transaction instead. Partitions are
+ * created beforehand for every month the partitioned tables retain; rows older than that cannot be
+ * restored. Sequences are then moved past the restored ids and every node is told to reload its caches.</p>
+ */
+public class DatabaseSnapshot {
+    /** The snapshot format version this class writes and reads. */
+    public static final int FORMAT_VERSION = 1;
+
+    private static final byte[] HEADER_MAGIC = {'G', 'Y', 'M', 'S', 'N', 'A', 'P', '1'};
+    private static final byte[] TRAILER_MAGIC = {'G', 'Y', 'M', 'S', 'N', 'A', 'P', 'E'};
+    private static final int HEADER_BYTES = HEADER_MAGIC.length + Integer.BYTES + Long.BYTES;
+    private static final int TRAILER_BYTES = Long.BYTES + Integer.BYTES + Long.BYTES + TRAILER_MAGIC.length;
+    private static final int STREAM_BUFFER_BYTES = 64 * 1024;
+    private static final String INSUFFICIENT_PRIVILEGE = "42501";
+
+    private static final String COLUMNS_SQL =
+            "SELECT column_name FROM information_schema.columns WHERE table_schema = current_schema() " +
+            "AND table_name = lower(?) AND is_generated = 'NEVER' ORDER BY ordinal_position";
+
+    /**
+     * Writes every table to a snapshot file from a single consistent database snapshot.
+     * The file is written under a temporary name and moved into place when complete.
+     * @param file The snapshot file to write; replaced if it exists
+     * @return The directory of the written snapshot, one entry per table
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the file cannot be written
+     */
+    public List<SnapshotEntry> save(Path file) throws SQLException, IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        List<SnapshotEntry> entries = new ArrayList<>();
+
+        try (Connection connection = DatabaseConnection.getConnection();
+             FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            connection.setAutoCommit(false);
+            connection.setReadOnly(true);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.put(HEADER_MAGIC).putInt(FORMAT_VERSION).putLong(System.currentTimeMillis()).flip();
+                writeFully(channel, header);
+
+                OutputStream fileOut = new UnclosableOutputStream(Channels.newOutputStream(channel));
+                for (SnapshotTable table : SnapshotTable.values()) {
+                    List<String> columns = getColumns(connection, table);
+                    long offset = channel.position();
+                    CRC32 crc = new CRC32();
+                    CountingOutputStream raw;
+                    long rows;
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(fileOut, STREAM_BUFFER_BYTES)) {
+                        raw = new CountingOutputStream(new CheckedOutputStream(gzip, crc));
+                        rows = copyManager.copyOut(copySql(table, columns, "TO STDOUT"), raw);
+                    }
+                    entries.add(new SnapshotEntry(table, columns, offset, channel.position() - offset,
+                            raw.count, crc.getValue(), rows));
+                }
+            } finally {
+                connection.rollback();
+            }
+
+            ByteArrayOutputStream directoryBytes = new ByteArrayOutputStream();
+            DataOutputStream directory = new DataOutputStream(directoryBytes);
+            directory.writeShort(entries.size());
+            for (SnapshotEntry entry : entries) {
+                entry.writeTo(directory);
+            }
+            directory.flush();
+            byte[] directoryData = directoryBytes.toByteArray();
+            CRC32 directoryCrc = new CRC32();
+            directoryCrc.update(directoryData);
+
+            long directoryOffset = channel.position();
+            writeFully(channel, ByteBuffer.wrap(directoryData));
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_BYTES);
+            trailer.putLong(directoryOffset).putInt(directoryData.length).putLong(directoryCrc.getValue())
+                    .put(TRAILER_MAGIC).flip();
+            writeFully(channel, trailer);
+            channel.force(true);
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(partial);
+            throw e;
+        }
+
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return entries;
+    }
+
+    /**
+     * Reads and verifies a snapshot's header, trailer and directory without loading any data.
+     * @param file The snapshot file
+     * @return The snapshot's directory, one entry per table
+     * @throws IOException if the file cannot be read, is not a snapshot, has an unsupported version
+     *                     or a corrupt directory
+     */
+    public List<SnapshotEntry> readDirectory(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readDirectory(channel);
+        }
+    }
+
+    /**
+     * Replaces all data in the database with the snapshot's contents.
+     * @param file        The snapshot file
+     * @param parallelism The maximum number of tables loaded at once; 1 loads them one after another
+     * @return The snapshot's directory, one entry per restored table
+     * @throws SQLException if a database access error occurs; no table is committed unless all loaded,
+     *                      except when a parallel restore's commits fail part way, which is reported as a partial restore
+     * @throws IOException if the file cannot be read or a table's data fails its checksum; nothing is changed
+     */
+    public List<SnapshotEntry> restore(Path file, int parallelism) throws SQLException, IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<SnapshotEntry> entries = readDirectory(channel);
+            verifySections(channel, entries);
+            // Rows can only be loaded into months that have a partition
+            new PartitionMaintainer().createRetainedPartitions(LocalDate.now());
+            if (parallelism > 1 && canDisableForeignKeyChecks()) {
+                restoreInParallel(channel, entries, parallelism);
+            } else {
+                restoreSequentially(channel, entries);
+            }
+
+            try (Connection connection = DatabaseConnection.getConnection()) {
+                resetSequences(connection, entries);
+                for (SnapshotTable table : SnapshotTable.values()) {
+                    if (table.getEntityType() != null) {
+                        ChangeNotifier.publishAll(connection, table.getEntityType());
+                    }
+                }
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("ANALYZE");
+                }
+            }
+            return entries;
+        }
+    }
+
+    /**
+     * Loads every table on one connection in one transaction, in foreign key order.
+     * @param channel The snapshot file
+     * @param entries The snapshot's directory
+     * @throws SQLException if a database access error occurs; nothing is changed
+     * @throws IOException if a table's data cannot be read or fails its checksum
+     */
+    private void restoreSequentially(FileChannel channel, List<SnapshotEntry> entries) throws SQLException, IOException {
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                // Every table is announced once the restore is done, rather than once per row
+                ChangeNotifier.suppressRowNotifications(connection);
+                truncateAll(connection);
+                for (SnapshotEntry entry : entries) {
+                    load(connection, channel, entry);
+                }
+                connection.commit();
+            } catch (SQLException | IOException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Replaces the tables concurrently, one connection and transaction per table, committing
+     * all of them only once every load has succeeded.
+     * @param channel     The snapshot file
+     * @param entries     The snapshot's directory
+     * @param parallelism The maximum number of tables loaded at once
+     * @throws SQLException if a database access error occurs; nothing is changed unless the
+     *                      commits themselves fail part way, which is reported as a partial restore
+     * @throws IOException if a table's data cannot be read or fails its checksum; nothing is changed
+     */
+    private void restoreInParallel(FileChannel channel, List<SnapshotEntry> entries, int parallelism)
+            throws SQLException, IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, entries.size()), runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-restore");
+            thread.setDaemon(true);
+            return thread;
+        });
+        List<Future<Connection>> loads = new ArrayList<>();
+        try {
+            for (SnapshotEntry entry : entries) {
+                loads.add(executor.submit(() -> {
+                    Connection connection = DatabaseConnection.getConnection();
+                    try {
+                        connection.setAutoCommit(false);
+                        try (Statement stmt = connection.createStatement()) {
+                            stmt.execute("SET session_replication_role = replica");
+                            // Rows are deleted rather than truncated: TRUNCATE would have to cover every
+                            // referencing table in one statement and commit before the other loads could start
+                            stmt.execute("DELETE FROM " + entry.getTable().getTableName());
+                        }
+                        load(connection, channel, entry);
+                        return connection;
+                    } catch (SQLException | IOException | RuntimeException e) {
+                        connection.close();
+                        throw e;
+                    }
+                }));
+            }
+
+            List<Connection> loaded = new ArrayList<>();
+            List<SnapshotTable> tables = new ArrayList<>();
+            Exception failure = null;
+            for (int i = 0; i < loads.size(); i++) {
+                try {
+                    loaded.add(loads.get(i).get());
+                    tables.add(entries.get(i).getTable());
+                } catch (ExecutionException e) {
+                    failure = failure == null ? (Exception) e.getCause() : failure;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failure = failure == null ? e : failure;
+                }
+            }
+            finishLoads(loaded, tables, failure == null);
+            if (failure instanceof SQLException) {
+                throw (SQLException) failure;
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure != null) {
+                throw new SQLException("Snapshot restore failed: " + failure.getMessage(), failure);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Commits or rolls back every loaded table and closes its connection. The commits are separate
+     * transactions, so once one has succeeded a later failure cannot be undone; that case is
+     * reported as a partial restore naming the tables that were and were not replaced.
+     * @param loaded The connections holding uncommitted loads
+     * @param tables The table loaded on each connection
+     * @param commit Whether to commit
+     * @throws SQLException if a commit fails
+     */
+    private static void finishLoads(List<Connection> loaded, List<SnapshotTable> tables, boolean commit) throws SQLException {
+        List<String> committed = new ArrayList<>();
+        List<String> failed = new ArrayList<>();
+        SQLException failure = null;
+        for (int i = 0; i < loaded.size(); i++) {
+            Connection connection = loaded.get(i);
+            try {
+                if (commit && failure == null) {
+                    connection.commit();
+                    committed.add(tables.get(i).getTableName());
+                } else {
+                    // After the first failed commit, the remaining tables keep their old data
+                    connection.rollback();
+                    failed.add(tables.get(i).getTableName());
+                }
+            } catch (SQLException e) {
+                failed.add(tables.get(i).getTableName());
+                failure = failure == null ? e : failure;
+            } finally {
+                connection.close();
+            }
+        }
+        if (failure == null) {
+            return;
+        }
+        if (committed.isEmpty()) {
+            throw failure;
+        }
+        String message = "PARTIAL RESTORE: the database is inconsistent. Replaced " + committed
+                + " but kept the old data in " + failed + "; restore the snapshot again";
+        System.err.println(message);
+        throw new SQLException(message, failure.getSQLState(), failure);
+    }
+
+    /**
+     * Decompresses every section and checks its length and CRC against the directory, so a
+     * corrupt or truncated snapshot is refused before any table is touched.
+     * @param channel The snapshot file
+     * @param entries The snapshot's directory
+     * @throws IOException if a section cannot be read or fails its checksum
+     */
+    private static void verifySections(FileChannel channel, List<SnapshotEntry> entries) throws IOException {
+        byte[] buffer = new byte[STREAM_BUFFER_BYTES];
+        for (SnapshotEntry entry : entries) {
+            String tableName = entry.getTable().getTableName();
+            CRC32 crc = new CRC32();
+            long length = 0;
+            try (InputStream in = new GZIPInputStream(
+                    new RegionInputStream(channel, entry.getOffset(), entry.getCompressedLength()), STREAM_BUFFER_BYTES)) {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    crc.update(buffer, 0, read);
+                    length += read;
+                }
+            } catch (IOException e) {
+                throw new IOException("Snapshot data for " + tableName + " is corrupt: " + e.getMessage(), e);
+            }
+            if (length != entry.getRawLength() || crc.getValue() != entry.getCrc()) {
+                throw new IOException("Snapshot data for " + tableName + " is corrupt (checksum mismatch)");
+            }
+        }
+    }
+
+    /**
+     * Streams one table's section into the database and verifies its checksum.
+     * @param connection A connection inside the restore transaction
+     * @param channel    The snapshot file
+     * @param entry      The table's directory entry
+     * @throws SQLException if a database access error occurs
+     * @throws IOException if the data cannot be read or fails its checksum
+     */
+    private static void load(Connection connection, FileChannel channel, SnapshotEntry entry) throws SQLException, IOException {
+        CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+        CRC32 crc = new CRC32();
+        try (InputStream in = new CheckedInputStream(new GZIPInputStream(
+                new RegionInputStream(channel, entry.getOffset(), entry.getCompressedLength()), STREAM_BUFFER_BYTES), crc)) {
+            copyManager.copyIn(copySql(entry.getTable(), entry.getColumns(), "FROM STDIN"), in, STREAM_BUFFER_BYTES);
+        }
+        if (crc.getValue() != entry.getCrc()) {
+            throw new IOException("Snapshot data for " + entry.getTable().getTableName() + " is corrupt (checksum mismatch)");
+        }
+    }
+
+    /**
+     * Checks whether this database user may turn off foreign key triggers for a session.
+     * @return true if parallel loading is possible
+     * @throws SQLException if a database access error occurs
+     */
+    private static boolean canDisableForeignKeyChecks() throws SQLException {
+        try (Connection connection = DatabaseConnection.getConnection();
+             Statement stmt = connection.createStatement()) {
+            stmt.execute("SET session_replication_role = replica");
+            return true;
+        } catch (SQLException e) {
+            if (INSUFFICIENT_PRIVILEGE.equals(e.getSQLState())) {
+                System.err.println("Cannot set session_replication_role; restoring tables one at a time");
+                return false;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Empties every snapshot table and resets their sequences.
+     * @param connection The connection to use
+     * @throws SQLException if a database access error occurs
+     */
+    private static void truncateAll(Connection connection) throws SQLException {
+        StringBuilder sql = new StringBuilder("TRUNCATE ");
+        for (SnapshotTable table : SnapshotTable.values()) {
+            if (table.ordinal() > 0) {
+                sql.append(", ");
+            }
+            sql.append(table.getTableName());
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute(sql.append(" RESTART IDENTITY").toString());
+        }
+    }
+
+    /**
+     * Moves each serial column's sequence past the largest restored id.
+     * @param connection The connection to use
+     * @param entries    The restored tables
+     * @throws SQLException if a database access error occurs
+     */
+    private static void resetSequences(Connection connection, List<SnapshotEntry> entries) throws SQLException {
+        for (SnapshotEntry entry : entries) {
+            SnapshotTable table = entry.getTable();
+            if (table.getSerialColumn() == null) {
+                continue;
+            }
+            String sql = "SELECT setval(pg_get_serial_sequence(?, ?), COALESCE(MAX(" + table.getSerialColumn() + "), 0) + 1, false) " +
+                        "FROM " + table.getTableName();
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                stmt.setString(1, table.getTableName().toLowerCase());
+                stmt.setString(2, table.getSerialColumn().toLowerCase());
+                stmt.executeQuery();
+            }
+        }
+    }
+
+    /**
+     * Gets a table's stored (non-generated) columns in table order.
+     * @param connection The connection to use
+     * @param table      The table
+     * @return the column names
+     * @throws SQLException if a database access error occurs or the table does not exist
+     */
+    private static List<String> getColumns(Connection connection, SnapshotTable table) throws SQLException {
+        List<String> columns = new ArrayList<>();
+        try (PreparedStatement stmt = connection.prepareStatement(COLUMNS_SQL)) {
+            stmt.setString(1, table.getTableName());
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                columns.add(rs.getString("column_name"));
+            }
+        }
+        if (columns.isEmpty()) {
+            throw new SQLException("Table " + table.getTableName() + " does not exist");
+        }
+        return columns;
+    }
+
+    /**
+     * Builds a binary COPY statement for a table's stored columns.
+     * @param table     The table
+     * @param columns   The columns, in COPY order
+     * @param direction {@code TO STDOUT} or {@code FROM STDIN}
+     * @return the SQL statement
+     */
+    private static String copySql(SnapshotTable table, List<String> columns, String direction) {
+        StringBuilder columnList = new StringBuilder();
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                columnList.append(", ");
+            }
+            // Quoted so a column name read from the file can never inject SQL
+            columnList.append('"').append(columns.get(i).replace("\"", "\"\"")).append('"');
+        }
+        // Partitioned tables can be copied into but not out of, so rows are copied out through a query
+        String source = direction.startsWith("TO")
+                ? "(SELECT " + columnList + " FROM " + table.getTableName() + ")"
+                : table.getTableName() + " (" + columnList + ")";
+        return "COPY " + source + " " + direction + " (FORMAT binary)";
+    }
+
+    /**
+     * Reads and verifies the header, trailer and directory.
+     * @param channel The snapshot file
+     * @return the directory entries
+     * @throws IOException if the file is not a valid snapshot
+     */
+    private static List<SnapshotEntry> readDirectory(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size < HEADER_BYTES + TRAILER_BYTES) {
+            throw new IOException("Not a gym snapshot: file too short");
+        }
+        ByteBuffer header = readAt(channel, 0, HEADER_BYTES);
+        byte[] magic = new byte[HEADER_MAGIC.length];
+        header.get(magic);
+        if (!java.util.Arrays.equals(magic, HEADER_MAGIC)) {
+            throw new IOException("Not a gym snapshot: bad header");
+        }
+        int version = header.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + version + " (expected " + FORMAT_VERSION + ")");
+        }
+
+        ByteBuffer trailer = readAt(channel, size - TRAILER_BYTES, TRAILER_BYTES);
+        long directoryOffset = trailer.getLong();
+        int directoryLength = trailer.getInt();
+        long directoryCrc = trailer.getLong();
+        trailer.get(magic);
+        if (!java.util.Arrays.equals(magic, TRAILER_MAGIC)
+                || directoryOffset < HEADER_BYTES || directoryOffset + directoryLength != size - TRAILER_BYTES) {
+            throw new IOException("Snapshot is truncated or corrupt: bad trailer");
+        }
+
+        byte[] directoryData = new byte[directoryLength];
+        readAt(channel, directoryOffset, directoryLength).get(directoryData);
+        CRC32 crc = new CRC32();
+        crc.update(directoryData);
+        if (crc.getValue() != directoryCrc) {
+            throw new IOException("Snapshot directory is corrupt (checksum mismatch)");
+        }
+
+        DataInputStream directory = new DataInputStream(new ByteArrayInputStream(directoryData));
+        int count = directory.readShort();
+        List<SnapshotEntry> entries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            SnapshotEntry entry = SnapshotEntry.readFrom(directory);
+            if (entry.getOffset() < HEADER_BYTES || entry.getOffset() + entry.getCompressedLength() > directoryOffset) {
+                throw new IOException("Snapshot directory is corrupt: section out of range");
+            }
+            entries.add(entry);
+        }
+        return entries;
+    }
+
+    /**
+     * Reads a byte range of the file.
+     * @param channel  The file
+     * @param position Where the range starts
+     * @param length   The range's size
+     * @return a buffer holding the range, ready to read
+     * @throws IOException if the range cannot be read
+     */
+    private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot");
+            }
+        }
+        return buffer.flip();
+    }
+
+    /**
+     * Writes a whole buffer at the channel's position.
+     * @param channel The file
+     * @param buffer  The data
+     * @throws IOException if the data cannot be written
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Command-line entry point for scripts that rebuild dev and staging databases.
+     * Usage: {@code save <file>} or {@code restore <file> [parallelism]}.
+     * @param args The command and its arguments
+     */
+    public static void main(String[] args) {
+        if (args.length < 2 || !(args[0].equals("save") || args[0].equals("restore"))) {
+            System.err.println("Usage: DatabaseSnapshot save <file> | restore <file> [parallelism]");
+            System.exit(2);
+        }
+        DatabaseSnapshot snapshot = new DatabaseSnapshot();
+        Path file = Paths.get(args[1]);
+        long started = System.nanoTime();
+        try {
+            List<SnapshotEntry> entries = args[0].equals("save")
+                    ? snapshot.save(file)
+                    : snapshot.restore(file, args.length > 2 ? Integer.parseInt(args[2]) : SnapshotTable.values().length);
+            entries.forEach(System.out::println);
+            System.out.printf("%s %s in %.1f s%n", args[0].equals("save") ? "Saved" : "Restored", file,
+                    (System.nanoTime() - started) / 1_000_000_000.0);
+        } catch (SQLException | IOException e) {
+            System.err.println("Snapshot " + args[0] + " failed: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Counts the bytes written through it.
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+
+    /**
+     * Passes writes through to the file but ignores close, so each table's gzip stream can be
+     * closed without closing the snapshot file.
+     */
+    private static final class UnclosableOutputStream extends FilterOutputStream {
+        UnclosableOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+
+    /**
+     * Reads one section of the file with positional reads, so several threads can read
+     * different sections of the same channel at once.
+     */
+    private static final class RegionInputStream extends InputStream {
+        private final FileChannel channel;
+        private long position;
+        private final long end;
+
+        RegionInputStream(FileChannel channel, long offset, long length) {
+            this.channel = channel;
+            this.position = offset;
+            this.end = offset + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (position >= end) {
+                return -1;
+            }
+            int toRead = (int) Math.min(len, end - position);
+            int read = channel.read(ByteBuffer.wrap(b, off, toRead), position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of snapshot");
+            }
+            position += read;
+            return read;
+        }
+    }
+}
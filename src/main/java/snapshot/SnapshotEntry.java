@@ -0,0 +1,145 @@
+package snapshot;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * One table's record in a snapshot's directory: where its compressed COPY data lives in the file,
+ * which columns it holds, and the checksum of the uncompressed data.
+ */
+public class SnapshotEntry {
+    private final SnapshotTable table;
+    private final List<String> columns;
+    private final long offset;
+    private final long compressedLength;
+    private final long rawLength;
+    private final long crc;
+    private final long rows;
+
+    /**
+     * Constructs a SnapshotEntry.
+     * @param table            The table
+     * @param columns          The columns stored, in COPY order
+     * @param offset           The position of the compressed data in the file
+     * @param compressedLength The size of the compressed data
+     * @param rawLength        The size of the uncompressed COPY data
+     * @param crc              The CRC-32 of the uncompressed COPY data
+     * @param rows             The number of rows stored
+     */
+    SnapshotEntry(SnapshotTable table, List<String> columns, long offset, long compressedLength,
+                  long rawLength, long crc, long rows) {
+        this.table = table;
+        this.columns = List.copyOf(columns);
+        this.offset = offset;
+        this.compressedLength = compressedLength;
+        this.rawLength = rawLength;
+        this.crc = crc;
+        this.rows = rows;
+    }
+
+    /**
+     * Gets the table.
+     * @return the table
+     */
+    public SnapshotTable getTable() {
+        return table;
+    }
+
+    /**
+     * Gets the columns stored, in COPY order.
+     * @return the column names
+     */
+    public List<String> getColumns() {
+        return columns;
+    }
+
+    /**
+     * Gets the position of the compressed data in the file.
+     * @return the offset
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    /**
+     * Gets the size of the compressed data.
+     * @return the compressed length in bytes
+     */
+    long getCompressedLength() {
+        return compressedLength;
+    }
+
+    /**
+     * Gets the size of the uncompressed COPY data.
+     * @return the raw length in bytes
+     */
+    long getRawLength() {
+        return rawLength;
+    }
+
+    /**
+     * Gets the CRC-32 of the uncompressed COPY data.
+     * @return the checksum
+     */
+    long getCrc() {
+        return crc;
+    }
+
+    /**
+     * Gets the number of rows stored.
+     * @return the row count
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    /**
+     * Writes the entry to a snapshot directory.
+     * @param out The directory output
+     * @throws IOException if the entry cannot be written
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeUTF(table.getTableName());
+        out.writeShort(columns.size());
+        for (String column : columns) {
+            out.writeUTF(column);
+        }
+        out.writeLong(offset);
+        out.writeLong(compressedLength);
+        out.writeLong(rawLength);
+        out.writeLong(crc);
+        out.writeLong(rows);
+    }
+
+    /**
+     * Reads an entry from a snapshot directory.
+     * @param in The directory input
+     * @return the entry
+     * @throws IOException if the entry cannot be read or names an unknown table
+     */
+    static SnapshotEntry readFrom(DataInput in) throws IOException {
+        SnapshotTable table;
+        try {
+            table = SnapshotTable.fromTableName(in.readUTF());
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        String[] columns = new String[in.readShort()];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = in.readUTF();
+        }
+        return new SnapshotEntry(table, List.of(columns), in.readLong(), in.readLong(),
+                in.readLong(), in.readLong(), in.readLong());
+    }
+
+    /**
+     * Returns a one-line summary of the entry.
+     * @return the table, row count and sizes
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d rows, %d bytes (%d compressed)", table.getTableName(), rows, rawLength, compressedLength);
+    }
+}
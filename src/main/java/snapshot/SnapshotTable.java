@@ -0,0 +1,66 @@
+package snapshot;
+
+import database.EntityType;
+
+/**
+ * The tables a snapshot contains, in foreign key order: every table comes after the tables it references.
+ */
+public enum SnapshotTable {
+    USERS("Users", "userId", EntityType.USER),
+    MEMBERSHIPS("Memberships", "membershipId", EntityType.MEMBERSHIP),
+    MEMBERSHIP_OUTBOX("MembershipOutbox", "outboxId", null),
+    CLASS_TEMPLATES("ClassTemplates", "templateId", EntityType.CLASS_TEMPLATE),
+    CLASS_TEMPLATE_EXCEPTIONS("ClassTemplateExceptions", null, null),
+    WORKOUT_CLASSES("WorkoutClasses", "workoutClassId", EntityType.WORKOUT_CLASS),
+    CLASS_ENROLLMENTS("ClassEnrollments", "enrollmentId", null),
+    ATTENDANCE("Attendance", null, null);
+
+    private final String tableName;
+    private final String serialColumn;
+    private final EntityType entityType;
+
+    SnapshotTable(String tableName, String serialColumn, EntityType entityType) {
+        this.tableName = tableName;
+        this.serialColumn = serialColumn;
+        this.entityType = entityType;
+    }
+
+    /**
+     * Gets the table's name in the database.
+     * @return the table name
+     */
+    public String getTableName() {
+        return tableName;
+    }
+
+    /**
+     * Gets the column whose sequence must be moved past the restored ids.
+     * @return the serial column, or null if the table has none
+     */
+    String getSerialColumn() {
+        return serialColumn;
+    }
+
+    /**
+     * Gets the entity whose caches must be reloaded after a restore.
+     * @return the entity type, or null if no cache is derived from the table
+     */
+    EntityType getEntityType() {
+        return entityType;
+    }
+
+    /**
+     * Finds a table by its database name.
+     * @param tableName The table name, in any case
+     * @return the table
+     * @throws IllegalArgumentException if no snapshot table has that name
+     */
+    static SnapshotTable fromTableName(String tableName) {
+        for (SnapshotTable table : values()) {
+            if (table.tableName.equalsIgnoreCase(tableName)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("Unknown snapshot table: " + tableName);
+    }
+}
@@ -0,0 +1,155 @@
+package user;
+
+import database.AsyncExecutor;
+import database.PerThread;
+import database.SqlFunction;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking variant of {@link UserService}. Every method returns at once with a
+ * {@link CompletableFuture}; the work runs on an {@link AsyncExecutor}'s I/O threads, each with its
+ * own UserService and therefore its own connection. Futures complete exceptionally with the
+ * exception the blocking method would have thrown.
+ */
+public class AsyncUserService {
+    private final AsyncExecutor executor;
+    private final PerThread<UserService> services = new PerThread<>(UserService::new);
+
+    /**
+     * Constructs an AsyncUserService on the shared executor.
+     */
+    public AsyncUserService() {
+        this(AsyncExecutor.getShared());
+    }
+
+    /**
+     * Constructs an AsyncUserService on the given executor.
+     * @param executor The executor whose threads run the calls
+     */
+    public AsyncUserService(AsyncExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Registers a new user; see {@link UserService#registerUser}.
+     * @param userName    The user's name or username
+     * @param password    The user's password
+     * @param email       The user's email address
+     * @param phoneNumber The user's phone number
+     * @param address     The user's address
+     * @param role        The user's role (ADMIN, TRAINER, MEMBER)
+     * @return a future of the created User object
+     */
+    public CompletableFuture<User> registerUser(String userName, String password, String email, String phoneNumber,
+                                                String address, String role) {
+        return call(service -> service.registerUser(userName, password, email, phoneNumber, address, role));
+    }
+
+    /**
+     * Authenticates a user; see {@link UserService#login}.
+     * @param username The user's username
+     * @param password The user's password
+     * @return a future of the authenticated User object
+     */
+    public CompletableFuture<User> login(String username, String password) {
+        return call(service -> service.login(username, password));
+    }
+
+    /**
+     * Retrieves a user by id; see {@link UserService#getUserById}.
+     * @param userId The user's unique identifier
+     * @return a future of the User object
+     */
+    public CompletableFuture<User> getUserById(int userId) {
+        return call(service -> service.getUserById(userId));
+    }
+
+    /**
+     * Retrieves several users with a single query; see {@link UserService#getUsersByIds}.
+     * @param userIds The users' unique identifiers
+     * @return a future of the User objects in the same order as the given ids
+     */
+    public CompletableFuture<List<User>> getUsersByIds(Collection<Integer> userIds) {
+        return call(service -> service.getUsersByIds(userIds));
+    }
+
+    /**
+     * Searches users by name, email or phone number; see {@link UserService#searchUsers}.
+     * @param text  The text to look for
+     * @param limit The maximum number of users to return
+     * @return a future of the matching User objects
+     */
+    public CompletableFuture<List<User>> searchUsers(String text, int limit) {
+        return call(service -> service.searchUsers(text, limit));
+    }
+
+    /**
+     * Suggests users whose details start with the typed text; see {@link UserService#suggestUsers}.
+     * @param prefix The typed text
+     * @param limit  The maximum number of users to return
+     * @return a future of the matching User objects
+     */
+    public CompletableFuture<List<User>> suggestUsers(String prefix, int limit) {
+        return call(service -> service.suggestUsers(prefix, limit));
+    }
+
+    /**
+     * Retrieves all users; see {@link UserService#getAllUsers}.
+     * @return a future of all User objects
+     */
+    public CompletableFuture<List<User>> getAllUsers() {
+        return call(UserService::getAllUsers);
+    }
+
+    /**
+     * Updates a user's details; see {@link UserService#updateUser(User)}.
+     * @param user The User object with updated details and the rowVersion it was read at
+     * @return a future of whether the update was successful
+     */
+    public CompletableFuture<Boolean> updateUser(User user) {
+        return call(service -> service.updateUser(user));
+    }
+
+    /**
+     * Reads, edits and saves a user with retries on conflicts; see {@link UserService#updateUser(int, Consumer)}.
+     * @param userId The user's unique identifier
+     * @param edit   The change to make; it may run more than once, on an I/O thread
+     * @return a future of the updated User object
+     */
+    public CompletableFuture<User> updateUser(int userId, Consumer<User> edit) {
+        return call(service -> service.updateUser(userId, edit));
+    }
+
+    /**
+     * Updates a user's password; see {@link UserService#updatePassword}.
+     * @param userId      The user's unique identifier
+     * @param newPassword The new password to set
+     * @return a future of whether the update was successful
+     */
+    public CompletableFuture<Boolean> updatePassword(int userId, String newPassword) {
+        return call(service -> service.updatePassword(userId, newPassword));
+    }
+
+    /**
+     * Deletes a user; see {@link UserService#deleteUser}.
+     * @param userId The user's unique identifier
+     * @return a future of true once the user is deleted
+     */
+    public CompletableFuture<Boolean> deleteUser(int userId) {
+        return call(service -> service.deleteUser(userId));
+    }
+
+    /**
+     * Runs a call on an I/O thread against that thread's UserService.
+     * @param call The blocking call
+     * @param <T>  The call's result type
+     * @return a future of the call's result
+     */
+    private <T> CompletableFuture<T> call(SqlFunction<UserService, T> call) {
+        return executor.submit(() -> call.apply(services.get()));
+    }
+}
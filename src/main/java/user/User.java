@@ -13,6 +13,7 @@ public class User {
     private String phoneNumber;
     private String address;
     private String userRole;
+    private int rowVersion;
 
     /**
      * Default constructor for User.
@@ -154,6 +155,22 @@ public class User {
         this.userRole = userRole;
     }
 
+    /**
+     * Gets the version of the user row this object was read at, used to detect concurrent edits.
+     * @return the rowVersion
+     */
+    public int getRowVersion() {
+        return rowVersion;
+    }
+
+    /**
+     * Sets the version of the user row this object was read at.
+     * @param rowVersion the rowVersion to set
+     */
+    public void setRowVersion(int rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     /**
      * Returns a string representation of the User object.
      * @return a string with user details
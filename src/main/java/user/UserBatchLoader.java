@@ -0,0 +1,158 @@
+package user;
+
+import database.TransientRetry;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Request-scoped batching loader for user lookups.
+ * Callers queue the user ids they need with {@link #load(int)} and receive a future for each one.
+ * Calling {@link #dispatch()} resolves every queued id with a single query, so code that would
+ * otherwise loop over {@link UserService#getUserById(int)} costs one round trip instead of one per id.
+ * Repeated requests for the same id share a single future for the lifetime of the loader,
+ * so a loader should be created per request (or per menu action) and then discarded.
+ */
+public class UserBatchLoader {
+    /** Upper bound on the number of ids sent in one {@code ANY(?)} array. */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final UserDAO userDAO;
+    private final Map<Integer, CompletableFuture<User>> futures = new HashMap<>();
+    private final Set<Integer> queued = new LinkedHashSet<>();
+
+    /**
+     * Constructs a UserBatchLoader that resolves ids through the given UserDAO.
+     * @param userDAO The DAO used to run the batched query
+     */
+    UserBatchLoader(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    /**
+     * Queues a user id for loading. The returned future completes on the next {@link #dispatch()},
+     * either with the User or exceptionally with an IllegalArgumentException if no such user exists.
+     * @param userId The user's unique identifier
+     * @return A future for the requested User
+     */
+    public synchronized CompletableFuture<User> load(int userId) {
+        CompletableFuture<User> future = futures.get(userId);
+        if (future == null) {
+            future = new CompletableFuture<>();
+            futures.put(userId, future);
+            queued.add(userId);
+        }
+        return future;
+    }
+
+    /**
+     * Queues several user ids for loading.
+     * @param userIds The user ids to load; duplicates are collapsed
+     * @return A future that completes with the users in the same order as the given ids
+     */
+    public CompletableFuture<List<User>> loadMany(Collection<Integer> userIds) {
+        List<CompletableFuture<User>> pending = new ArrayList<>();
+        for (int userId : userIds) {
+            pending.add(load(userId));
+        }
+        return CompletableFuture.allOf(pending.toArray(new CompletableFuture<?>[0]))
+                .thenApply(ignored -> {
+                    List<User> users = new ArrayList<>(pending.size());
+                    for (CompletableFuture<User> future : pending) {
+                        users.add(future.join());
+                    }
+                    return users;
+                });
+    }
+
+    /**
+     * Resolves every queued id with as few queries as possible and completes their futures.
+     * Lost connections are retried as for {@link UserService#getUserById(int)}. If the query
+     * still fails, every future in the failed batch completes exceptionally and the
+     * SQLException is rethrown to the caller.
+     * @throws SQLException if a database access error occurs
+     */
+    public void dispatch() throws SQLException {
+        List<Integer> batch;
+        synchronized (this) {
+            if (queued.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(queued);
+            queued.clear();
+        }
+
+        for (int start = 0; start < batch.size(); start += MAX_BATCH_SIZE) {
+            List<Integer> chunk = batch.subList(start, Math.min(start + MAX_BATCH_SIZE, batch.size()));
+            Map<Integer, User> usersById = new HashMap<>();
+            try {
+                // Retried and guarded by the circuit breaker like every other UserService read
+                for (User user : TransientRetry.read(() -> userDAO.getUsersByIds(chunk))) {
+                    usersById.put(user.getUserId(), user);
+                }
+            } catch (SQLException e) {
+                failAll(batch.subList(start, batch.size()), e);
+                throw e;
+            }
+            completeChunk(chunk, usersById);
+        }
+    }
+
+    /**
+     * Convenience method that queues the ids, dispatches immediately and returns the users.
+     * @param userIds The user ids to load
+     * @return The users in the same order as the given ids
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if any of the users is not found
+     */
+    public List<User> loadAll(Collection<Integer> userIds) throws SQLException {
+        CompletableFuture<List<User>> users = loadMany(userIds);
+        dispatch();
+        try {
+            return users.join();
+        } catch (RuntimeException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                throw (IllegalArgumentException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Completes the futures of one resolved chunk.
+     * @param chunk     The ids that were queried
+     * @param usersById The users that were found, keyed by userId
+     */
+    private synchronized void completeChunk(List<Integer> chunk, Map<Integer, User> usersById) {
+        for (int userId : chunk) {
+            User user = usersById.get(userId);
+            if (user != null) {
+                futures.get(userId).complete(user);
+            } else {
+                futures.get(userId).completeExceptionally(new IllegalArgumentException("User not found"));
+            }
+        }
+    }
+
+    /**
+     * Fails the futures of ids that could not be resolved and forgets them,
+     * so that a later load of the same id issues a fresh query.
+     * @param userIds The ids whose lookup failed
+     * @param cause   The database error
+     */
+    private synchronized void failAll(List<Integer> userIds, SQLException cause) {
+        for (int userId : userIds) {
+            CompletableFuture<User> future = futures.remove(userId);
+            if (future != null) {
+                future.completeExceptionally(cause);
+            }
+        }
+    }
+}
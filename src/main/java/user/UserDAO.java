@@ -1,12 +1,19 @@
 package user;
 
-import database.DatabaseConnection;
+import database.ConnectionRouter;
+import database.Deadline;
+import database.EntityType;
+import database.MutationOutcome;
+import database.StaleRowException;
+import journal.EventJournal;
+import journal.JournalEvent;
 import models.Admin;
 import models.Trainer;
 import models.Member;
 import org.mindrot.jbcrypt.BCrypt;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -14,14 +21,14 @@ import java.util.List;
  * Handles CRUD operations and authentication for users in the Gym Management System.
  */
 public class UserDAO {
-    private final Connection connection;
+    private final ConnectionRouter router;
 
     /**
-     * Constructs a UserDAO and establishes a database connection.
+     * Constructs a UserDAO and connects to the primary database and any configured read replicas.
      * @throws SQLException if a database access error occurs
      */
     public UserDAO() throws SQLException {
-        this.connection = DatabaseConnection.getConnection();
+        this.router = new ConnectionRouter();
     }
 
     /**
@@ -31,9 +38,10 @@ public class UserDAO {
      * @throws SQLException if a database access error occurs
      */
     public User createUser(User user) throws SQLException {
-        String sql = "INSERT INTO Users (userName, userPassword, userEmail, userPhoneNumber, userAddress, userRole) VALUES (?, ?, ?, ?, ?, ?) RETURNING userId";
+        Connection connection = router.forWrite();
+        String sql = "INSERT INTO Users (userName, userPassword, userEmail, userPhoneNumber, userAddress, userRole) VALUES (?, ?, ?, ?, ?, ?) RETURNING userId, rowVersion";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setString(1, user.getUserName());
             stmt.setString(2, BCrypt.hashpw(user.getPassword(), BCrypt.gensalt()));
             stmt.setString(3, user.getEmail());
@@ -44,6 +52,8 @@ public class UserDAO {
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 user.setUserId(rs.getInt("userId"));
+                user.setRowVersion(rs.getInt("rowVersion"));
+                recordChange(1, JournalEvent.Operation.CREATE, user.getUserId(), toPayload(user));
                 return user;
             }
         }
@@ -57,9 +67,10 @@ public class UserDAO {
      * @throws SQLException if a database access error occurs
      */
     public User getUserById(int userId) throws SQLException {
+        Connection connection = router.forRead();
         String sql = "SELECT * FROM Users WHERE userId = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, userId);
             ResultSet rs = stmt.executeQuery();
             
@@ -70,6 +81,34 @@ public class UserDAO {
         return null;
     }
 
+    /**
+     * Retrieves every user whose userId is in the given collection using a single query.
+     * Ids that do not match a user are simply absent from the result.
+     * @param userIds The user ids to look up
+     * @return A list of the matching User objects, in no particular order
+     * @throws SQLException if a database access error occurs
+     */
+    public List<User> getUsersByIds(Collection<Integer> userIds) throws SQLException {
+        Connection connection = router.forRead();
+        List<User> users = new ArrayList<>();
+        if (userIds.isEmpty()) {
+            return users;
+        }
+        String sql = "SELECT * FROM Users WHERE userId = ANY(?)";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            Array ids = connection.createArrayOf("integer", userIds.toArray());
+            stmt.setArray(1, ids);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                users.add(createUserFromResultSet(rs));
+            }
+            ids.free();
+        }
+        return users;
+    }
+
     /**
      * Retrieves a user by their username.
      * @param username The user's username
@@ -77,9 +116,10 @@ public class UserDAO {
      * @throws SQLException if a database access error occurs
      */
     public User getUserByUsername(String username) throws SQLException {
+        Connection connection = router.forRead();
         String sql = "SELECT * FROM Users WHERE userName = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
             
@@ -90,16 +130,56 @@ public class UserDAO {
         return null;
     }
 
+    /**
+     * Searches users by name, email and phone number, served by the trigram indexes on those columns.
+     * Phone numbers are compared as digits only, so "(555) 01" finds "555-0100"; they are only
+     * searched when the text has no letters. Users whose name, email or phone starts with the text
+     * come first.
+     * @param text       The text to look for
+     * @param prefixOnly Whether to match only values that start with the text rather than contain it
+     * @param limit      The maximum number of users to return
+     * @return The matching User objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<User> searchUsers(String text, boolean prefixOnly, int limit) throws SQLException {
+        Connection connection = router.forRead();
+        List<User> users = new ArrayList<>();
+        String sql = "SELECT * FROM Users WHERE lower(userName) LIKE ? OR lower(userEmail) LIKE ? OR userPhoneDigits LIKE ? " +
+                    "ORDER BY (lower(userName) LIKE ? OR lower(userEmail) LIKE ? OR userPhoneDigits LIKE ?) DESC, userName LIMIT ?";
+
+        String term = escapeLike(text.trim().toLowerCase());
+        String digits = text.replaceAll("\\D", "");
+        boolean phoneSearch = !digits.isEmpty() && text.chars().noneMatch(Character::isLetter);
+        String anywhere = prefixOnly ? "" : "%";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setString(1, anywhere + term + "%");
+            stmt.setString(2, anywhere + term + "%");
+            stmt.setString(3, phoneSearch ? anywhere + digits + "%" : null);
+            stmt.setString(4, term + "%");
+            stmt.setString(5, term + "%");
+            stmt.setString(6, phoneSearch ? digits + "%" : null);
+            stmt.setInt(7, limit);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                users.add(createUserFromResultSet(rs));
+            }
+        }
+        return users;
+    }
+
     /**
      * Retrieves all users from the database.
      * @return A list of all User objects
      * @throws SQLException if a database access error occurs
      */
     public List<User> getAllUsers() throws SQLException {
+        Connection connection = router.forRead();
         List<User> users = new ArrayList<>();
         String sql = "SELECT * FROM Users";
         
-        try (Statement stmt = connection.createStatement();
+        try (Statement stmt = Deadline.apply(connection.createStatement());
              ResultSet rs = stmt.executeQuery(sql)) {
             
             while (rs.next()) {
@@ -110,23 +190,42 @@ public class UserDAO {
     }
 
     /**
-     * Updates an existing user's details (except password) in the database.
-     * @param user The User object with updated details
-     * @return true if the update was successful, false otherwise
+     * Updates an existing user's details (except password) in the database, provided the stored row
+     * is still at the version the user was read at. On success the user's version is advanced.
+     * @param user The User object with updated details and the rowVersion it was read at
+     * @return true if the update was successful, false if the user does not exist
+     * @throws StaleRowException if someone else changed the user since it was read
      * @throws SQLException if a database access error occurs
      */
     public boolean updateUser(User user) throws SQLException {
-        String sql = "UPDATE Users SET userName = ?, userEmail = ?, userPhoneNumber = ?, userAddress = ?, userRole = ? WHERE userId = ?";
+        Connection connection = router.forWrite();
+        String sql = "WITH target AS (SELECT rowVersion FROM Users WHERE userId = ?), " +
+                    "changed AS (UPDATE Users SET userName = ?, userEmail = ?, userPhoneNumber = ?, userAddress = ?, userRole = ?, " +
+                    "rowVersion = rowVersion + 1 WHERE userId = ? AND rowVersion = ? RETURNING rowVersion) " +
+                    "SELECT (SELECT rowVersion FROM target) AS currentVersion, (SELECT rowVersion FROM changed) AS newVersion";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, user.getUserName());
-            stmt.setString(2, user.getEmail());
-            stmt.setString(3, user.getPhoneNumber());
-            stmt.setString(4, user.getAddress());
-            stmt.setString(5, user.getUserRole());
-            stmt.setInt(6, user.getUserId());
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, user.getUserId());
+            stmt.setString(2, user.getUserName());
+            stmt.setString(3, user.getEmail());
+            stmt.setString(4, user.getPhoneNumber());
+            stmt.setString(5, user.getAddress());
+            stmt.setString(6, user.getUserRole());
+            stmt.setInt(7, user.getUserId());
+            stmt.setInt(8, user.getRowVersion());
             
-            return stmt.executeUpdate() > 0;
+            ResultSet rs = stmt.executeQuery();
+            rs.next();
+            int newVersion = rs.getInt("newVersion");
+            if (!rs.wasNull()) {
+                user.setRowVersion(newVersion);
+                return recordChange(1, JournalEvent.Operation.UPDATE, user.getUserId(), toPayload(user));
+            }
+            int currentVersion = rs.getInt("currentVersion");
+            if (rs.wasNull()) {
+                return false;
+            }
+            throw new StaleRowException(EntityType.USER, user.getUserId(), user.getRowVersion(), currentVersion);
         }
     }
 
@@ -138,41 +237,50 @@ public class UserDAO {
      * @throws SQLException if a database access error occurs
      */
     public boolean updatePassword(int userId, String newPassword) throws SQLException {
-        String sql = "UPDATE Users SET userPassword = ? WHERE userId = ?";
+        Connection connection = router.forWrite();
+        String sql = "UPDATE Users SET userPassword = ?, rowVersion = rowVersion + 1 WHERE userId = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setString(1, BCrypt.hashpw(newPassword, BCrypt.gensalt()));
             stmt.setInt(2, userId);
             
-            return stmt.executeUpdate() > 0;
+            return recordChange(stmt.executeUpdate(), JournalEvent.Operation.UPDATE, userId,
+                    JournalEvent.payloadOf("userId", userId, "passwordChanged", true));
         }
     }
 
     /**
      * Deletes a user from the database.
-     * Prevents deletion of admin users.
+     * Prevents deletion of admin users; the role check is part of the DELETE, so it takes one round trip.
      * @param userId The user's unique identifier
-     * @return true if the user was deleted, false otherwise
+     * @return APPLIED, NOT_FOUND, or UNAUTHORIZED if the user is an admin
      * @throws SQLException if a database access error occurs
-     * @throws IllegalArgumentException if attempting to delete an admin user
      */
-    public boolean deleteUser(int userId) throws SQLException {
-        // Check if user is admin before deleting
-        String checkSql = "SELECT userRole FROM Users WHERE userId = ?";
-        try (PreparedStatement checkStmt = connection.prepareStatement(checkSql)) {
-            checkStmt.setInt(1, userId);
-            ResultSet rs = checkStmt.executeQuery();
-            
-            if (rs.next() && rs.getString("userRole").equals("ADMIN")) {
-                throw new IllegalArgumentException("Cannot delete admin user");
-            }
-        }
+    public MutationOutcome deleteUser(int userId) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "WITH target AS (SELECT userRole FROM Users WHERE userId = ?), " +
+                    "removed AS (DELETE FROM Users WHERE userId = ? AND userRole <> 'ADMIN' RETURNING userId) " +
+                    "SELECT (SELECT userRole FROM target) AS userRole, (SELECT COUNT(*) FROM removed) AS affected";
 
-        String sql = "DELETE FROM Users WHERE userId = ?";
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        MutationOutcome outcome;
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, userId);
-            return stmt.executeUpdate() > 0;
+            stmt.setInt(2, userId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                String role = rs.getString("userRole");
+                if (rs.getLong("affected") > 0) {
+                    outcome = MutationOutcome.APPLIED;
+                } else if ("ADMIN".equals(role)) {
+                    outcome = MutationOutcome.UNAUTHORIZED;
+                } else {
+                    // Missing, or deleted by someone else after the statement's snapshot was taken
+                    outcome = MutationOutcome.NOT_FOUND;
+                }
+            }
         }
+        recordChange(outcome == MutationOutcome.APPLIED ? 1 : 0, JournalEvent.Operation.DELETE, userId, "");
+        return outcome;
     }
 
     /**
@@ -183,9 +291,10 @@ public class UserDAO {
      * @throws SQLException if a database access error occurs
      */
     public boolean verifyPassword(String username, String password) throws SQLException {
+        Connection connection = router.forRead();
         String sql = "SELECT userPassword FROM Users WHERE userName = ?";
         
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setString(1, username);
             ResultSet rs = stmt.executeQuery();
             
@@ -197,6 +306,47 @@ public class UserDAO {
         return false;
     }
 
+    /**
+     * Escapes LIKE wildcards so user input is matched literally.
+     * @param text The raw text
+     * @return the text with backslashes, percent signs and underscores escaped
+     */
+    private static String escapeLike(String text) {
+        return text.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    /**
+     * Records a user change in the event journal if any row was affected. Other nodes are told
+     * about the change by the table's notify_change trigger, as part of the mutation itself.
+     * @param rowsAffected The update count of the mutation
+     * @param operation    The kind of mutation
+     * @param userId       The user's unique identifier
+     * @param payload      A JSON description of the user's new state
+     * @return true if any row was affected
+     */
+    private boolean recordChange(int rowsAffected, JournalEvent.Operation operation, int userId, String payload) {
+        if (rowsAffected > 0) {
+            EventJournal.record(EntityType.USER, operation, userId, payload);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Describes a user for the event journal, leaving out the password hash.
+     * @param user The user
+     * @return the JSON payload
+     */
+    private static String toPayload(User user) {
+        return JournalEvent.payloadOf(
+                "userId", user.getUserId(),
+                "userName", user.getUserName(),
+                "userEmail", user.getEmail(),
+                "userPhoneNumber", user.getPhoneNumber(),
+                "userAddress", user.getAddress(),
+                "userRole", user.getUserRole());
+    }
+
     /**
      * Creates a User object from a ResultSet row.
      * Determines the user role and instantiates the correct subclass.
@@ -229,6 +379,7 @@ public class UserDAO {
         user.setPhoneNumber(rs.getString("userPhoneNumber"));
         user.setAddress(rs.getString("userAddress"));
         user.setUserRole(rs.getString("userRole"));
+        user.setRowVersion(rs.getInt("rowVersion"));
 
         return user;
     }
@@ -0,0 +1,280 @@
+package user;
+
+import database.CacheInvalidator;
+import database.ConnectionRouter;
+import database.EntityType;
+
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * In-memory prefix trie over every user's lower-cased name, lower-cased email and phone digits,
+ * for sub-millisecond front-desk type-ahead. A lookup walks the typed prefix and then visits the
+ * subtree breadth-first, so the shortest (closest) completions come first and the walk stops as
+ * soon as enough users are found.
+ *
+ * <p>Only each user's id, name, email and phone number are kept, never password hashes or other
+ * details, and every lookup returns fresh {@link User} copies holding just those fields.</p>
+ *
+ * <p>The trie is optional; the trigram-indexed database search remains the reference. It is kept
+ * current by the user service on this node and by change notifications from other nodes.</p>
+ */
+public class UserSearchTrie implements CacheInvalidator {
+    private final UserDAO userDAO;
+    private final Node root = new Node();
+    private final Map<Integer, Entry> entries = new HashMap<>();
+
+    /**
+     * Constructs an empty UserSearchTrie that reloads users through the given DAO.
+     * @param userDAO The DAO used to load and refresh users
+     */
+    public UserSearchTrie(UserDAO userDAO) {
+        this.userDAO = userDAO;
+    }
+
+    /**
+     * Replaces the trie contents with every user in the database.
+     * @throws SQLException if a database access error occurs
+     */
+    public void reload() throws SQLException {
+        List<User> all = ConnectionRouter.readFromPrimary(userDAO::getAllUsers);
+        synchronized (this) {
+            root.children.clear();
+            root.userIds.clear();
+            entries.clear();
+            for (User user : all) {
+                put(user);
+            }
+        }
+    }
+
+    /**
+     * Finds users whose name, email or phone number starts with the given text.
+     * Phone numbers are matched on digits, and only when the text has no letters.
+     * @param prefix The typed text
+     * @param limit  The maximum number of users to return
+     * @return Copies of the matching users holding only their id, name, email and phone number,
+     *         closest completions first
+     */
+    public synchronized List<User> findByPrefix(String prefix, int limit) {
+        Set<Integer> found = new LinkedHashSet<>();
+        collect(prefix.trim().toLowerCase(), limit, found);
+        String digits = prefix.replaceAll("\\D", "");
+        if (!digits.isEmpty() && prefix.chars().noneMatch(Character::isLetter)) {
+            collect(digits, limit, found);
+        }
+
+        List<User> result = new ArrayList<>(found.size());
+        for (int userId : found) {
+            result.add(entries.get(userId).toUser());
+        }
+        return result;
+    }
+
+    /**
+     * Adds a user, or re-indexes them after their name, email or phone number changed.
+     * @param user The user with their current details
+     */
+    public synchronized void put(User user) {
+        remove(user.getUserId());
+        Entry entry = new Entry(user);
+        entries.put(entry.userId, entry);
+        for (String key : entry.keys()) {
+            Node node = root;
+            for (int i = 0; i < key.length(); i++) {
+                node = node.children.computeIfAbsent(key.charAt(i), c -> new Node());
+            }
+            node.userIds.add(user.getUserId());
+        }
+    }
+
+    /**
+     * Removes a user from the trie, pruning branches that no longer lead to any user.
+     * @param userId The user's unique identifier
+     */
+    public synchronized void remove(int userId) {
+        Entry entry = entries.remove(userId);
+        if (entry == null) {
+            return;
+        }
+        for (String key : entry.keys()) {
+            removeKey(root, key, 0, userId);
+        }
+    }
+
+    /**
+     * Refreshes one user after they were changed on this or another node.
+     * @param type The kind of entity that changed
+     * @param id   The entity's unique identifier
+     */
+    @Override
+    public void invalidate(EntityType type, int id) {
+        if (type != EntityType.USER) {
+            return;
+        }
+        try {
+            User user = ConnectionRouter.readFromPrimary(() -> userDAO.getUserById(id));
+            if (user == null) {
+                remove(id);
+            } else {
+                put(user);
+            }
+        } catch (SQLException e) {
+            remove(id);
+        }
+    }
+
+    /**
+     * Rebuilds the whole trie after change notifications may have been missed.
+     */
+    @Override
+    public void invalidateAll() {
+        try {
+            reload();
+        } catch (SQLException e) {
+            System.err.println("Could not reload user search: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Rebuilds the trie after a bulk change to users.
+     * @param type The kind of entity that changed
+     */
+    @Override
+    public void invalidateAll(EntityType type) {
+        if (type == EntityType.USER) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Adds the ids stored under a prefix to the result, breadth-first, until the limit is reached.
+     * @param prefix The normalized prefix
+     * @param limit  The maximum number of ids in the result
+     * @param found  The ids found so far, in result order
+     */
+    private void collect(String prefix, int limit, Set<Integer> found) {
+        if (prefix.isEmpty()) {
+            return;
+        }
+        Node node = root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        Queue<Node> queue = new ArrayDeque<>();
+        if (node != null) {
+            queue.add(node);
+        }
+        while (!queue.isEmpty() && found.size() < limit) {
+            Node next = queue.remove();
+            for (int userId : next.userIds) {
+                if (found.size() >= limit) {
+                    return;
+                }
+                found.add(userId);
+            }
+            queue.addAll(next.children.values());
+        }
+    }
+
+    /**
+     * Removes a user's id from the node at the end of a key.
+     * @param node   The node reached so far
+     * @param key    The normalized key
+     * @param depth  The number of key characters consumed to reach the node
+     * @param userId The user's unique identifier
+     * @return true if the node is now empty and can be pruned
+     */
+    private static boolean removeKey(Node node, String key, int depth, int userId) {
+        if (depth == key.length()) {
+            node.userIds.remove(userId);
+        } else {
+            Node child = node.children.get(key.charAt(depth));
+            if (child != null && removeKey(child, key, depth + 1, userId)) {
+                node.children.remove(key.charAt(depth));
+            }
+        }
+        return node.userIds.isEmpty() && node.children.isEmpty();
+    }
+
+    /**
+     * Copies the fields of a user that suggestions show, leaving out the password hash, address and role.
+     * @param user The user
+     * @return a new User holding only the id, name, email and phone number
+     */
+    static User suggestionOf(User user) {
+        return new Entry(user).toUser();
+    }
+
+    /**
+     * The fields the trie keeps for one user.
+     */
+    private static final class Entry {
+        private final int userId;
+        private final String userName;
+        private final String email;
+        private final String phoneNumber;
+
+        /**
+         * Copies the searchable fields of a user.
+         * @param user The user
+         */
+        private Entry(User user) {
+            this.userId = user.getUserId();
+            this.userName = user.getUserName();
+            this.email = user.getEmail();
+            this.phoneNumber = user.getPhoneNumber();
+        }
+
+        /**
+         * Creates a new User holding this entry's fields, so callers never share or see stored state.
+         * @return the user copy
+         */
+        private User toUser() {
+            User user = new User();
+            user.setUserId(userId);
+            user.setUserName(userName);
+            user.setEmail(email);
+            user.setPhoneNumber(phoneNumber);
+            return user;
+        }
+
+        /**
+         * Gets the normalized keys the user can be found by.
+         * @return the lower-cased name and email, and the phone digits
+         */
+        private List<String> keys() {
+            List<String> keys = new ArrayList<>(3);
+            if (userName != null) {
+                keys.add(userName.toLowerCase());
+            }
+            if (email != null) {
+                keys.add(email.toLowerCase());
+            }
+            if (phoneNumber != null) {
+                String digits = phoneNumber.replaceAll("\\D", "");
+                if (!digits.isEmpty()) {
+                    keys.add(digits);
+                }
+            }
+            return keys;
+        }
+    }
+
+    /**
+     * One character position in the trie.
+     */
+    private static final class Node {
+        private final Map<Character, Node> children = new HashMap<>();
+        // Sorted so equally close completions come back in a stable order
+        private final Set<Integer> userIds = new TreeSet<>();
+    }
+}
@@ -1,18 +1,32 @@
 package user;
 
+import admission.AdmissionController;
+import admission.AdmissionRejectedException;
+import database.ChangeListener;
+import database.OptimisticRetry;
+import database.StaleRowException;
+import database.TransactionManager;
+import database.TransientRetry;
 import models.Admin;
 import models.Trainer;
 import models.Member;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service class for user-related business logic in the Gym Management System.
  * Handles registration, authentication, retrieval, update, and deletion of users.
  */
 public class UserService {
+    /** Searches shorter than this match only the start of names, emails and phone numbers. */
+    private static final int MIN_CONTAINS_LENGTH = 3;
+
     private final UserDAO userDAO;
+    private volatile UserSearchTrie searchTrie;
 
     /**
      * Constructs a UserService and initializes the UserDAO.
@@ -22,6 +36,21 @@ public class UserService {
         this.userDAO = new UserDAO();
     }
 
+    /**
+     * Loads every user into an in-memory prefix trie so {@link #suggestUsers} answers without a
+     * database round trip. The trie follows changes made on this and other nodes.
+     * @throws SQLException if a database access error occurs
+     */
+    public synchronized void enableTypeAhead() throws SQLException {
+        if (searchTrie != null) {
+            return;
+        }
+        UserSearchTrie trie = new UserSearchTrie(userDAO);
+        trie.reload();
+        ChangeListener.getInstance().register(trie);
+        searchTrie = trie;
+    }
+
     /**
      * Registers a new user with the specified details and role.
      * Throws an exception if the username is already taken or the role is invalid.
@@ -37,7 +66,7 @@ public class UserService {
      */
     public User registerUser(String userName, String password, String email, String phoneNumber, String address, String role) throws SQLException {
         // Check if username already exists
-        if (userDAO.getUserByUsername(userName) != null) {
+        if (TransientRetry.read(() -> userDAO.getUserByUsername(userName)) != null) {
             throw new IllegalArgumentException("Username already exists");
         }
 
@@ -65,7 +94,13 @@ public class UserService {
         user.setAddress(address);
 
         // Create user in database
-        return userDAO.createUser(user);
+        User created = userDAO.createUser(user);
+        UserSearchTrie trie = searchTrie;
+        if (created != null && trie != null) {
+            // Inside a transaction, other threads must not find the user until it commits
+            TransactionManager.afterCommit(() -> trie.put(created));
+        }
+        return created;
     }
 
     /**
@@ -73,14 +108,17 @@ public class UserService {
      * @param username The user's username
      * @param password The user's password
      * @return The authenticated User object
+     * @throws AdmissionRejectedException if too many logins were attempted for the username or overall
      * @throws SQLException if a database access error occurs
      * @throws IllegalArgumentException if authentication fails
      */
     public User login(String username, String password) throws SQLException {
-        if (!userDAO.verifyPassword(username, password)) {
-            throw new IllegalArgumentException("Invalid username or password");
-        }
-        return userDAO.getUserByUsername(username);
+        return AdmissionController.getInstance().admit(AdmissionController.Operation.LOGIN, username, () -> {
+            if (!TransientRetry.read(() -> userDAO.verifyPassword(username, password))) {
+                throw new IllegalArgumentException("Invalid username or password");
+            }
+            return TransientRetry.read(() -> userDAO.getUserByUsername(username));
+        });
     }
 
     /**
@@ -91,30 +129,115 @@ public class UserService {
      * @throws IllegalArgumentException if the user is not found
      */
     public User getUserById(int userId) throws SQLException {
-        User user = userDAO.getUserById(userId);
+        User user = TransientRetry.read(() -> userDAO.getUserById(userId));
         if (user == null) {
             throw new IllegalArgumentException("User not found");
         }
         return user;
     }
 
+    /**
+     * Retrieves several users by their userIds with a single query.
+     * @param userIds The users' unique identifiers
+     * @return The User objects in the same order as the given ids
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if any of the users is not found
+     */
+    public List<User> getUsersByIds(Collection<Integer> userIds) throws SQLException {
+        return newBatchLoader().loadAll(userIds);
+    }
+
+    /**
+     * Creates a request-scoped loader that batches user lookups into a single query.
+     * Use one loader per request and call {@link UserBatchLoader#dispatch()} once all ids are queued.
+     * @return A new UserBatchLoader backed by this service's DAO
+     */
+    public UserBatchLoader newBatchLoader() {
+        return new UserBatchLoader(userDAO);
+    }
+
+    /**
+     * Searches users whose name, email or phone number contains the text, for front desk lookups.
+     * Phone numbers are compared on digits only, so any formatting matches. Text shorter than
+     * three characters only matches the start of a value.
+     * @param text  The text to look for
+     * @param limit The maximum number of users to return
+     * @return The matching User objects, those starting with the text first
+     * @throws SQLException if a database access error occurs
+     */
+    public List<User> searchUsers(String text, int limit) throws SQLException {
+        if (text == null || text.isBlank()) {
+            return new ArrayList<>();
+        }
+        return AdmissionController.getInstance().admit(AdmissionController.Operation.SEARCH,
+                () -> TransientRetry.read(() -> userDAO.searchUsers(text, text.trim().length() < MIN_CONTAINS_LENGTH, limit)));
+    }
+
+    /**
+     * Suggests users whose name, email or phone number starts with the typed text.
+     * Served from memory once {@link #enableTypeAhead()} has been called, otherwise from the database.
+     * @param prefix The typed text
+     * @param limit  The maximum number of users to return
+     * @return The matching User objects, holding only their id, name, email and phone number
+     * @throws SQLException if a database access error occurs
+     */
+    public List<User> suggestUsers(String prefix, int limit) throws SQLException {
+        if (prefix == null || prefix.isBlank()) {
+            return new ArrayList<>();
+        }
+        UserSearchTrie trie = searchTrie;
+        if (trie != null) {
+            return trie.findByPrefix(prefix, limit);
+        }
+        List<User> users = TransientRetry.read(() -> userDAO.searchUsers(prefix, true, limit));
+        users.replaceAll(UserSearchTrie::suggestionOf);
+        return users;
+    }
+
     /**
      * Retrieves all users from the database.
      * @return A list of all User objects
      * @throws SQLException if a database access error occurs
      */
     public List<User> getAllUsers() throws SQLException {
-        return userDAO.getAllUsers();
+        return AdmissionController.getInstance().admit(AdmissionController.Operation.LISTING, () -> TransientRetry.read(userDAO::getAllUsers));
     }
 
     /**
-     * Updates an existing user's details (except password).
-     * @param user The User object with updated details
+     * Updates an existing user's details (except password), if nobody changed them since they were read.
+     * @param user The User object with updated details and the rowVersion it was read at
      * @return true if the update was successful, false otherwise
+     * @throws StaleRowException if someone else changed the user since it was read
      * @throws SQLException if a database access error occurs
      */
     public boolean updateUser(User user) throws SQLException {
-        return userDAO.updateUser(user);
+        boolean updated = TransientRetry.write(() -> userDAO.updateUser(user));
+        UserSearchTrie trie = searchTrie;
+        if (updated && trie != null) {
+            TransactionManager.afterCommit(() -> trie.put(user));
+        }
+        return updated;
+    }
+
+    /**
+     * Reads a user, applies an edit and saves it, re-reading and re-applying the edit if someone
+     * else changed the user in between. No lock is held while the edit is applied.
+     * @param userId The user's unique identifier
+     * @param edit   The change to make; it may run more than once
+     * @return the updated User object
+     * @throws StaleRowException if the user kept changing for {@value OptimisticRetry#DEFAULT_ATTEMPTS} attempts
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the user is not found
+     */
+    public User updateUser(int userId, Consumer<User> edit) throws SQLException {
+        return OptimisticRetry.run(OptimisticRetry.DEFAULT_ATTEMPTS, () -> {
+            User user = getUserById(userId);
+            edit.accept(user);
+            if (!updateUser(user)) {
+                throw new IllegalArgumentException("User not found");
+            }
+            return user;
+        });
     }
 
     /**
@@ -125,21 +248,28 @@ public class UserService {
      * @throws SQLException if a database access error occurs
      */
     public boolean updatePassword(int userId, String newPassword) throws SQLException {
-        return userDAO.updatePassword(userId, newPassword);
+        return TransientRetry.write(() -> userDAO.updatePassword(userId, newPassword));
     }
 
     /**
      * Deletes a user by their userId, preventing deletion of admin users.
      * @param userId The user's unique identifier
-     * @return true if the user was deleted, false otherwise
+     * @return true if the user was deleted
      * @throws SQLException if a database access error occurs
-     * @throws IllegalArgumentException if attempting to delete an admin user
+     * @throws IllegalArgumentException if the user does not exist or is an admin
      */
     public boolean deleteUser(int userId) throws SQLException {
-        User user = getUserById(userId);
-        if (user.getUserRole().equals("ADMIN")) {
-            throw new IllegalArgumentException("Cannot delete admin user");
+        switch (TransientRetry.write(() -> userDAO.deleteUser(userId))) {
+            case NOT_FOUND:
+                throw new IllegalArgumentException("User not found");
+            case UNAUTHORIZED:
+                throw new IllegalArgumentException("Cannot delete admin user");
+            default:
+                UserSearchTrie trie = searchTrie;
+                if (trie != null) {
+                    TransactionManager.afterCommit(() -> trie.remove(userId));
+                }
+                return true;
         }
-        return userDAO.deleteUser(userId);
     }
 }
@@ -0,0 +1,183 @@
+package workout;
+
+import database.AsyncExecutor;
+import database.PerThread;
+import database.SqlFunction;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Non-blocking variant of {@link WorkoutClassService}. Every method returns at once with a
+ * {@link CompletableFuture}; the work runs on an {@link AsyncExecutor}'s I/O threads, each with its
+ * own WorkoutClassDAO and therefore its own connection. All threads share one schedule index,
+ * search cache and set of coalesced reads, so concurrent requests still collapse into one query
+ * and each change notification is applied once. Futures complete exceptionally with the exception
+ * the blocking method would have thrown.
+ */
+public class AsyncWorkoutClassService {
+    private final AsyncExecutor executor;
+    private WorkoutClassService shared;
+    private final PerThread<WorkoutClassService> services = new PerThread<>(() -> new WorkoutClassService(getShared()));
+
+    /**
+     * Constructs an AsyncWorkoutClassService on the shared executor.
+     */
+    public AsyncWorkoutClassService() {
+        this(AsyncExecutor.getShared());
+    }
+
+    /**
+     * Constructs an AsyncWorkoutClassService on the given executor.
+     * @param executor The executor whose threads run the calls
+     */
+    public AsyncWorkoutClassService(AsyncExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Constructs an AsyncWorkoutClassService on the given executor that shares an existing
+     * service's schedule index, search cache and coalesced reads.
+     * @param workoutClassService The blocking service to share state with
+     * @param executor            The executor whose threads run the calls
+     */
+    public AsyncWorkoutClassService(WorkoutClassService workoutClassService, AsyncExecutor executor) {
+        this.executor = executor;
+        this.shared = workoutClassService;
+    }
+
+    /**
+     * Creates a workout class; see {@link WorkoutClassService#createWorkoutClass}.
+     * @param type            The type of workout class (e.g., Yoga, HIIT)
+     * @param description     The description of the workout class
+     * @param trainerId       The trainer's unique identifier
+     * @param scheduleTime    When the class starts; must be in the future
+     * @param durationMinutes How long the class runs, in minutes
+     * @return a future of the created WorkoutClass object
+     */
+    public CompletableFuture<WorkoutClass> createWorkoutClass(String type, String description, int trainerId,
+                                                              LocalDateTime scheduleTime, int durationMinutes) {
+        return call(service -> service.createWorkoutClass(type, description, trainerId, scheduleTime, durationMinutes));
+    }
+
+    /**
+     * Checks whether a trainer is free; see {@link WorkoutClassService#isTrainerAvailable}.
+     * @param trainerId       The trainer's unique identifier
+     * @param scheduleTime    When the proposed class starts
+     * @param durationMinutes How long the proposed class runs, in minutes
+     * @return a future of whether none of the trainer's classes overlap the range
+     */
+    public CompletableFuture<Boolean> isTrainerAvailable(int trainerId, LocalDateTime scheduleTime, int durationMinutes) {
+        return call(service -> service.isTrainerAvailable(trainerId, scheduleTime, durationMinutes));
+    }
+
+    /**
+     * Retrieves a workout class by id; see {@link WorkoutClassService#getWorkoutClassById}.
+     * @param workoutClassId The workout class's unique identifier
+     * @return a future of the WorkoutClass object
+     */
+    public CompletableFuture<WorkoutClass> getWorkoutClassById(int workoutClassId) {
+        return call(service -> service.getWorkoutClassById(workoutClassId));
+    }
+
+    /**
+     * Retrieves a trainer's classes; see {@link WorkoutClassService#getWorkoutClassesByTrainerId}.
+     * @param trainerId The trainer's unique identifier
+     * @return a future of the trainer's WorkoutClass objects
+     */
+    public CompletableFuture<List<WorkoutClass>> getWorkoutClassesByTrainerId(int trainerId) {
+        return call(service -> service.getWorkoutClassesByTrainerId(trainerId));
+    }
+
+    /**
+     * Retrieves classes that have not ended yet; see {@link WorkoutClassService#getUpcomingWorkoutClasses}.
+     * @return a future of the upcoming WorkoutClass objects
+     */
+    public CompletableFuture<List<WorkoutClass>> getUpcomingWorkoutClasses() {
+        return call(WorkoutClassService::getUpcomingWorkoutClasses);
+    }
+
+    /**
+     * Retrieves a member's upcoming classes; see {@link WorkoutClassService#getUpcomingWorkoutClassesByMemberId}.
+     * @param memberId The member's unique identifier
+     * @return a future of the member's upcoming WorkoutClass objects
+     */
+    public CompletableFuture<List<WorkoutClass>> getUpcomingWorkoutClassesByMemberId(int memberId) {
+        return call(service -> service.getUpcomingWorkoutClassesByMemberId(memberId));
+    }
+
+    /**
+     * Retrieves all workout classes; see {@link WorkoutClassService#getAllWorkoutClasses}.
+     * @return a future of all WorkoutClass objects
+     */
+    public CompletableFuture<List<WorkoutClass>> getAllWorkoutClasses() {
+        return call(WorkoutClassService::getAllWorkoutClasses);
+    }
+
+    /**
+     * Searches class types and descriptions; see {@link WorkoutClassService#searchWorkoutClasses}.
+     * @param text     The words to search for
+     * @param page     The zero-based page number
+     * @param pageSize The number of classes per page
+     * @return a future of a page of matching WorkoutClass objects
+     */
+    public CompletableFuture<List<WorkoutClass>> searchWorkoutClasses(String text, int page, int pageSize) {
+        return call(service -> service.searchWorkoutClasses(text, page, pageSize));
+    }
+
+    /**
+     * Updates a workout class; see {@link WorkoutClassService#updateWorkoutClass(WorkoutClass)}.
+     * @param workoutClass The WorkoutClass object with updated details and the rowVersion it was read at
+     * @return a future of whether the update was successful
+     */
+    public CompletableFuture<Boolean> updateWorkoutClass(WorkoutClass workoutClass) {
+        return call(service -> service.updateWorkoutClass(workoutClass));
+    }
+
+    /**
+     * Reads, edits and saves a workout class with retries on conflicts;
+     * see {@link WorkoutClassService#updateWorkoutClass(int, int, Consumer)}.
+     * @param workoutClassId The workout class's unique identifier
+     * @param trainerId      The trainer making the change
+     * @param edit           The change to make; it may run more than once, on an I/O thread
+     * @return a future of the updated WorkoutClass object
+     */
+    public CompletableFuture<WorkoutClass> updateWorkoutClass(int workoutClassId, int trainerId, Consumer<WorkoutClass> edit) {
+        return call(service -> service.updateWorkoutClass(workoutClassId, trainerId, edit));
+    }
+
+    /**
+     * Deletes a workout class; see {@link WorkoutClassService#deleteWorkoutClass}.
+     * @param workoutClassId The workout class's unique identifier
+     * @param trainerId      The trainer deleting the class
+     * @return a future of true once the class is deleted
+     */
+    public CompletableFuture<Boolean> deleteWorkoutClass(int workoutClassId, int trainerId) {
+        return call(service -> service.deleteWorkoutClass(workoutClassId, trainerId));
+    }
+
+    /**
+     * Runs a call on an I/O thread against that thread's WorkoutClassService.
+     * @param call The blocking call
+     * @param <T>  The call's result type
+     * @return a future of the call's result
+     */
+    private <T> CompletableFuture<T> call(SqlFunction<WorkoutClassService, T> call) {
+        return executor.submit(() -> call.apply(services.get()));
+    }
+
+    /**
+     * Gets the service whose in-memory state every I/O thread shares, creating it on first use.
+     * @return the shared WorkoutClassService
+     * @throws SQLException if the service cannot be created
+     */
+    private synchronized WorkoutClassService getShared() throws SQLException {
+        if (shared == null) {
+            shared = new WorkoutClassService();
+        }
+        return shared;
+    }
+}
@@ -0,0 +1,526 @@
+package workout;
+
+import database.ChangeNotifier;
+import database.DatabaseConnection;
+import database.Deadline;
+import database.EntityType;
+import journal.EventJournal;
+import journal.JournalEvent;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Expands recurring class templates into concrete WorkoutClasses rows up to a horizon ahead of today.
+ * Each template is expanded in one short transaction that locks the template row, so nodes
+ * expanding the same template take turns. Only the delta is written: occurrences that are
+ * missing are inserted in one batch, occurrences whose time or details changed are updated in
+ * place (keeping their enrollments), and future occurrences the pattern no longer produces are
+ * deleted in one statement. Inserts use {@code ON CONFLICT DO NOTHING}, so re-running an
+ * expansion is a no-op and an occurrence that would double-book the trainer is skipped rather
+ * than failing the whole template. Classes that have already started are never touched.
+ */
+public class ClassScheduleGenerator {
+    /** How far ahead occurrences are generated when gym.templates.horizonDays is not set. */
+    public static final int DEFAULT_HORIZON_DAYS = 120;
+
+    private static final String LOCK_TEMPLATE_SQL =
+            ClassTemplateDAO.SELECT_TEMPLATES + " WHERE t.templateId = ? FOR UPDATE OF t";
+    private static final String OCCURRENCES_SQL =
+            "SELECT * FROM WorkoutClasses WHERE templateId = ? AND scheduleTime > ? FOR UPDATE";
+    private static final String INSERT_SQL =
+            "INSERT INTO WorkoutClasses (workoutClassType, workoutClassDescription, trainerId, capacity, " +
+            "scheduleTime, duration, templateId, occurrenceDate) VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON CONFLICT DO NOTHING";
+    private static final String UPDATE_SQL =
+            "UPDATE WorkoutClasses SET workoutClassType = ?, workoutClassDescription = ?, trainerId = ?, " +
+            "capacity = ?, scheduleTime = ?, duration = ?, rowVersion = rowVersion + 1 WHERE workoutClassId = ?";
+    private static final String DELETE_SQL = "DELETE FROM WorkoutClasses WHERE workoutClassId = ANY(?)";
+
+    private final ClassTemplateDAO classTemplateDAO;
+    private final TrainerScheduleIndex scheduleIndex;
+    private final int horizonDays;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Constructs a ClassScheduleGenerator that keeps the given schedule index current.
+     * @param classTemplateDAO The DAO used to find templates to expand
+     * @param scheduleIndex    The trainer schedule index to update with generated classes
+     * @param horizonDays      How many days ahead of today to generate occurrences
+     */
+    ClassScheduleGenerator(ClassTemplateDAO classTemplateDAO, TrainerScheduleIndex scheduleIndex, int horizonDays) {
+        this.classTemplateDAO = classTemplateDAO;
+        this.scheduleIndex = scheduleIndex;
+        this.horizonDays = horizonDays;
+    }
+
+    /**
+     * Extends every template's occurrences once a day at the given local time, so the
+     * generated schedule always reaches the full horizon.
+     * @param runAt The time of day to expand
+     */
+    public synchronized void start(LocalTime runAt) {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "class-schedule-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime firstRun = now.toLocalDate().atTime(runAt);
+        if (!firstRun.isAfter(now)) {
+            firstRun = firstRun.plusDays(1);
+        }
+        long initialDelay = Duration.between(now, firstRun).toMillis();
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                expandAll();
+            } catch (SQLException e) {
+                System.err.println("Class template expansion failed: " + e.getMessage());
+            }
+        }, initialDelay, TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops the daily schedule; an expansion that is already running finishes its current template.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Expands every template that may still run, one transaction per template.
+     * @return The combined result of all expansions
+     * @throws SQLException if a database access error occurs; templates already expanded stay committed
+     */
+    public Result expandAll() throws SQLException {
+        Result total = new Result();
+        for (ClassTemplate template : classTemplateDAO.getTemplatesActiveFrom(LocalDate.now())) {
+            total.add(expand(template.getTemplateId()));
+        }
+        return total;
+    }
+
+    /**
+     * Brings one template's upcoming classes in line with its current pattern and exceptions.
+     * If the template no longer exists, its upcoming classes are removed.
+     * @param templateId The unique identifier for the template
+     * @return What the expansion changed
+     * @throws SQLException if a database access error occurs
+     */
+    public Result expand(int templateId) throws SQLException {
+        return regenerate(templateId, false);
+    }
+
+    /**
+     * Removes every upcoming class generated from a template, e.g. before the template is deleted.
+     * @param templateId The unique identifier for the template
+     * @return What was removed
+     * @throws SQLException if a database access error occurs
+     */
+    public Result clear(int templateId) throws SQLException {
+        return regenerate(templateId, true);
+    }
+
+    /**
+     * Diffs a template's upcoming classes against its pattern and writes the difference.
+     * @param templateId The unique identifier for the template
+     * @param clear      Whether to treat the template as producing no classes at all
+     * @return What the expansion changed
+     * @throws SQLException if a database access error occurs
+     */
+    private Result regenerate(int templateId, boolean clear) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate horizon = now.toLocalDate().plusDays(horizonDays);
+        Result result = new Result();
+        Set<Integer> existingIds = new HashSet<>();
+        List<WorkoutClass> updates = new ArrayList<>();
+        List<WorkoutClass> deleted = new ArrayList<>();
+        List<WorkoutClass> current;
+
+        try (Connection connection = DatabaseConnection.getConnection()) {
+            connection.setAutoCommit(false);
+            try {
+                // The expansion is announced once below rather than once per class
+                ChangeNotifier.suppressRowNotifications(connection);
+                ClassTemplate template = lockTemplate(connection, templateId);
+                Map<LocalDate, WorkoutClass> existing = new HashMap<>();
+                LocalDate lastExisting = horizon;
+                for (WorkoutClass workoutClass : findOccurrences(connection, templateId, now)) {
+                    existing.put(workoutClass.getOccurrenceDate(), workoutClass);
+                    existingIds.add(workoutClass.getWorkoutClassId());
+                    if (workoutClass.getOccurrenceDate().isAfter(lastExisting)) {
+                        lastExisting = workoutClass.getOccurrenceDate();
+                    }
+                }
+
+                // Look as far as the furthest existing occurrence so a shortened pattern removes it too
+                Map<LocalDate, WorkoutClass> wanted = new HashMap<>();
+                if (template != null && !clear) {
+                    for (LocalDate date : template.occurrencesBetween(now.toLocalDate(), lastExisting)) {
+                        WorkoutClass occurrence = toOccurrence(template, date);
+                        if (occurrence.getScheduleTime().isAfter(now)
+                                && (!date.isAfter(horizon) || existing.containsKey(date))) {
+                            wanted.put(date, occurrence);
+                        }
+                    }
+                }
+
+                List<WorkoutClass> inserts = new ArrayList<>();
+                for (Map.Entry<LocalDate, WorkoutClass> entry : wanted.entrySet()) {
+                    WorkoutClass previous = existing.get(entry.getKey());
+                    WorkoutClass occurrence = entry.getValue();
+                    if (previous == null) {
+                        inserts.add(occurrence);
+                    } else if (!sameDetails(previous, occurrence)) {
+                        occurrence.setWorkoutClassId(previous.getWorkoutClassId());
+                        updates.add(occurrence);
+                    }
+                }
+                for (Map.Entry<LocalDate, WorkoutClass> entry : existing.entrySet()) {
+                    if (!wanted.containsKey(entry.getKey())) {
+                        deleted.add(entry.getValue());
+                    }
+                }
+
+                result.deleted = delete(connection, deleted);
+                result.updated = update(connection, updates);
+                result.skipped = updates.size() - result.updated;
+                result.created = insert(connection, inserts);
+                result.skipped += inserts.size() - result.created;
+
+                current = findOccurrences(connection, templateId, now);
+                if (result.hasChanges()) {
+                    ChangeNotifier.publishAll(connection, EntityType.WORKOUT_CLASS);
+                }
+                connection.commit();
+            } catch (SQLException | RuntimeException e) {
+                connection.rollback();
+                throw e;
+            }
+        }
+
+        if (result.hasChanges()) {
+            journal(deleted, existingIds, updates, current);
+        }
+        return result;
+    }
+
+    /**
+     * Locks and reads a template inside the expansion transaction.
+     * @param connection The expansion's transaction connection
+     * @param templateId The unique identifier for the template
+     * @return the template, or null if it has been deleted
+     * @throws SQLException if a database access error occurs
+     */
+    private static ClassTemplate lockTemplate(Connection connection, int templateId) throws SQLException {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(LOCK_TEMPLATE_SQL))) {
+            stmt.setInt(1, templateId);
+            ResultSet rs = stmt.executeQuery();
+            return rs.next() ? ClassTemplateDAO.createTemplateFromResultSet(rs) : null;
+        }
+    }
+
+    /**
+     * Locks and reads a template's generated classes that have not started yet.
+     * @param connection The expansion's transaction connection
+     * @param templateId The unique identifier for the template
+     * @param now        The current time
+     * @return the upcoming occurrences
+     * @throws SQLException if a database access error occurs
+     */
+    private static List<WorkoutClass> findOccurrences(Connection connection, int templateId, LocalDateTime now) throws SQLException {
+        List<WorkoutClass> occurrences = new ArrayList<>();
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(OCCURRENCES_SQL))) {
+            stmt.setInt(1, templateId);
+            stmt.setObject(2, now);
+            ResultSet rs = stmt.executeQuery();
+            while (rs.next()) {
+                occurrences.add(WorkoutClassDAO.createWorkoutClassFromResultSet(rs));
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Inserts missing occurrences in one batch, skipping any that already exist or would double-book the trainer.
+     * @param connection The expansion's transaction connection
+     * @param inserts    The occurrences to insert
+     * @return the number of rows inserted
+     * @throws SQLException if a database access error occurs
+     */
+    private static int insert(Connection connection, List<WorkoutClass> inserts) throws SQLException {
+        if (inserts.isEmpty()) {
+            return 0;
+        }
+        int inserted = 0;
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(INSERT_SQL))) {
+            for (WorkoutClass occurrence : inserts) {
+                stmt.setString(1, occurrence.getWorkoutClassType());
+                stmt.setString(2, occurrence.getWorkoutClassDescription());
+                stmt.setInt(3, occurrence.getTrainerId());
+                stmt.setInt(4, occurrence.getCapacity());
+                stmt.setObject(5, occurrence.getScheduleTime());
+                stmt.setInt(6, occurrence.getDurationMinutes());
+                stmt.setInt(7, occurrence.getTemplateId());
+                stmt.setObject(8, occurrence.getOccurrenceDate());
+                stmt.addBatch();
+            }
+            for (int count : stmt.executeBatch()) {
+                inserted += Math.max(count, 0);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Moves or edits occurrences whose template changed. The batch runs under a savepoint; if an
+     * update would double-book the trainer, the updates are retried one at a time and the
+     * conflicting ones are left as they were.
+     * @param connection The expansion's transaction connection
+     * @param updates    The occurrences with their new details
+     * @return the number of rows updated
+     * @throws SQLException if a database access error occurs
+     */
+    private static int update(Connection connection, List<WorkoutClass> updates) throws SQLException {
+        if (updates.isEmpty()) {
+            return 0;
+        }
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(UPDATE_SQL))) {
+            Savepoint batch = connection.setSavepoint();
+            try {
+                for (WorkoutClass occurrence : updates) {
+                    bindUpdate(stmt, occurrence);
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+                connection.releaseSavepoint(batch);
+                return updates.size();
+            } catch (SQLException e) {
+                if (!isDoubleBooking(e)) {
+                    throw e;
+                }
+                connection.rollback(batch);
+                stmt.clearBatch();
+            }
+
+            int updated = 0;
+            for (WorkoutClass occurrence : updates) {
+                Savepoint single = connection.setSavepoint();
+                try {
+                    bindUpdate(stmt, occurrence);
+                    updated += stmt.executeUpdate();
+                    connection.releaseSavepoint(single);
+                } catch (SQLException e) {
+                    if (!isDoubleBooking(e)) {
+                        throw e;
+                    }
+                    connection.rollback(single);
+                }
+            }
+            return updated;
+        }
+    }
+
+    /**
+     * Binds an occurrence's new details to the update statement.
+     * @param stmt       The update statement
+     * @param occurrence The occurrence with its new details
+     * @throws SQLException if a database access error occurs
+     */
+    private static void bindUpdate(PreparedStatement stmt, WorkoutClass occurrence) throws SQLException {
+        stmt.setString(1, occurrence.getWorkoutClassType());
+        stmt.setString(2, occurrence.getWorkoutClassDescription());
+        stmt.setInt(3, occurrence.getTrainerId());
+        stmt.setInt(4, occurrence.getCapacity());
+        stmt.setObject(5, occurrence.getScheduleTime());
+        stmt.setInt(6, occurrence.getDurationMinutes());
+        stmt.setInt(7, occurrence.getWorkoutClassId());
+    }
+
+    /**
+     * Deletes occurrences the template no longer produces in a single statement.
+     * @param connection The expansion's transaction connection
+     * @param deletes    The occurrences to delete
+     * @return the number of rows deleted
+     * @throws SQLException if a database access error occurs
+     */
+    private static int delete(Connection connection, List<WorkoutClass> deletes) throws SQLException {
+        if (deletes.isEmpty()) {
+            return 0;
+        }
+        Integer[] ids = new Integer[deletes.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = deletes.get(i).getWorkoutClassId();
+        }
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(DELETE_SQL))) {
+            Array idArray = connection.createArrayOf("integer", ids);
+            stmt.setArray(1, idArray);
+            int deleted = stmt.executeUpdate();
+            idArray.free();
+            return deleted;
+        }
+    }
+
+    /**
+     * Builds the class a template produces on a given date.
+     * @param template The template
+     * @param date     The occurrence date
+     * @return the unsaved workout class
+     */
+    private static WorkoutClass toOccurrence(ClassTemplate template, LocalDate date) {
+        WorkoutClass occurrence = new WorkoutClass();
+        occurrence.setWorkoutClassType(template.getWorkoutClassType());
+        occurrence.setWorkoutClassDescription(template.getWorkoutClassDescription());
+        occurrence.setTrainerId(template.getTrainerId());
+        occurrence.setCapacity(template.getCapacity());
+        occurrence.setScheduleTime(date.atTime(template.getStartTime()));
+        occurrence.setDurationMinutes(template.getDurationMinutes());
+        occurrence.setTemplateId(template.getTemplateId());
+        occurrence.setOccurrenceDate(date);
+        return occurrence;
+    }
+
+    /**
+     * Checks whether a generated class already matches what its template produces.
+     * @param existing The class as stored
+     * @param wanted   The class as the template produces it
+     * @return true if no update is needed
+     */
+    private static boolean sameDetails(WorkoutClass existing, WorkoutClass wanted) {
+        return existing.getScheduleTime().equals(wanted.getScheduleTime())
+                && existing.getDurationMinutes() == wanted.getDurationMinutes()
+                && existing.getTrainerId() == wanted.getTrainerId()
+                && existing.getCapacity() == wanted.getCapacity()
+                && Objects.equals(existing.getWorkoutClassType(), wanted.getWorkoutClassType())
+                && Objects.equals(existing.getWorkoutClassDescription(), wanted.getWorkoutClassDescription());
+    }
+
+    /**
+     * Checks whether a database error is a violation of the no_trainer_double_booking constraint.
+     * @param e The database error
+     * @return true if the error reports a trainer double-booking
+     */
+    private static boolean isDoubleBooking(SQLException e) {
+        if (WorkoutClassDAO.EXCLUSION_VIOLATION.equals(e.getSQLState())) {
+            return true;
+        }
+        // Batch failures wrap the statement's error
+        SQLException next = e.getNextException();
+        return next != null && WorkoutClassDAO.EXCLUSION_VIOLATION.equals(next.getSQLState());
+    }
+
+    /**
+     * Records a committed expansion in the event journal and the schedule index.
+     * @param deleted     The occurrences that were deleted
+     * @param existingIds The ids of the occurrences that existed before the expansion
+     * @param updates     The occurrences that were moved or edited
+     * @param current     The template's upcoming occurrences after the expansion
+     */
+    private void journal(List<WorkoutClass> deleted, Set<Integer> existingIds,
+                         List<WorkoutClass> updates, List<WorkoutClass> current) {
+        for (WorkoutClass workoutClass : deleted) {
+            scheduleIndex.remove(workoutClass.getWorkoutClassId());
+            EventJournal.record(EntityType.WORKOUT_CLASS, JournalEvent.Operation.DELETE, workoutClass.getWorkoutClassId(), "");
+        }
+        Set<Integer> updatedIds = new HashSet<>();
+        for (WorkoutClass workoutClass : updates) {
+            updatedIds.add(workoutClass.getWorkoutClassId());
+        }
+        for (WorkoutClass workoutClass : current) {
+            scheduleIndex.put(workoutClass);
+            int id = workoutClass.getWorkoutClassId();
+            if (!existingIds.contains(id) || updatedIds.contains(id)) {
+                JournalEvent.Operation operation = existingIds.contains(id)
+                        ? JournalEvent.Operation.UPDATE : JournalEvent.Operation.CREATE;
+                EventJournal.record(EntityType.WORKOUT_CLASS, operation, id, WorkoutClassDAO.toPayload(workoutClass));
+            }
+        }
+    }
+
+    /**
+     * Counts what an expansion changed.
+     */
+    public static final class Result {
+        private int created;
+        private int updated;
+        private int deleted;
+        private int skipped;
+
+        /**
+         * Gets the number of classes inserted.
+         * @return the created count
+         */
+        public int getCreated() {
+            return created;
+        }
+
+        /**
+         * Gets the number of classes moved or edited to match their template.
+         * @return the updated count
+         */
+        public int getUpdated() {
+            return updated;
+        }
+
+        /**
+         * Gets the number of upcoming classes removed because the template no longer produces them.
+         * @return the deleted count
+         */
+        public int getDeleted() {
+            return deleted;
+        }
+
+        /**
+         * Gets the number of occurrences left out because the trainer was already booked at that time.
+         * @return the skipped count
+         */
+        public int getSkipped() {
+            return skipped;
+        }
+
+        /**
+         * Checks whether the expansion wrote anything.
+         * @return true if any class was created, updated or deleted
+         */
+        public boolean hasChanges() {
+            return created + updated + deleted > 0;
+        }
+
+        private void add(Result other) {
+            created += other.created;
+            updated += other.updated;
+            deleted += other.deleted;
+            skipped += other.skipped;
+        }
+
+        @Override
+        public String toString() {
+            return created + " created, " + updated + " updated, " + deleted + " deleted, "
+                    + skipped + " skipped (trainer already booked)";
+        }
+    }
+}
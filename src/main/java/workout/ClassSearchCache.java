@@ -0,0 +1,130 @@
+package workout;
+
+import database.CacheInvalidator;
+import database.EntityType;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Small least-recently-used cache of class search results, keyed by normalized query and page.
+ * Any workout class change can move a class into or out of any result, so every change clears
+ * the whole cache. A generation counter stops a search that started before a change from
+ * storing its now-stale result after the change was applied.
+ */
+public class ClassSearchCache implements CacheInvalidator {
+    private final int maxEntries;
+    private final Map<String, List<WorkoutClass>> entries;
+    private long generation;
+    private long hits;
+    private long misses;
+
+    /**
+     * Constructs an empty ClassSearchCache.
+     * @param maxEntries The number of results kept before the least recently used one is evicted
+     */
+    public ClassSearchCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<WorkoutClass>> eldest) {
+                return size() > ClassSearchCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Looks up a cached result.
+     * @param key The normalized query and page
+     * @return the shared cached result, which must not be modified, or null on a miss
+     */
+    public synchronized List<WorkoutClass> get(String key) {
+        List<WorkoutClass> result = entries.get(key);
+        if (result == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    /**
+     * Gets the current generation, to be passed to {@link #put} after the search completes.
+     * @return the generation
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Stores a result unless the cache was cleared since the search began.
+     * @param key        The normalized query and page
+     * @param generation The generation read before the search ran
+     * @param result     The search result; it must not be modified afterwards
+     */
+    public synchronized void put(String key, long generation, List<WorkoutClass> result) {
+        if (generation == this.generation) {
+            entries.put(key, result);
+        }
+    }
+
+    /**
+     * Clears the cache when a workout class changes, or when a user who trains a cached class
+     * changes, since deleting a trainer deletes their classes. Other user edits, such as a
+     * member changing their password or phone number, leave the cache alone.
+     * @param type The kind of entity that changed
+     * @param id   The entity's unique identifier
+     */
+    @Override
+    public void invalidate(EntityType type, int id) {
+        if (type == EntityType.WORKOUT_CLASS || (type == EntityType.USER && trainsCachedClass(id))) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Checks whether any cached result holds a class taught by the given user.
+     * @param userId The user's unique identifier
+     * @return true if the user is the trainer of a cached class
+     */
+    private synchronized boolean trainsCachedClass(int userId) {
+        for (List<WorkoutClass> result : entries.values()) {
+            for (WorkoutClass workoutClass : result) {
+                if (workoutClass.getTrainerId() == userId) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Clears the cache.
+     */
+    @Override
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * Clears the cache after a bulk change to workout classes or users.
+     * @param type The kind of entity that changed
+     */
+    @Override
+    public void invalidateAll(EntityType type) {
+        if (type == EntityType.WORKOUT_CLASS || type == EntityType.USER) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Returns the cache's hit and miss counts.
+     * @return a summary of cache effectiveness
+     */
+    @Override
+    public synchronized String toString() {
+        return "entries=" + entries.size() + ", hits=" + hits + ", misses=" + misses;
+    }
+}
@@ -0,0 +1,355 @@
+package workout;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Represents a recurring workout class, such as "HIIT every Tuesday at 6pm".
+ * Holds the class details plus an RRULE-like pattern (DAILY or WEEKLY, every N days/weeks,
+ * on given weekdays, from a first date until an optional end date) and a set of exception
+ * dates on which the class does not run. The schedule generator expands templates into
+ * concrete WorkoutClasses rows.
+ */
+public class ClassTemplate {
+    private int templateId;
+    private String workoutClassType;
+    private String workoutClassDescription;
+    private int trainerId;
+    private int capacity = WorkoutClass.DEFAULT_CAPACITY;
+    private LocalTime startTime;
+    private int durationMinutes;
+    private String frequency = "WEEKLY";
+    private int repeatInterval = 1;
+    private Set<DayOfWeek> byDays = EnumSet.noneOf(DayOfWeek.class);
+    private LocalDate firstDate;
+    private LocalDate untilDate;
+    private Set<LocalDate> exceptionDates = new TreeSet<>();
+
+    /**
+     * Default constructor for ClassTemplate.
+     */
+    public ClassTemplate() {}
+
+    // Getters and Setters
+
+    /**
+     * Gets the unique identifier for the template.
+     * @return the templateId
+     */
+    public int getTemplateId() {
+        return templateId;
+    }
+
+    /**
+     * Sets the unique identifier for the template.
+     * @param templateId the templateId to set
+     */
+    public void setTemplateId(int templateId) {
+        this.templateId = templateId;
+    }
+
+    /**
+     * Gets the type of workout class the template creates.
+     * @return the workoutClassType
+     */
+    public String getWorkoutClassType() {
+        return workoutClassType;
+    }
+
+    /**
+     * Sets the type of workout class the template creates.
+     * @param workoutClassType the workoutClassType to set
+     */
+    public void setWorkoutClassType(String workoutClassType) {
+        this.workoutClassType = workoutClassType;
+    }
+
+    /**
+     * Gets the description given to each generated class.
+     * @return the workoutClassDescription
+     */
+    public String getWorkoutClassDescription() {
+        return workoutClassDescription;
+    }
+
+    /**
+     * Sets the description given to each generated class.
+     * @param workoutClassDescription the workoutClassDescription to set
+     */
+    public void setWorkoutClassDescription(String workoutClassDescription) {
+        this.workoutClassDescription = workoutClassDescription;
+    }
+
+    /**
+     * Gets the trainer who teaches the generated classes.
+     * @return the trainerId
+     */
+    public int getTrainerId() {
+        return trainerId;
+    }
+
+    /**
+     * Sets the trainer who teaches the generated classes.
+     * @param trainerId the trainerId to set
+     */
+    public void setTrainerId(int trainerId) {
+        this.trainerId = trainerId;
+    }
+
+    /**
+     * Gets the capacity of each generated class.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the capacity of each generated class.
+     * @param capacity the capacity to set
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the time of day each class starts.
+     * @return the startTime
+     */
+    public LocalTime getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Sets the time of day each class starts.
+     * @param startTime the startTime to set
+     */
+    public void setStartTime(LocalTime startTime) {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Gets how long each class runs, in minutes.
+     * @return the durationMinutes
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Sets how long each class runs, in minutes.
+     * @param durationMinutes the durationMinutes to set
+     */
+    public void setDurationMinutes(int durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * Gets how often the pattern repeats (DAILY or WEEKLY).
+     * @return the frequency
+     */
+    public String getFrequency() {
+        return frequency;
+    }
+
+    /**
+     * Sets how often the pattern repeats (DAILY or WEEKLY).
+     * @param frequency the frequency to set
+     */
+    public void setFrequency(String frequency) {
+        this.frequency = frequency;
+    }
+
+    /**
+     * Gets the number of days (DAILY) or weeks (WEEKLY) between repetitions.
+     * @return the repeatInterval
+     */
+    public int getRepeatInterval() {
+        return repeatInterval;
+    }
+
+    /**
+     * Sets the number of days (DAILY) or weeks (WEEKLY) between repetitions.
+     * @param repeatInterval the repeatInterval to set
+     */
+    public void setRepeatInterval(int repeatInterval) {
+        this.repeatInterval = repeatInterval;
+    }
+
+    /**
+     * Gets the weekdays a WEEKLY template runs on.
+     * @return the byDays; empty means the weekday of the first date
+     */
+    public Set<DayOfWeek> getByDays() {
+        return byDays;
+    }
+
+    /**
+     * Sets the weekdays a WEEKLY template runs on.
+     * @param byDays the byDays to set
+     */
+    public void setByDays(Set<DayOfWeek> byDays) {
+        this.byDays = byDays.isEmpty() ? EnumSet.noneOf(DayOfWeek.class) : EnumSet.copyOf(byDays);
+    }
+
+    /**
+     * Gets the first date the pattern may run on.
+     * @return the firstDate
+     */
+    public LocalDate getFirstDate() {
+        return firstDate;
+    }
+
+    /**
+     * Sets the first date the pattern may run on.
+     * @param firstDate the firstDate to set
+     */
+    public void setFirstDate(LocalDate firstDate) {
+        this.firstDate = firstDate;
+    }
+
+    /**
+     * Gets the last date the pattern may run on.
+     * @return the untilDate, or null if the template repeats indefinitely
+     */
+    public LocalDate getUntilDate() {
+        return untilDate;
+    }
+
+    /**
+     * Sets the last date the pattern may run on.
+     * @param untilDate the untilDate to set, or null to repeat indefinitely
+     */
+    public void setUntilDate(LocalDate untilDate) {
+        this.untilDate = untilDate;
+    }
+
+    /**
+     * Gets the dates on which the class is skipped.
+     * @return the exceptionDates
+     */
+    public Set<LocalDate> getExceptionDates() {
+        return exceptionDates;
+    }
+
+    /**
+     * Sets the dates on which the class is skipped.
+     * @param exceptionDates the exceptionDates to set
+     */
+    public void setExceptionDates(Set<LocalDate> exceptionDates) {
+        this.exceptionDates = new TreeSet<>(exceptionDates);
+    }
+
+    /**
+     * Gets the byDays as an RRULE-style list, e.g. {@code MO,WE,FR}.
+     * @return the weekday codes separated by commas
+     */
+    public String getByDaysCode() {
+        StringBuilder code = new StringBuilder();
+        for (DayOfWeek day : byDays) {
+            if (code.length() > 0) {
+                code.append(',');
+            }
+            code.append(day.name(), 0, 2);
+        }
+        return code.toString();
+    }
+
+    /**
+     * Sets the byDays from an RRULE-style list such as {@code MO,WE,FR}.
+     * @param code the weekday codes separated by commas; null or blank for none
+     * @throws IllegalArgumentException if a code is not a weekday
+     */
+    public void setByDaysCode(String code) {
+        Set<DayOfWeek> days = EnumSet.noneOf(DayOfWeek.class);
+        if (code != null) {
+            for (String part : code.split(",")) {
+                String day = part.trim().toUpperCase();
+                if (day.isEmpty()) {
+                    continue;
+                }
+                days.add(parseDay(day));
+            }
+        }
+        this.byDays = days;
+    }
+
+    /**
+     * Lists the dates the class runs on within an inclusive range, leaving out exception dates.
+     * @param from The first date of the range
+     * @param to   The last date of the range
+     * @return the occurrence dates in order
+     */
+    public List<LocalDate> occurrencesBetween(LocalDate from, LocalDate to) {
+        List<LocalDate> dates = new ArrayList<>();
+        LocalDate start = from.isAfter(firstDate) ? from : firstDate;
+        LocalDate end = untilDate != null && untilDate.isBefore(to) ? untilDate : to;
+        for (LocalDate date = start; !date.isAfter(end); date = date.plusDays(1)) {
+            if (matches(date) && !exceptionDates.contains(date)) {
+                dates.add(date);
+            }
+        }
+        return dates;
+    }
+
+    /**
+     * Checks whether the pattern (ignoring exceptions and bounds) includes a date on or after the first date.
+     * @param date The date to check
+     * @return true if the class would run on that date
+     */
+    private boolean matches(LocalDate date) {
+        if ("DAILY".equals(frequency)) {
+            return ChronoUnit.DAYS.between(firstDate, date) % repeatInterval == 0;
+        }
+        Set<DayOfWeek> days = byDays.isEmpty() ? EnumSet.of(firstDate.getDayOfWeek()) : byDays;
+        if (!days.contains(date.getDayOfWeek())) {
+            return false;
+        }
+        LocalDate firstWeek = firstDate.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        LocalDate week = date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        return ChronoUnit.WEEKS.between(firstWeek, week) % repeatInterval == 0;
+    }
+
+    /**
+     * Parses a two-letter RRULE weekday code or a full weekday name.
+     * @param day The upper-case code
+     * @return the weekday
+     */
+    private static DayOfWeek parseDay(String day) {
+        for (DayOfWeek candidate : DayOfWeek.values()) {
+            if (candidate.name().startsWith(day) && day.length() >= 2) {
+                return candidate;
+            }
+        }
+        throw new IllegalArgumentException("Invalid weekday: " + day);
+    }
+
+    /**
+     * Returns a string representation of the ClassTemplate object.
+     * @return a string with template details
+     */
+    @Override
+    public String toString() {
+        return "ClassTemplate{" +
+                "templateId=" + templateId +
+                ", workoutClassType='" + workoutClassType + '\'' +
+                ", trainerId=" + trainerId +
+                ", startTime=" + startTime +
+                ", durationMinutes=" + durationMinutes +
+                ", frequency='" + frequency + '\'' +
+                ", repeatInterval=" + repeatInterval +
+                ", byDays='" + getByDaysCode() + '\'' +
+                ", firstDate=" + firstDate +
+                ", untilDate=" + untilDate +
+                ", exceptionDates=" + exceptionDates +
+                '}';
+    }
+}
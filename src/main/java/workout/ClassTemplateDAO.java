@@ -0,0 +1,294 @@
+package workout;
+
+import database.ConnectionRouter;
+import database.Deadline;
+import database.EntityType;
+import journal.EventJournal;
+import journal.JournalEvent;
+import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Data Access Object (DAO) for recurring class template database operations.
+ * Handles CRUD operations for class templates and their exception dates.
+ */
+public class ClassTemplateDAO {
+    /** Selects templates together with their exception dates as an array column. */
+    static final String SELECT_TEMPLATES =
+            "SELECT t.*, ARRAY(SELECT e.exceptionDate FROM ClassTemplateExceptions e " +
+            "WHERE e.templateId = t.templateId ORDER BY e.exceptionDate) AS exceptionDates FROM ClassTemplates t";
+
+    private final ConnectionRouter router;
+
+    /**
+     * Constructs a ClassTemplateDAO and connects to the primary database and any configured read replicas.
+     * @throws SQLException if a database access error occurs
+     */
+    public ClassTemplateDAO() throws SQLException {
+        this.router = new ConnectionRouter();
+    }
+
+    /**
+     * Inserts a new class template into the database. Exception dates are not saved; use {@link #addException}.
+     * @param template The ClassTemplate object to insert
+     * @return The created ClassTemplate object with templateId set, or null if creation failed
+     * @throws SQLException if a database access error occurs
+     */
+    public ClassTemplate createTemplate(ClassTemplate template) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "INSERT INTO ClassTemplates (workoutClassType, workoutClassDescription, trainerId, capacity, startTime, " +
+                    "duration, frequency, repeatInterval, byDays, firstDate, untilDate) " +
+                    "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?) RETURNING templateId";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            setTemplateParameters(stmt, template);
+
+            ResultSet rs = stmt.executeQuery();
+            if (rs.next()) {
+                template.setTemplateId(rs.getInt("templateId"));
+                recordChange(1, JournalEvent.Operation.CREATE, template.getTemplateId(), toPayload(template));
+                return template;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves a class template, with its exception dates, by its unique templateId.
+     * @param templateId The unique identifier for the template
+     * @return The ClassTemplate object, or null if not found
+     * @throws SQLException if a database access error occurs
+     */
+    public ClassTemplate getTemplateById(int templateId) throws SQLException {
+        Connection connection = router.forRead();
+        String sql = SELECT_TEMPLATES + " WHERE t.templateId = ?";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, templateId);
+            ResultSet rs = stmt.executeQuery();
+
+            if (rs.next()) {
+                return createTemplateFromResultSet(rs);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Retrieves all class templates of a specific trainer.
+     * @param trainerId The trainer's unique identifier
+     * @return A list of ClassTemplate objects for the trainer
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ClassTemplate> getTemplatesByTrainerId(int trainerId) throws SQLException {
+        Connection connection = router.forRead();
+        List<ClassTemplate> templates = new ArrayList<>();
+        String sql = SELECT_TEMPLATES + " WHERE t.trainerId = ? ORDER BY t.templateId";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, trainerId);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                templates.add(createTemplateFromResultSet(rs));
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * Retrieves every class template that may still have occurrences on or after the given date.
+     * @param from The first date of interest
+     * @return A list of ClassTemplate objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ClassTemplate> getTemplatesActiveFrom(LocalDate from) throws SQLException {
+        Connection connection = router.forRead();
+        List<ClassTemplate> templates = new ArrayList<>();
+        String sql = SELECT_TEMPLATES + " WHERE t.untilDate IS NULL OR t.untilDate >= ? ORDER BY t.templateId";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setObject(1, from);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                templates.add(createTemplateFromResultSet(rs));
+            }
+        }
+        return templates;
+    }
+
+    /**
+     * Updates an existing class template's details and pattern in the database.
+     * @param template The ClassTemplate object with updated details
+     * @return true if the update was successful, false otherwise
+     * @throws SQLException if a database access error occurs
+     */
+    public boolean updateTemplate(ClassTemplate template) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "UPDATE ClassTemplates SET workoutClassType = ?, workoutClassDescription = ?, trainerId = ?, capacity = ?, " +
+                    "startTime = ?, duration = ?, frequency = ?, repeatInterval = ?, byDays = ?, firstDate = ?, untilDate = ? " +
+                    "WHERE templateId = ? AND trainerId = ?";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            setTemplateParameters(stmt, template);
+            stmt.setInt(12, template.getTemplateId());
+            stmt.setInt(13, template.getTrainerId());
+
+            return recordChange(stmt.executeUpdate(), JournalEvent.Operation.UPDATE, template.getTemplateId(), toPayload(template));
+        }
+    }
+
+    /**
+     * Deletes a class template by its unique templateId and trainerId.
+     * Classes already generated from it are kept as one-off classes.
+     * @param templateId The unique identifier for the template
+     * @param trainerId  The trainer's unique identifier
+     * @return true if the template was deleted, false otherwise
+     * @throws SQLException if a database access error occurs
+     */
+    public boolean deleteTemplate(int templateId, int trainerId) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "DELETE FROM ClassTemplates WHERE templateId = ? AND trainerId = ?";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, templateId);
+            stmt.setInt(2, trainerId);
+            return recordChange(stmt.executeUpdate(), JournalEvent.Operation.DELETE, templateId, "");
+        }
+    }
+
+    /**
+     * Adds a date on which a template's class is skipped. Adding the same date twice has no effect.
+     * @param templateId    The unique identifier for the template
+     * @param exceptionDate The date to skip
+     * @return true if the date was added, false if it was already an exception
+     * @throws SQLException if a database access error occurs
+     */
+    public boolean addException(int templateId, LocalDate exceptionDate) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "INSERT INTO ClassTemplateExceptions (templateId, exceptionDate) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, templateId);
+            stmt.setObject(2, exceptionDate);
+            return recordChange(stmt.executeUpdate(), JournalEvent.Operation.UPDATE, templateId,
+                    JournalEvent.payloadOf("templateId", templateId, "addedException", exceptionDate));
+        }
+    }
+
+    /**
+     * Removes an exception date so the template's class runs on that date again.
+     * @param templateId    The unique identifier for the template
+     * @param exceptionDate The date to restore
+     * @return true if the date was removed, false if it was not an exception
+     * @throws SQLException if a database access error occurs
+     */
+    public boolean removeException(int templateId, LocalDate exceptionDate) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "DELETE FROM ClassTemplateExceptions WHERE templateId = ? AND exceptionDate = ?";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, templateId);
+            stmt.setObject(2, exceptionDate);
+            return recordChange(stmt.executeUpdate(), JournalEvent.Operation.UPDATE, templateId,
+                    JournalEvent.payloadOf("templateId", templateId, "removedException", exceptionDate));
+        }
+    }
+
+    /**
+     * Binds a template's columns to the first eleven parameters of an insert or update.
+     * @param stmt     The statement to bind
+     * @param template The template
+     * @throws SQLException if a database access error occurs
+     */
+    private static void setTemplateParameters(PreparedStatement stmt, ClassTemplate template) throws SQLException {
+        stmt.setString(1, template.getWorkoutClassType());
+        stmt.setString(2, template.getWorkoutClassDescription());
+        stmt.setInt(3, template.getTrainerId());
+        stmt.setInt(4, template.getCapacity());
+        stmt.setObject(5, template.getStartTime());
+        stmt.setInt(6, template.getDurationMinutes());
+        stmt.setString(7, template.getFrequency());
+        stmt.setInt(8, template.getRepeatInterval());
+        stmt.setString(9, template.getByDaysCode().isEmpty() ? null : template.getByDaysCode());
+        stmt.setObject(10, template.getFirstDate());
+        stmt.setObject(11, template.getUntilDate(), Types.DATE);
+    }
+
+    /**
+     * Records a template change in the event journal if any row was affected. Other nodes are told
+     * about the change by the table's notify_change trigger, as part of the mutation itself.
+     * @param rowsAffected The update count of the mutation
+     * @param operation    The kind of mutation
+     * @param templateId   The unique identifier for the template
+     * @param payload      A JSON description of the change
+     * @return true if any row was affected
+     */
+    private boolean recordChange(int rowsAffected, JournalEvent.Operation operation, int templateId, String payload) {
+        if (rowsAffected > 0) {
+            EventJournal.record(EntityType.CLASS_TEMPLATE, operation, templateId, payload);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Describes a template for the event journal.
+     * @param template The template
+     * @return the JSON payload
+     */
+    private static String toPayload(ClassTemplate template) {
+        return JournalEvent.payloadOf(
+                "templateId", template.getTemplateId(),
+                "workoutClassType", template.getWorkoutClassType(),
+                "workoutClassDescription", template.getWorkoutClassDescription(),
+                "trainerId", template.getTrainerId(),
+                "capacity", template.getCapacity(),
+                "startTime", template.getStartTime(),
+                "duration", template.getDurationMinutes(),
+                "frequency", template.getFrequency(),
+                "repeatInterval", template.getRepeatInterval(),
+                "byDays", template.getByDaysCode(),
+                "firstDate", template.getFirstDate(),
+                "untilDate", template.getUntilDate());
+    }
+
+    /**
+     * Creates a ClassTemplate object from a ResultSet row.
+     * @param rs The ResultSet positioned at the template row
+     * @return The ClassTemplate object
+     * @throws SQLException if a database access error occurs
+     */
+    static ClassTemplate createTemplateFromResultSet(ResultSet rs) throws SQLException {
+        ClassTemplate template = new ClassTemplate();
+        template.setTemplateId(rs.getInt("templateId"));
+        template.setWorkoutClassType(rs.getString("workoutClassType"));
+        template.setWorkoutClassDescription(rs.getString("workoutClassDescription"));
+        template.setTrainerId(rs.getInt("trainerId"));
+        template.setCapacity(rs.getInt("capacity"));
+        template.setStartTime(rs.getObject("startTime", LocalTime.class));
+        template.setDurationMinutes(rs.getInt("duration"));
+        template.setFrequency(rs.getString("frequency"));
+        template.setRepeatInterval(rs.getInt("repeatInterval"));
+        template.setByDaysCode(rs.getString("byDays"));
+        template.setFirstDate(rs.getObject("firstDate", LocalDate.class));
+        template.setUntilDate(rs.getObject("untilDate", LocalDate.class));
+
+        Set<LocalDate> exceptionDates = new TreeSet<>();
+        Array exceptions = rs.getArray("exceptionDates");
+        if (exceptions != null) {
+            for (Object date : (Object[]) exceptions.getArray()) {
+                exceptionDates.add(((Date) date).toLocalDate());
+            }
+            exceptions.free();
+        }
+        template.setExceptionDates(exceptionDates);
+        return template;
+    }
+}
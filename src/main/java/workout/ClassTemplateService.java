@@ -0,0 +1,180 @@
+package workout;
+
+import database.TransientRetry;
+
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+/**
+ * Service class for business logic related to recurring class templates in the Gym Management System.
+ * Handles creation, retrieval, update, and deletion of templates and keeps the classes generated
+ * from them in step with every change.
+ */
+public class ClassTemplateService {
+    private final ClassTemplateDAO classTemplateDAO;
+    private final ClassScheduleGenerator generator;
+
+    /**
+     * Constructs a ClassTemplateService that generates classes up to
+     * gym.templates.horizonDays (default 120) days ahead.
+     * @param workoutClassService The workout class service whose schedule index generated classes are added to
+     * @throws SQLException if a database access error occurs
+     */
+    public ClassTemplateService(WorkoutClassService workoutClassService) throws SQLException {
+        this.classTemplateDAO = new ClassTemplateDAO();
+        int horizonDays = Integer.getInteger("gym.templates.horizonDays", ClassScheduleGenerator.DEFAULT_HORIZON_DAYS);
+        this.generator = new ClassScheduleGenerator(classTemplateDAO, workoutClassService.getScheduleIndex(), horizonDays);
+    }
+
+    /**
+     * Creates a recurring class template and generates its upcoming classes.
+     * @param template The template to create, with trainerId set to the owning trainer
+     * @return The result of generating the template's classes
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the template's pattern or schedule is invalid
+     */
+    public ClassScheduleGenerator.Result createTemplate(ClassTemplate template) throws SQLException {
+        validate(template);
+        if (classTemplateDAO.createTemplate(template) == null) {
+            throw new IllegalArgumentException("Class template could not be created");
+        }
+        return generator.expand(template.getTemplateId());
+    }
+
+    /**
+     * Retrieves all templates of a specific trainer.
+     * @param trainerId The trainer's unique identifier
+     * @return A list of ClassTemplate objects for the trainer
+     * @throws SQLException if a database access error occurs
+     */
+    public List<ClassTemplate> getTemplatesByTrainerId(int trainerId) throws SQLException {
+        return TransientRetry.read(() -> classTemplateDAO.getTemplatesByTrainerId(trainerId));
+    }
+
+    /**
+     * Updates a template's details or pattern and applies the difference to its upcoming classes.
+     * Classes that still fall on a pattern date keep their id and enrollments.
+     * @param template The ClassTemplate object with updated details
+     * @return The result of regenerating the template's classes
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if unauthorized to update or the pattern is invalid
+     */
+    public ClassScheduleGenerator.Result updateTemplate(ClassTemplate template) throws SQLException {
+        validate(template);
+        if (!classTemplateDAO.updateTemplate(template)) {
+            throw new IllegalArgumentException("Unauthorized to update this class template");
+        }
+        return generator.expand(template.getTemplateId());
+    }
+
+    /**
+     * Skips a template's class on one date, removing that occurrence if it was already generated.
+     * @param templateId    The unique identifier for the template
+     * @param trainerId     The trainer's unique identifier
+     * @param exceptionDate The date to skip
+     * @return The result of regenerating the template's classes
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if unauthorized to change the template
+     */
+    public ClassScheduleGenerator.Result addException(int templateId, int trainerId, LocalDate exceptionDate) throws SQLException {
+        requireOwner(templateId, trainerId);
+        classTemplateDAO.addException(templateId, exceptionDate);
+        return generator.expand(templateId);
+    }
+
+    /**
+     * Restores a skipped date so the template's class runs on it again.
+     * @param templateId    The unique identifier for the template
+     * @param trainerId     The trainer's unique identifier
+     * @param exceptionDate The date to restore
+     * @return The result of regenerating the template's classes
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if unauthorized to change the template
+     */
+    public ClassScheduleGenerator.Result removeException(int templateId, int trainerId, LocalDate exceptionDate) throws SQLException {
+        requireOwner(templateId, trainerId);
+        classTemplateDAO.removeException(templateId, exceptionDate);
+        return generator.expand(templateId);
+    }
+
+    /**
+     * Deletes a template along with the classes it generated that have not started yet.
+     * @param templateId The unique identifier for the template
+     * @param trainerId  The trainer's unique identifier
+     * @return true if the template was deleted, false otherwise
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if unauthorized to delete
+     */
+    public boolean deleteTemplate(int templateId, int trainerId) throws SQLException {
+        requireOwner(templateId, trainerId);
+        // Deleting the template detaches its classes, so drop the upcoming ones while they are still linked
+        generator.clear(templateId);
+        return classTemplateDAO.deleteTemplate(templateId, trainerId);
+    }
+
+    /**
+     * Generates classes for every template up to the horizon, e.g. after a restart.
+     * @return The combined result of all expansions
+     * @throws SQLException if a database access error occurs
+     */
+    public ClassScheduleGenerator.Result expandAllTemplates() throws SQLException {
+        return generator.expandAll();
+    }
+
+    /**
+     * Extends every template's classes once a day so the schedule always reaches the horizon.
+     * @param runAt The time of day to expand
+     */
+    public void startDailyExpansion(LocalTime runAt) {
+        generator.start(runAt);
+    }
+
+    /**
+     * Stops the daily expansion.
+     */
+    public void stopDailyExpansion() {
+        generator.stop();
+    }
+
+    /**
+     * Verifies that a template exists and belongs to the trainer.
+     * @param templateId The unique identifier for the template
+     * @param trainerId  The trainer's unique identifier
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the template is missing or owned by someone else
+     */
+    private void requireOwner(int templateId, int trainerId) throws SQLException {
+        ClassTemplate existing = classTemplateDAO.getTemplateById(templateId);
+        if (existing == null || existing.getTrainerId() != trainerId) {
+            throw new IllegalArgumentException("Unauthorized to change this class template");
+        }
+    }
+
+    /**
+     * Validates a template's pattern and class details.
+     * @param template The template to validate
+     * @throws IllegalArgumentException if any field is invalid
+     */
+    private static void validate(ClassTemplate template) {
+        if (!"DAILY".equals(template.getFrequency()) && !"WEEKLY".equals(template.getFrequency())) {
+            throw new IllegalArgumentException("Frequency must be DAILY or WEEKLY");
+        }
+        if (template.getRepeatInterval() <= 0) {
+            throw new IllegalArgumentException("Repeat interval must be at least 1");
+        }
+        if (template.getFirstDate() == null || template.getStartTime() == null) {
+            throw new IllegalArgumentException("A template needs a first date and a start time");
+        }
+        if (template.getUntilDate() != null && template.getUntilDate().isBefore(template.getFirstDate())) {
+            throw new IllegalArgumentException("End date must not be before the first date");
+        }
+        if (template.getDurationMinutes() <= 0 || template.getDurationMinutes() > WorkoutClassDAO.MAX_DURATION_MINUTES) {
+            throw new IllegalArgumentException("Class duration must be between 1 and " + WorkoutClassDAO.MAX_DURATION_MINUTES + " minutes");
+        }
+        if (template.getCapacity() <= 0) {
+            throw new IllegalArgumentException("Capacity must be at least 1");
+        }
+    }
+}
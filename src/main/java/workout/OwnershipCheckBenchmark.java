@@ -0,0 +1,160 @@
+package workout;
+
+import database.DatabaseConnection;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures what folding the trainer ownership check into the UPDATE saves under concurrent edits.
+ * Several threads, each with its own connection, repeatedly edit random existing classes, a fifth
+ * of the time as the wrong trainer. Each edit is run both ways:
+ * <ul>
+ *   <li>check-then-write: SELECT the owner, then UPDATE if it matches (two round trips, and another
+ *       edit can land in between)</li>
+ *   <li>single statement: the ownership-checked UPDATE ... RETURNING that {@link WorkoutClassDAO} uses</li>
+ * </ul>
+ * The updates set the description to itself, so the benchmark changes no data.
+ * Usage: {@code OwnershipCheckBenchmark [threads] [seconds]}.
+ */
+public class OwnershipCheckBenchmark {
+    private static final String SAMPLE_SQL = "SELECT workoutClassId, trainerId FROM WorkoutClasses ORDER BY random() LIMIT 1000";
+    private static final String CHECK_SQL = "SELECT trainerId FROM WorkoutClasses WHERE workoutClassId = ?";
+    private static final String UPDATE_SQL =
+            "UPDATE WorkoutClasses SET workoutClassDescription = workoutClassDescription WHERE workoutClassId = ? AND trainerId = ?";
+    private static final String SINGLE_SQL =
+            "WITH target AS (SELECT trainerId FROM WorkoutClasses WHERE workoutClassId = ?), " +
+            "changed AS (UPDATE WorkoutClasses SET workoutClassDescription = workoutClassDescription " +
+            "WHERE workoutClassId = ? AND trainerId = ? RETURNING workoutClassId) " +
+            "SELECT (SELECT trainerId FROM target) AS ownerId, (SELECT COUNT(*) FROM changed) AS affected";
+
+    /**
+     * Runs both strategies and prints their round trips, throughput and latency.
+     * @param args Optional thread count (default 8) and seconds per strategy (default 10)
+     * @throws Exception if the benchmark cannot connect or a statement fails
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+
+        List<int[]> classes = new ArrayList<>();
+        try (Connection connection = DatabaseConnection.getConnection();
+             PreparedStatement stmt = connection.prepareStatement(SAMPLE_SQL);
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                classes.add(new int[]{rs.getInt("workoutClassId"), rs.getInt("trainerId")});
+            }
+        }
+        if (classes.isEmpty()) {
+            System.err.println("No workout classes to edit; create some first.");
+            return;
+        }
+
+        System.out.println("strategy\tthreads\tedits\troundTrips\troundTripsPerEdit\teditsPerSecond\tmeanMillis");
+        run("check-then-write", false, classes, threads, seconds);
+        run("single-statement", true, classes, threads, seconds);
+    }
+
+    /**
+     * Runs one strategy on several threads for a fixed time and prints one result line.
+     * @param name    The strategy's name
+     * @param single  Whether to use the single-statement edit
+     * @param classes Sampled class ids and their owners
+     * @param threads The number of concurrent editors
+     * @param seconds How long to run
+     * @throws Exception if a connection or statement fails
+     */
+    private static void run(String name, boolean single, List<int[]> classes, int threads, int seconds) throws Exception {
+        AtomicLong edits = new AtomicLong();
+        AtomicLong roundTrips = new AtomicLong();
+        AtomicLong busyNanos = new AtomicLong();
+        List<Exception> failures = new ArrayList<>();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(threads);
+
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                try (Connection connection = DatabaseConnection.getConnection();
+                     PreparedStatement check = connection.prepareStatement(CHECK_SQL);
+                     PreparedStatement update = connection.prepareStatement(UPDATE_SQL);
+                     PreparedStatement combined = connection.prepareStatement(SINGLE_SQL)) {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline) {
+                        int[] target = classes.get(random.nextInt(classes.size()));
+                        int trainerId = random.nextInt(5) == 0 ? target[1] + 1 : target[1];
+                        long started = System.nanoTime();
+                        roundTrips.addAndGet(single ? editInOne(combined, target[0], trainerId)
+                                : editCheckThenWrite(check, update, target[0], trainerId));
+                        busyNanos.addAndGet(System.nanoTime() - started);
+                        edits.incrementAndGet();
+                    }
+                } catch (SQLException e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }, "ownership-benchmark");
+            thread.start();
+        }
+        done.await();
+        if (!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+
+        long count = Math.max(edits.get(), 1);
+        System.out.printf("%s\t%d\t%d\t%d\t%.2f\t%.0f\t%.3f%n", name, threads, edits.get(), roundTrips.get(),
+                (double) roundTrips.get() / count, edits.get() / (double) seconds,
+                busyNanos.get() / 1_000_000.0 / count);
+    }
+
+    /**
+     * Edits a class by reading its owner first.
+     * @param check     The owner query
+     * @param update    The update
+     * @param classId   The class to edit
+     * @param trainerId The trainer making the edit
+     * @return the number of round trips taken
+     * @throws SQLException if a database access error occurs
+     */
+    private static int editCheckThenWrite(PreparedStatement check, PreparedStatement update, int classId, int trainerId)
+            throws SQLException {
+        check.setInt(1, classId);
+        try (ResultSet rs = check.executeQuery()) {
+            if (!rs.next() || rs.getInt("trainerId") != trainerId) {
+                return 1;
+            }
+        }
+        update.setInt(1, classId);
+        update.setInt(2, trainerId);
+        update.executeUpdate();
+        return 2;
+    }
+
+    /**
+     * Edits a class with the ownership check in the same statement.
+     * @param combined  The ownership-checked update
+     * @param classId   The class to edit
+     * @param trainerId The trainer making the edit
+     * @return the number of round trips taken
+     * @throws SQLException if a database access error occurs
+     */
+    private static int editInOne(PreparedStatement combined, int classId, int trainerId) throws SQLException {
+        combined.setInt(1, classId);
+        combined.setInt(2, classId);
+        combined.setInt(3, trainerId);
+        try (ResultSet rs = combined.executeQuery()) {
+            rs.next();
+        }
+        return 1;
+    }
+}
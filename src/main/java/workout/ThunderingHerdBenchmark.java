@@ -0,0 +1,95 @@
+package workout;
+
+import database.SingleFlight;
+import database.SqlSupplier;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures what request coalescing saves when many clients ask for the class list at the same
+ * moment, as they do right after a schedule is published. Each burst releases every client at
+ * once to read all workout classes, first with one query per client and then through a
+ * {@link SingleFlight}, the way {@link WorkoutClassService#getAllWorkoutClasses} reads them.
+ * Usage: {@code ThunderingHerdBenchmark [clients] [bursts]}.
+ */
+public class ThunderingHerdBenchmark {
+    /**
+     * Runs both modes and prints their database executions and latency.
+     * @param args Optional number of concurrent clients per burst (default 200) and bursts per mode (default 20)
+     * @throws Exception if the benchmark cannot connect or a read fails
+     */
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        int bursts = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        WorkoutClassDAO workoutClassDAO = new WorkoutClassDAO();
+        workoutClassDAO.getAllWorkoutClasses(); // Warm up the connection and plan
+
+        AtomicLong uncoalesced = new AtomicLong();
+        SingleFlight<String, List<WorkoutClass>> reads = new SingleFlight<>();
+
+        System.out.println("mode\tclients\tbursts\trequests\texecutions\tcollapseRatio\tmeanMs\tmaxMs");
+        run("one query per client", clients, bursts, uncoalesced::get, () -> {
+            uncoalesced.incrementAndGet();
+            return workoutClassDAO.getAllWorkoutClasses();
+        });
+        run("single flight", clients, bursts, reads::getExecutionCount,
+                () -> reads.execute("all", workoutClassDAO::getAllWorkoutClasses));
+    }
+
+    /**
+     * Runs the bursts for one mode and prints one result line.
+     * @param name       The mode's name
+     * @param clients    The number of clients released per burst
+     * @param bursts     The number of bursts
+     * @param executions Reports the database executions so far
+     * @param read       The read each client makes
+     * @throws Exception if a read fails or the benchmark is interrupted
+     */
+    private static void run(String name, int clients, int bursts, SqlSupplier<Long> executions,
+                            SqlSupplier<List<WorkoutClass>> read) throws Exception {
+        long executionsBefore = executions.get();
+        AtomicLong totalNanos = new AtomicLong();
+        AtomicLong maxNanos = new AtomicLong();
+        List<Exception> failures = new ArrayList<>();
+
+        for (int burst = 0; burst < bursts; burst++) {
+            CountDownLatch start = new CountDownLatch(1);
+            CountDownLatch done = new CountDownLatch(clients);
+            for (int c = 0; c < clients; c++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                        long started = System.nanoTime();
+                        read.get();
+                        long elapsed = System.nanoTime() - started;
+                        totalNanos.addAndGet(elapsed);
+                        maxNanos.accumulateAndGet(elapsed, Math::max);
+                    } catch (SQLException | InterruptedException e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }, "herd-client");
+                thread.start();
+            }
+            start.countDown();
+            done.await();
+        }
+        if (!failures.isEmpty()) {
+            throw failures.get(0);
+        }
+
+        long requests = (long) clients * bursts;
+        long executed = executions.get() - executionsBefore;
+        System.out.printf("%s\t%d\t%d\t%d\t%d\t%.3f\t%.3f\t%.3f%n", name, clients, bursts, requests, executed,
+                (double) (requests - executed) / requests, totalNanos.get() / 1_000_000.0 / requests,
+                maxNanos.get() / 1_000_000.0);
+    }
+}
@@ -0,0 +1,283 @@
+package workout;
+
+import database.CacheInvalidator;
+import database.ConnectionRouter;
+import database.EntityType;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory index of every trainer's upcoming classes, used to detect double-booking without
+ * scanning the WorkoutClasses table. Each trainer's classes are kept in an interval set ordered
+ * by start time and augmented with the longest interval it holds: any class overlapping
+ * {@code [start, end)} must start after {@code start - longest}, so a check visits only the
+ * handful of classes starting in that window, in O(log n) for tens of thousands of classes.
+ *
+ * <p>The index is a fast pre-check; the no_trainer_double_booking exclusion constraint in the
+ * database remains the source of truth. It is kept current by the service on this node and by
+ * change notifications from other nodes, and classes that have finished are pruned about once a
+ * minute as new ones are added.</p>
+ */
+public class TrainerScheduleIndex implements CacheInvalidator {
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final WorkoutClassDAO workoutClassDAO;
+    private final AtomicLong prunedAtNanos = new AtomicLong(System.nanoTime());
+    private final Map<Integer, TrainerSlots> slotsByTrainer = new ConcurrentHashMap<>();
+    private final Map<Integer, Slot> slotsByClass = new ConcurrentHashMap<>();
+
+    /**
+     * Constructs an empty TrainerScheduleIndex that reloads classes through the given DAO.
+     * @param workoutClassDAO The DAO used to load and refresh classes
+     */
+    public TrainerScheduleIndex(WorkoutClassDAO workoutClassDAO) {
+        this.workoutClassDAO = workoutClassDAO;
+    }
+
+    /**
+     * Replaces the index contents with every class that has not finished yet.
+     * @throws SQLException if a database access error occurs
+     */
+    public synchronized void reload() throws SQLException {
+        List<WorkoutClass> upcoming = ConnectionRouter.readFromPrimary(
+                () -> workoutClassDAO.getWorkoutClassesEndingAfter(LocalDateTime.now()));
+        slotsByTrainer.clear();
+        slotsByClass.clear();
+        for (WorkoutClass workoutClass : upcoming) {
+            put(workoutClass);
+        }
+    }
+
+    /**
+     * Finds a class of the trainer that overlaps the given time range.
+     * @param trainerId       The trainer's unique identifier
+     * @param start           When the proposed class starts
+     * @param durationMinutes How long the proposed class runs
+     * @param ignoreClassId   A class to leave out of the check (the one being rescheduled), or 0
+     * @return The workoutClassId of a conflicting class, or 0 if the trainer is free
+     */
+    public int findConflict(int trainerId, LocalDateTime start, int durationMinutes, int ignoreClassId) {
+        TrainerSlots trainerSlots = slotsByTrainer.get(trainerId);
+        if (trainerSlots == null) {
+            return 0;
+        }
+        long startMinute = toEpochMinute(start);
+        return trainerSlots.findOverlap(startMinute, startMinute + durationMinutes, ignoreClassId);
+    }
+
+    /**
+     * Adds or moves a class in the index.
+     * @param workoutClass The class with its current trainer and schedule
+     */
+    public void put(WorkoutClass workoutClass) {
+        remove(workoutClass.getWorkoutClassId());
+        if (workoutClass.getScheduleTime() == null) {
+            return;
+        }
+        long start = toEpochMinute(workoutClass.getScheduleTime());
+        Slot slot = new Slot(workoutClass.getWorkoutClassId(), workoutClass.getTrainerId(),
+                start, start + workoutClass.getDurationMinutes());
+        slotsByTrainer.computeIfAbsent(slot.trainerId, id -> new TrainerSlots()).add(slot);
+        slotsByClass.put(slot.classId, slot);
+
+        long prunedAt = prunedAtNanos.get();
+        long now = System.nanoTime();
+        if (now - prunedAt >= PRUNE_INTERVAL_NANOS && prunedAtNanos.compareAndSet(prunedAt, now)) {
+            pruneFinished();
+        }
+    }
+
+    /**
+     * Drops classes that have already finished; they can no longer conflict with a new booking.
+     */
+    public void pruneFinished() {
+        long now = toEpochMinute(LocalDateTime.now());
+        for (Slot slot : slotsByClass.values()) {
+            if (slot.end <= now) {
+                remove(slot);
+            }
+        }
+    }
+
+    /**
+     * Removes a class from the index.
+     * @param workoutClassId The unique identifier for the workout class
+     */
+    public void remove(int workoutClassId) {
+        Slot slot = slotsByClass.get(workoutClassId);
+        if (slot != null) {
+            remove(slot);
+        }
+    }
+
+    /**
+     * Removes one slot, unless its class has been moved to a new slot in the meantime.
+     * @param slot The slot
+     */
+    private void remove(Slot slot) {
+        if (slotsByClass.remove(slot.classId, slot)) {
+            TrainerSlots trainerSlots = slotsByTrainer.get(slot.trainerId);
+            if (trainerSlots != null) {
+                trainerSlots.remove(slot);
+            }
+        }
+    }
+
+    /**
+     * Refreshes one class, or one trainer's classes, after it was changed on this or another node.
+     * @param type The kind of entity that changed
+     * @param id   The entity's unique identifier
+     */
+    @Override
+    public void invalidate(EntityType type, int id) {
+        if (type == EntityType.USER) {
+            // Deleting a trainer cascades to their classes; any other user change leaves them as they are
+            if (slotsByTrainer.containsKey(id)) {
+                try {
+                    refreshTrainer(id);
+                } catch (SQLException e) {
+                    invalidateAll();
+                }
+            }
+            return;
+        }
+        if (type != EntityType.WORKOUT_CLASS) {
+            return;
+        }
+        try {
+            WorkoutClass workoutClass = ConnectionRouter.readFromPrimary(() -> workoutClassDAO.getWorkoutClassById(id));
+            if (workoutClass == null) {
+                remove(id);
+            } else {
+                put(workoutClass);
+            }
+        } catch (SQLException e) {
+            remove(id);
+        }
+    }
+
+    /**
+     * Rebuilds the whole index after change notifications may have been missed.
+     */
+    @Override
+    public void invalidateAll() {
+        try {
+            reload();
+        } catch (SQLException e) {
+            System.err.println("Could not reload trainer schedules: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Re-reads one trainer's classes, dropping any that no longer exist, such as after the trainer was deleted.
+     * @param trainerId The trainer's unique identifier
+     * @throws SQLException if a database access error occurs
+     */
+    private void refreshTrainer(int trainerId) throws SQLException {
+        List<WorkoutClass> classes = ConnectionRouter.readFromPrimary(
+                () -> workoutClassDAO.getWorkoutClassesByTrainerId(trainerId));
+        LocalDateTime now = LocalDateTime.now();
+        Set<Integer> current = new HashSet<>();
+        for (WorkoutClass workoutClass : classes) {
+            if (workoutClass.getScheduleTime() != null
+                    && workoutClass.getScheduleTime().plusMinutes(workoutClass.getDurationMinutes()).isAfter(now)) {
+                put(workoutClass);
+                current.add(workoutClass.getWorkoutClassId());
+            }
+        }
+        TrainerSlots trainerSlots = slotsByTrainer.get(trainerId);
+        if (trainerSlots != null) {
+            for (Slot slot : trainerSlots.snapshot()) {
+                if (!current.contains(slot.classId)) {
+                    remove(slot);
+                }
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the index after a bulk change to workout classes or users, such as a template expansion.
+     * @param type The kind of entity that changed
+     */
+    @Override
+    public void invalidateAll(EntityType type) {
+        if (type == EntityType.WORKOUT_CLASS || type == EntityType.USER) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Converts a local date-time to whole minutes since the epoch, matching the database's TIMESTAMP.
+     * @param time The local date-time
+     * @return the epoch minute
+     */
+    private static long toEpochMinute(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    /**
+     * One class occupying {@code [start, end)} epoch minutes.
+     */
+    private static final class Slot {
+        private final int classId;
+        private final int trainerId;
+        private final long start;
+        private final long end;
+
+        Slot(int classId, int trainerId, long start, long end) {
+            this.classId = classId;
+            this.trainerId = trainerId;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    /**
+     * One trainer's classes ordered by start time, with the longest duration seen as the search bound.
+     */
+    private static final class TrainerSlots {
+        private static final Comparator<Slot> BY_START =
+                Comparator.<Slot>comparingLong(slot -> slot.start).thenComparingInt(slot -> slot.classId);
+
+        private final NavigableSet<Slot> slots = new TreeSet<>(BY_START);
+        // Never shrinks on removal; a larger bound only widens the search window
+        private long longest;
+
+        synchronized void add(Slot slot) {
+            slots.add(slot);
+            longest = Math.max(longest, slot.end - slot.start);
+        }
+
+        synchronized void remove(Slot slot) {
+            slots.remove(slot);
+        }
+
+        synchronized List<Slot> snapshot() {
+            return new ArrayList<>(slots);
+        }
+
+        synchronized int findOverlap(long start, long end, int ignoreClassId) {
+            Slot from = new Slot(Integer.MIN_VALUE, 0, start - longest, 0);
+            Slot to = new Slot(Integer.MIN_VALUE, 0, end, 0);
+            for (Slot slot : slots.subSet(from, false, to, false)) {
+                if (slot.end > start && slot.classId != ignoreClassId) {
+                    return slot.classId;
+                }
+            }
+            return 0;
+        }
+    }
+}
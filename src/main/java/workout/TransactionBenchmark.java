@@ -0,0 +1,110 @@
+package workout;
+
+import database.TransactionManager;
+import user.User;
+import user.UserService;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Measures what a shared unit of work saves over one commit per statement. Each flow creates a
+ * class, edits it and deletes it again, first with every service call committing on its own and
+ * then with the whole flow in one {@link TransactionManager} transaction. The classes are scheduled
+ * decades ahead and removed by the flow itself, so the benchmark leaves no data behind.
+ * Usage: {@code TransactionBenchmark [flows] [trainerId]}; without a trainer id the first trainer is used.
+ */
+public class TransactionBenchmark {
+    private static final int STATEMENTS_PER_FLOW = 3;
+
+    /**
+     * Runs both modes and prints their flows and commits per second.
+     * @param args Optional number of flows per mode (default 500) and trainer id
+     * @throws SQLException if the benchmark cannot connect or a flow fails
+     */
+    public static void main(String[] args) throws SQLException {
+        int flows = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int trainerId = args.length > 1 ? Integer.parseInt(args[1]) : findTrainer(new UserService());
+        if (trainerId == 0) {
+            System.err.println("No trainer found; register one or pass a trainer id.");
+            return;
+        }
+
+        WorkoutClassService service = new WorkoutClassService();
+        LocalDateTime start = LocalDateTime.now().plusYears(50).truncatedTo(ChronoUnit.HOURS);
+        // Warm up connections, prepared statement caches and the JIT before measuring
+        run(service, trainerId, start.minusYears(1), Math.min(flows, 50), true);
+
+        System.out.println("mode\tflows\tcommits\tseconds\tflowsPerSecond\tcommitsPerSecond");
+        print("commit-per-statement", flows, flows * STATEMENTS_PER_FLOW, run(service, trainerId, start, flows, false));
+        print("one-transaction", flows, flows, run(service, trainerId, start.plusYears(1), flows, true));
+    }
+
+    /**
+     * Runs the flows in one mode.
+     * @param service       The workout class service
+     * @param trainerId     The trainer who teaches the benchmark classes
+     * @param start         When the first class starts; each following one starts two hours later
+     * @param flows         The number of flows
+     * @param inTransaction Whether each flow runs in one transaction
+     * @return the elapsed nanoseconds
+     * @throws SQLException if a flow fails
+     */
+    private static long run(WorkoutClassService service, int trainerId, LocalDateTime start, int flows,
+                            boolean inTransaction) throws SQLException {
+        long started = System.nanoTime();
+        for (int i = 0; i < flows; i++) {
+            LocalDateTime scheduleTime = start.plusHours(2L * i);
+            if (inTransaction) {
+                TransactionManager.inTransaction(() -> flow(service, trainerId, scheduleTime));
+            } else {
+                flow(service, trainerId, scheduleTime);
+            }
+        }
+        return System.nanoTime() - started;
+    }
+
+    /**
+     * Creates, edits and deletes one class.
+     * @param service      The workout class service
+     * @param trainerId    The trainer who teaches the class
+     * @param scheduleTime When the class starts
+     * @return null
+     * @throws SQLException if a database access error occurs
+     */
+    private static Void flow(WorkoutClassService service, int trainerId, LocalDateTime scheduleTime) throws SQLException {
+        WorkoutClass workoutClass = service.createWorkoutClass("Benchmark", "Transaction benchmark", trainerId, scheduleTime, 45);
+        workoutClass.setWorkoutClassDescription("Transaction benchmark (edited)");
+        service.updateWorkoutClass(workoutClass);
+        service.deleteWorkoutClass(workoutClass.getWorkoutClassId(), trainerId);
+        return null;
+    }
+
+    /**
+     * Finds a trainer to teach the benchmark classes.
+     * @param userService The user service
+     * @return the first trainer's id, or 0 if there is none
+     * @throws SQLException if a database access error occurs
+     */
+    private static int findTrainer(UserService userService) throws SQLException {
+        for (User user : userService.getAllUsers()) {
+            if ("TRAINER".equals(user.getUserRole())) {
+                return user.getUserId();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Prints one result line.
+     * @param mode    The mode's name
+     * @param flows   The number of flows run
+     * @param commits The number of commits they took
+     * @param nanos   The elapsed time
+     */
+    private static void print(String mode, int flows, int commits, long nanos) {
+        double seconds = nanos / 1_000_000_000.0;
+        System.out.printf("%s\t%d\t%d\t%.2f\t%.0f\t%.0f%n", mode, flows, commits, seconds, flows / seconds, commits / seconds);
+    }
+}
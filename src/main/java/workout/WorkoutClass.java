@@ -1,14 +1,29 @@
 package workout;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
 /**
  * Represents a workout class in the Gym Management System.
- * Stores information such as class type, description, and assigned trainer.
+ * Stores information such as class type, description, assigned trainer, and when the class runs.
  */
 public class WorkoutClass {
+    /** Capacity used when a class is created without one. */
+    public static final int DEFAULT_CAPACITY = 20;
+
+    private static final DateTimeFormatter DISPLAY_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
     private int workoutClassId;
     private String workoutClassType;
     private String workoutClassDescription;
     private int trainerId;
+    private LocalDateTime scheduleTime;
+    private int durationMinutes;
+    private int capacity = DEFAULT_CAPACITY;
+    private int templateId;
+    private LocalDate occurrenceDate;
+    private int rowVersion;
 
     /**
      * Default constructor for WorkoutClass.
@@ -30,6 +45,21 @@ public class WorkoutClass {
         this.trainerId = trainerId;
     }
 
+    /**
+     * Constructs a copy of another WorkoutClass.
+     *
+     * @param other The workout class to copy
+     */
+    public WorkoutClass(WorkoutClass other) {
+        this(other.workoutClassId, other.workoutClassType, other.workoutClassDescription, other.trainerId);
+        this.scheduleTime = other.scheduleTime;
+        this.durationMinutes = other.durationMinutes;
+        this.capacity = other.capacity;
+        this.templateId = other.templateId;
+        this.occurrenceDate = other.occurrenceDate;
+        this.rowVersion = other.rowVersion;
+    }
+
     // Getters and Setters
 
     /**
@@ -96,6 +126,110 @@ public class WorkoutClass {
         this.trainerId = trainerId;
     }
 
+    /**
+     * Gets the date and time the class starts.
+     * @return the scheduleTime
+     */
+    public LocalDateTime getScheduleTime() {
+        return scheduleTime;
+    }
+
+    /**
+     * Sets the date and time the class starts.
+     * @param scheduleTime the scheduleTime to set
+     */
+    public void setScheduleTime(LocalDateTime scheduleTime) {
+        this.scheduleTime = scheduleTime;
+    }
+
+    /**
+     * Gets how long the class runs, in minutes.
+     * @return the durationMinutes
+     */
+    public int getDurationMinutes() {
+        return durationMinutes;
+    }
+
+    /**
+     * Sets how long the class runs, in minutes.
+     * @param durationMinutes the durationMinutes to set
+     */
+    public void setDurationMinutes(int durationMinutes) {
+        this.durationMinutes = durationMinutes;
+    }
+
+    /**
+     * Gets the date and time the class ends.
+     * @return the end time, or null if the class has no schedule time
+     */
+    public LocalDateTime getEndTime() {
+        return scheduleTime == null ? null : scheduleTime.plusMinutes(durationMinutes);
+    }
+
+    /**
+     * Gets the maximum number of members who can enroll in the class.
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets the maximum number of members who can enroll in the class.
+     * @param capacity the capacity to set
+     */
+    public void setCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Gets the recurring template this class was generated from.
+     * @return the templateId, or 0 for a one-off class
+     */
+    public int getTemplateId() {
+        return templateId;
+    }
+
+    /**
+     * Sets the recurring template this class was generated from.
+     * @param templateId the templateId to set, or 0 for a one-off class
+     */
+    public void setTemplateId(int templateId) {
+        this.templateId = templateId;
+    }
+
+    /**
+     * Gets the template occurrence this class stands for.
+     * @return the occurrenceDate, or null for a one-off class
+     */
+    public LocalDate getOccurrenceDate() {
+        return occurrenceDate;
+    }
+
+    /**
+     * Sets the template occurrence this class stands for.
+     * @param occurrenceDate the occurrenceDate to set
+     */
+    public void setOccurrenceDate(LocalDate occurrenceDate) {
+        this.occurrenceDate = occurrenceDate;
+    }
+
+    /**
+     * Gets the version of the class row this object was read at, used to detect concurrent edits.
+     * @return the rowVersion
+     */
+    public int getRowVersion() {
+        return rowVersion;
+    }
+
+    /**
+     * Sets the version of the class row this object was read at.
+     * @param rowVersion the rowVersion to set
+     */
+    public void setRowVersion(int rowVersion) {
+        this.rowVersion = rowVersion;
+    }
+
     /**
      * Returns a string representation of the WorkoutClass object.
      * @return a formatted string with workout class details
@@ -108,10 +242,15 @@ public class WorkoutClass {
                 │ Type: %s
                 │ Description: %s
                 │ Trainer ID: %d
+                │ Starts: %s (%d min)
+                │ Capacity: %d
                 ╰───────────────────────────────────""",
                 workoutClassId,
                 workoutClassType,
                 workoutClassDescription,
-                trainerId);
+                trainerId,
+                scheduleTime == null ? "not scheduled" : scheduleTime.format(DISPLAY_FORMAT),
+                durationMinutes,
+                capacity);
     }
 }
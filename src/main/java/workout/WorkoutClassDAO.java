@@ -1,7 +1,15 @@
 package workout;
 
-import database.DatabaseConnection;
+import database.ConnectionRouter;
+import database.Deadline;
+import database.EntityType;
+import database.MutationOutcome;
+import database.StaleRowException;
+import journal.EventJournal;
+import journal.JournalEvent;
 import java.sql.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -10,14 +18,26 @@ import java.util.List;
  * Handles CRUD operations for workout classes in the Gym Management System.
  */
 public class WorkoutClassDAO {
-    private final Connection connection;
+    /** The longest class the service allows, in minutes. */
+    static final int MAX_DURATION_MINUTES = 24 * 60;
 
     /**
-     * Constructs a WorkoutClassDAO and establishes a database connection.
+     * How far ahead of a class members can enroll in it, in days, from {@code gym.enrollments.maxLeadDays}
+     * (default 180). Bounds the ClassEnrollments partitions a member's upcoming classes are looked up in.
+     */
+    static final int MAX_ENROLLMENT_LEAD_DAYS = Integer.getInteger("gym.enrollments.maxLeadDays", 180);
+
+    /** SQLState PostgreSQL reports when an exclusion constraint such as no_trainer_double_booking is violated. */
+    static final String EXCLUSION_VIOLATION = "23P01";
+
+    private final ConnectionRouter router;
+
+    /**
+     * Constructs a WorkoutClassDAO and connects to the primary database and any configured read replicas.
      * @throws SQLException if a database access error occurs
      */
     public WorkoutClassDAO() throws SQLException {
-        this.connection = DatabaseConnection.getConnection();
+        this.router = new ConnectionRouter();
     }
 
     /**
@@ -27,20 +47,23 @@ public class WorkoutClassDAO {
      * @throws SQLException if a database access error occurs
      */
     public WorkoutClass createWorkoutClass(WorkoutClass workoutClass) throws SQLException {
+        Connection connection = router.forWrite();
         String sql = "INSERT INTO WorkoutClasses (workoutClassType, workoutClassDescription, trainerId, capacity, scheduleTime, duration) " +
-                    "VALUES (?, ?, ?, ?, ?, ?) RETURNING workoutClassId";
+                    "VALUES (?, ?, ?, ?, ?, ?) RETURNING workoutClassId, rowVersion";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setString(1, workoutClass.getWorkoutClassType());
             stmt.setString(2, workoutClass.getWorkoutClassDescription());
             stmt.setInt(3, workoutClass.getTrainerId());
-            stmt.setInt(4, 20); // Default capacity
-            stmt.setTimestamp(5, new Timestamp(System.currentTimeMillis())); // Current time as default
-            stmt.setInt(6, 60); // Default 60 minutes duration
+            stmt.setInt(4, workoutClass.getCapacity());
+            stmt.setObject(5, workoutClass.getScheduleTime());
+            stmt.setInt(6, workoutClass.getDurationMinutes());
 
             ResultSet rs = stmt.executeQuery();
             if (rs.next()) {
                 workoutClass.setWorkoutClassId(rs.getInt("workoutClassId"));
+                workoutClass.setRowVersion(rs.getInt("rowVersion"));
+                recordChange(1, JournalEvent.Operation.CREATE, workoutClass.getWorkoutClassId(), toPayload(workoutClass));
                 return workoutClass;
             }
         }
@@ -54,9 +77,10 @@ public class WorkoutClassDAO {
      * @throws SQLException if a database access error occurs
      */
     public WorkoutClass getWorkoutClassById(int workoutClassId) throws SQLException {
+        Connection connection = router.forRead();
         String sql = "SELECT * FROM WorkoutClasses WHERE workoutClassId = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, workoutClassId);
             ResultSet rs = stmt.executeQuery();
 
@@ -74,10 +98,11 @@ public class WorkoutClassDAO {
      * @throws SQLException if a database access error occurs
      */
     public List<WorkoutClass> getWorkoutClassesByTrainerId(int trainerId) throws SQLException {
+        Connection connection = router.forRead();
         List<WorkoutClass> workoutClasses = new ArrayList<>();
         String sql = "SELECT * FROM WorkoutClasses WHERE trainerId = ?";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, trainerId);
             ResultSet rs = stmt.executeQuery();
 
@@ -88,16 +113,105 @@ public class WorkoutClassDAO {
         return workoutClasses;
     }
 
+    /**
+     * Retrieves the classes a member is enrolled in that have not finished by the given time, earliest first.
+     * Such a class started at most {@link #MAX_DURATION_MINUTES} before that time and was enrolled in at most
+     * {@link #MAX_ENROLLMENT_LEAD_DAYS} before it started, so only the ClassEnrollments partitions since
+     * then are scanned.
+     * @param memberId The member's unique identifier
+     * @param from     The point in time classes must still be running at or after
+     * @return A list of the member's upcoming WorkoutClass objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<WorkoutClass> getWorkoutClassesByMemberIdEndingAfter(int memberId, LocalDateTime from) throws SQLException {
+        Connection connection = router.forRead();
+        List<WorkoutClass> workoutClasses = new ArrayList<>();
+        String sql = "SELECT w.* FROM WorkoutClasses w JOIN ClassEnrollments e ON e.classId = w.workoutClassId " +
+                    "WHERE e.memberId = ? AND w.scheduleTime > ? " +
+                    "AND w.scheduleTime + w.duration * INTERVAL '1 minute' > ? " +
+                    "AND e.enrollmentDate >= ? ORDER BY w.scheduleTime";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            LocalDateTime earliestStart = from.minusMinutes(MAX_DURATION_MINUTES);
+            stmt.setInt(1, memberId);
+            stmt.setObject(2, earliestStart);
+            stmt.setObject(3, from);
+            // Bounds the partition key so partitions of older enrollments are pruned
+            stmt.setObject(4, earliestStart.minusDays(MAX_ENROLLMENT_LEAD_DAYS));
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                workoutClasses.add(createWorkoutClassFromResultSet(rs));
+            }
+        }
+        return workoutClasses;
+    }
+
+    /**
+     * Retrieves all workout classes that have not finished by the given time, earliest first.
+     * @param from The point in time classes must still be running at or after
+     * @return A list of upcoming WorkoutClass objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<WorkoutClass> getWorkoutClassesEndingAfter(LocalDateTime from) throws SQLException {
+        Connection connection = router.forRead();
+        List<WorkoutClass> workoutClasses = new ArrayList<>();
+        // Bounding scheduleTime by the longest allowed class lets the scheduleTime index do the work
+        String sql = "SELECT * FROM WorkoutClasses WHERE scheduleTime > ? " +
+                    "AND scheduleTime + duration * INTERVAL '1 minute' > ? ORDER BY scheduleTime";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setObject(1, from.minusMinutes(MAX_DURATION_MINUTES));
+            stmt.setObject(2, from);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                workoutClasses.add(createWorkoutClassFromResultSet(rs));
+            }
+        }
+        return workoutClasses;
+    }
+
+    /**
+     * Searches workout class types and descriptions, best matches first.
+     * Matches in the type rank above matches in the description; the searchDocument GIN index does the matching.
+     * @param tsQuery A PostgreSQL tsquery, e.g. {@code yog:* & flow:*}
+     * @param limit   The maximum number of classes to return
+     * @param offset  The number of matches to skip
+     * @return A page of matching WorkoutClass objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<WorkoutClass> searchWorkoutClasses(String tsQuery, int limit, int offset) throws SQLException {
+        Connection connection = router.forRead();
+        List<WorkoutClass> workoutClasses = new ArrayList<>();
+        String sql = "SELECT w.* FROM WorkoutClasses w, to_tsquery('english', ?) query " +
+                    "WHERE w.searchDocument @@ query " +
+                    "ORDER BY ts_rank_cd(w.searchDocument, query) DESC, w.scheduleTime, w.workoutClassId LIMIT ? OFFSET ?";
+
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setString(1, tsQuery);
+            stmt.setInt(2, limit);
+            stmt.setInt(3, offset);
+            ResultSet rs = stmt.executeQuery();
+
+            while (rs.next()) {
+                workoutClasses.add(createWorkoutClassFromResultSet(rs));
+            }
+        }
+        return workoutClasses;
+    }
+
     /**
      * Retrieves all workout classes from the database.
      * @return A list of all WorkoutClass objects
      * @throws SQLException if a database access error occurs
      */
     public List<WorkoutClass> getAllWorkoutClasses() throws SQLException {
+        Connection connection = router.forRead();
         List<WorkoutClass> workoutClasses = new ArrayList<>();
         String sql = "SELECT * FROM WorkoutClasses";
 
-        try (Statement stmt = connection.createStatement();
+        try (Statement stmt = Deadline.apply(connection.createStatement());
              ResultSet rs = stmt.executeQuery(sql)) {
 
             while (rs.next()) {
@@ -108,54 +222,165 @@ public class WorkoutClassDAO {
     }
 
     /**
-     * Updates an existing workout class's details in the database.
-     * @param workoutClass The WorkoutClass object with updated details
-     * @return true if the update was successful, false otherwise
+     * Updates an existing workout class's details in the database, if it belongs to the class's trainer
+     * and is still at the version it was read at. The ownership and version checks are part of the
+     * UPDATE, so no other edit can slip in between check and write. On success the class's version is advanced.
+     * @param workoutClass The WorkoutClass object with updated details and the rowVersion it was read at
+     * @param keepSchedule If true, the update only applies while the stored start time and
+     *                     duration still equal the given ones (used when they are in the past)
+     * @return APPLIED, NOT_FOUND, UNAUTHORIZED if another trainer owns the class, or REJECTED if
+     *         keepSchedule is set and the schedule differs
+     * @throws StaleRowException if someone else changed the class since it was read
      * @throws SQLException if a database access error occurs
      */
-    public boolean updateWorkoutClass(WorkoutClass workoutClass) throws SQLException {
-        String sql = "UPDATE WorkoutClasses SET workoutClassType = ?, workoutClassDescription = ? " +
-                    "WHERE workoutClassId = ? AND trainerId = ?";
+    public MutationOutcome updateWorkoutClass(WorkoutClass workoutClass, boolean keepSchedule) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "WITH target AS (SELECT trainerId, rowVersion FROM WorkoutClasses WHERE workoutClassId = ?), " +
+                    "changed AS (UPDATE WorkoutClasses SET workoutClassType = ?, workoutClassDescription = ?, " +
+                    "scheduleTime = ?, duration = ?, capacity = ?, rowVersion = rowVersion + 1 " +
+                    "WHERE workoutClassId = ? AND trainerId = ? AND rowVersion = ?" +
+                    (keepSchedule ? " AND scheduleTime = ? AND duration = ?" : "") + " RETURNING rowVersion) " +
+                    "SELECT (SELECT trainerId FROM target) AS ownerId, (SELECT rowVersion FROM target) AS currentVersion, " +
+                    "(SELECT rowVersion FROM changed) AS newVersion";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
-            stmt.setString(1, workoutClass.getWorkoutClassType());
-            stmt.setString(2, workoutClass.getWorkoutClassDescription());
-            stmt.setInt(3, workoutClass.getWorkoutClassId());
-            stmt.setInt(4, workoutClass.getTrainerId());
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
+            stmt.setInt(1, workoutClass.getWorkoutClassId());
+            stmt.setString(2, workoutClass.getWorkoutClassType());
+            stmt.setString(3, workoutClass.getWorkoutClassDescription());
+            stmt.setObject(4, workoutClass.getScheduleTime());
+            stmt.setInt(5, workoutClass.getDurationMinutes());
+            stmt.setInt(6, workoutClass.getCapacity());
+            stmt.setInt(7, workoutClass.getWorkoutClassId());
+            stmt.setInt(8, workoutClass.getTrainerId());
+            stmt.setInt(9, workoutClass.getRowVersion());
+            if (keepSchedule) {
+                stmt.setObject(10, workoutClass.getScheduleTime());
+                stmt.setInt(11, workoutClass.getDurationMinutes());
+            }
 
-            return stmt.executeUpdate() > 0;
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                int newVersion = rs.getInt("newVersion");
+                if (!rs.wasNull()) {
+                    workoutClass.setRowVersion(newVersion);
+                    recordChange(1, JournalEvent.Operation.UPDATE, workoutClass.getWorkoutClassId(), toPayload(workoutClass));
+                    return MutationOutcome.APPLIED;
+                }
+                int ownerId = rs.getInt("ownerId");
+                if (rs.wasNull()) {
+                    return MutationOutcome.NOT_FOUND;
+                }
+                if (ownerId != workoutClass.getTrainerId()) {
+                    return MutationOutcome.UNAUTHORIZED;
+                }
+                int currentVersion = rs.getInt("currentVersion");
+                if (keepSchedule && currentVersion == workoutClass.getRowVersion()) {
+                    return MutationOutcome.REJECTED;
+                }
+                throw new StaleRowException(EntityType.WORKOUT_CLASS, workoutClass.getWorkoutClassId(),
+                        workoutClass.getRowVersion(), currentVersion);
+            }
         }
     }
 
     /**
-     * Deletes a workout class from the database by its unique workoutClassId and trainerId.
+     * Deletes a workout class from the database by its unique workoutClassId, if it belongs to the trainer.
+     * The ownership check is part of the DELETE, so it takes one round trip.
      * @param workoutClassId The unique identifier for the workout class
      * @param trainerId The trainer's unique identifier
-     * @return true if the workout class was deleted, false otherwise
+     * @return APPLIED, NOT_FOUND, or UNAUTHORIZED if another trainer owns the class
      * @throws SQLException if a database access error occurs
      */
-    public boolean deleteWorkoutClass(int workoutClassId, int trainerId) throws SQLException {
-        String sql = "DELETE FROM WorkoutClasses WHERE workoutClassId = ? AND trainerId = ?";
+    public MutationOutcome deleteWorkoutClass(int workoutClassId, int trainerId) throws SQLException {
+        Connection connection = router.forWrite();
+        String sql = "WITH target AS (SELECT trainerId FROM WorkoutClasses WHERE workoutClassId = ?), " +
+                    "removed AS (DELETE FROM WorkoutClasses WHERE workoutClassId = ? AND trainerId = ? RETURNING workoutClassId) " +
+                    "SELECT (SELECT trainerId FROM target) AS ownerId, (SELECT COUNT(*) FROM removed) AS affected";
 
-        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+        try (PreparedStatement stmt = Deadline.apply(connection.prepareStatement(sql))) {
             stmt.setInt(1, workoutClassId);
-            stmt.setInt(2, trainerId);
-            return stmt.executeUpdate() > 0;
+            stmt.setInt(2, workoutClassId);
+            stmt.setInt(3, trainerId);
+            MutationOutcome outcome = readOutcome(stmt, trainerId);
+            recordChange(outcome == MutationOutcome.APPLIED ? 1 : 0, JournalEvent.Operation.DELETE, workoutClassId, "");
+            return outcome;
+        }
+    }
+
+    /**
+     * Interprets the owner and affected-row count returned by an ownership-checked delete.
+     * The owner is read from the statement's snapshot, so a class that someone else deleted
+     * concurrently reports its owner but no affected row; that counts as not found.
+     * @param stmt      The prepared statement returning ownerId and affected
+     * @param trainerId The trainer making the change
+     * @return the outcome
+     * @throws SQLException if a database access error occurs
+     */
+    private static MutationOutcome readOutcome(PreparedStatement stmt, int trainerId) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery()) {
+            rs.next();
+            int ownerId = rs.getInt("ownerId");
+            if (rs.wasNull()) {
+                return MutationOutcome.NOT_FOUND;
+            }
+            if (rs.getLong("affected") > 0) {
+                return MutationOutcome.APPLIED;
+            }
+            return ownerId == trainerId ? MutationOutcome.NOT_FOUND : MutationOutcome.UNAUTHORIZED;
         }
     }
 
+    /**
+     * Records a workout class change in the event journal if any row was affected. Other nodes are told
+     * about the change by the table's notify_change trigger, as part of the mutation itself.
+     * @param rowsAffected   The update count of the mutation
+     * @param operation      The kind of mutation
+     * @param workoutClassId The unique identifier for the workout class
+     * @param payload        A JSON description of the workout class's new state
+     * @return true if any row was affected
+     */
+    private boolean recordChange(int rowsAffected, JournalEvent.Operation operation, int workoutClassId, String payload) {
+        if (rowsAffected > 0) {
+            EventJournal.record(EntityType.WORKOUT_CLASS, operation, workoutClassId, payload);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Describes a workout class for the event journal.
+     * @param workoutClass The workout class
+     * @return the JSON payload
+     */
+    static String toPayload(WorkoutClass workoutClass) {
+        return JournalEvent.payloadOf(
+                "workoutClassId", workoutClass.getWorkoutClassId(),
+                "workoutClassType", workoutClass.getWorkoutClassType(),
+                "workoutClassDescription", workoutClass.getWorkoutClassDescription(),
+                "trainerId", workoutClass.getTrainerId(),
+                "scheduleTime", workoutClass.getScheduleTime(),
+                "duration", workoutClass.getDurationMinutes(),
+                "capacity", workoutClass.getCapacity());
+    }
+
     /**
      * Creates a WorkoutClass object from a ResultSet row.
      * @param rs The ResultSet positioned at the workout class row
      * @return The WorkoutClass object
      * @throws SQLException if a database access error occurs
      */
-    private WorkoutClass createWorkoutClassFromResultSet(ResultSet rs) throws SQLException {
+    static WorkoutClass createWorkoutClassFromResultSet(ResultSet rs) throws SQLException {
         WorkoutClass workoutClass = new WorkoutClass();
         workoutClass.setWorkoutClassId(rs.getInt("workoutClassId"));
         workoutClass.setWorkoutClassType(rs.getString("workoutClassType"));
         workoutClass.setWorkoutClassDescription(rs.getString("workoutClassDescription"));
         workoutClass.setTrainerId(rs.getInt("trainerId"));
+        workoutClass.setScheduleTime(rs.getObject("scheduleTime", LocalDateTime.class));
+        workoutClass.setDurationMinutes(rs.getInt("duration"));
+        workoutClass.setCapacity(rs.getInt("capacity"));
+        workoutClass.setTemplateId(rs.getInt("templateId"));
+        workoutClass.setOccurrenceDate(rs.getObject("occurrenceDate", LocalDate.class));
+        workoutClass.setRowVersion(rs.getInt("rowVersion"));
         return workoutClass;
     }
 }
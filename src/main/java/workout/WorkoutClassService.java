@@ -1,53 +1,144 @@
 package workout;
 
+import admission.AdmissionController;
+import database.ChangeListener;
+import database.MutationOutcome;
+import database.OptimisticRetry;
+import database.SingleFlight;
+import database.StaleRowException;
+import database.TransactionManager;
+import database.TransientRetry;
+
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Service class for business logic related to workout classes in the Gym Management System.
  * Handles creation, retrieval, update, and deletion of workout classes.
  */
 public class WorkoutClassService {
+    private static final String ALL_CLASSES = "all";
+    private static final int SEARCH_CACHE_ENTRIES = 256;
+    /** The largest page a search returns. */
+    public static final int MAX_SEARCH_PAGE_SIZE = 100;
+
     private final WorkoutClassDAO workoutClassDAO;
+    private final SingleFlight<String, List<WorkoutClass>> listReads;
+    private final SingleFlight<Integer, WorkoutClass> classReads;
+    private final TrainerScheduleIndex scheduleIndex;
+    private final ClassSearchCache searchCache;
 
     /**
-     * Constructs a WorkoutClassService and initializes the WorkoutClassDAO.
+     * Constructs a WorkoutClassService, initializes the WorkoutClassDAO and loads every
+     * trainer's upcoming schedule for double-booking checks.
      * @throws SQLException if a database access error occurs
      */
     public WorkoutClassService() throws SQLException {
         this.workoutClassDAO = new WorkoutClassDAO();
+        this.listReads = new SingleFlight<>();
+        this.classReads = new SingleFlight<>();
+        this.scheduleIndex = new TrainerScheduleIndex(workoutClassDAO);
+        this.searchCache = new ClassSearchCache(SEARCH_CACHE_ENTRIES);
+        scheduleIndex.reload();
+        ChangeListener.getInstance().register(scheduleIndex);
+        ChangeListener.getInstance().register(searchCache);
+    }
+
+    /**
+     * Constructs a WorkoutClassService with its own WorkoutClassDAO, and therefore its own
+     * connections, that shares another service's schedule index, search cache and coalesced reads.
+     * Nothing new is loaded or registered for change notifications.
+     * @param shared The service whose in-memory state to share
+     * @throws SQLException if a database access error occurs
+     */
+    WorkoutClassService(WorkoutClassService shared) throws SQLException {
+        this.workoutClassDAO = new WorkoutClassDAO();
+        this.listReads = shared.listReads;
+        this.classReads = shared.classReads;
+        this.scheduleIndex = shared.scheduleIndex;
+        this.searchCache = shared.searchCache;
+    }
+
+    /**
+     * Creates a service with its own connections that shares this service's schedule index,
+     * search cache and coalesced reads, for use on another thread.
+     * @return the new WorkoutClassService
+     * @throws SQLException if a database access error occurs
+     */
+    public WorkoutClassService withOwnConnections() throws SQLException {
+        return new WorkoutClassService(this);
     }
 
     /**
      * Creates a new workout class with the specified details.
-     * @param type        The type of workout class (e.g., Yoga, HIIT)
-     * @param description The description of the workout class
-     * @param trainerId   The trainer's unique identifier
+     * @param type            The type of workout class (e.g., Yoga, HIIT)
+     * @param description     The description of the workout class
+     * @param trainerId       The trainer's unique identifier
+     * @param scheduleTime    When the class starts; must be in the future
+     * @param durationMinutes How long the class runs, in minutes
      * @return The created WorkoutClass object
      * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the schedule is invalid or the trainer is already booked at that time
      */
-    public WorkoutClass createWorkoutClass(String type, String description, int trainerId) throws SQLException {
+    public WorkoutClass createWorkoutClass(String type, String description, int trainerId,
+                                           LocalDateTime scheduleTime, int durationMinutes) throws SQLException {
         WorkoutClass workoutClass = new WorkoutClass();
         workoutClass.setWorkoutClassType(type);
         workoutClass.setWorkoutClassDescription(description);
         workoutClass.setTrainerId(trainerId);
+        workoutClass.setScheduleTime(scheduleTime);
+        workoutClass.setDurationMinutes(durationMinutes);
+        checkSchedule(workoutClass);
+
+        WorkoutClass created;
+        try {
+            created = workoutClassDAO.createWorkoutClass(workoutClass);
+        } catch (SQLException e) {
+            if (isDoubleBooking(e)) {
+                throw new IllegalArgumentException("Trainer is already booked for another class at that time");
+            }
+            throw e;
+        }
+        if (created != null) {
+            // Inside a transaction, other threads must not see the class until it commits
+            TransactionManager.afterCommit(() -> {
+                scheduleIndex.put(created);
+                searchCache.invalidateAll();
+            });
+        }
+        return created;
+    }
 
-        return workoutClassDAO.createWorkoutClass(workoutClass);
+    /**
+     * Checks whether a trainer is free for the whole of the given time range.
+     * @param trainerId       The trainer's unique identifier
+     * @param scheduleTime    When the proposed class starts
+     * @param durationMinutes How long the proposed class runs, in minutes
+     * @return true if none of the trainer's classes overlap the range
+     */
+    public boolean isTrainerAvailable(int trainerId, LocalDateTime scheduleTime, int durationMinutes) {
+        return scheduleIndex.findConflict(trainerId, scheduleTime, durationMinutes, 0) == 0;
     }
 
     /**
      * Retrieves a workout class by its unique workoutClassId.
+     * Concurrent requests for the same class share a single query.
      * @param workoutClassId The unique identifier for the workout class
      * @return The WorkoutClass object
      * @throws SQLException if a database access error occurs
      * @throws IllegalArgumentException if the workout class is not found
      */
     public WorkoutClass getWorkoutClassById(int workoutClassId) throws SQLException {
-        WorkoutClass workoutClass = workoutClassDAO.getWorkoutClassById(workoutClassId);
+        WorkoutClass workoutClass = classReads.execute(workoutClassId,
+                () -> TransientRetry.read(() -> workoutClassDAO.getWorkoutClassById(workoutClassId)));
         if (workoutClass == null) {
             throw new IllegalArgumentException("Workout class not found");
         }
-        return workoutClass;
+        // Each caller gets its own copy because callers edit the result before updating it
+        return new WorkoutClass(workoutClass);
     }
 
     /**
@@ -57,50 +148,245 @@ public class WorkoutClassService {
      * @throws SQLException if a database access error occurs
      */
     public List<WorkoutClass> getWorkoutClassesByTrainerId(int trainerId) throws SQLException {
-        return workoutClassDAO.getWorkoutClassesByTrainerId(trainerId);
+        return TransientRetry.read(() -> workoutClassDAO.getWorkoutClassesByTrainerId(trainerId));
+    }
+
+    /**
+     * Retrieves all workout classes that have not finished yet, earliest first.
+     * @return A list of upcoming WorkoutClass objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<WorkoutClass> getUpcomingWorkoutClasses() throws SQLException {
+        return TransientRetry.read(() -> workoutClassDAO.getWorkoutClassesEndingAfter(LocalDateTime.now()));
+    }
+
+    /**
+     * Retrieves the classes a member is enrolled in that have not finished yet, earliest first.
+     * @param memberId The member's unique identifier
+     * @return A list of the member's upcoming WorkoutClass objects
+     * @throws SQLException if a database access error occurs
+     */
+    public List<WorkoutClass> getUpcomingWorkoutClassesByMemberId(int memberId) throws SQLException {
+        return TransientRetry.read(() -> workoutClassDAO.getWorkoutClassesByMemberIdEndingAfter(memberId, LocalDateTime.now()));
     }
 
     /**
      * Retrieves all workout classes from the database.
+     * Concurrent requests share a single query, which keeps schedule publication spikes
+     * from turning into one SELECT per client.
      * @return A list of all WorkoutClass objects
      * @throws SQLException if a database access error occurs
      */
     public List<WorkoutClass> getAllWorkoutClasses() throws SQLException {
-        return workoutClassDAO.getAllWorkoutClasses();
+        return copyOf(AdmissionController.getInstance().admit(AdmissionController.Operation.LISTING,
+                () -> listReads.execute(ALL_CLASSES, () -> TransientRetry.read(workoutClassDAO::getAllWorkoutClasses))));
+    }
+
+    /**
+     * Searches class types and descriptions for every word in the text, matching word prefixes
+     * (so "yog" finds "Yoga"), best matches first. Popular pages are served from a small cache
+     * that is cleared whenever any class changes.
+     * @param text     The words to search for
+     * @param page     The zero-based page number
+     * @param pageSize The number of classes per page, at most {@link #MAX_SEARCH_PAGE_SIZE}
+     * @return A page of matching WorkoutClass objects; empty if the text has no searchable words
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the page or page size is out of range
+     */
+    public List<WorkoutClass> searchWorkoutClasses(String text, int page, int pageSize) throws SQLException {
+        if (page < 0 || pageSize <= 0 || pageSize > MAX_SEARCH_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_SEARCH_PAGE_SIZE);
+        }
+        String tsQuery = toPrefixQuery(text);
+        if (tsQuery.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String key = tsQuery + '|' + page + '|' + pageSize;
+        List<WorkoutClass> cached = searchCache.get(key);
+        if (cached == null) {
+            long generation = searchCache.getGeneration();
+            cached = AdmissionController.getInstance().admit(AdmissionController.Operation.SEARCH,
+                    () -> TransientRetry.read(() -> workoutClassDAO.searchWorkoutClasses(tsQuery, pageSize, page * pageSize)));
+            searchCache.put(key, generation, cached);
+        }
+        return copyOf(cached);
+    }
+
+    /**
+     * Gets the request coalescing metrics for the hot read paths.
+     * @return a summary of requests, database executions and collapse ratio per read path
+     */
+    public String getReadCoalescingStats() {
+        return "getAllWorkoutClasses: " + listReads + System.lineSeparator()
+                + "getWorkoutClassById: " + classReads + System.lineSeparator()
+                + "searchWorkoutClasses cache: " + searchCache;
     }
 
     /**
      * Updates an existing workout class's details.
-     * Verifies that the class exists and belongs to the trainer.
-     * @param workoutClass The WorkoutClass object with updated details
-     * @return true if the update was successful, false otherwise
+     * The UPDATE itself checks that the class exists and belongs to the trainer; the schedule
+     * index checks that the schedule does not double-book the trainer.
+     * The update only applies if nobody changed the class since it was read.
+     * @param workoutClass The WorkoutClass object with updated details and the rowVersion it was read at
+     * @return true if the update was successful
+     * @throws StaleRowException if someone else changed the class since it was read
      * @throws SQLException if a database access error occurs
-     * @throws IllegalArgumentException if unauthorized to update
+     * @throws IllegalArgumentException if the class does not exist, belongs to another trainer, or the new schedule is invalid or conflicts
      */
     public boolean updateWorkoutClass(WorkoutClass workoutClass) throws SQLException {
-        // Verify that the workout class exists and belongs to the trainer
-        WorkoutClass existingClass = workoutClassDAO.getWorkoutClassById(workoutClass.getWorkoutClassId());
-        if (existingClass == null || existingClass.getTrainerId() != workoutClass.getTrainerId()) {
-            throw new IllegalArgumentException("Unauthorized to update this workout class");
+        // A start time in the past is only allowed if it is unchanged, which the UPDATE itself checks
+        boolean inPast = workoutClass.getScheduleTime() != null && workoutClass.getScheduleTime().isBefore(LocalDateTime.now());
+        if (!inPast) {
+            checkSchedule(workoutClass);
+        }
+
+        MutationOutcome outcome;
+        try {
+            outcome = TransientRetry.write(() -> workoutClassDAO.updateWorkoutClass(workoutClass, inPast));
+        } catch (SQLException e) {
+            if (isDoubleBooking(e)) {
+                throw new IllegalArgumentException("Trainer is already booked for another class at that time");
+            }
+            throw e;
         }
-        return workoutClassDAO.updateWorkoutClass(workoutClass);
+        switch (outcome) {
+            case NOT_FOUND:
+                throw new IllegalArgumentException("Workout class not found");
+            case UNAUTHORIZED:
+                throw new IllegalArgumentException("Unauthorized to update this workout class");
+            case REJECTED:
+                throw new IllegalArgumentException("Classes must be scheduled in the future");
+            default:
+                WorkoutClass updated = new WorkoutClass(workoutClass);
+                TransactionManager.afterCommit(() -> {
+                    scheduleIndex.put(updated);
+                    searchCache.invalidateAll();
+                });
+                return true;
+        }
+    }
+
+    /**
+     * Reads one of a trainer's classes, applies an edit and saves it, re-reading and re-applying the
+     * edit if someone else changed the class in between. No lock is held while the edit is applied.
+     * @param workoutClassId The unique identifier for the workout class
+     * @param trainerId      The trainer's unique identifier
+     * @param edit           The change to make; it may run more than once
+     * @return the updated WorkoutClass object
+     * @throws StaleRowException if the class kept changing for {@value OptimisticRetry#DEFAULT_ATTEMPTS} attempts
+     * @throws SQLException if a database access error occurs
+     * @throws IllegalArgumentException if the class does not exist, belongs to another trainer, or the edited schedule is invalid
+     */
+    public WorkoutClass updateWorkoutClass(int workoutClassId, int trainerId, Consumer<WorkoutClass> edit) throws SQLException {
+        return OptimisticRetry.run(OptimisticRetry.DEFAULT_ATTEMPTS, () -> {
+            WorkoutClass workoutClass = getWorkoutClassById(workoutClassId);
+            if (workoutClass.getTrainerId() != trainerId) {
+                throw new IllegalArgumentException("Unauthorized to update this workout class");
+            }
+            edit.accept(workoutClass);
+            // The edit cannot hand the class to another trainer; the UPDATE checks ownership against this id
+            workoutClass.setTrainerId(trainerId);
+            updateWorkoutClass(workoutClass);
+            return workoutClass;
+        });
     }
 
     /**
      * Deletes a workout class by its unique workoutClassId and trainerId.
-     * Verifies that the class exists and belongs to the trainer.
+     * The class must exist and belong to the trainer; both are checked by the DELETE itself.
      * @param workoutClassId The unique identifier for the workout class
      * @param trainerId      The trainer's unique identifier
-     * @return true if the workout class was deleted, false otherwise
+     * @return true if the workout class was deleted
      * @throws SQLException if a database access error occurs
-     * @throws IllegalArgumentException if unauthorized to delete
+     * @throws IllegalArgumentException if the class does not exist or belongs to another trainer
      */
     public boolean deleteWorkoutClass(int workoutClassId, int trainerId) throws SQLException {
-        // Verify that the workout class exists and belongs to the trainer
-        WorkoutClass existingClass = workoutClassDAO.getWorkoutClassById(workoutClassId);
-        if (existingClass == null || existingClass.getTrainerId() != trainerId) {
-            throw new IllegalArgumentException("Unauthorized to delete this workout class");
+        switch (TransientRetry.write(() -> workoutClassDAO.deleteWorkoutClass(workoutClassId, trainerId))) {
+            case NOT_FOUND:
+                throw new IllegalArgumentException("Workout class not found");
+            case UNAUTHORIZED:
+                throw new IllegalArgumentException("Unauthorized to delete this workout class");
+            default:
+                TransactionManager.afterCommit(() -> {
+                    scheduleIndex.remove(workoutClassId);
+                    searchCache.invalidateAll();
+                });
+                return true;
+        }
+    }
+
+    /**
+     * Gets the index of trainer schedules, shared with the class template generator.
+     * @return the schedule index
+     */
+    TrainerScheduleIndex getScheduleIndex() {
+        return scheduleIndex;
+    }
+
+    /**
+     * Validates a class's schedule and checks the trainer is free, using the in-memory schedule index.
+     * @param workoutClass The class with its proposed schedule
+     * @throws IllegalArgumentException if the schedule is invalid or the trainer is already booked
+     */
+    private void checkSchedule(WorkoutClass workoutClass) {
+        if (workoutClass.getScheduleTime() == null || workoutClass.getScheduleTime().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Classes must be scheduled in the future");
+        }
+        if (workoutClass.getDurationMinutes() <= 0 || workoutClass.getDurationMinutes() > WorkoutClassDAO.MAX_DURATION_MINUTES) {
+            throw new IllegalArgumentException("Class duration must be between 1 and " + WorkoutClassDAO.MAX_DURATION_MINUTES + " minutes");
+        }
+        int conflict = scheduleIndex.findConflict(workoutClass.getTrainerId(), workoutClass.getScheduleTime(),
+                workoutClass.getDurationMinutes(), workoutClass.getWorkoutClassId());
+        if (conflict != 0) {
+            throw new IllegalArgumentException("Trainer is already booked for workout class #" + conflict + " at that time");
+        }
+    }
+
+    /**
+     * Checks whether a database error is a violation of the no_trainer_double_booking constraint,
+     * i.e. a booking that slipped past the in-memory check, such as one made concurrently on another node.
+     * @param e The database error
+     * @return true if the error reports a trainer double-booking
+     */
+    private static boolean isDoubleBooking(SQLException e) {
+        return WorkoutClassDAO.EXCLUSION_VIOLATION.equals(e.getSQLState());
+    }
+
+    /**
+     * Turns free text into a tsquery that requires every word as a prefix, e.g. "Yog flow" becomes
+     * {@code yog:* & flow:*}. Everything but letters and digits is dropped, so user input can never
+     * produce tsquery syntax errors.
+     * @param text The words to search for
+     * @return the tsquery, or an empty string if the text has no words
+     */
+    static String toPrefixQuery(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder query = new StringBuilder();
+        for (String word : text.toLowerCase().split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(" & ");
+            }
+            query.append(word).append(":*");
+        }
+        return query.toString();
+    }
+
+    /**
+     * Copies a shared list of workout classes so the caller can modify it freely.
+     * @param workoutClasses The shared list
+     * @return A list of copies
+     */
+    private static List<WorkoutClass> copyOf(List<WorkoutClass> workoutClasses) {
+        List<WorkoutClass> copies = new ArrayList<>(workoutClasses.size());
+        for (WorkoutClass workoutClass : workoutClasses) {
+            copies.add(new WorkoutClass(workoutClass));
         }
-        return workoutClassDAO.deleteWorkoutClass(workoutClassId, trainerId);
+        return copies;
     }
 }
@@ -1,3 +1,6 @@
+-- pg_trgm provides the trigram indexes behind "contains" user search
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
 -- Create Users table
 CREATE TABLE IF NOT EXISTS Users (
     userId SERIAL PRIMARY KEY,
@@ -6,9 +9,16 @@ CREATE TABLE IF NOT EXISTS Users (
     userEmail VARCHAR(100) UNIQUE NOT NULL,
     userAddress VARCHAR(255) NOT NULL,
     userPhoneNumber VARCHAR(20) NOT NULL,
-    userRole VARCHAR(10) NOT NULL CHECK (userRole IN ('ADMIN', 'TRAINER', 'MEMBER'))
+    userRole VARCHAR(10) NOT NULL CHECK (userRole IN ('ADMIN', 'TRAINER', 'MEMBER')),
+    userPhoneDigits VARCHAR(20) GENERATED ALWAYS AS (regexp_replace(userPhoneNumber, '[^0-9]', '', 'g')) STORED,
+    rowVersion INTEGER NOT NULL DEFAULT 1 -- incremented on every update; edits check it to avoid lost updates
 );
 
+-- Front desk search by name, email or phone digits (LIKE 'abc%' and LIKE '%abc%')
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON Users USING gin (lower(userName) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_email_trgm ON Users USING gin (lower(userEmail) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_users_phone_trgm ON Users USING gin (userPhoneDigits gin_trgm_ops);
+
 -- Insert default admin user (password: admin123)
 INSERT INTO Users (userName, userPassword, userEmail, userPhoneNumber, userAddress, userRole)
 VALUES ('admin', '$2a$10$um1FBG4IObPrdeyFTJxXf.jbckbLPO8a2HJz5ht/cdBR4b1wawM/C', 'admin@gym.com', '555-0000', '123 Admin St', 'ADMIN')
@@ -23,10 +33,56 @@ CREATE TABLE IF NOT EXISTS Memberships (
     userId INTEGER NOT NULL,
     startDate DATE NOT NULL DEFAULT CURRENT_DATE,
     endDate DATE,
+    anchorDate DATE, -- the day first bought; each renewal ends the day before an anniversary of it
+    membershipStatus VARCHAR(10) NOT NULL DEFAULT 'ACTIVE' CHECK (membershipStatus IN ('ACTIVE', 'EXPIRED')),
+    autoRenew BOOLEAN NOT NULL DEFAULT FALSE,
+    rowVersion INTEGER NOT NULL DEFAULT 1, -- incremented on every update
     FOREIGN KEY (userId) REFERENCES Users(userId) ON DELETE CASCADE,
     CHECK (endDate > startDate)
 );
 
+-- Active memberships by end date, used by status queries and the nightly expiry sweeper
+CREATE INDEX IF NOT EXISTS idx_memberships_active_enddate ON Memberships (endDate) WHERE membershipStatus = 'ACTIVE';
+CREATE INDEX IF NOT EXISTS idx_memberships_user_enddate ON Memberships (userId, endDate);
+
+-- Create MembershipOutbox table (membership events awaiting delivery to billing/CRM integrations)
+CREATE TABLE IF NOT EXISTS MembershipOutbox (
+    outboxId BIGSERIAL PRIMARY KEY,
+    membershipId INTEGER NOT NULL,
+    eventType VARCHAR(50) NOT NULL,
+    payload TEXT NOT NULL,
+    createdAt TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- btree_gist lets the WorkoutClasses exclusion constraint combine trainerId equality with time range overlap
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Create ClassTemplates table (recurring classes expanded into WorkoutClasses rows ahead of time)
+CREATE TABLE IF NOT EXISTS ClassTemplates (
+    templateId SERIAL PRIMARY KEY,
+    workoutClassType VARCHAR(50) NOT NULL,
+    workoutClassDescription TEXT,
+    trainerId INTEGER NOT NULL,
+    capacity INTEGER NOT NULL CHECK (capacity > 0),
+    startTime TIME NOT NULL,
+    duration INTEGER NOT NULL CHECK (duration > 0), -- duration in minutes
+    frequency VARCHAR(10) NOT NULL CHECK (frequency IN ('DAILY', 'WEEKLY')),
+    repeatInterval INTEGER NOT NULL DEFAULT 1 CHECK (repeatInterval > 0),
+    byDays VARCHAR(20), -- weekday codes such as 'TU,TH' for weekly templates
+    firstDate DATE NOT NULL,
+    untilDate DATE,
+    FOREIGN KEY (trainerId) REFERENCES Users(userId) ON DELETE CASCADE,
+    CHECK (untilDate >= firstDate)
+);
+
+-- Create ClassTemplateExceptions table (dates a recurring class is skipped)
+CREATE TABLE IF NOT EXISTS ClassTemplateExceptions (
+    templateId INTEGER NOT NULL,
+    exceptionDate DATE NOT NULL,
+    PRIMARY KEY (templateId, exceptionDate),
+    FOREIGN KEY (templateId) REFERENCES ClassTemplates(templateId) ON DELETE CASCADE
+);
+
 -- Create WorkoutClasses table
 CREATE TABLE IF NOT EXISTS WorkoutClasses (
     workoutClassId SERIAL PRIMARY KEY,
@@ -36,15 +92,105 @@ CREATE TABLE IF NOT EXISTS WorkoutClasses (
     capacity INTEGER NOT NULL CHECK (capacity > 0),
     scheduleTime TIMESTAMP NOT NULL,
     duration INTEGER NOT NULL CHECK (duration > 0), -- duration in minutes
-    FOREIGN KEY (trainerId) REFERENCES Users(userId) ON DELETE CASCADE
+    templateId INTEGER, -- set for classes generated from a recurring template
+    occurrenceDate DATE,
+    rowVersion INTEGER NOT NULL DEFAULT 1, -- incremented on every update
+    -- Search text: the type is weighted above the description when ranking
+    searchDocument TSVECTOR GENERATED ALWAYS AS (
+        setweight(to_tsvector('english', coalesce(workoutClassType, '')), 'A') ||
+        setweight(to_tsvector('english', coalesce(workoutClassDescription, '')), 'B')
+    ) STORED,
+    FOREIGN KEY (trainerId) REFERENCES Users(userId) ON DELETE CASCADE,
+    FOREIGN KEY (templateId) REFERENCES ClassTemplates(templateId) ON DELETE SET NULL,
+    -- Each template occurrence is generated at most once, which makes expansion idempotent
+    UNIQUE (templateId, occurrenceDate),
+    -- A trainer can never be booked for two overlapping classes
+    CONSTRAINT no_trainer_double_booking EXCLUDE USING gist (
+        trainerId WITH =,
+        tsrange(scheduleTime, scheduleTime + duration * INTERVAL '1 minute') WITH &&
+    )
 );
 
--- Create ClassEnrollments table
+CREATE INDEX IF NOT EXISTS idx_workoutclasses_scheduletime ON WorkoutClasses (scheduleTime);
+CREATE INDEX IF NOT EXISTS idx_workoutclasses_search ON WorkoutClasses USING gin (searchDocument);
+
+-- Create ClassEnrollments table, partitioned by month of enrollment
+-- Monthly partitions are created ahead of time and retired by database.PartitionMaintainer
 CREATE TABLE IF NOT EXISTS ClassEnrollments (
-    enrollmentId SERIAL PRIMARY KEY,
+    enrollmentId SERIAL,
     classId INTEGER NOT NULL,
     memberId INTEGER NOT NULL,
     enrollmentDate TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (enrollmentId, enrollmentDate), -- a partitioned table's keys must include the partition key
     FOREIGN KEY (classId) REFERENCES WorkoutClasses(workoutClassId) ON DELETE CASCADE,
     FOREIGN KEY (memberId) REFERENCES Users(userId) ON DELETE CASCADE
-);
\ No newline at end of file
+) PARTITION BY RANGE (enrollmentDate);
+
+-- Serves a member's upcoming classes on their dashboard
+CREATE INDEX IF NOT EXISTS idx_classenrollments_member ON ClassEnrollments (memberId, classId);
+
+-- Create Attendance table (door check-ins, written in batches by attendance.AttendanceRecorder), partitioned by month
+-- No foreign keys: rows are bulk-loaded at door rate and denied check-ins may carry unknown ids
+CREATE TABLE IF NOT EXISTS Attendance (
+    userId INTEGER NOT NULL,
+    doorId INTEGER NOT NULL,
+    checkedInAt TIMESTAMP NOT NULL,
+    admitted BOOLEAN NOT NULL
+) PARTITION BY RANGE (checkedInAt);
+
+CREATE INDEX IF NOT EXISTS idx_attendance_user_checkedinat ON Attendance (userId, checkedInAt);
+
+-- Create this month's partitions and the next three, so rows can be inserted before PartitionMaintainer first runs
+-- Names match PartitionMaintainer's (e.g. attendance_p2026_10); tables from before partitioning are left alone
+DO '
+DECLARE
+    partitioned TEXT;
+    first_day DATE;
+BEGIN
+    FOREACH partitioned IN ARRAY ARRAY[''ClassEnrollments'', ''Attendance''] LOOP
+        IF (SELECT relkind FROM pg_class WHERE oid = to_regclass(partitioned)) = ''p'' THEN
+            FOR ahead IN 0..3 LOOP
+                first_day := (date_trunc(''month'', CURRENT_DATE) + make_interval(months => ahead))::date;
+                EXECUTE format(''CREATE TABLE IF NOT EXISTS %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)'',
+                        lower(partitioned) || to_char(first_day, ''"_p"YYYY_MM''), lower(partitioned),
+                        first_day, (first_day + INTERVAL ''1 month'')::date);
+            END LOOP;
+        END IF;
+    END LOOP;
+END';
+-- Announces every change to a cached table to all nodes on the gym_changes channel (see database.ChangeNotifier)
+-- The notification is sent by the writing statement itself, so it costs no extra round trip and is only
+-- delivered if the write commits. Bulk jobs SET LOCAL gym.bulk_change = 'on' and announce ENTITY:* once instead.
+-- The body is quoted with '' rather than $$ because the setup script is split on semicolons outside quotes.
+CREATE OR REPLACE FUNCTION notify_change() RETURNS trigger LANGUAGE plpgsql AS '
+DECLARE
+    changed JSONB;
+BEGIN
+    IF coalesce(current_setting(''gym.bulk_change'', true), '''') = ''on'' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP = ''DELETE'' THEN
+        changed := to_jsonb(OLD);
+    ELSE
+        changed := to_jsonb(NEW);
+    END IF;
+    PERFORM pg_notify(''gym_changes'', TG_ARGV[0] || '':'' || (changed ->> TG_ARGV[1]));
+    RETURN NULL;
+END';
+
+-- Trigger arguments: the database.EntityType name and the (lower-case) id column
+DROP TRIGGER IF EXISTS users_notify_change ON Users;
+CREATE TRIGGER users_notify_change AFTER INSERT OR UPDATE OR DELETE ON Users
+    FOR EACH ROW EXECUTE FUNCTION notify_change('USER', 'userid');
+DROP TRIGGER IF EXISTS memberships_notify_change ON Memberships;
+CREATE TRIGGER memberships_notify_change AFTER INSERT OR UPDATE OR DELETE ON Memberships
+    FOR EACH ROW EXECUTE FUNCTION notify_change('MEMBERSHIP', 'membershipid');
+DROP TRIGGER IF EXISTS workoutclasses_notify_change ON WorkoutClasses;
+CREATE TRIGGER workoutclasses_notify_change AFTER INSERT OR UPDATE OR DELETE ON WorkoutClasses
+    FOR EACH ROW EXECUTE FUNCTION notify_change('WORKOUT_CLASS', 'workoutclassid');
+DROP TRIGGER IF EXISTS classtemplates_notify_change ON ClassTemplates;
+CREATE TRIGGER classtemplates_notify_change AFTER INSERT OR UPDATE OR DELETE ON ClassTemplates
+    FOR EACH ROW EXECUTE FUNCTION notify_change('CLASS_TEMPLATE', 'templateid');
+DROP TRIGGER IF EXISTS classtemplateexceptions_notify_change ON ClassTemplateExceptions;
+CREATE TRIGGER classtemplateexceptions_notify_change AFTER INSERT OR UPDATE OR DELETE ON ClassTemplateExceptions
+    FOR EACH ROW EXECUTE FUNCTION notify_change('CLASS_TEMPLATE', 'templateid');